@@ -5,8 +5,7 @@
 
 package applications;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Random;
 
 import movement.MovementModel;
@@ -21,6 +20,7 @@ import core.World;
 import core.Coord;
 import core.DTNSim;
 import routing.FloatingContentRouter;
+import routing.util.AnchorZoneIndex;
 
 /**
  * Simple floating application to demonstrate the application support. The 
@@ -60,7 +60,8 @@ public class FloatingApplication extends Application {
     public static final int MODE_FIXED_ANCHOR = 0;
     public static final int MODE_VARIABLE_ANCHOR = 1;
     
-    private static  LinkedList<Message> msgs = new LinkedList<Message> ();
+    /** anchor zones of the live messages for the flux calculation */
+    private static  AnchorZoneIndex zones = null;
     
     private double  lastMessage   = 0;
     private double  interval      = 500;
@@ -311,6 +312,11 @@ public class FloatingApplication extends Application {
 	public Application replicate() {
 	return new FloatingApplication(this);
     }
+
+    @Override
+	public boolean isParallelReplicationSupported() {
+	return false; /* the message numbers and anchor zones are static */
+    }
     
     /** 
      * Sends floating messages according to the parameterization provided in the config file.
@@ -356,32 +362,16 @@ public class FloatingApplication extends Application {
 		    in_anchor_zone = true;
 		}
 	    } else {
-		ListIterator i = FloatingApplication.msgs.listIterator ();
-		Message      m, m_del = null;
-		double       anchor_r2;
-		Coord        anchor;
-		double       ttl;
-
-		while (i.hasNext()) {
-		    m          = (Message) i.next ();
-		    anchor     = (Coord) m.getProperty ("anchor");
-		    anchor_r2  = (Double) m.getProperty ("r");
-		    anchor_r2 *= anchor_r2;
-		    ttl        = (Double) m.getProperty ("ttl");
-
-		    location = host.getLocation();
-		    if (curTime < ttl) {
-			if (location.distance2 (anchor) <= anchor_r2) {
-			    node_plus_anchor = m.toString () + " " + anchor + " " + location;
-			    super.sendEventToListeners ("in", node_plus_anchor, host);
-			}
-		    } else {
-			if (m_del == null)
-			    m_del = m;
+		/* only the zones around the node are checked */
+		location = host.getLocation();
+		if (zones != null) {
+		    zones.removeExpired (curTime);
+		    List<Message> in_zones = zones.getZonesAt (location, curTime);
+		    for (Message m : in_zones) {
+			node_plus_anchor = m.toString () + " " + m.getProperty ("anchor") + " " + location;
+			super.sendEventToListeners ("in", node_plus_anchor, host);
 		    }
 		}
-		if (m_del != null)
-		    FloatingApplication.msgs.remove (m_del);
 	    }
 	}
 
@@ -476,8 +466,11 @@ public class FloatingApplication extends Application {
 		    /* ttl needs to be set after message creation */
 		    m.setTtl ((int) (msgttl));
 		    
-		    if (flux)
-			FloatingApplication.msgs.add (m);
+		    if (flux) {
+			if (zones == null)
+			    zones = new AnchorZoneIndex (Math.max (anchor_r_max, 1));
+			zones.add (m, (Coord) m.getProperty ("anchor"), r, SimClock.getTime() + msgttl);
+		    }
 		    lastMessage = curTime + (rng.nextDouble () - 0.5) * interval/2;
 		}
 	    }	    
@@ -751,6 +744,6 @@ public class FloatingApplication extends Application {
 
     public static void reset() {
 	/* do your reset'ing here */
-	msgs.clear();
+	zones = null;
     }
 }
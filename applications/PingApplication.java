@@ -165,6 +165,11 @@ public class PingApplication extends Application {
 		return new PingApplication(this);
 	}
 
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
+
 	/** 
 	 * Sends a ping packet if this is an active application instance.
 	 * 
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps track of which hosts need moving and updating. A host that is idle
+ * after its update (see {@link DTNHost#getIdleUntil()}) is parked: the
+ * world doesn't move nor update it until it is woken up. Parked hosts are
+ * woken up at the end of their idle time (the host's next move or 
+ * activeness change) from a wake-up queue, or earlier when they get a new
+ * connection or message.
+ */
+public class ActiveHostSet {
+	/** Parked hosts by their wake-up time */
+	private PriorityQueue<WakeUp> queue;
+	private int nrofParked;
+
+	/**
+	 * Creates a new active host set for the hosts. All hosts are active
+	 * at first.
+	 * @param hosts The hosts
+	 */
+	public ActiveHostSet(List<DTNHost> hosts) {
+		this.queue = new PriorityQueue<WakeUp>(11, new Comparator<WakeUp>() {
+			public int compare(WakeUp a, WakeUp b) {
+				return Double.compare(a.time, b.time);
+			}
+		});
+		for (DTNHost host : hosts) {
+			host.setActiveHostSet(this);
+		}
+	}
+
+	/**
+	 * Parks the host if it is idle
+	 * @param host The host
+	 * @return true if the host was parked
+	 */
+	public boolean parkIfIdle(DTNHost host) {
+		double until = host.getIdleUntil();
+		if (until <= SimClock.getTime()) {
+			return false;
+		}
+
+		host.setParked(true, until);
+		nrofParked++;
+		if (until < Double.MAX_VALUE) {
+			queue.add(new WakeUp(host, until));
+		}
+		return true;
+	}
+
+	/**
+	 * Wakes up a parked host
+	 * @param host The host
+	 */
+	public void wakeUp(DTNHost host) {
+		if (host.isParked()) {
+			host.setParked(false, 0);
+			nrofParked--;
+		}
+	}
+
+	/**
+	 * Wakes up the parked hosts whose idle time has ended
+	 * @param time The current time
+	 */
+	public void wakeUpDue(double time) {
+		while (!queue.isEmpty() && queue.peek().time <= time) {
+			WakeUp w = queue.poll();
+			/* the host may have been woken up (and parked again) already */
+			if (w.host.isParked() && w.host.getParkedUntil() == w.time) {
+				wakeUp(w.host);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of parked hosts
+	 * @return the number of parked hosts
+	 */
+	public int getNrofParked() {
+		return this.nrofParked;
+	}
+
+	/**
+	 * A parked host and its wake-up time
+	 */
+	private static class WakeUp {
+		private DTNHost host;
+		private double time;
+
+		private WakeUp(DTNHost host, double time) {
+			this.host = host;
+			this.time = time;
+		}
+	}
+}
@@ -101,6 +101,18 @@ public abstract class Application {
 	
 	public abstract Application replicate();
 	
+	/**
+	 * Returns true if this (prototype) application can be replicated by 
+	 * many threads at the same time. This requires that the replication 
+	 * doesn't modify the prototype or other shared state. Applications 
+	 * whose replication has been checked to be thread safe override this 
+	 * to return true.
+	 * @return true if the application can be replicated in parallel
+	 */
+	public boolean isParallelReplicationSupported() {
+		return false;
+	}
+	
 	public void setAppListeners (List<ApplicationListener> aListeners){
 		this.aListeners = aListeners;
 	}
@@ -56,6 +56,11 @@ public class CBRConnection extends Connection {
 			this.msgOnFly = newMessage;
 			this.transferDoneTime = SimClock.getTime() + 
 			(1.0*m.getSize()) / this.speed;
+			notifyTransferState();
+			TransferQueue queue = from.getTransferQueue();
+			if (queue != null) {
+				queue.add(this);
+			}
 		}
 
 		return retVal;
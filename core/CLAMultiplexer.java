@@ -0,0 +1,447 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import fi.tkk.netlab.dtn.ecla.CLAParser;
+
+/**
+ * Multiplexes the external convergence layer connections to dtnd routers
+ * on a single selector thread. The connections are opened without blocking
+ * (so all dtnd connections are set up concurrently) and the selector thread
+ * does all socket reads and writes. The ECLA parsers read and write
+ * in-memory streams fed by the selector thread.
+ * <P>The ECLA parser is a blocking XML stream parser, so each parser still
+ * needs a thread of its own for parsing. The parser exits the whole VM when
+ * its input ends, so when a dtnd closes the connection (or it can't be
+ * connected) the parser is stopped and its input is left open. The parser
+ * also starts a new XML reader after every message, so its input returns
+ * at most one message per read to keep the reader from buffering (and
+ * losing) the start of the next message.</P>
+ */
+public class CLAMultiplexer implements Runnable {
+	/** Size of the selector thread's read buffer */
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+	/** Number of bytes buffered for a parser that pauses reading the
+	 * parser's connection */
+	private static final int MAX_BUFFERED = 64 * 1024;
+	/** End tag of the ECLA messages */
+	private static final byte[] MESSAGE_END = {'<', '/', 'c', 'l', '_', 'm',
+		'e', 's', 's', 'a', 'g', 'e', '>'};
+
+	private Selector selector;
+	private ByteBuffer readBuffer;
+	/** Connections whose selector registration needs updating */
+	private Queue<Connection> updates;
+	private Thread thread;
+	private volatile boolean running;
+
+	/**
+	 * Creates a new multiplexer and starts its selector thread
+	 * @throws SimError if the selector can't be opened
+	 */
+	public CLAMultiplexer() {
+		try {
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			throw new SimError("Can't open the CLA selector", e);
+		}
+		this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		this.updates = new ConcurrentLinkedQueue<Connection>();
+		this.running = true;
+		this.thread = new Thread(this, "CLAMultiplexer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Opens a connection to a dtnd router's ECLA port and creates an ECLA
+	 * parser for it. The connection is completed in the background; the
+	 * parser's messages are sent once it is connected. The caller must set
+	 * the parser's listener and run the parser.
+	 * @param host Host name of the dtnd
+	 * @param port The ECLA port of the dtnd
+	 * @param name Name of the convergence layer adapter
+	 * @return The parser of the connection
+	 */
+	public CLAParser open(String host, int port, String name) {
+		Connection c = new Connection(host, port);
+		c.parser = new CLAParser(c.in, c.out, name);
+		if (c.channel.isOpen()) {
+			requestUpdate(c);
+		} else {
+			c.parser.stop();
+		}
+		return c.parser;
+	}
+
+	/**
+	 * Stops the selector thread and closes all connections
+	 */
+	public void stop() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Runs the selector loop until {@link #stop()} is called
+	 */
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				Debug.p("CLA selector failed: " + e);
+				break;
+			}
+
+			Connection c;
+			while ((c = updates.poll()) != null) {
+				updateRegistration(c);
+			}
+
+			for (SelectionKey key : selector.selectedKeys()) {
+				c = (Connection)key.attachment();
+				try {
+					if (key.isValid() && key.isConnectable()) {
+						c.connected = c.channel.finishConnect();
+					}
+					if (key.isValid() && key.isReadable()) {
+						read(c);
+					}
+					if (key.isValid() && key.isWritable()) {
+						write(c);
+					}
+				} catch (IOException e) {
+					Debug.p("Connection to dtnd at " + c.address +
+							" failed: " + e);
+					close(c);
+					continue;
+				}
+				if (c.channel.isOpen()) {
+					updateRegistration(c);
+				}
+			}
+			selector.selectedKeys().clear();
+		}
+
+		for (SelectionKey key : selector.keys()) {
+			close((Connection)key.attachment());
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			/* nothing to do */
+		}
+	}
+
+	/**
+	 * Asks the selector thread to update the registration of a connection
+	 * @param c The connection
+	 */
+	private void requestUpdate(Connection c) {
+		updates.add(c);
+		selector.wakeup();
+	}
+
+	/**
+	 * Registers the connection's channel for the operations it is
+	 * currently interested in
+	 * @param c The connection
+	 */
+	private void updateRegistration(Connection c) {
+		int ops;
+		if (!c.channel.isOpen()) {
+			return;
+		} else if (!c.connected) {
+			ops = SelectionKey.OP_CONNECT;
+		} else {
+			ops = (c.in.isFull() ? 0 : SelectionKey.OP_READ) |
+				(c.out.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+		}
+
+		try {
+			if (c.key == null) {
+				c.key = c.channel.register(selector, ops, c);
+			} else {
+				c.key.interestOps(ops);
+			}
+		} catch (IOException e) {
+			Debug.p("Can't register connection to dtnd at " + c.address);
+			close(c);
+		}
+	}
+
+	/**
+	 * Reads the available data of a connection to the parser's input
+	 * @param c The connection
+	 * @throws IOException if reading fails
+	 */
+	private void read(Connection c) throws IOException {
+		int n;
+		while (!c.in.isFull() && (n = c.channel.read(readBuffer)) != 0) {
+			if (n < 0) {
+				Debug.p("dtnd at " + c.address + " closed the connection");
+				close(c);
+				return;
+			}
+			c.in.append(readBuffer.array(), n);
+			readBuffer.clear();
+		}
+	}
+
+	/**
+	 * Writes the parser's queued output to the connection
+	 * @param c The connection
+	 * @throws IOException if writing fails
+	 */
+	private void write(Connection c) throws IOException {
+		ByteBuffer buf;
+		while ((buf = c.out.peek()) != null) {
+			c.channel.write(buf);
+			if (buf.hasRemaining()) {
+				return; /* socket buffer full */
+			}
+			c.out.remove();
+		}
+	}
+
+	/**
+	 * Closes a connection and stops its parser
+	 * @param c The connection
+	 */
+	private void close(Connection c) {
+		if (c.key != null) {
+			c.key.cancel();
+		}
+		try {
+			c.channel.close();
+		} catch (IOException e) {
+			/* nothing to do */
+		}
+		if (c.parser != null) {
+			c.parser.stop();
+		}
+	}
+
+	/**
+	 * A connection to a dtnd with the streams of its parser
+	 */
+	private class Connection {
+		private InetSocketAddress address;
+		private SocketChannel channel;
+		private SelectionKey key;
+		private volatile boolean connected;
+		private volatile CLAParser parser;
+		private ParserInput in;
+		private ParserOutput out;
+
+		private Connection(String host, int port) {
+			this.address = new InetSocketAddress(host, port);
+			this.in = new ParserInput(this);
+			this.out = new ParserOutput(this);
+			try {
+				this.channel = SocketChannel.open();
+				this.channel.configureBlocking(false);
+			} catch (IOException e) {
+				throw new SimError("Can't open a socket channel", e);
+			}
+
+			try {
+				this.connected = this.channel.connect(address);
+				return;
+			} catch (IOException e) {
+				Debug.p("Can't connect to dtnd at " + address + ": " + e);
+			} catch (UnresolvedAddressException e) {
+				Debug.p("Can't resolve dtnd host " + host);
+			}
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				/* nothing to do */
+			}
+		}
+	}
+
+	/**
+	 * Input stream of a parser. The selector thread appends the data read
+	 * from the connection and the parser's read methods block until there
+	 * is data.
+	 */
+	private class ParserInput extends InputStream {
+		private Connection connection;
+		private byte[] data = new byte[READ_BUFFER_SIZE];
+		private int start = 0;
+		private int end = 0;
+		/** Index after the end tag of the first message, or -1 if the
+		 * end tag has not been found yet */
+		private int messageEnd = -1;
+		/** Index where the search for the end tag continues */
+		private int scanned = 0;
+
+		private ParserInput(Connection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Appends data to the stream
+		 * @param b The data
+		 * @param len Number of bytes to append from the start of b
+		 */
+		private synchronized void append(byte[] b, int len) {
+			if (end + len > data.length) {
+				int size = end - start;
+				byte[] dst = data;
+				if (size + len > data.length) {
+					dst = new byte[Math.max(2 * data.length, size + len)];
+				}
+				System.arraycopy(data, start, dst, 0, size);
+				data = dst;
+				if (messageEnd >= 0) {
+					messageEnd -= start;
+				}
+				scanned = Math.max(scanned - start, 0);
+				start = 0;
+				end = size;
+			}
+			System.arraycopy(b, 0, data, end, len);
+			end += len;
+			notifyAll();
+		}
+
+		/**
+		 * Returns the end of the first buffered message. The search for the
+		 * end tag continues from where the previous call stopped, so every
+		 * byte is checked only once.
+		 * @return The index after the message's end tag or the end of the
+		 * data if there is no end tag
+		 */
+		private int getMessageEnd() {
+			if (messageEnd >= 0) {
+				return messageEnd;
+			}
+
+			int last = end - MESSAGE_END.length;
+			int i = Math.max(scanned, start);
+			for (; i <= last; i++) {
+				int j = 0;
+				while (j < MESSAGE_END.length &&
+						data[i + j] == MESSAGE_END[j]) {
+					j++;
+				}
+				if (j == MESSAGE_END.length) {
+					messageEnd = i + j;
+					return messageEnd;
+				}
+			}
+			scanned = i; /* a partial end tag may follow */
+			return end;
+		}
+
+		/**
+		 * Returns true if the buffered data should be read before reading
+		 * more from the connection
+		 * @return true if the buffer is full
+		 */
+		private synchronized boolean isFull() {
+			return end - start >= MAX_BUFFERED;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xff);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			boolean wasFull;
+			int n;
+
+			synchronized (this) {
+				while (start == end) {
+					try {
+						wait(); /* no end of input: see the class comment */
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+				}
+				wasFull = isFull();
+				n = Math.min(len, getMessageEnd() - start);
+				System.arraycopy(data, start, b, off, n);
+				start += n;
+				if (start == messageEnd) {
+					messageEnd = -1; /* the next message starts */
+				}
+			}
+
+			if (wasFull && !isFull()) {
+				requestUpdate(connection); /* resume reading */
+			}
+			return n;
+		}
+
+		@Override
+		public synchronized int available() {
+			return end - start;
+		}
+	}
+
+	/**
+	 * Output stream of a parser. Written data is queued and written to
+	 * the connection by the selector thread.
+	 */
+	private class ParserOutput extends OutputStream {
+		private Connection connection;
+		private Queue<ByteBuffer> buffers = new LinkedList<ByteBuffer>();
+
+		private ParserOutput(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] {(byte)b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			byte[] copy = new byte[len];
+			System.arraycopy(b, off, copy, 0, len);
+			synchronized (this) {
+				buffers.add(ByteBuffer.wrap(copy));
+			}
+			requestUpdate(connection);
+		}
+
+		private synchronized ByteBuffer peek() {
+			return buffers.peek();
+		}
+
+		private synchronized void remove() {
+			buffers.remove();
+		}
+
+		private synchronized boolean isEmpty() {
+			return buffers.isEmpty();
+		}
+	}
+}
@@ -122,6 +122,17 @@ public abstract class Connection {
 	protected void clearMsgOnFly() {
 		this.msgOnFly = null;
 		this.msgFromNode = null;		
+		notifyTransferState();
+	}
+
+	/**
+	 * Informs the interfaces in both ends of the connection that the 
+	 * connection started or stopped transferring a message. Subclasses 
+	 * must call this after setting the message that is transferred.
+	 */
+	protected void notifyTransferState() {
+		this.fromInterface.transferStateChanged();
+		this.toInterface.transferStateChanged();
 	}
 
 	/**
@@ -6,7 +6,10 @@ package core;
 
 /**
  * Class to hold 2D coordinates and perform simple arithmetics and
- * transformations
+ * transformations. Subclasses that keep the coordinates elsewhere override
+ * {@link #getX()}, {@link #getY()}, {@link #setLocation(double, double)},
+ * {@link #translate(double, double)} and {@link #clone()}; the other 
+ * methods access the coordinates only through those.
  */
 public class Coord implements Cloneable, Comparable<Coord> {
 	private double x;
@@ -21,6 +24,11 @@ public class Coord implements Cloneable, Comparable<Coord> {
 		setLocation(x,y);
 	}
 	
+	/**
+	 * Constructor for subclasses that keep the coordinates elsewhere
+	 */
+	protected Coord() { }
+	
 	/**
 	 * Sets the location of this coordinate object
 	 * @param x The x coordinate to set
@@ -37,8 +45,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @param c The other coordinate
 	 */
 	public void setLocation(Coord c) {
-		this.x = c.x;
-		this.y = c.y;		
+		setLocation(c.getX(), c.getY());
 	}
 	
 	/**
@@ -57,8 +64,8 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return The distance between this and another coordinate
 	 */
 	public double distance(Coord other) {
-		double dx = this.x - other.x;
-		double dy = this.y - other.y;
+		double dx = getX() - other.getX();
+		double dy = getY() - other.getY();
 		
 		return Math.sqrt(dx*dx + dy*dy);
 	}
@@ -69,8 +76,8 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return The square distance between this and another coordinate
 	 */
 	public double distance2(Coord other) {
-		double dx = this.x - other.x;
-		double dy = this.y - other.y;
+		double dx = getX() - other.getX();
+		double dy = getY() - other.getY();
 		
 		return (dx*dx + dy*dy);
 	}
@@ -81,8 +88,8 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return The angle from this coord to the other coord
 	 */
 	public double angle(Coord other) {
-		double dx = this.x - other.x;
-		double dy = this.y - other.y;
+		double dx = getX() - other.getX();
+		double dy = getY() - other.getY();
 		
 		return Math.atan2(dy, dx);
 	}
@@ -108,7 +115,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * @return a text representation of the coordinate
 	 */
 	public String toString() {
-		return String.format("(%.2f,%.2f)",x,y);
+		return String.format("(%.2f,%.2f)",getX(),getY());
 	}
 	
 	/**
@@ -135,7 +142,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 			return true;
 		}
 		else {
-			return (x == c.x && y == c.y);
+			return (getX() == c.getX() && getY() == c.getY());
 		}
 	}
 
@@ -149,7 +156,7 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * (actually a hash of the String made of the coordinates)
 	 */
 	public int hashCode() {
-		return (x+","+y).hashCode();
+		return (getX()+","+getY()).hashCode();
 	}
 
 	/**
@@ -160,16 +167,16 @@ public class Coord implements Cloneable, Comparable<Coord> {
 	 * after the other coordinate
 	 */
 	public int compareTo(Coord other) {
-		if (this.y < other.y) {
+		if (getY() < other.getY()) {
 			return -1;
 		}
-		else if (this.y > other.y) {
+		else if (getY() > other.getY()) {
 			return 1;
 		}
-		else if (this.x < other.x) {
+		else if (getX() < other.getX()) {
 			return -1;
 		}
-		else if (this.x > other.x) {
+		else if (getX() > other.getX()) {
 			return 1;
 		}
 		else {
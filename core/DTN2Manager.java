@@ -13,8 +13,8 @@ import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import report.DTN2Reporter;
 import fi.tkk.netlab.dtn.ecla.Bundle;
@@ -27,9 +27,20 @@ import fi.tkk.netlab.dtn.ecla.CLAParser;
  * @author teemuk
  */
 public class DTN2Manager {
+	/** Settings namespace ({@value}) */
+	public static final String DTN2_NS = "DTN2";
+	/** Use a single selector thread for the dtnd connections -setting id
+	 * ({@value}). Boolean. If true, all dtnd connections are opened
+	 * concurrently and their I/O is multiplexed on one thread
+	 * (see {@link CLAMultiplexer}). Default = false (every connection is
+	 * opened and read by its parser) */
+	public static final String MULTIPLEXER_S = "multiplexer";
+
 	private static Map<DTNHost, CLAParser>	CLAs = null;
 	/** Mapping from EID to DTNHost */
-	private static Collection<EIDHost>		EID_to_host = null;	
+	private static EIDIndex					EID_to_host = null;
+	/** Multiplexer of the dtnd connections (null if not used) */
+	private static CLAMultiplexer			multiplexer = null;
 	/** Set of all bundles in the simulator */
 	private static Map<String, Bundle>		bundles = null;
 	/** Reporter object that passes messages from ONE to dtnd */
@@ -67,8 +78,8 @@ public class DTN2Manager {
 		String				nodeEID, dtnd_host;
 			
 		DTN2Manager.CLAs = new HashMap<DTNHost, CLAParser>();
-		DTN2Manager.EID_to_host = new LinkedList<EIDHost>();
-		DTN2Manager.bundles = new HashMap<String, Bundle>();
+		DTN2Manager.EID_to_host = new EIDIndex();
+		DTN2Manager.bundles = new ConcurrentHashMap<String, Bundle>();
 		
 		// Check if DTN2Reporter and DTN2Events have been loaded.
 		// If not, we do nothing here.
@@ -76,13 +87,20 @@ public class DTN2Manager {
 			return;
 		
 		// Get input stream from the settings file.
-		Settings conf = new Settings("DTN2");
+		Settings conf = new Settings(DTN2_NS);
 		String fname;
 		try {
 			fname = conf.getSetting("configFile");
 		} catch (SettingsError se) {
 			return;
 		}
+		if (DTN2Manager.multiplexer != null) {
+			DTN2Manager.multiplexer.stop();
+			DTN2Manager.multiplexer = null;
+		}
+		if (conf.getBoolean(MULTIPLEXER_S, false)) {
+			DTN2Manager.multiplexer = new CLAMultiplexer();
+		}
 		f = new File(fname);
 		if (!f.exists()) return;
 		try {
@@ -125,7 +143,12 @@ public class DTN2Manager {
 				
 				// Configure and start the CLA
 				CLAParser p;
-				p = new CLAParser(dtnd_host, dtnd_port, "ONE");
+				if (DTN2Manager.multiplexer != null) {
+					p = DTN2Manager.multiplexer.open(dtnd_host, dtnd_port,
+							"ONE");
+				} else {
+					p = new CLAParser(dtnd_host, dtnd_port, "ONE");
+				}
 				DTN2Events.ParserHandler ph = 
 					DTN2Manager.events.getParserHandler(nodeID, dtnd_host,
 							console_port); 
@@ -195,11 +218,7 @@ public class DTN2Manager {
 	 * @return		the host corresponding to the EID
 	 */
 	public static Collection<EIDHost> getHosts(String EID) {
-		Collection<EIDHost> c = new LinkedList<EIDHost>();
-		for (EIDHost e : DTN2Manager.EID_to_host) {
-			if (EID.matches(e.EID)) c.add(e);
-		}
-		return c;
+		return DTN2Manager.EID_to_host.getHosts(EID);
 	}
 	
 	/**
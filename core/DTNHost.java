@@ -4,6 +4,7 @@
  */
 package core;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -11,8 +12,11 @@ import java.util.Random;
 
 import movement.MovementModel;
 import movement.Path;
+import movement.StateInput;
+import movement.StateOutput;
 import routing.MessageRouter;
 import routing.util.RoutingInfo;
+import util.RandomStreams;
 
 /**
  * A DTN capable host.
@@ -37,6 +41,16 @@ public class DTNHost implements Comparable<DTNHost> {
 	private List<NetworkInterface> net;
 	private ModuleCommunicationBus comBus;
 	private int layer = LAYER_DEFAULT;
+	/** store of the movement state or null if the state is kept here */
+	private MovementStore store;
+	/** set of active hosts that parks this host when it is idle (or null) */
+	private ActiveHostSet activeSet;
+	/** is the host parked, i.e., not moved nor updated */
+	private boolean parked;
+	/** time until which the host is parked */
+	private double parkedUntil;
+	/** queue of the done times of this host's transfers (or null) */
+	private TransferQueue transferQueue;
 
 	static {
 		DTNSim.registerForReset(DTNHost.class.getCanonicalName());
@@ -57,48 +71,91 @@ public class DTNHost implements Comparable<DTNHost> {
 			String groupId, List<NetworkInterface> interf,
 			ModuleCommunicationBus comBus, 
 			MovementModel mmProto, MessageRouter mRouterProto) {
+		this(reserveAddresses(1), msgLs, movLs, groupId, interf, comBus, 
+				mmProto, mRouterProto);
+		attach();
+	}
+	
+	/**
+	 * Creates a new DTNHost with the given address by replicating the 
+	 * prototypes. Replication touches only the new host's own state, so 
+	 * hosts can be created by many threads if the prototypes support it. 
+	 * {@link #attach()} must be called for the hosts in address order 
+	 * before the host is used.
+	 * @param address Address of the host (see {@link #reserveAddresses(int)})
+	 * @param msgLs Message listeners
+	 * @param movLs Movement listeners
+	 * @param groupId GroupID of this host
+	 * @param interf List of NetworkInterfaces for the class
+	 * @param comBus Module communication bus object
+	 * @param mmProto Prototype of the movement model of this host
+	 * @param mRouterProto Prototype of the message router of this host
+	 */
+	DTNHost(int address, List<MessageListener> msgLs,
+			List<MovementListener> movLs,
+			String groupId, List<NetworkInterface> interf,
+			ModuleCommunicationBus comBus, 
+			MovementModel mmProto, MessageRouter mRouterProto) {
 		this.comBus = comBus;
 		this.location = new Coord(0,0);
-		this.address = getNextAddress();
+		this.address = address;
 		this.name = groupId+address;
 		this.net = new ArrayList<NetworkInterface>();
 
-		for (NetworkInterface i : interf) {
-			NetworkInterface ni = i.replicate();
+		RandomStreams.startReplication(address);
+		try {
+			for (NetworkInterface i : interf) {
+				net.add(i.replicate());
+			}
+	
+			// TODO - think about the names of the interfaces and the nodes
+	
+			this.msgListeners = msgLs;
+			this.movListeners = movLs;
+	
+			// create instances by replicating the prototypes
+			this.movement = mmProto.replicate();
+			this.movement.setComBus(comBus);
+			this.movement.setHost(this);
+			setRouter(mRouterProto.replicate());
+		} finally {
+			RandomStreams.endReplication();
+		}
+		
+		this.nextTimeToMove = 0;
+		this.path = null;
+	}
+	
+	/**
+	 * Attaches a host created by the replicating constructor to the shared
+	 * parts of the simulation: the interfaces are attached to the host 
+	 * (and their connectivity optimizers), the host is placed to its 
+	 * initial location and the movement listeners are informed about it.
+	 */
+	void attach() {
+		for (NetworkInterface ni : net) {
 			ni.setHost(this);
-			net.add(ni);
-		}	
-
-		// TODO - think about the names of the interfaces and the nodes
+		}
+		
+		this.location = movement.getInitialLocation();
+		this.nextTimeToMove = movement.nextPathAvailable();
 
-		this.msgListeners = msgLs;
-		this.movListeners = movLs;
-
-		// create instances by replicating the prototypes
-		this.movement = mmProto.replicate();
-		this.movement.setComBus(comBus);
-		this.movement.setHost(this);
-		setRouter(mRouterProto.replicate());
-
-		this.location = movement.getInitialLocation();
-
-		this.nextTimeToMove = movement.nextPathAvailable();
-		this.path = null;
-
-		if (movLs != null) { // inform movement listeners about the location
-			for (MovementListener l : movLs) {
+		if (movListeners != null) { // inform about the location
+			for (MovementListener l : movListeners) {
 				l.initialLocation(this, this.location);
 			}
 		}
 	}
 	
 	/**
-	 * Returns a new network interface address and increments the address for
-	 * subsequent calls.
-	 * @return The next address.
+	 * Reserves consecutive addresses for new hosts
+	 * @param count Number of addresses to reserve
+	 * @return The first reserved address
 	 */
-	private synchronized static int getNextAddress() {
-		return nextAddress++;	
+	static synchronized int reserveAddresses(int count) {
+		int first = nextAddress;
+		nextAddress += count;
+		return first;
 	}
 
 	/**
@@ -163,12 +220,22 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param con  The connection object whose state changed
 	 */
 	public void connectionUp(Connection con) {
+		wakeUp();
 		this.router.changedConnection(con);
 	}
 
 	public void connectionDown(Connection con) {
 		this.router.changedConnection(con);
 	}
+	
+	/**
+	 * Informs the router of this host that the transfer state, activeness 
+	 * or scan interval of an interface may have changed
+	 * @param ni The interface whose state changed
+	 */
+	void interfaceStateChanged(NetworkInterface ni) {
+		this.router.changedInterfaceState(ni);
+	}
 
 	/**
 	 * Returns a copy of the list of connections this host has with other hosts
@@ -185,7 +252,9 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 
 	/**
-	 * Returns the current location of this host. 
+	 * Returns the current location of this host. If the host keeps its 
+	 * movement state in a {@link MovementStore}, the location is a view of
+	 * the store's arrays. 
 	 * @return The location
 	 */
 	public Coord getLocation() {
@@ -206,7 +275,209 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param location The location to set
 	 */
 	public void setLocation(Coord location) {
-		this.location = location.clone();
+		wakeUp();
+		if (this.store != null) {
+			this.location.setLocation(location); /* writes the store */
+		}
+		else {
+			this.location = location.clone();
+		}
+	}
+
+	/**
+	 * Sets the store this host keeps its movement state in and copies the
+	 * current state to the store. The location of the host becomes a view
+	 * of the store.
+	 * @param store The store
+	 */
+	void setMovementStore(MovementStore store) {
+		Coord loc = this.location;
+		this.store = store;
+		this.location = store.getLocation(address);
+		this.location.setLocation(loc);
+		saveToStore();
+	}
+	
+	/**
+	 * Sets the set of active hosts that parks this host when it is idle
+	 * @param activeSet The active host set
+	 */
+	void setActiveHostSet(ActiveHostSet activeSet) {
+		this.activeSet = activeSet;
+	}
+	
+	/**
+	 * Sets the queue where the done times of this host's transfers are
+	 * put
+	 * @param transferQueue The transfer queue
+	 */
+	void setTransferQueue(TransferQueue transferQueue) {
+		this.transferQueue = transferQueue;
+	}
+	
+	/**
+	 * Returns the queue of transfer done times
+	 * @return The queue or null if transfers are not queued
+	 */
+	TransferQueue getTransferQueue() {
+		return this.transferQueue;
+	}
+	
+	/**
+	 * Returns true if the host is parked, i.e., it needs no moving nor
+	 * updating
+	 * @return true if the host is parked
+	 */
+	boolean isParked() {
+		return this.parked;
+	}
+	
+	/**
+	 * Parks or unparks the host (called by the active host set)
+	 * @param parked Is the host parked
+	 * @param until Time until which the host is parked
+	 */
+	void setParked(boolean parked, double until) {
+		this.parked = parked;
+		this.parkedUntil = until;
+	}
+	
+	/**
+	 * Returns the time until which the host is parked
+	 * @return The time until which the host is parked
+	 */
+	double getParkedUntil() {
+		return this.parkedUntil;
+	}
+	
+	/**
+	 * Returns the time when the host's next path is available
+	 * @return The time when the host can continue moving
+	 */
+	double getNextTimeToMove() {
+		return (store != null ? store.nextTimeToMove[address] : 
+			nextTimeToMove);
+	}
+	
+	/**
+	 * Returns the highest speed this host can move at on its current and 
+	 * next paths (the speed of the current path or the maximum speed of the
+	 * movement model)
+	 * @return The maximum speed
+	 */
+	double getMaxSpeed() {
+		double current = (store != null ? store.speed[address] : speed);
+		return Math.max(current, movement.getMaxSpeed());
+	}
+	
+	/**
+	 * Returns the next time when the activeness of this host's movement 
+	 * model may change
+	 * @return The time of the next possible change or 
+	 * {@link Double#MAX_VALUE} if the activeness never changes
+	 * @see MovementModel#getNextActivenessChange()
+	 */
+	double getNextMovementActivenessChange() {
+		return movement.getNextActivenessChange();
+	}
+	
+	/**
+	 * Wakes up the host if it is parked
+	 */
+	private void wakeUp() {
+		if (this.parked) {
+			activeSet.wakeUp(this);
+		}
+	}
+	
+	/**
+	 * Returns the time until which this host is idle: it doesn't move, 
+	 * has no connections and its router has nothing to do (see 
+	 * {@link MessageRouter#isIdle()} and 
+	 * {@link MessageRouter#getIdleUntil()}). An idle host needs no moving nor 
+	 * updating until the returned time unless it gets a new connection or 
+	 * message first. 
+	 * @return The time until which the host is idle or the current time if
+	 * the host is not idle
+	 */
+	double getIdleUntil() {
+		double now = SimClock.getTime();
+		double until;
+		
+		if (!router.isIdle()) {
+			return now;
+		}
+		for (NetworkInterface i : net) {
+			if (i.getConnections().size() > 0) {
+				return now;
+			}
+		}
+		
+		if (movement.isActive()) {
+			until = getNextTimeToMove();
+		} else {
+			until = movement.getNextActivenessChange();
+		}
+		for (NetworkInterface i : net) {
+			until = Math.min(until, i.getNextActivenessChange());
+		}
+		until = Math.min(until, router.getIdleUntil());
+		return until > now ? until : now;
+	}
+
+	/**
+	 * Writes the movement state of this host and its movement model 
+	 * (for warm-up snapshots)
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 * @throws SettingsError if the movement model doesn't support snapshots
+	 */
+	public void writeMovementState(StateOutput out) throws IOException {
+		if (!this.movement.isSnapshotSupported()) {
+			throw new SettingsError("Movement model " + this.movement + 
+					" of host " + this + " doesn't support warm-up snapshots");
+		}
+		out.writeCoord(this.location);
+		out.writeCoord(this.destination);
+		out.writePath(this.path);
+		out.writeDouble(this.speed);
+		out.writeDouble(this.nextTimeToMove);
+		out.writeInt(this.layer);
+		out.writeUTF(this.movement.getClass().getName());
+		this.movement.writeState(out);
+	}
+
+	/**
+	 * Reads the movement state written by 
+	 * {@link #writeMovementState(StateOutput)}
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 * @throws SimError if the state is for a different movement model
+	 */
+	public void readMovementState(StateInput in) throws IOException {
+		Coord loc = in.readCoord();
+		if (this.store != null) {
+			this.location.setLocation(loc);
+		}
+		else {
+			this.location = loc;
+		}
+		this.destination = in.readCoord();
+		this.path = in.readPath();
+		this.speed = in.readDouble();
+		this.nextTimeToMove = in.readDouble();
+		this.layer = in.readInt();
+		String modelClass = in.readUTF();
+		if (!modelClass.equals(this.movement.getClass().getName())) {
+			throw new SimError("Movement model " + modelClass + " of the " + 
+					"saved state doesn't match the model of " + this);
+		}
+		this.movement.readState(in);
+
+		if (this.store != null) {
+			saveToStore();
+			store.checkActiveness(address);
+		}
 	}
 
 	/**
@@ -386,7 +657,32 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * not time to move yet
 	 * @param timeIncrement How long time the node moves
 	 */
-	public void move(double timeIncrement) {		
+	public void move(double timeIncrement) {
+		moveHost(timeIncrement);
+		if (this.store != null) {
+			saveToStore();
+		}
+	}
+
+	/**
+	 * Copies the movement state of this host to the movement store (the
+	 * location is kept in the store already)
+	 */
+	private void saveToStore() {
+		store.hasDest[address] = (destination != null);
+		if (destination != null) {
+			store.destX[address] = destination.getX();
+			store.destY[address] = destination.getY();
+		}
+		store.speed[address] = speed;
+		store.nextTimeToMove[address] = nextTimeToMove;
+	}
+
+	/**
+	 * Moves the host using the movement state in this object
+	 * @param timeIncrement How long time the node moves
+	 */
+	private void moveHost(double timeIncrement) {
 		double possibleMovement;
 		double distance;
 		double dx, dy;
@@ -438,7 +734,10 @@ public class DTNHost implements Comparable<DTNHost> {
 			return false;
 		}
 
-		this.destination = path.getNextWaypoint();
+		if (this.destination == null) {
+			this.destination = new Coord(0,0);
+		}
+		path.getNextWaypoint(this.destination);
 		this.speed = path.getSpeed();
 
 		if (this.movListeners != null) {
@@ -467,6 +766,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * {@link MessageRouter#receiveMessage(Message, DTNHost)}
 	 */
 	public int receiveMessage(Message m, DTNHost from) {
+		wakeUp();
 		int retVal = this.router.receiveMessage(m, from); 
 
 		if (retVal == MessageRouter.RCV_OK) {
@@ -511,6 +811,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param m The message to create
 	 */
 	public void createNewMessage(Message m) {
+		wakeUp();
 		this.router.createNewMessage(m);
 	}
 
@@ -106,10 +106,13 @@ public class DTNSim {
         }
 
 		try {
+			long start = System.nanoTime();
 			Settings.init(confFiles[i]);
 			for (i=firstIndex+1; i<confFiles.length; i++) {
 				Settings.addSettings(confFiles[i]);
 			}
+			Settings.freeze(); // settings don't change during the runs
+			StartupTimes.add(StartupTimes.SETTINGS, System.nanoTime() - start);
 		}
 		catch (SettingsError er) {
 			try {
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the EID regular expressions of the DTN2 connectivity
+ * configuration file. The expressions are compiled once and the ones whose
+ * node part (e.g. <CODE>dtn://local-1.dtn</CODE> of
+ * <CODE>dtn://local-1.dtn/(.*)</CODE>) is a literal string are hashed by
+ * that part, so a lookup only tries the expressions of the destination's
+ * node and the expressions that can't be indexed. Dots in the node part
+ * are taken literally when indexing (i.e., <CODE>local-1.dtn</CODE> doesn't
+ * match <CODE>local-1xdtn</CODE>).
+ */
+public class EIDIndex {
+	/** Characters that make a node part non-literal */
+	private static final String REGEX_CHARS = "\\[](){}*+?^$|";
+	/** Quantifier characters */
+	private static final String QUANTIFIER_CHARS = "*+?{";
+
+	/** Indexed entries by the node part of the EID */
+	private Map<String, List<Entry>> byNode;
+	/** Entries that can't be indexed */
+	private List<Entry> unindexed;
+	/** Number of entries added */
+	private int nrofEntries;
+
+	/**
+	 * Creates an empty index
+	 */
+	public EIDIndex() {
+		this.byNode = new HashMap<String, List<Entry>>();
+		this.unindexed = new ArrayList<Entry>();
+		this.nrofEntries = 0;
+	}
+
+	/**
+	 * Adds a host to the index
+	 * @param host The host whose EID regular expression is indexed
+	 */
+	public synchronized void add(DTN2Manager.EIDHost host) {
+		Entry e = new Entry(host, nrofEntries++);
+		String node = getIndexNode(host.EID);
+
+		if (node == null) {
+			unindexed.add(e);
+			return;
+		}
+
+		List<Entry> list = byNode.get(node);
+		if (list == null) {
+			list = new ArrayList<Entry>(1);
+			byNode.put(node, list);
+		}
+		list.add(e);
+	}
+
+	/**
+	 * Returns the hosts whose EID regular expression matches the given EID,
+	 * in the order they were added.
+	 * @param EID The EID to match
+	 * @return The matching hosts (an empty collection if there are none)
+	 */
+	public synchronized Collection<DTN2Manager.EIDHost> getHosts(String EID) {
+		Collection<DTN2Manager.EIDHost> c =
+			new LinkedList<DTN2Manager.EIDHost>();
+		List<Entry> indexed = byNode.get(getNode(EID));
+		int i = 0, j = 0;
+		int nrofIndexed = (indexed == null ? 0 : indexed.size());
+
+		/* merge the two (insertion ordered) candidate lists */
+		while (i < nrofIndexed || j < unindexed.size()) {
+			Entry e;
+			if (j == unindexed.size() || (i < nrofIndexed &&
+					indexed.get(i).order < unindexed.get(j).order)) {
+				e = indexed.get(i++);
+			} else {
+				e = unindexed.get(j++);
+			}
+
+			if (e.pattern.matcher(EID).matches()) {
+				c.add(e.host);
+			}
+		}
+
+		return c;
+	}
+
+	/**
+	 * Returns the number of hosts in the index
+	 * @return the number of hosts
+	 */
+	public synchronized int size() {
+		return nrofEntries;
+	}
+
+	/**
+	 * Returns the node part of an EID (the part up to the first slash
+	 * after the scheme's "://")
+	 * @param EID The EID
+	 * @return The node part or null if the EID has no "://"
+	 */
+	private static String getNode(String EID) {
+		int start = EID.indexOf("://");
+		if (start < 0) {
+			return null;
+		}
+		int end = EID.indexOf('/', start + 3);
+		return end < 0 ? EID : EID.substring(0, end);
+	}
+
+	/**
+	 * Returns the literal node part of an EID regular expression, i.e.,
+	 * the node part all matching EIDs must have.
+	 * @param regex The regular expression
+	 * @return The node part or null if the expression can't be indexed
+	 */
+	private static String getIndexNode(String regex) {
+		String node = getNode(regex);
+		if (node == null || regex.indexOf('|') >= 0) {
+			return null; /* no node part or alternatives */
+		}
+		for (int i = 0, n = node.length(); i < n; i++) {
+			if (REGEX_CHARS.indexOf(node.charAt(i)) >= 0) {
+				return null;
+			}
+		}
+		int next = node.length() + 1; /* the char after the slash */
+		if (next < regex.length() &&
+				QUANTIFIER_CHARS.indexOf(regex.charAt(next)) >= 0) {
+			return null; /* the separating slash may be quantified */
+		}
+		return node;
+	}
+
+	/**
+	 * A host with its compiled EID expression
+	 */
+	private static class Entry {
+		private DTN2Manager.EIDHost host;
+		private Pattern pattern;
+		private int order;
+
+		private Entry(DTN2Manager.EIDHost host, int order) {
+			this.host = host;
+			this.pattern = Pattern.compile(host.EID);
+			this.order = order;
+		}
+	}
+}
@@ -4,31 +4,158 @@
  */
 package core;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Intermodule communication bus. Works as a blackboard where modules can
  * post data, subscribe to data changes and also poll for data values.
  * This is fairly similar to Message class' property interface, but these
  * values are shared for a node instead of message.
+ * <P>All keys are interned to global indexes (see {@link #getKeyIndex}) and
+ * the values and listeners of a bus are stored in arrays indexed by them.
+ * Double values are stored as primitives, so modules that look up the
+ * index of a key once and then use the index based methods
+ * ({@link #getDouble(int, double)}, {@link #setDouble(int, double)} and
+ * {@link #updateDouble(int, double)}) avoid hashing and boxing. Values are
+ * boxed only when they are read using {@link #getProperty(String)} or
+ * when there are listeners to notify.</P>
  */
 public class ModuleCommunicationBus {
-	/** Initial capacity for the listener lists (instead of 10) */
-	private static int INIT_CAPACITY = 3;
-	/** The values in the blackboard (or null if none)*/
-	private HashMap<String, Object> values;
-	/** Subscribed listeners (or null if none)*/
-	private HashMap<String, List<ModuleCommunicationListener>> listeners;
+	/** Type of a value slot: no value */
+	private static final byte NO_VALUE = 0;
+	/** Type of a value slot: primitive double value */
+	private static final byte DOUBLE_VALUE = 1;
+	/** Type of a value slot: object value (possibly null) */
+	private static final byte OBJECT_VALUE = 2;
+	/** Listener array for keys without listeners */
+	private static final ModuleCommunicationListener[] NO_LISTENERS =
+		new ModuleCommunicationListener[0];
+
+	/** Indexes of the interned keys. The map is replaced, not modified,
+	 * when a key is added, so it can be read without locking. */
+	private static volatile Map<String, Integer> keyIndexes =
+		new HashMap<String, Integer>();
+	/** Interned keys by index */
+	private static volatile String[] keyNames = new String[0];
+
+	/** Types of the values by key index (or null if no values) */
+	private byte[] types;
+	/** Primitive double values by key index */
+	private double[] doubles;
+	/** Object values by key index */
+	private Object[] objects;
+	/** Subscribed listeners by key index (or null if none) */
+	private ModuleCommunicationListener[][] listeners;
 	
 	/**
 	 * Constructor.
 	 */
 	public ModuleCommunicationBus() {
-		this.values = null; /* use lazy creation  */
+		this.types = null; /* use lazy creation  */
 		this.listeners = null;
 	}
+
+	/**
+	 * Returns the index of a key. The same key gets the same index in all
+	 * the buses for the whole run, so modules can look up the indexes of
+	 * the keys they use once and store them.
+	 * @param key The key
+	 * @return Index of the key
+	 */
+	public static int getKeyIndex(String key) {
+		Integer index = keyIndexes.get(key);
+		if (index != null) {
+			return index;
+		}
+		return internKey(key);
+	}
+
+	/**
+	 * Returns the index of a key if the key has been interned
+	 * @param key The key
+	 * @return Index of the key or -1 if the key has not been interned
+	 */
+	private static int lookupKey(String key) {
+		Integer index = keyIndexes.get(key);
+		return (index != null ? index : -1);
+	}
+
+	/**
+	 * Adds a new key to the key index mapping (if some other thread didn't
+	 * already add it)
+	 * @param key The key to add
+	 * @return Index of the key
+	 */
+	private static synchronized int internKey(String key) {
+		Integer index = keyIndexes.get(key);
+		if (index != null) {
+			return index;
+		}
+
+		int newIndex = keyNames.length;
+		String[] names = Arrays.copyOf(keyNames, newIndex + 1);
+		names[newIndex] = key;
+		Map<String, Integer> indexes =
+			new HashMap<String, Integer>(keyIndexes);
+		indexes.put(key, newIndex);
+
+		keyNames = names;
+		keyIndexes = indexes;
+		return newIndex;
+	}
+
+	/**
+	 * Returns the key that has the given index
+	 * @param index Index of the key
+	 * @return The key
+	 * @throws SimError if no key has the index
+	 */
+	public static String getKeyName(int index) throws SimError {
+		String[] names = keyNames;
+		if (index < 0 || index >= names.length) {
+			throw new SimError("No key with index " + index);
+		}
+		return names[index];
+	}
+
+	/**
+	 * Makes sure the value arrays have a slot for the given key index
+	 * @param index The key index
+	 */
+	private void ensureValueSlot(int index) {
+		if (this.types != null && index < this.types.length) {
+			return;
+		}
+		getKeyName(index); /* check that the index is valid */
+
+		/* lazy creation to prevent performance overhead for classes
+		   that don't use the property feature  */
+		int size = Math.max(keyNames.length, index + 1);
+		if (this.types == null) {
+			this.types = new byte[size];
+			this.doubles = new double[size];
+			this.objects = new Object[size];
+		} else {
+			this.types = Arrays.copyOf(this.types, size);
+			this.doubles = Arrays.copyOf(this.doubles, size);
+			this.objects = Arrays.copyOf(this.objects, size);
+		}
+	}
+
+	/**
+	 * Returns the type of the value with the given key index
+	 * @param index The key index
+	 * @return The type of the value (NO_VALUE if there's no value)
+	 */
+	private byte typeOf(int index) {
+		if (this.types == null || index < 0 || index >= this.types.length) {
+			return NO_VALUE;
+		}
+		return this.types[index];
+	}
 	
 	/**
 	 * Adds a new property for this node. The key can be any string but 
@@ -40,7 +167,7 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if there is already a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (this.values != null && this.values.containsKey(key)) {
+		if (this.containsProperty(key)) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("A value for the key " + key + 
 					" already exists");
@@ -51,15 +178,21 @@ public class ModuleCommunicationBus {
 	
 	/**
 	 * Returns an object that was stored using the given key. If such object 
-	 * is not found, null is returned.
+	 * is not found, null is returned. Double values are returned as new
+	 * Double objects.
 	 * @param key The key used to lookup the object
 	 * @return The stored object or null if it isn't found
 	 */
 	public Object getProperty(String key) {
-		if (this.values == null) {
+		int index = lookupKey(key);
+		switch (typeOf(index)) {
+		case DOUBLE_VALUE:
+			return this.doubles[index];
+		case OBJECT_VALUE:
+			return this.objects[index];
+		default:
 			return null;
 		}
-		return this.values.get(key);
 	}
 	
 	/**
@@ -68,10 +201,16 @@ public class ModuleCommunicationBus {
 	 * @return true if the value exists, false if not
 	 */
 	public boolean containsProperty(String key) {
-		if (this.values == null) {
-			return false;
-		}
-		return this.values.containsKey(key);
+		return this.containsProperty(lookupKey(key));
+	}
+
+	/**
+	 * Returns true if the bus contains a value for the given key index
+	 * @param index Index of the key (see {@link #getKeyIndex(String)})
+	 * @return true if the value exists, false if not
+	 */
+	public boolean containsProperty(int index) {
+		return typeOf(index) != NO_VALUE;
 	}
 	
 	/**
@@ -82,14 +221,17 @@ public class ModuleCommunicationBus {
 	 * @param value The new value to store
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
-		if (this.values == null) {
-			/* lazy creation to prevent performance overhead for classes
-			   that don't use the property feature  */
-			this.values = new HashMap<String, Object>();
+		int index = getKeyIndex(key);
+
+		if (value instanceof Double) {
+			this.setDouble(index, (Double)value);
+			return;
 		}		
 
-		this.values.put(key, value);
-		notifyListeners(key, value);
+		ensureValueSlot(index);
+		this.types[index] = OBJECT_VALUE;
+		this.objects[index] = value;
+		notifyListeners(index, value);
 	}
 
 	/**
@@ -100,19 +242,52 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double updateDouble(String key, double delta) throws SimError {
-		double current;
-		try {
-			current = (Double)getProperty(key);
-			updateProperty(key, current + delta);
-		}
-		catch (ClassCastException cce) {
-			throw new SimError("No Double value for key " + key);
-		}
-		catch (NullPointerException npe) {
-			throw new SimError("No value for key " + key);
+		return this.updateDouble(getKeyIndex(key), delta);
+	}
+
+	/**
+	 * Changes the double value with given key index with the value delta
+	 * @param index Index of the key (see {@link #getKeyIndex(String)})
+	 * @param delta Value added to the old value
+	 * @return The new value
+	 * @throws SimError if the value with the given key was not a Double
+	 */
+	public double updateDouble(int index, double delta) throws SimError {
+		switch (typeOf(index)) {
+		case DOUBLE_VALUE:
+			break;
+		case OBJECT_VALUE:
+			if (this.objects[index] != null) {
+				throw new SimError("No Double value for key " +
+						getKeyName(index));
+			}
+			throw new SimError("No value for key " + getKeyName(index));
+		default:
+			throw new SimError("No value for key " + getKeyName(index));
 		}
 
-		return current + delta;
+		double newValue = this.doubles[index] + delta;
+		this.setDouble(index, newValue);
+		return newValue;
+	}
+
+	/**
+	 * Sets the double value of a key, and notifies the listeners of the
+	 * key. Works like {@link #updateProperty(String, Object)} with a
+	 * Double value.
+	 * @param index Index of the key (see {@link #getKeyIndex(String)})
+	 * @param value The new value
+	 */
+	public void setDouble(int index, double value) throws SimError {
+		ensureValueSlot(index);
+		this.types[index] = DOUBLE_VALUE;
+		this.doubles[index] = value;
+		this.objects[index] = null;
+
+		if (this.listeners != null && index < this.listeners.length &&
+				this.listeners[index] != null) {
+			notifyListeners(index, value);
+		}
 	}
 	
 	/**
@@ -123,16 +298,29 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double getDouble(String key, double naValue) throws SimError {
-		Object value = this.getProperty(key);
-		if (value == null) {
+		return this.getDouble(lookupKey(key), naValue);
+	}
+
+	/**
+	 * Returns a double value from the communication bus.
+	 * @param index Index of the key (see {@link #getKeyIndex(String)})
+	 * @param naValue The value to return if there is no value for the key
+	 * @return The value of the key, or the naValue if they key was not found
+	 * @throws SimError if the value with the given key was not a Double
+	 */
+	public double getDouble(int index, double naValue) throws SimError {
+		switch (typeOf(index)) {
+		case DOUBLE_VALUE:
+			return this.doubles[index];
+		case OBJECT_VALUE:
+			if (this.objects[index] != null) {
+				throw new SimError("No Double value for key " +
+						getKeyName(index));
+			}
+			return naValue; /* null value */
+		default:
 			return naValue;
 		}
-		try {
-			return (Double)value;
-		}
-		catch (ClassCastException cce) {
-			throw new SimError("No Double value for key " + key);
-		}
 	}
 	
 	/**
@@ -161,20 +349,24 @@ public class ModuleCommunicationBus {
 	 * @param module The module to subscribe.
 	 */
 	public void subscribe(String key, ModuleCommunicationListener module) {
+		int index = getKeyIndex(key);
+
 		if (this.listeners == null) {
 			/* first listener for the whole node */
-			this.listeners = 
-				new HashMap<String, List<ModuleCommunicationListener>>();
+			this.listeners = new ModuleCommunicationListener[index + 1][];
+		} else if (index >= this.listeners.length) {
+			this.listeners = Arrays.copyOf(this.listeners, index + 1);
 		}
 		
-		List<ModuleCommunicationListener> list = this.listeners.get(key);
+		/* a new array for every change so that notifications in progress
+		 * are not disturbed */
+		ModuleCommunicationListener[] list = this.listeners[index];
 		if (list == null) {
-			/* first listener for this key */
-			list = new ArrayList<ModuleCommunicationListener>(INIT_CAPACITY);
-			this.listeners.put(key, list);
+			list = NO_LISTENERS;
 		}
-		
-		list.add(module);
+		list = Arrays.copyOf(list, list.length + 1);
+		list[list.length - 1] = module;
+		this.listeners[index] = list;
 	}
 	
 	/**
@@ -183,38 +375,44 @@ public class ModuleCommunicationBus {
 	 * @param module The module to whose subscription is removed
 	 */
 	public void unsubscribe(String key, ModuleCommunicationListener module) {
-		List<ModuleCommunicationListener> list;
+		int index = lookupKey(key);
 		
-		if (this.listeners == null) {
-			return; /* no subscriptions */
-		}
-		
-		list = this.listeners.get(key);
-		if (list == null) {
+		if (this.listeners == null || index < 0 ||
+				index >= this.listeners.length ||
+				this.listeners[index] == null) {
 			return; /* no subscriptions for the key */
 		}
 		
-		list.remove(module);
+		ModuleCommunicationListener[] list = this.listeners[index];
+		for (int i=0; i<list.length; i++) {
+			if (list[i].equals(module)) {
+				ModuleCommunicationListener[] newList =
+					new ModuleCommunicationListener[list.length - 1];
+				System.arraycopy(list, 0, newList, 0, i);
+				System.arraycopy(list, i + 1, newList, i, newList.length - i);
+				this.listeners[index] = (newList.length > 0 ? newList : null);
+				return;
+			}
+		}
 	}
 	
 	
 	/**
 	 * Notifies all listeners that have subscribed to the given key 
-	 * @param key The key which got new value
+	 * @param index Index of the key which got new value
 	 * @param newValue The new value for the key
 	 */
-	private void notifyListeners(String key, Object newValue) {
-		List<ModuleCommunicationListener> list;
-		
-		if (this.listeners == null) {
+	private void notifyListeners(int index, Object newValue) {
+		if (this.listeners == null || index >= this.listeners.length) {
 			return;
 		}
-		list = this.listeners.get(key);
 		
+		ModuleCommunicationListener[] list = this.listeners[index];
 		if (list == null) {
 			return;
 		}
 		
+		String key = keyNames[index];
 		for (ModuleCommunicationListener mcl : list) {
 			mcl.moduleValueChanged(key, newValue);
 		}
@@ -223,7 +421,16 @@ public class ModuleCommunicationBus {
 	
 	@Override
 	public String toString() {
-		return "ComBus with mapping: " + (this.values != null ? 
-				this.values.toString() : "n/a");
+		if (this.types == null) {
+			return "ComBus with mapping: n/a";
+		}
+
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		for (int i=0; i<this.types.length; i++) {
+			if (this.types[i] != NO_VALUE) {
+				values.put(keyNames[i], this.getProperty(keyNames[i]));
+			}
+		}
+		return "ComBus with mapping: " + values.toString();
 	}
 }
@@ -0,0 +1,179 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays store for the movement state of all hosts. The 
+ * location, destination, speed, next time to move and movement activeness
+ * of every host are kept in parallel primitive arrays indexed by host
+ * address. The location of a host is a view of the arrays (see
+ * {@link DTNHost#getLocation()}), so moving the hosts that are travelling
+ * towards a waypoint is a simple loop over the arrays that doesn't touch
+ * the hosts. Only when a host reaches its waypoint, is waiting for a new
+ * path or its movement activeness may have changed, the host itself is
+ * asked to move (after the loop, in the order of the addresses) and the
+ * new state is written back to the arrays.
+ */
+public class MovementStore {
+	/** current locations */
+	final double[] x;
+	final double[] y;
+	/** current destinations (valid only if hasDest is true) */
+	final double[] destX;
+	final double[] destY;
+	final boolean[] hasDest;
+	/** current speeds */
+	final double[] speed;
+	/** times when the hosts should ask for a new path */
+	final double[] nextTimeToMove;
+	/** movement activeness of the hosts */
+	private final boolean[] active;
+	/** times when the movement activeness must be checked again */
+	private final double[] nextActivenessCheck;
+	/** addresses of the hosts that move themselves on this round */
+	private final int[] selfMoving;
+	
+	private DTNHost[] hosts;
+	
+	/**
+	 * Creates a store for the given hosts and makes the hosts use it. 
+	 * The hosts must be indexed by their address.
+	 * @param hosts The hosts
+	 */
+	public MovementStore(List<DTNHost> hosts) {
+		int n = hosts.size();
+		this.hosts = hosts.toArray(new DTNHost[n]);
+		this.x = new double[n];
+		this.y = new double[n];
+		this.destX = new double[n];
+		this.destY = new double[n];
+		this.hasDest = new boolean[n];
+		this.speed = new double[n];
+		this.nextTimeToMove = new double[n];
+		this.active = new boolean[n];
+		this.nextActivenessCheck = new double[n];
+		this.selfMoving = new int[n];
+		Arrays.fill(this.nextActivenessCheck, -Double.MAX_VALUE);
+		
+		for (int i=0; i<n; i++) {
+			assert this.hosts[i].getAddress() == i : "Host " + this.hosts[i] + 
+				" not in index " + i;
+			this.hosts[i].setMovementStore(this);
+		}
+	}
+	
+	/**
+	 * Returns a view of the location of a host in this store. Reading
+	 * and setting the coordinates of the view reads and writes the arrays.
+	 * @param address Address of the host
+	 * @return The location view
+	 */
+	Coord getLocation(int address) {
+		return new Location(address);
+	}
+
+	/**
+	 * Makes the store check the movement activeness of a host on the next
+	 * move (e.g., after the movement state of the host was replaced)
+	 * @param address Address of the host
+	 */
+	void checkActiveness(int address) {
+		this.nextActivenessCheck[address] = -Double.MAX_VALUE;
+	}
+
+	/**
+	 * Moves all the hosts for the given amount of time
+	 * @param timeIncrement How long time the hosts move
+	 */
+	public void move(double timeIncrement) {
+		double now = SimClock.getTime();
+		int nrofSelfMoving = 0;
+		
+		for (int i=0, n=hosts.length; i<n; i++) {
+			if (now >= nextActivenessCheck[i]) {
+				selfMoving[nrofSelfMoving++] = i;
+				continue;
+			}
+			if (!active[i] || now < nextTimeToMove[i]) {
+				continue;
+			}
+			
+			if (hasDest[i]) {
+				double possibleMovement = timeIncrement * speed[i];
+				double dx = destX[i] - x[i];
+				double dy = destY[i] - y[i];
+				double distance = Math.sqrt(dx*dx + dy*dy);
+				
+				if (possibleMovement < distance) {
+					/* move towards the destination */
+					x[i] += (possibleMovement/distance) * dx;
+					y[i] += (possibleMovement/distance) * dy;
+					continue;
+				}
+			}
+			
+			/* the host reaches its destination or needs a new one */
+			selfMoving[nrofSelfMoving++] = i;
+		}
+
+		for (int j=0; j<nrofSelfMoving; j++) {
+			int i = selfMoving[j];
+			if (now >= nextActivenessCheck[i]) {
+				active[i] = hosts[i].isMovementActive();
+				nextActivenessCheck[i] =
+					hosts[i].getNextMovementActivenessChange();
+			}
+			if (active[i]) {
+				hosts[i].move(timeIncrement);
+			}
+		}
+	}
+
+	/**
+	 * Location of a host in the store. The coordinates are read from and
+	 * written to the arrays of the store.
+	 */
+	private class Location extends Coord {
+		private final int index;
+
+		private Location(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public double getX() {
+			return x[index];
+		}
+
+		@Override
+		public double getY() {
+			return y[index];
+		}
+
+		@Override
+		public void setLocation(double x, double y) {
+			MovementStore.this.x[index] = x;
+			MovementStore.this.y[index] = y;
+		}
+
+		@Override
+		public void translate(double dx, double dy) {
+			x[index] += dx;
+			y[index] += dy;
+		}
+
+		/**
+		 * Returns a copy of the current coordinates that is not a view of
+		 * the store
+		 */
+		@Override
+		public Coord clone() {
+			return new Coord(x[index], y[index]);
+		}
+	}
+}
@@ -14,6 +14,7 @@ import java.util.Random;
 import routing.util.EnergyModel;
 
 import util.ActivenessHandler;
+import util.RandomStreams;
 
 /**
  * Network interface of a DTNHost. Takes care of connectivity among hosts.
@@ -45,6 +46,12 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	/** {@link ModuleCommunicationBus} identifier for the "transmission speed" 
     variable. Value type: integer */
 	public static final String SPEED_ID = "Network.speed";
+	/** Bus key index of {@link #SCAN_INTERVAL_ID} */
+	public static final int SCAN_INTERVAL_KEY =
+		ModuleCommunicationBus.getKeyIndex(SCAN_INTERVAL_ID);
+	/** Bus key index of {@link #RANGE_ID} */
+	public static final int RANGE_KEY =
+		ModuleCommunicationBus.getKeyIndex(RANGE_ID);
 	
 	private static final int CON_UP = 1;
 	private static final int CON_DOWN = 2;
@@ -70,6 +77,14 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	private int activenessJitterMax;
 	/** this interface's activeness jitter value */
 	private int activenessJitterValue;
+	/** cached activeness of the interface's activeness handler */
+	private boolean scheduledActive;
+	/** time when the cached activeness must be checked again */
+	private double nextActivenessChange;
+	/** is the interface in the connectivity optimizer */
+	private boolean inOptimizer;
+	/** activeness of the interface when it was last checked */
+	private boolean lastActive;
 
 	static {
 		DTNSim.registerForReset(NetworkInterface.class.getCanonicalName());
@@ -116,16 +131,23 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		this.transmitSpeed = ni.transmitSpeed;
 		this.scanInterval = ni.scanInterval;
 		this.ah = ni.ah;
+		this.lastActive = true;
+		
+		Random r = rng;
+		if (RandomStreams.isEnabled() && RandomStreams.isReplicating()) {
+			r = new Random(RandomStreams.nextReplicationSeed(0, 
+					RandomStreams.INTERFACE));
+		}
 		
 		if (ni.activenessJitterMax > 0) {
-			this.activenessJitterValue = rng.nextInt(ni.activenessJitterMax);
+			this.activenessJitterValue = r.nextInt(ni.activenessJitterMax);
 		} else {
 			this.activenessJitterValue = 0;
 		}
 		
 		this.scanInterval = ni.scanInterval;
 		/* draw lastScanTime of [0 -- scanInterval] */
-		this.lastScanTime = rng.nextDouble() * this.scanInterval;
+		this.lastScanTime = r.nextDouble() * this.scanInterval;
 	}
 
 	/**
@@ -157,6 +179,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 			optimizer = ConnectivityGrid.ConnectivityGridFactory(
 					this.interfacetype.hashCode(), transmitRange);
 			optimizer.addInterface(this);
+			inOptimizer = true;
 		} else {
 			optimizer = null;
 		}
@@ -226,10 +249,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @return true if the interface is on at the moment (false if not)
 	 */
 	public boolean isActive() {
-		boolean active = ah.isActive(this.activenessJitterValue);
+		boolean active = isScheduledActive();
 		
-		if (active && host.getComBus().getDouble(EnergyModel.ENERGY_VALUE_ID,
-					1) <= 0) {
+		if (active && host.getComBus().getDouble(
+				EnergyModel.ENERGY_VALUE_KEY, 1) <= 0) {
 			/* TODO: better way to check battery level */
 			/* no battery -> inactive */
 			active = false;
@@ -238,15 +261,64 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		if (active == false && this.transmitRange > 0) {
 			/* not active -> make range 0 */
 			this.oldTransmitRange = this.transmitRange;
-			host.getComBus().updateProperty(RANGE_ID, 0.0);
+			host.getComBus().setDouble(RANGE_KEY, 0.0);
 		} else if (active == true && this.transmitRange == 0.0) {
 			/* active, but range == 0 -> restore range  */
-			host.getComBus().updateProperty(RANGE_ID, 
-					this.oldTransmitRange);
+			host.getComBus().setDouble(RANGE_KEY, this.oldTransmitRange);
 		}		
+		
+		if (optimizer != null && active != inOptimizer) {
+			/* inactive interfaces are left out of the connectivity checks */
+			if (active) {
+				optimizer.addInterface(this);
+			} else {
+				optimizer.removeInterface(this);
+			}
+			inOptimizer = active;
+		}
+		
+		if (active != this.lastActive) {
+			this.lastActive = active;
+			host.interfaceStateChanged(this);
+		}
 		return active;
 	}
 	
+	/**
+	 * Returns the activeness given by the activeness handler. The value is
+	 * cached until the handler's next activeness change and a world update
+	 * is scheduled for the change so that the interface is turned on or off
+	 * on time.
+	 * @return true if the activeness handler says the interface is active
+	 */
+	private boolean isScheduledActive() {
+		double time = SimClock.getTime();
+		
+		if (time >= this.nextActivenessChange) {
+			this.scheduledActive = ah.isActive(time, activenessJitterValue);
+			this.nextActivenessChange = ah.getNextChange(time, 
+					activenessJitterValue);
+			if (nextActivenessChange > time && 
+					nextActivenessChange < Double.MAX_VALUE) {
+				World world = SimScenario.getInstance().getWorld();
+				if (world != null) {
+					world.scheduleUpdate(nextActivenessChange);
+				}
+			}
+		}
+		return this.scheduledActive;
+	}
+	
+	/**
+	 * Returns the time when the activeness of this interface must be 
+	 * checked again
+	 * @return The time of the next possible activeness change
+	 */
+	double getNextActivenessChange() {
+		isScheduledActive(); /* make sure the cached value is up to date */
+		return this.nextActivenessChange;
+	}
+	
 	/**
 	 * Checks if this interface is currently in the scanning mode
 	 * @return True if the interface is scanning; false if not
@@ -289,6 +361,14 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return false;
 	}
 
+	/**
+	 * Informs the host that a connection of this interface started or 
+	 * stopped transferring a message
+	 */
+	void transferStateChanged() {
+		host.interfaceStateChanged(this);
+	}
+
 	/**
 	 * Connects the interface to another interface.
 	 * 
@@ -355,6 +435,34 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 				anotherInterface.getHost().getLocation()) <= smallerRange);
 	}
 	
+	/**
+	 * Returns how much the distance between this interface's host and the
+	 * host of any other interface (of the same type) must change before 
+	 * the pair can get connected or go out of range: the smallest 
+	 * difference between the distance to another interface and the pair's
+	 * range. Interfaces that the connectivity optimizer doesn't consider
+	 * near are at least its near distance away. 
+	 * @return The margin (meters) or {@link Double#MAX_VALUE} if this 
+	 * interface isn't in a connectivity optimizer (e.g., it is inactive)
+	 */
+	public double getRangeMargin() {
+		if (optimizer == null || !inOptimizer) {
+			return Double.MAX_VALUE;
+		}
+		
+		Coord loc = getLocation();
+		double margin = optimizer.getNearDistance() - transmitRange;
+		for (NetworkInterface ni : optimizer.getNearInterfaces(this)) {
+			if (ni == this) {
+				continue;
+			}
+			double range = Math.min(transmitRange, ni.getTransmitRange());
+			double distance = loc.distance(ni.getLocation());
+			margin = Math.min(margin, Math.abs(distance - range));
+		}
+		return Math.max(margin, 0);
+	}
+	
 	/**
 	 * Returns true if the given NetworkInterface is connected to this host. 
 	 * @param netinterface The other NetworkInterface to check 
@@ -421,6 +529,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	public void moduleValueChanged(String key, Object newValue) {
 		if (key.equals(SCAN_INTERVAL_ID)) {
 			this.scanInterval = (Double)newValue;	
+			host.interfaceStateChanged(this);
 		}
 		else if (key.equals(SPEED_ID)) {
 			this.transmitSpeed = (Integer)newValue;	
@@ -12,11 +12,15 @@ import java.io.PrintStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 import util.Range;
 
@@ -59,6 +63,12 @@ public class Settings {
 	
 	/** run index for run-specific settings */
 	private static int runIndex = 0;
+	/** frozen settings or null if the settings are not frozen */
+	private static volatile Frozen frozen = null;
+	/** cache of the constructors used for creating objects (the key is the
+	 * class name and the classes of the arguments) */
+	private static final Map<String, Constructor<?>> constructors =
+		new ConcurrentHashMap<String, Constructor<?>>();
 	private String namespace = null; // namespace to look the settings from
 	private String secondaryNamespace = null;
 	private Stack<String> oldNamespaces;
@@ -101,6 +111,42 @@ public class Settings {
 	public static void setRunIndex(int index) {
 		runIndex = index;
 		writtenSettings.clear();
+		if (frozen != null) {
+			freeze(); // new run's values
+		}
+	}
+	
+	/**
+	 * Freezes the current settings: the values of all settings for the 
+	 * current run index are resolved and the numeric and comma separated 
+	 * values are parsed once, so that the subsequent setting requests are
+	 * simple hash table lookups. The frozen settings are immutable and are
+	 * resolved again if the run index or the settings files change. The
+	 * settings must not be modified in other ways while they are frozen.
+	 */
+	public static synchronized void freeze() {
+		if (props == null) {
+			init(null);
+		}
+		frozen = new Frozen(props, runIndex);
+	}
+	
+	/**
+	 * Discards the frozen settings (if any); the settings are looked up 
+	 * from the properties again.
+	 * @see #freeze()
+	 */
+	public static synchronized void unfreeze() {
+		frozen = null;
+	}
+	
+	/**
+	 * Returns true if the settings are frozen
+	 * @return true if the settings are frozen
+	 * @see #freeze()
+	 */
+	public static boolean isFrozen() {
+		return frozen != null;
 	}
 	
 	/**
@@ -265,6 +311,10 @@ public class Settings {
 			throw new SettingsError(e);
 		}
 
+		if (frozen != null) {
+			freeze(); // resolve the new settings
+		}
+
 		outFile = props.getProperty(SETTING_OUTPUT_S);
 		if (outFile != null) {
 			if (outFile.trim().length() == 0) {
@@ -293,6 +343,9 @@ public class Settings {
 		} catch (IOException e) {
 			throw new SettingsError(e);
 		}
+		if (frozen != null) {
+			freeze();
+		}
 	}
 	
 	/**
@@ -317,17 +370,13 @@ public class Settings {
 	 * @return True if the setting exists, false if not
 	 */
 	public boolean contains(String name) {
-		try {
-			String value = getSetting(name); 
-			if (value == null) {
-				return false;
-			}
-			
-			else return value.trim().length() > 0;
-		}
-		catch (SettingsError e) {
+		String[] setting = findSetting(name);
+		if (setting == null) {
 			return false; // didn't find the setting
 		}
+		
+		outputSetting(setting[0] + " = " + setting[1]);
+		return true;
 	}
 	
 	/**
@@ -358,34 +407,61 @@ public class Settings {
 	 * the namespaces
 	 */
 	public String getSetting(String name) {
+		String[] setting = findSetting(name);
+		
+		if (setting == null) {
+			throw new SettingsError("Can't find setting " + 
+					getPropertyNamesString(name));
+		}
+		
+		outputSetting(setting[0] + " = " + setting[1]);
+		return setting[1];
+	}
+	
+	/**
+	 * Looks up a setting from the namespace and then from the secondary
+	 * namespace (if any)
+	 * @param name Name of the setting
+	 * @return The full property name and the (non-empty) value of the 
+	 * setting, or null if the setting wasn't found
+	 */
+	private String[] findSetting(String name) {
 		String fullPropName;
 		if (props == null) {
 			init(null);
 		}
 		fullPropName = getFullPropertyName(name, false);
-		String value = props.getProperty(fullPropName);
-		
-		if (value != null) { // found value, check if run setting can be parsed
-			value = parseRunSetting(value.trim());
-		}
+		String value = lookup(fullPropName);
 			
 		if ((value == null || value.length() == 0) && 
 				this.secondaryNamespace != null) {
 			// try secondary namespace if the value wasn't found from primary
 			fullPropName = getFullPropertyName(name, true);
-			value = props.getProperty(fullPropName);
-			
-			if (value != null) {
-				value = parseRunSetting(value.trim());
-			}
+			value = lookup(fullPropName);
 		}
 		
 		if (value == null || value.length() == 0) {
-			throw new SettingsError("Can't find setting " + 
-					getPropertyNamesString(name));
+			return null;
+		}
+		return new String[] {fullPropName, value};
+	}
+	
+	/**
+	 * Returns the value of a property for the current run
+	 * @param fullPropName Full name of the property
+	 * @return The value (with run setting parsed) or null if there's no
+	 * such property
+	 */
+	private static String lookup(String fullPropName) {
+		Frozen f = frozen;
+		if (f != null && f.isValid()) {
+			return f.values.get(fullPropName);
 		}
 		
-		outputSetting(fullPropName + " = " + value);
+		String value = props.getProperty(fullPropName);
+		if (value != null) { // found value, check if run setting can be parsed
+			value = parseRunSetting(value.trim());
+		}
 		return value;
 	}
 	
@@ -480,6 +556,26 @@ public class Settings {
 	 * (or the suffix wasn't recognized)
 	 */
 	private double parseDouble(String value, String setting) {
+		Frozen f = frozen;
+		if (f != null && f.isValid()) {
+			Double number = f.numbers.get(value);
+			if (number != null) {
+				return number;
+			}
+		}
+		return parseNumber(value, setting);
+	}
+	
+	/**
+	 * Parses a double value from a String. Supports kilo (k), mega (M) and 
+	 * giga (G) suffixes.
+	 * @param value String value to parse
+	 * @param setting The setting where this value was from (for error msgs)
+	 * @return The value as a double
+	 * @throws SettingsError if the value wasn't a numeric value 
+	 * (or the suffix wasn't recognized)
+	 */
+	private static double parseNumber(String value, String setting) {
 		double number;
 		int multiplier = 1;
 		
@@ -514,14 +610,35 @@ public class Settings {
 	 * @throws SettingsError if something went wrong with reading
 	 */
 	public String[] getCsvSetting(String name) {
-		ArrayList<String> values = new ArrayList<String>();
 		String csv = getSetting(name);
+		Frozen f = frozen;
+		if (f != null && f.isValid()) {
+			String[] values = f.csvValues.get(csv);
+			if (values != null) {
+				return values.clone();
+			}
+		}
+		return splitCsv(csv);
+	}
+	
+	/**
+	 * Splits a comma separated value string and trims the values
+	 * @param csv The string to split
+	 * @return The values
+	 */
+	private static String[] splitCsv(String csv) {
+		if (csv.indexOf(',') < 0 && csv.trim().length() > 0) {
+			return new String[] {csv.trim()}; // just one value
+		}
+		
+		ArrayList<String> values = new ArrayList<String>();
 		Scanner s = new Scanner(csv);
 		s.useDelimiter(",");
 
 		while (s.hasNext()) {
 			values.add(s.next().trim());
 		}
+		s.close();
 		
 		return values.toArray(new String[0]);
 	}
@@ -777,17 +894,21 @@ public class Settings {
 	private Object loadObject(String className, Class<?>[] argsClass, 
 			Object[] args) {
 		Object o = null;
-		Class<?> objClass = getClass(className);
-		Constructor<?> constructor;
+		String key = className + Arrays.toString(argsClass);
+		Constructor<?> constructor = constructors.get(key);
 		
 		try {
-			if (argsClass != null) { // use a specific constructor
-				constructor = objClass.getConstructor((Class[])argsClass);
-				o = constructor.newInstance(args);
-			}
-			else { // call empty constructor
-				o = objClass.newInstance();
+			if (constructor == null) {
+				Class<?> objClass = getClass(className);
+				if (argsClass != null) { // use a specific constructor
+					constructor = objClass.getConstructor((Class[])argsClass);
+				}
+				else { // the empty constructor
+					constructor = objClass.getDeclaredConstructor();
+				}
+				constructors.put(key, constructor);
 			}
+			o = constructor.newInstance(args);
 		} catch (SecurityException e) {
 			e.printStackTrace();
 			throw new SettingsError("Fatal exception " + e, e);
@@ -882,4 +1003,73 @@ public class Settings {
 		return props.toString();
 	}
 	
+	/**
+	 * Immutable, fully resolved copy of the settings of one run
+	 */
+	private static class Frozen {
+		/** the properties the values were resolved from */
+		private final Properties source;
+		/** the run index the values were resolved for */
+		private final int runIndex;
+		/** values of the settings by their full property names */
+		private final Map<String, String> values;
+		/** parsed numbers by their string values */
+		private final Map<String, Double> numbers;
+		/** comma separated values by their string values */
+		private final Map<String, String[]> csvValues;
+		
+		/**
+		 * Resolves the values of all the properties
+		 * @param source The properties
+		 * @param runIndex The run index
+		 */
+		private Frozen(Properties source, int runIndex) {
+			this.source = source;
+			this.runIndex = runIndex;
+			this.values = new HashMap<String, String>();
+			this.numbers = new HashMap<String, Double>();
+			this.csvValues = new HashMap<String, String[]>();
+			
+			for (String key : source.stringPropertyNames()) {
+				String value = parseRunSetting(source.getProperty(key).trim());
+				values.put(key, value);
+				if (csvValues.containsKey(value)) {
+					continue; // same value already parsed
+				}
+				
+				String[] csv = splitCsv(value);
+				csvValues.put(value, csv);
+				addNumber(value);
+				for (String v : csv) {
+					addNumber(v);
+				}
+			}
+		}
+		
+		/**
+		 * Parses and stores a value if it is numeric
+		 * @param value The value
+		 */
+		private void addNumber(String value) {
+			char first = value.length() > 0 ? value.charAt(0) : ' ';
+			if (numbers.containsKey(value) || !(Character.isDigit(first) || 
+					first == '-' || first == '+' || first == '.')) {
+				return; // already parsed or surely not a number
+			}
+			try {
+				numbers.put(value, parseNumber(value, value));
+			} catch (SettingsError e) {
+				/* not a numeric value */
+			}
+		}
+		
+		/**
+		 * Returns true if the values are still valid (i.e., the settings 
+		 * or run index haven't changed)
+		 * @return true if the values are valid
+		 */
+		private boolean isValid() {
+			return this.source == props && this.runIndex == Settings.runIndex;
+		}
+	}
 }
\ No newline at end of file
@@ -10,11 +10,17 @@ import input.EventQueueHandler;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import movement.MapBasedMovement;
 import movement.MovementModel;
 import movement.map.SimMap;
 import routing.MessageRouter;
+import util.RandomStreams;
 
 /**
  * A simulation scenario used for getting and storing the settings of a
@@ -39,6 +45,15 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/**
+	 * Number of threads used for creating the hosts -setting id ({@value}).
+	 * Integer. Default is 1. With more threads, the hosts of groups whose 
+	 * movement model and router support parallel replication are created 
+	 * in parallel. Requires per-host random streams 
+	 * ({@link util.RandomStreams#PER_HOST_RNG_S}) so that the result 
+	 * doesn't depend on the order in which the hosts are created.
+	 */
+	public static final String HOST_THREADS_S = "hostCreationThreads";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -106,6 +121,8 @@ public class SimScenario implements Serializable {
 	private boolean simulateConnections;
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
+	/** Number of threads used for creating the hosts */
+	private int nrofHostThreads;
 
 	/** Global connection event listeners */
 	private List<ConnectionListener> connectionListeners;
@@ -138,10 +155,17 @@ public class SimScenario implements Serializable {
 		this.endTime = s.getDouble(END_TIME_S);
 		this.updateInterval = s.getDouble(UP_INT_S);
 		this.simulateConnections = s.getBoolean(SIM_CON_S);
+		this.nrofHostThreads = s.getInt(HOST_THREADS_S, 1);
 
 		s.ensurePositiveValue(nrofGroups, NROF_GROUPS_S);
 		s.ensurePositiveValue(endTime, END_TIME_S);
 		s.ensurePositiveValue(updateInterval, UP_INT_S);
+		s.ensurePositiveValue(nrofHostThreads, HOST_THREADS_S);
+		if (nrofHostThreads > 1 && !RandomStreams.isEnabled()) {
+			throw new SettingsError("Parallel host creation (" + 
+					HOST_THREADS_S + ") requires per-host random streams " +
+					"(" + RandomStreams.PER_HOST_RNG_S + ")");
+		}
 
 		this.simMap = null;
 		this.maxHostRange = 1;
@@ -159,7 +183,12 @@ public class SimScenario implements Serializable {
 		this.worldSizeX = worldSize[0];
 		this.worldSizeY = worldSize[1];
 		
+		long start = System.nanoTime();
+		long mapLoadTime = StartupTimes.getTime(StartupTimes.MAP_LOAD);
 		createHosts();
+		StartupTimes.add(StartupTimes.HOST_CREATION, System.nanoTime() - 
+				start - (StartupTimes.getTime(StartupTimes.MAP_LOAD) - 
+						mapLoadTime));
 		
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval, 
 				updateListeners, simulateConnections, 
@@ -332,6 +361,9 @@ public class SimScenario implements Serializable {
 				(MessageRouter)s.createIntializedObject(ROUTING_PACKAGE + 
 						s.getSetting(ROUTER_S));
 			
+			boolean parallel = mmProto.isParallelReplicationSupported() &&
+				mRouterProto.isParallelReplicationSupported();
+			
 			/* checks that these values are positive (throws Error if not) */
 			s.ensurePositiveValue(nrofHosts, NROF_HOSTS_S);
 			s.ensurePositiveValue(nrofInterfaces, NROF_INTERF_S);
@@ -370,6 +402,8 @@ public class SimScenario implements Serializable {
 					// Set the proto application in proto router
 					//mRouterProto.setApplication(protoApp);
 					mRouterProto.addApplication(protoApp);
+					parallel = parallel && 
+						protoApp.isParallelReplicationSupported();
 				} catch (SettingsError se) {
 					// Failed to create an application for this group
 					System.err.println("Failed to setup an application: " + se);
@@ -383,16 +417,86 @@ public class SimScenario implements Serializable {
 			}
 
 			// creates hosts of ith group
+			createGroupHosts(gid, nrofHosts, interfaces, mmProto, 
+					mRouterProto, parallel);
+		}
+	}
+	
+	/**
+	 * Creates the hosts of a group. The hosts get consecutive addresses. 
+	 * If more than one thread is used and the prototypes (including the 
+	 * router's applications) support it, the prototypes are replicated in 
+	 * parallel, but the hosts are attached to the simulation in address 
+	 * order.
+	 * @param gid Group ID of the hosts
+	 * @param nrofHosts Number of hosts in the group
+	 * @param interfaces Prototypes of the hosts' network interfaces
+	 * @param mmProto Prototype of the hosts' movement model
+	 * @param mRouterProto Prototype of the hosts' message router
+	 * @param parallel True if all the prototypes can be replicated in 
+	 * parallel
+	 */
+	private void createGroupHosts(final String gid, int nrofHosts, 
+			final List<NetworkInterface> interfaces, 
+			final MovementModel mmProto, final MessageRouter mRouterProto,
+			boolean parallel) {
+		final int firstAddress = DTNHost.reserveAddresses(nrofHosts);
+		final DTNHost[] groupHosts = new DTNHost[nrofHosts];
+		
+		if (nrofHostThreads == 1 || nrofHosts == 1 || !parallel) {
 			for (int j=0; j<nrofHosts; j++) {
-				ModuleCommunicationBus comBus = new ModuleCommunicationBus();
-
-				// prototypes are given to new DTNHost which replicates
-				// new instances of movement model and message router
-				DTNHost host = new DTNHost(this.messageListeners, 
-						this.movementListeners,	gid, interfaces, comBus, 
-						mmProto, mRouterProto);
-				hosts.add(host);
+				groupHosts[j] = new DTNHost(firstAddress + j, 
+						this.messageListeners, this.movementListeners, gid, 
+						interfaces, new ModuleCommunicationBus(), mmProto, 
+						mRouterProto);
+				groupHosts[j].attach();
+				hosts.add(groupHosts[j]);
+			}
+			return;
+		}
+		
+		/* each task replicates an equal share of the hosts */
+		int nrofTasks = Math.min(nrofHosts, nrofHostThreads);
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int t=0; t<nrofTasks; t++) {
+			final int from = (int)((long)nrofHosts * t / nrofTasks);
+			final int to = (int)((long)nrofHosts * (t + 1) / nrofTasks);
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					for (int j=from; j<to; j++) {
+						groupHosts[j] = new DTNHost(firstAddress + j, 
+								messageListeners, movementListeners, gid, 
+								interfaces, new ModuleCommunicationBus(), 
+								mmProto, mRouterProto);
+					}
+					return null;
+				}
+			});
+		}
+		
+		ExecutorService pool = Executors.newFixedThreadPool(nrofTasks);
+		try {
+			for (Future<Object> f : pool.invokeAll(tasks)) {
+				f.get();
 			}
+		} catch (InterruptedException e) {
+			throw new SimError("Host creation was interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new SimError("Can't create hosts: " + cause);
+		} finally {
+			pool.shutdown();
+		}
+		
+		for (DTNHost host : groupHosts) {
+			host.attach();
+			hosts.add(host);
 		}
 	}
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Wall clock times spent in the phases of the simulator start-up. The
+ * phases add their times here and the user interface shows the summary
+ * when the simulation starts.
+ */
+public class StartupTimes {
+	/** Phase of reading the settings files */
+	public static final int SETTINGS = 0;
+	/** Phase of reading the map files */
+	public static final int MAP_LOAD = 1;
+	/** Phase of creating the hosts (without reading the maps) */
+	public static final int HOST_CREATION = 2;
+	/** Phase of the movement model warm-up */
+	public static final int WARMUP = 3;
+
+	private static final String[] PHASE_NAMES = {"settings", "map load",
+		"host creation", "movement warm-up"};
+
+	/** times of the phases (nanoseconds) */
+	private static long[] times = new long[PHASE_NAMES.length];
+
+	/**
+	 * Adds time to a phase
+	 * @param phase The phase (one of the phase constants)
+	 * @param nanos The time to add (nanoseconds)
+	 */
+	public static synchronized void add(int phase, long nanos) {
+		times[phase] += nanos;
+	}
+
+	/**
+	 * Returns the time of a phase
+	 * @param phase The phase (one of the phase constants)
+	 * @return The time of the phase (nanoseconds)
+	 */
+	public static synchronized long getTime(int phase) {
+		return times[phase];
+	}
+
+	/**
+	 * Clears the times of all phases
+	 */
+	public static synchronized void clear() {
+		Arrays.fill(times, 0);
+	}
+
+	/**
+	 * Returns a summary of the phases that have taken time
+	 * @return The summary (e.g. "settings 0.01s, host creation 0.25s")
+	 */
+	public static synchronized String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<times.length; i++) {
+			if (times[i] == 0) {
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(PHASE_NAMES[i] + " " +
+					String.format("%.2f", times[i] / 1e9) + "s");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of the done times of constant bit-rate transfers. When a transfer's
+ * done time comes, the router of the sending host is updated at exactly
+ * that time so it finalizes the transfer (and can start the next one)
+ * without waiting for the next update of the world. Thus transfer
+ * completion times don't depend on the update interval.
+ * <P>This is an approximation: the router's whole update is run at the
+ * done time, but the hosts have not moved yet and the connections are
+ * those of the start of the step. A transfer that is started at the done
+ * time uses those connections, and with the per update energy accounting
+ * (see {@link routing.util.EnergyModel}) the extra update also reduces the
+ * scanning and transmitting energy as if the interval was split in two.
+ * </P>
+ */
+public class TransferQueue {
+	/** Transfers by their done time (and the order of starting) */
+	private PriorityQueue<Transfer> queue;
+	private long nrofTransfers;
+
+	/**
+	 * Creates a new transfer queue for the hosts' transfers
+	 * @param hosts The hosts
+	 */
+	public TransferQueue(List<DTNHost> hosts) {
+		this.queue = new PriorityQueue<Transfer>(11,
+				new Comparator<Transfer>() {
+			public int compare(Transfer a, Transfer b) {
+				int c = Double.compare(a.time, b.time);
+				if (c == 0) {
+					c = a.seq < b.seq ? -1 : (a.seq > b.seq ? 1 : 0);
+				}
+				return c;
+			}
+		});
+		for (DTNHost host : hosts) {
+			host.setTransferQueue(this);
+		}
+	}
+
+	/**
+	 * Adds the ongoing transfer of a connection to the queue
+	 * @param con The connection
+	 */
+	public void add(CBRConnection con) {
+		queue.add(new Transfer(con, con.getMessage(),
+				con.getTransferDoneTime(), nrofTransfers++));
+	}
+
+	/**
+	 * Returns the time when the next transfer is done
+	 * @return The time or {@link Double#MAX_VALUE} if there are no
+	 * transfers
+	 */
+	public double nextTime() {
+		Transfer t = queue.peek();
+		return t == null ? Double.MAX_VALUE : t.time;
+	}
+
+	/**
+	 * Finishes all transfers that are done by the given time. The simulation
+	 * clock is set to the done time of every transfer before updating the
+	 * sender's router. Transfers that were aborted or finished already are
+	 * skipped.
+	 * @param until The time until which the transfers are finished
+	 */
+	public void finishDue(double until) {
+		SimClock clock = SimClock.getInstance();
+		Transfer t;
+		while ((t = queue.peek()) != null && t.time <= until) {
+			queue.poll();
+			CBRConnection con = t.con;
+			if (con.getMessage() != t.msg || con.msgFromNode == null ||
+					con.getTransferDoneTime() != t.time) {
+				continue; /* not the same transfer anymore */
+			}
+			clock.setTime(t.time);
+			con.msgFromNode.getRouter().update();
+		}
+	}
+
+	/**
+	 * Returns the number of transfers queued so far
+	 * @return the number of transfers
+	 */
+	public long getNrofTransfers() {
+		return this.nrofTransfers;
+	}
+
+	/**
+	 * A transfer in the queue
+	 */
+	private static class Transfer {
+		private CBRConnection con;
+		private Message msg;
+		private double time;
+		private long seq;
+
+		private Transfer(CBRConnection con, Message msg, double time,
+				long seq) {
+			this.con = con;
+			this.msg = msg;
+			this.time = time;
+			this.seq = seq;
+		}
+	}
+}
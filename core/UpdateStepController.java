@@ -0,0 +1,195 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.List;
+
+/**
+ * Picks the length of the world's update steps for adaptive stepping. The
+ * steps are multiples of the minimum step (the scenario's update interval)
+ * and as long as possible (up to the maximum step) so that nothing can
+ * happen during the step that the minimum steps would have seen earlier:
+ * <UL>
+ * <LI>no pair of hosts can come within range or go out of range, i.e.,
+ * the distance between a moving host and any other host doesn't change
+ * more than the pair's range margin (see 
+ * {@link NetworkInterface#getRangeMargin()}) at twice the maximum speed of
+ * the moving hosts</LI>
+ * <LI>no transfer of a constant bit rate connection finishes (unless the
+ * transfers are finished at their done times, see 
+ * {@link #setTransferLimit(boolean)})</LI>
+ * <LI>no waiting host's next path becomes available and no inactive
+ * host's movement activeness changes</LI>
+ * <LI>no external event or scheduled update is due</LI>
+ * </UL>
+ * Thus the contact detection error (and the error of the transfer
+ * completion times) is at most the minimum step, as with fixed stepping.
+ * Contacts that change within the first minimum step are missed as with
+ * fixed steps. The controller also keeps statistics of the steps taken.
+ */
+public class UpdateStepController {
+	/** Upper limits of the step size buckets (multiples of the minimum 
+	 * step) */
+	private static final int[] BUCKETS = {1, 2, 5, 10, 20, 50};
+
+	private double minStep;
+	private double maxStep;
+	private double endTime;
+	private boolean transferLimit;
+
+	private long nrofSteps;
+	private double totalTime;
+	private double longestStep;
+	private long[] counts;
+
+	/**
+	 * Creates a new controller
+	 * @param minStep The minimum step (seconds)
+	 * @param maxStep The maximum step (seconds)
+	 * @param endTime The end time of the simulation; the steps don't go
+	 * past it
+	 */
+	public UpdateStepController(double minStep, double maxStep,
+			double endTime) {
+		this.minStep = minStep;
+		this.maxStep = maxStep;
+		this.endTime = endTime;
+		this.transferLimit = true;
+		this.counts = new long[BUCKETS.length + 1];
+	}
+
+	/**
+	 * Returns the length of the next update step
+	 * @param hosts All hosts of the world
+	 * @param nextEventTime Time of the next external event or scheduled
+	 * update
+	 * @return The length of the step (a multiple of the minimum step)
+	 */
+	public double nextStep(List<DTNHost> hosts, double nextEventTime) {
+		double now = SimClock.getTime();
+		double limit = Math.min(maxStep, endTime - now);
+		double maxSpeed = 0;
+		double margin = Double.MAX_VALUE;
+
+		if (nextEventTime > now) {
+			limit = Math.min(limit, nextEventTime - now);
+		}
+
+		for (int i=0, n=hosts.size(); i<n && limit > minStep; i++) {
+			if (maxSpeed > 0 && margin / (2 * maxSpeed) <= minStep) {
+				break; /* can't get any longer than the minimum step */
+			}
+			DTNHost host = hosts.get(i);
+			double nextMove = host.getNextTimeToMove();
+
+			boolean moving = false;
+
+			if (!host.isMovementActive()) {
+				/* doesn't move before its activeness changes */
+				double change = host.getNextMovementActivenessChange();
+				if (change > now) {
+					limit = Math.min(limit, change - now);
+				}
+			} else if (now < nextMove) {
+				limit = Math.min(limit, nextMove - now);
+			} else {
+				moving = true;
+				maxSpeed = Math.max(maxSpeed, host.getMaxSpeed());
+			}
+
+			for (NetworkInterface ni : host.getInterfaces()) {
+				if (moving) { /* hosts that stay put can't change contacts */
+					margin = Math.min(margin, ni.getRangeMargin());
+				}
+				if (transferLimit) {
+					limit = Math.min(limit, getTransfersDone(ni, now));
+				}
+			}
+		}
+		if (maxSpeed > 0) {
+			limit = Math.min(limit, margin / (2 * maxSpeed));
+		}
+
+		/* round down to a multiple of the minimum step */
+		double step = minStep * Math.max(1, Math.floor(limit / minStep + 
+				1e-9));
+		countStep(step);
+		return step;
+	}
+
+	/**
+	 * Sets whether the steps end before the done times of the transfers.
+	 * This is not needed if the transfers are finished at their exact
+	 * done times within the steps (see {@link TransferQueue}).
+	 * @param transferLimit If true (the default), no transfer finishes 
+	 * within a step
+	 */
+	public void setTransferLimit(boolean transferLimit) {
+		this.transferLimit = transferLimit;
+	}
+
+	/**
+	 * Returns the time from now until the first transfer of an interface's 
+	 * connections is done
+	 * @param ni The interface
+	 * @param now The current time
+	 * @return The time until the first transfer is done or 
+	 * {@link Double#MAX_VALUE} if no transfers finish later
+	 */
+	private double getTransfersDone(NetworkInterface ni, double now) {
+		double first = Double.MAX_VALUE;
+		for (Connection con : ni.getConnections()) {
+			if (con instanceof CBRConnection && con.isTransferring()) {
+				double done = ((CBRConnection)con).getTransferDoneTime();
+				if (done > now) {
+					first = Math.min(first, done - now);
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Adds a step to the statistics
+	 * @param step The length of the step
+	 */
+	private void countStep(double step) {
+		long multiple = Math.round(step / minStep);
+		int i = 0;
+		while (i < BUCKETS.length && multiple > BUCKETS[i]) {
+			i++;
+		}
+		counts[i]++;
+		nrofSteps++;
+		totalTime += step;
+		longestStep = Math.max(longestStep, step);
+	}
+
+	/**
+	 * Returns the number of steps taken
+	 * @return the number of steps
+	 */
+	public long getNrofSteps() {
+		return this.nrofSteps;
+	}
+
+	/**
+	 * Returns a summary of the step statistics
+	 * @return the summary
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%d steps, average %.3fs, longest %.3fs%n" +
+				"  steps (x %ss):", nrofSteps, 
+				nrofSteps > 0 ? totalTime / nrofSteps : 0, longestStep, 
+				minStep));
+		for (int i = 0; i < counts.length; i++) {
+			sb.append(i < BUCKETS.length ? " <=" + BUCKETS[i] : 
+				" >" + BUCKETS[BUCKETS.length - 1]);
+			sb.append(":" + counts[i]);
+		}
+		return sb.toString();
+	}
+}
@@ -54,6 +54,7 @@ public class VBRConnection extends Connection {
 			this.msgOnFly = newMessage;
 			this.msgsize = m.getSize();
 			this.msgsent = 0;
+			notifyTransferState();
 		}
 
 		return retVal;
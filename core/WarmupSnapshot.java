@@ -0,0 +1,244 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import movement.EveningActivityControlSystem;
+import movement.MovementModel;
+import movement.StateInput;
+import movement.StateOutput;
+
+/**
+ * Snapshot of the movement state of the world after the movement model
+ * warm-up. When a snapshot file for the same scenario exists, the state is
+ * read from the file instead of running the warm-up; otherwise the warm-up
+ * is run and its result is written to the file. The state contains the
+ * locations, paths and movement model states of all hosts, the state of
+ * the movement control systems and the movement random number generators.
+ * <P>A snapshot is used only if the state of the world before the warm-up
+ * (which depends on the scenario settings and the movement model random
+ * number seed) is the same as when the snapshot was written. The file
+ * starts with a digest of that state, so runs with different movement
+ * settings just replace the file. Movement listeners are not informed of
+ * the movement during a warm-up that is read from a snapshot.</P>
+ */
+public class WarmupSnapshot {
+	/** Snapshot file identifier */
+	private static final int MAGIC = 0x4F4E4557;
+	/** Snapshot file format version */
+	private static final int VERSION = 1;
+	/** Algorithm of the digest of the state before the warm-up */
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private World world;
+	private File file;
+
+	/**
+	 * Creates a new snapshot handler
+	 * @param world The world whose state is saved or restored
+	 * @param fileName Path of the snapshot file
+	 */
+	public WarmupSnapshot(World world, String fileName) {
+		this.world = world;
+		this.file = new File(fileName);
+	}
+
+	/**
+	 * Warms up the movement models of the world for the given time, either
+	 * by reading the state from the snapshot file or by running
+	 * {@link World#warmupMovementModel(double)} and writing the state to the
+	 * file. SimClock must be set to <CODE>-time</CODE> before calling this
+	 * method.
+	 * @param time The total time (seconds) to move
+	 * @return True if the state was read from the snapshot file, false if
+	 * the warm-up was run
+	 * @throws SettingsError if some movement model doesn't support snapshots
+	 * @throws SimError if reading or writing the snapshot fails
+	 */
+	public boolean warmup(double time) {
+		byte[] digest = digestInitialState(time);
+
+		if (restore(digest)) {
+			SimClock.getInstance().setTime(0);
+			return true;
+		}
+
+		world.warmupMovementModel(time);
+		save(digest);
+		return false;
+	}
+
+	/**
+	 * Writes the movement state of the world
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	private void writeState(StateOutput out) throws IOException {
+		List<DTNHost> hosts = world.getHosts();
+
+		MovementModel.writeSharedState(out);
+		out.writeInt(hosts.size());
+		for (DTNHost host : hosts) {
+			host.writeMovementState(out);
+		}
+		EveningActivityControlSystem.writeSharedState(out);
+	}
+
+	/**
+	 * Reads the movement state of the world written by
+	 * {@link #writeState(StateOutput)}
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 */
+	private void readState(StateInput in) throws IOException {
+		List<DTNHost> hosts = world.getHosts();
+
+		MovementModel.readSharedState(in);
+		if (in.readInt() != hosts.size()) {
+			throw new SimError("Number of hosts in the snapshot " + file +
+					" doesn't match");
+		}
+		for (DTNHost host : hosts) {
+			host.readMovementState(in);
+		}
+		EveningActivityControlSystem.readSharedState(in);
+	}
+
+	/**
+	 * Calculates a digest of the current (pre warm-up) state of the world
+	 * @param time The warm-up time
+	 * @return The digest
+	 */
+	private byte[] digestInitialState(double time) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new SimError(e);
+		}
+
+		OutputStream nullOut = new OutputStream() {
+			public void write(int b) { }
+			public void write(byte[] b, int off, int len) { }
+		};
+		StateOutput out = new StateOutput(new DigestOutputStream(nullOut, md));
+		try {
+			out.writeDouble(time);
+			out.writeDouble(world.getUpdateInterval());
+			writeState(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		return md.digest();
+	}
+
+	/**
+	 * Reads the state from the snapshot file if the file exists and was
+	 * written for the same initial state
+	 * @param digest Digest of the initial state
+	 * @return True if the state was read, false if not
+	 * @throws SimError if the file matches but reading the state fails
+	 */
+	private boolean restore(byte[] digest) {
+		if (!file.exists()) {
+			return false;
+		}
+
+		StateInput in = null;
+		boolean matches = false;
+		try {
+			in = new StateInput(new GZIPInputStream(new BufferedInputStream(
+					new FileInputStream(file))));
+			byte[] fileDigest = new byte[digest.length];
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return false;
+			}
+			in.readFully(fileDigest);
+			if (!Arrays.equals(digest, fileDigest)) {
+				return false; /* written for other settings */
+			}
+
+			matches = true;
+			readState(in);
+			return true;
+		} catch (IOException e) {
+			if (!matches) {
+				return false; /* not a (complete) snapshot file */
+			}
+			throw new SimError("Can't read warm-up snapshot " + file, e);
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Writes the current state to the snapshot file
+	 * @param digest Digest of the initial state
+	 * @throws SimError if writing fails
+	 */
+	private void save(byte[] digest) {
+		File tmpFile = null;
+		StateOutput out = null;
+
+		try {
+			/* write to a temporary file first so that other runs never
+			 * see a partially written snapshot */
+			tmpFile = File.createTempFile(file.getName() + ".part", null,
+					file.getAbsoluteFile().getParentFile());
+			out = new StateOutput(new GZIPOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmpFile))));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(digest);
+			writeState(out);
+			out.close();
+			out = null;
+			/* renaming over an existing file fails on some platforms */
+			if (!tmpFile.renameTo(file) &&
+					!(file.delete() && tmpFile.renameTo(file))) {
+				throw new IOException("Can't rename " + tmpFile);
+			}
+			tmpFile = null;
+		} catch (IOException e) {
+			throw new SimError("Can't write warm-up snapshot " + file, e);
+		} finally {
+			close(out);
+			if (tmpFile != null) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Closes a stream ignoring any errors
+	 * @param stream The stream to close (or null)
+	 */
+	private static void close(Closeable stream) {
+		if (stream == null) {
+			return;
+		}
+		try {
+			stream.close();
+		} catch (IOException e) {
+			/* nothing to do */
+		}
+	}
+}
@@ -9,6 +9,7 @@ import input.ExternalEvent;
 import input.ScheduledUpdatesQueue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -37,6 +38,63 @@ public class World {
 	 */
 	public static final String SIMULATE_CON_ONCE_S = "simulateConnectionsOnce";
 
+	/**
+	 * Should the movement state of the hosts be kept in a structure-of-arrays
+	 * {@link MovementStore} -setting id ({@value}). The locations of the
+	 * hosts become views of the store and only the hosts that reach a
+	 * waypoint or whose movement activeness may change are asked to move.
+	 * Boolean (true/false) variable. Default is false.
+	 */
+	public static final String SOA_MOVEMENT_S = "soaMovement";
+	
+	/**
+	 * Should the randomized update order be a randomly rotated stride 
+	 * permutation of the hosts instead of a full shuffle -setting id 
+	 * ({@value}). A new permutation (random offset and a random stride that
+	 * is coprime with the number of hosts) is picked for every update round
+	 * so every host is still updated exactly once in a round and no host is
+	 * favored in the long run, but picking the order requires no allocation
+	 * or shuffling. Boolean (true/false) variable. Default is false.
+	 */
+	public static final String STRIDE_UPDATE_ORDER_S = "strideUpdateOrder";
+	
+	/**
+	 * Should idle hosts be parked -setting id ({@value}). Hosts that don't
+	 * move, have no connections and whose router has nothing to do (e.g., 
+	 * stationary nodes and nodes waiting for their next path with empty 
+	 * buffers) are not moved nor updated until their next move or 
+	 * activeness change (or the time when the energy of a lazy energy model
+	 * runs out), or until they get a new connection or message. 
+	 * Parked hosts don't scan for new neighbors themselves; they are found
+	 * by the scans of the active hosts. Boolean (true/false) variable. 
+	 * Default is false.
+	 * @see ActiveHostSet
+	 */
+	public static final String PARK_IDLE_HOSTS_S = "parkIdleHosts";
+	
+	/**
+	 * Maximum update interval for adaptive stepping -setting id ({@value}).
+	 * If this is longer than the scenario's update interval, the length of
+	 * every update step is picked adaptively between the two so that 
+	 * contacts, transfers, movement starts and events are still detected 
+	 * within the scenario's update interval. Double (seconds). Default is 0
+	 * (adaptive stepping is off).
+	 * @see UpdateStepController
+	 */
+	public static final String MAX_UPDATE_INTERVAL_S = "maxUpdateInterval";
+	
+	/**
+	 * Should constant bit-rate transfers be finished at their exact done 
+	 * times -setting id ({@value}). If true, the sender's router is updated
+	 * when a transfer is done instead of at the next update of the world, 
+	 * so delivery times don't depend on the update interval and transfers
+	 * don't limit the adaptive update steps. The router is updated against
+	 * the locations and connections of the start of the update step.
+	 * Boolean (true/false) variable. Default is false.
+	 * @see TransferQueue
+	 */
+	public static final String EXACT_TRANSFERS_S = "exactTransfers";
+
 	private int sizeX;
 	private int sizeY;
 	private List<EventQueue> eventQueues;
@@ -50,6 +108,11 @@ public class World {
 	/** nodes in the order they should be updated (if the order should be 
 	 * randomized; null value means that the order should not be randomized) */
 	private ArrayList<DTNHost> updateOrder;
+	/** strides that are coprime with the number of hosts (null if the 
+	 * stride update order is not used) */
+	private int[] orderStrides;
+	/** rng for the stride update order */
+	private Random orderRng;
 	/** is cancellation of simulation requested from UI */
 	private boolean isCancelled;
 	private List<UpdateListener> updateListeners;
@@ -57,6 +120,14 @@ public class World {
 	private ScheduledUpdatesQueue scheduledUpdates;
 	private boolean simulateConOnce;
 	private boolean isConSimulated;
+	/** store of the hosts' movement state (null if not in use) */
+	private MovementStore movementStore;
+	/** set of the active (not parked) hosts (null if not in use) */
+	private ActiveHostSet activeSet;
+	/** picks the adaptive update steps (null if not in use) */
+	private UpdateStepController stepController;
+	/** done times of the ongoing transfers (null if not in use) */
+	private TransferQueue transferQueue;
 
 	/**
 	 * Constructor.
@@ -92,8 +163,30 @@ public class World {
 			randomizeUpdates = s.getBoolean(RANDOMIZE_UPDATES_S);
 		}
 		simulateConOnce = s.getBoolean(SIMULATE_CON_ONCE_S, false);
+		if (s.getBoolean(SOA_MOVEMENT_S, false)) {
+			this.movementStore = new MovementStore(this.hosts);
+		}
+		if (s.getBoolean(PARK_IDLE_HOSTS_S, false)) {
+			this.activeSet = new ActiveHostSet(this.hosts);
+		}
+		if (s.getBoolean(EXACT_TRANSFERS_S, false)) {
+			this.transferQueue = new TransferQueue(this.hosts);
+		}
+		double maxInterval = s.getDouble(MAX_UPDATE_INTERVAL_S, 0);
+		if (maxInterval > this.updateInterval) {
+			Settings scen = new Settings(SimScenario.SCENARIO_NS);
+			this.stepController = new UpdateStepController(
+					this.updateInterval, maxInterval, 
+					scen.getDouble(SimScenario.END_TIME_S));
+			this.stepController.setTransferLimit(this.transferQueue == null);
+		}
 		
-		if(randomizeUpdates) {
+		if(randomizeUpdates && s.getBoolean(STRIDE_UPDATE_ORDER_S, false)) {
+			this.updateOrder = null;
+			this.orderStrides = coprimeStrides(this.hosts.size());
+			this.orderRng = new Random(this.hosts.size());
+		}
+		else if(randomizeUpdates) {
 			// creates the update order array that can be shuffled
 			this.updateOrder = new ArrayList<DTNHost>(this.hosts);
 		}
@@ -102,6 +195,31 @@ public class World {
 		}
 	}
 
+	/**
+	 * Returns all the strides (1...n-1, or 1 for n <= 2) that are coprime
+	 * with n, i.e., the strides that visit every index of n items once
+	 * @param n The number of items
+	 * @return The strides
+	 */
+	private static int[] coprimeStrides(int n) {
+		int[] strides = new int[Math.max(n - 1, 1)];
+		int nrofStrides = 0;
+		strides[nrofStrides++] = 1;
+		for (int k=2; k<n; k++) {
+			int a = n;
+			int b = k;
+			while (b != 0) { // gcd
+				int t = a % b;
+				a = b;
+				b = t;
+			}
+			if (a == 1) {
+				strides[nrofStrides++] = k;
+			}
+		}
+		return Arrays.copyOf(strides, nrofStrides);
+	}
+
 	/**
 	 * Moves hosts in the world for the time given time initialize host 
 	 * positions properly. SimClock must be set to <CODE>-time</CODE> before
@@ -147,15 +265,24 @@ public class World {
 	/** 
 	 * Update (move, connect, disconnect etc.) all hosts in the world.
 	 * Runs all external events that are due between the time when
-	 * this method is called and after one update interval.
+	 * this method is called and after one update interval (or one adaptive
+	 * update step, see {@link #MAX_UPDATE_INTERVAL_S}), and finishes the 
+	 * transfers that are done within it (if {@link #EXACT_TRANSFERS_S} is 
+	 * set).
 	 */
 	public void update () {
-		double runUntil = SimClock.getTime() + this.updateInterval;
-
+		double step = this.updateInterval;
+		
 		setNextEventQueue();
+		if (this.stepController != null) {
+			step = stepController.nextStep(this.hosts, 
+					this.nextQueueEventTime);
+		}
+		double runUntil = SimClock.getTime() + step;
 
 		/* process all events that are due until next interval update */
 		while (this.nextQueueEventTime <= runUntil) {
+			finishTransfers(this.nextQueueEventTime);
 			simClock.setTime(this.nextQueueEventTime);
 			ExternalEvent ee = this.nextEventQueue.nextEvent();
 			ee.processEvent(this);
@@ -163,7 +290,8 @@ public class World {
 			setNextEventQueue();
 		}
 
-		moveHosts(this.updateInterval);
+		finishTransfers(runUntil);
+		moveHosts(step);
 		simClock.setTime(runUntil);
 
 		updateHosts();
@@ -173,19 +301,50 @@ public class World {
 			ul.updated(this.hosts);
 		}
 	}
+
+	/**
+	 * Finishes the transfers that are done by the given time (if the 
+	 * transfer queue is in use)
+	 * @param until The time until which the transfers are finished
+	 */
+	private void finishTransfers(double until) {
+		if (this.transferQueue != null) {
+			transferQueue.finishDue(until);
+		}
+	}
 
 	/**
 	 * Updates all hosts (calls update for every one of them). If update
 	 * order randomizing is on (updateOrder array is defined), the calls
-	 * are made in random order.
+	 * are made in random order. If the stride update order is used, the
+	 * calls are made in the order of a random stride permutation.
 	 */
 	private void updateHosts() {
-		if (this.updateOrder == null) { // randomizing is off
+		if (this.activeSet != null) {
+			activeSet.wakeUpDue(SimClock.getTime());
+		}
+		
+		if (this.orderStrides != null) { // stride permutation
+			int n = hosts.size();
+			int index = (n > 0 ? orderRng.nextInt(n) : 0);
+			int stride = orderStrides[orderRng.nextInt(orderStrides.length)];
+			for (int i=0; i < n; i++) {
+				if (this.isCancelled) {
+					break;
+				}
+				updateHost(hosts.get(index));
+				index += stride;
+				if (index >= n) {
+					index -= n;
+				}
+			}
+		}
+		else if (this.updateOrder == null) { // randomizing is off
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
 					break;
 				}
-				hosts.get(i).update(simulateConnections);
+				updateHost(hosts.get(i));
 			}
 		}
 		else { // update order randomizing is on
@@ -197,7 +356,7 @@ public class World {
 				if (this.isCancelled) {
 					break;
 				}
-				this.updateOrder.get(i).update(simulateConnections);
+				updateHost(this.updateOrder.get(i));
 			}			
 		}
 		
@@ -205,15 +364,42 @@ public class World {
 			simulateConnections = false;
 		}
 	}
+	
+	/**
+	 * Updates a host unless it is parked and parks it if it is idle after
+	 * the update
+	 * @param host The host to update
+	 */
+	private void updateHost(DTNHost host) {
+		if (this.activeSet == null) {
+			host.update(simulateConnections);
+			return;
+		}
+		
+		if (!host.isParked()) {
+			host.update(simulateConnections);
+			activeSet.parkIfIdle(host);
+		}
+	}
 
 	/**
 	 * Moves all hosts in the world for a given amount of time
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
+		if (this.movementStore != null) {
+			movementStore.move(timeIncrement);
+			return;
+		}
+		
+		if (this.activeSet != null) {
+			activeSet.wakeUpDue(SimClock.getTime());
+		}
 		for (int i=0,n = hosts.size(); i<n; i++) {
 			DTNHost host = hosts.get(i);
-			host.move(timeIncrement);			
+			if (!host.isParked()) {
+				host.move(timeIncrement);
+			}
 		}		
 	}
 
@@ -248,6 +434,22 @@ public class World {
 		return this.sizeY;
 	}
 
+	/**
+	 * Returns the update interval of the world
+	 * @return the update interval (seconds)
+	 */
+	public double getUpdateInterval() {
+		return this.updateInterval;
+	}
+
+	/**
+	 * Returns the controller of the adaptive update steps
+	 * @return the controller or null if adaptive stepping is not in use
+	 */
+	public UpdateStepController getStepController() {
+		return this.stepController;
+	}
+
 	/**
 	 * Returns a node from the world by its address
 	 * @param address The address of the node
@@ -4,36 +4,67 @@
  */
 package gui;
 
+import gui.playfield.NodeGraphic;
 import gui.playfield.PlayField;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import movement.Path;
 import ui.DTNSimUI;
 import core.Coord;
 import core.DTN2Manager;
 import core.DTNHost;
+import core.Settings;
 import core.SimClock;
 
 /**
  * Graphical User Interface for simulator
  */
 public class DTNSimGUI extends DTNSimUI {
+	/** Maximum number of times per second the view is updated -setting id
+	 * ({@value}) in the GUI name space. Default is {@link #DEF_MAX_FPS} */
+	public static final String MAX_FPS_S = "maxFps";
+	/** Default value for the maximum view update rate ({@value}) */
+	public static final int DEF_MAX_FPS = 25;
+	
 	private MainWindow main;
 	private PlayField field;
 	private GUIControls guiControls;
 	private EventLogPanel eventLogPanel;
 	private InfoPanel infoPanel;
 	
+	/** the latest snapshot published by the simulation thread */
+	private volatile WorldSnapshot latestSnapshot;
+	/** the snapshot currently shown (accessed only in EDT) */
+	private WorldSnapshot shownSnapshot;
+	/** highlighted hosts of the latest snapshot */
+	private List<DTNHost> snapshotHighlights;
+	/** were the radios checked for the latest snapshot */
+	private boolean snapshotRadios;
+	/** minimum time between two snapshots (nanoseconds) */
+	private long frameInterval;
+	/** when the latest snapshot was published (System.nanoTime()) */
+	private long lastPublishTime;
+	/** lock the simulation thread holds while it updates the world and the
+	 * GUI while it reads the live hosts (fair, so that the GUI gets it 
+	 * between the updates) */
+	private final Lock worldLock = new ReentrantLock(true);
+	
 	private void startGUI() {
 		try {
 			SwingUtilities.invokeAndWait(new Runnable() {
@@ -92,6 +123,21 @@ public class DTNSimGUI extends DTNSimUI {
 		});
 
 		this.main.setVisible(true);
+		
+		Settings s = new Settings(MainWindow.GUI_NS);
+		int maxFps = Math.max(s.getInt(MAX_FPS_S, DEF_MAX_FPS), 1);
+		this.frameInterval = 1000000000L / maxFps;
+		this.latestSnapshot = takeSnapshot(SimClock.getTime());
+		
+		// show the latest snapshot at most maxFps times per second
+		Timer viewTimer = new Timer(1000 / maxFps, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (latestSnapshot != shownSnapshot) {
+					updateView();
+				}
+			}
+		});
+		viewTimer.start();
 	}
 	
 	@Override
@@ -110,11 +156,18 @@ public class DTNSimGUI extends DTNSimUI {
 				wait(10); // release CPU resources when paused
 			}
 			else {
+				AssertionError error = null;
+				worldLock.lock();
 				try {
 					world.update();
 				} catch (AssertionError e) {
+					error = e;
+				} finally {
+					worldLock.unlock();
+				}
+				if (error != null) {
 					// handles both assertion errors and SimErrors
-					processAssertionError(e);
+					processAssertionError(error);
 				}
 				simTime = SimClock.getTime();
 			}
@@ -183,29 +236,37 @@ public class DTNSimGUI extends DTNSimUI {
 	}
 	
     /**
-     * Updates the GUI
+     * Updates the GUI by publishing a new snapshot of the world. The 
+     * snapshot is shown by the EDT, so the simulation doesn't wait for the
+     * GUI to be drawn.
      */
     public void update(boolean forcedUpdate) {
     	double guiUpdateInterval = guiControls.getUpdateInterval(); 		
+    	double simTime = SimClock.getTime();
     	
-    	// update only if long enough simTime has passed (and not forced)
-		if (!forcedUpdate && guiUpdateInterval > (SimClock.getTime()
-				- this.lastUpdate)) {
-			return;
-		}
+    	if (!forcedUpdate) {
+    		// when paused, make sure the latest state gets shown
+    		boolean pausedChange = guiControls.isPaused() && 
+    			(latestSnapshot.getTime() != simTime ||
+    			NodeGraphic.getHighlightedNodes() != snapshotHighlights ||
+    			NodeGraphic.getDrawCoverage() != snapshotRadios);
+    		
+    		// update only if long enough simTime has passed
+    		if (!pausedChange && 
+    				guiUpdateInterval > simTime - this.lastUpdate) {
+    			return;
+    		}
+    		// ...and the view has had time to show the previous snapshot
+    		// (slow motion waits after every update anyway)
+    		if (guiUpdateInterval >= 0 && 
+    				System.nanoTime() - this.lastPublishTime < frameInterval) {
+    			return;
+    		}
+    	}
     	
-		try {
-			// run update in EDT, TODO: optimize threading
-			SwingUtilities.invokeAndWait(new Runnable() {
-			    public void run() {
-					updateView();
-			    }
-			});
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			e.printStackTrace();
-		}
+    	this.lastUpdate = simTime;
+    	this.lastPublishTime = System.nanoTime();
+    	this.latestSnapshot = takeSnapshot(simTime);
 		
     	// wait a while if we don't want to run simulation at full speed
     	if (guiUpdateInterval < 0) {
@@ -215,14 +276,28 @@ public class DTNSimGUI extends DTNSimUI {
     }
     
     /**
-     * Updates playfield and sim time field
+     * Takes a snapshot of the world with the highlighted hosts and (if
+     * the radio ranges are shown) the radio states
+     * @param simTime The current simulation time
+     * @return The snapshot
+     */
+    private WorldSnapshot takeSnapshot(double simTime) {
+    	this.snapshotHighlights = NodeGraphic.getHighlightedNodes();
+    	this.snapshotRadios = NodeGraphic.getDrawCoverage();
+    	return new WorldSnapshot(world.getHosts(), simTime, 
+    			snapshotHighlights, snapshotRadios);
+    }
+    
+    /**
+     * Updates playfield and sim time field to show the latest snapshot
      *
      */
     private void updateView() {
-    	double simTime = SimClock.getTime();
-    	this.lastUpdate = simTime;
-    	guiControls.setSimTime(simTime); //update time to control panel
+    	WorldSnapshot snapshot = this.latestSnapshot;
+    	this.shownSnapshot = snapshot;
+    	guiControls.setSimTime(snapshot.getTime()); // update control panel
 
+    	this.field.setSnapshot(snapshot);
     	this.field.updateField();
     }
     
@@ -239,9 +314,24 @@ public class DTNSimGUI extends DTNSimUI {
      * @param host The node to center
      */
     public void setFocus(DTNHost host) {
-    	centerViewAt(host.getLocation());
-    	infoPanel.showInfo(host);
-    	showPath(host.getPath()); // show path on the playfield
+    	worldLock.lock();
+    	try {
+    		centerViewAt(host.getLocation());
+    		infoPanel.showInfo(host);
+    		showPath(host.getPath()); // show path on the playfield
+    	} finally {
+    		worldLock.unlock();
+    	}
+    }
+    
+    /**
+     * Returns the lock that must be held while the GUI reads the live 
+     * state of the hosts (the simulation doesn't update the world while 
+     * the lock is held)
+     * @return the lock of the world
+     */
+    public Lock getWorldLock() {
+    	return this.worldLock;
     }
     
     /**
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Lock-free ring buffer of event log records for one producer thread (the
+ * simulation) and one consumer thread (the GUI). The records are stored in
+ * parallel atomic arrays so adding a record allocates nothing. If the 
+ * producer laps the consumer, the oldest records are overwritten and the 
+ * consumer skips them.
+ * <P>The producer announces the record it is going to write by increasing
+ * a volatile counter before it writes the slot, and publishes the record
+ * by increasing another one after the writes. The consumer reads a slot
+ * and then checks from the first counter whether the producer had started
+ * to overwrite the slot. The slots are read and written through atomic 
+ * arrays, so the check can't be reordered before the reads.</P>
+ */
+public class EventLogBuffer {
+	/**
+	 * Interface for reading the records from the buffer
+	 */
+	public interface Reader {
+		/**
+		 * Called for every record that is read
+		 * @param type Type of the event
+		 * @param time Simulation time of the event
+		 * @param host1 First host of the event (or null)
+		 * @param host2 Second host of the event (or null)
+		 * @param message Message of the event (or null)
+		 * @param highlight Should the event be highlighted
+		 */
+		public void read(int type, double time, DTNHost host1, DTNHost host2,
+				Message message, boolean highlight);
+	}
+
+	/** bit of the flags that tells if a record is highlighted */
+	private static final int HIGHLIGHT = 1;
+
+	private final int mask;
+	/** event types shifted left by one, or'ed with the highlight bit */
+	private final AtomicIntegerArray flags;
+	/** raw long bits of the times */
+	private final AtomicLongArray times;
+	/** host1, host2 and message of each record (at 3i, 3i+1, 3i+2) */
+	private final AtomicReferenceArray<Object> refs;
+
+	/** number of records the producer has started to write */
+	private volatile long claimed;
+	/** index of the next record to write (written only by the producer) */
+	private volatile long head;
+	/** index of the next record to read (used only by the consumer) */
+	private long tail;
+	/** number of records the consumer has missed */
+	private long nrofLost;
+
+	/**
+	 * Creates a new buffer
+	 * @param minCapacity Minimum number of records the buffer can hold
+	 * (rounded up to a power of two minus one)
+	 */
+	public EventLogBuffer(int minCapacity) {
+		/* one slot is reserved for the record the producer is writing */
+		int capacity = Integer.highestOneBit(Math.max(minCapacity, 1)) << 1;
+		this.mask = capacity - 1;
+		this.flags = new AtomicIntegerArray(capacity);
+		this.times = new AtomicLongArray(capacity);
+		this.refs = new AtomicReferenceArray<Object>(capacity * 3);
+	}
+
+	/**
+	 * Returns the number of records the buffer can hold
+	 * @return the number of records the buffer can hold
+	 */
+	public int getCapacity() {
+		return this.mask;
+	}
+
+	/**
+	 * Adds a record to the buffer. Must be called only from the producer
+	 * thread.
+	 * @param type Type of the event
+	 * @param time Simulation time of the event
+	 * @param host1 First host of the event (or null)
+	 * @param host2 Second host of the event (or null)
+	 * @param message Message of the event (or null)
+	 * @param highlight Should the event be highlighted
+	 */
+	public void add(int type, double time, DTNHost host1, DTNHost host2,
+			Message message, boolean highlight) {
+		long h = this.head;
+		int i = (int)(h & mask);
+		/* a consumer that sees any of the writes below also sees this */
+		this.claimed = h + 1;
+		flags.lazySet(i, (type << 1) | (highlight ? HIGHLIGHT : 0));
+		times.lazySet(i, Double.doubleToRawLongBits(time));
+		refs.lazySet(i * 3, host1);
+		refs.lazySet(i * 3 + 1, host2);
+		refs.lazySet(i * 3 + 2, message);
+		this.head = h + 1; // publishes the record
+	}
+
+	/**
+	 * Reads all the records added since the previous call, oldest first.
+	 * Records that were overwritten before they could be read are skipped.
+	 * Must be called only from the consumer thread.
+	 * @param reader The reader to give the records to
+	 * @return Number of records read
+	 */
+	public int drain(Reader reader) {
+		long h = this.head;
+		int nrofRead = 0;
+
+		if (h - tail > mask) { // producer has lapped us
+			nrofLost += h - mask - tail;
+			tail = h - mask;
+		}
+
+		for (; tail < h; tail++) {
+			int i = (int)(tail & mask);
+			int f = flags.get(i);
+			double time = Double.longBitsToDouble(times.get(i));
+			DTNHost host1 = (DTNHost)refs.get(i * 3);
+			DTNHost host2 = (DTNHost)refs.get(i * 3 + 1);
+			Message message = (Message)refs.get(i * 3 + 2);
+
+			/* the slot may have been rewritten while it was read if the
+			 * producer has started writing a record one lap ahead */
+			if (tail + mask + 1 < this.claimed) {
+				nrofLost++;
+				continue;
+			}
+			reader.read(f >> 1, time, host1, host2, message,
+					(f & HIGHLIGHT) != 0);
+			nrofRead++;
+		}
+		return nrofRead;
+	}
+
+	/**
+	 * Returns the number of records that were overwritten before they were
+	 * read
+	 * @return the number of lost records
+	 */
+	public long getNrofLost() {
+		return this.nrofLost;
+	}
+}
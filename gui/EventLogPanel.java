@@ -10,6 +10,7 @@ import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
 import java.util.Vector;
 
 import javax.swing.BorderFactory;
@@ -44,6 +45,13 @@ public class EventLogPanel extends JPanel
 	 * events are not shown */
 	public static final String EVENTS_RE_S = "REfilter";
 	
+	/** Buffer size -setting id ({@value}). Defines how many events can be
+	 * buffered between two updates of the log view. Default is 
+	 * {@link #DEFAULT_BUFFER_SIZE} */
+	public static final String BUFFER_SIZE_S = "bufferSize";
+	/** Default value for the buffer size ({@value}) */
+	public static final int DEFAULT_BUFFER_SIZE = 4096;
+	
 	private static final String PANEL_TITLE = "Event log";
 	/** format of a single log entry */
 	private static final String ENTRY_FORMAT = "% 9.1f: %s "; 
@@ -56,6 +64,22 @@ public class EventLogPanel extends JPanel
 	// constants used for button property  
 	private static final String HOST_PROP = "host";
 	private static final String MSG_PROP = "message";
+	
+	// event types of the buffered events (indexes of EVENT_NAMES)
+	private static final int CON_UP = 0;
+	private static final int CON_DOWN = 1;
+	private static final int MSG_REMOVED = 2;
+	private static final int MSG_DROPPED = 3;
+	private static final int MSG_DELIVERED = 4;
+	private static final int MSG_DELIVERED_AGAIN = 5;
+	private static final int MSG_RELAYED = 6;
+	private static final int MSG_CREATED = 7;
+	private static final int MSG_ABORTED = 8;
+	private static final int MSG_STARTED = 9;
+	private static final String[] EVENT_NAMES = {"Connection UP", 
+		"Connection DOWN", "Message removed", "Message dropped", 
+		"Message delivered", "Message delivered again", "Message relayed",
+		"Message created", "Message relay aborted", "Message relay started"};
 
 	/** How often the log is updated (milliseconds) */
 	public static final int LOG_UP_INTERVAL = 500;
@@ -70,6 +94,10 @@ public class EventLogPanel extends JPanel
 	private DTNSimGUI gui;
 	private Vector<JPanel> eventPanes;
 	private GridLayout layout;
+	/** events from the simulation thread waiting to be shown */
+	private EventLogBuffer buffer;
+	/** the newest events read from the buffer that match the filter */
+	private ArrayDeque<LogEntry> newEntries;
 	
 	private EventLogControlPanel controls;
 	private EventLogControl conUpCheck;
@@ -94,6 +122,9 @@ public class EventLogPanel extends JPanel
 		this.maxNrofEvents = s.getInt(NROF_EVENTS_S,
 				DEFAULT_MAX_NROF_EVENTS);
 		this.regExp = s.getSetting(EVENTS_RE_S, null);
+		this.buffer = new EventLogBuffer(s.getInt(BUFFER_SIZE_S,
+				DEFAULT_BUFFER_SIZE));
+		this.newEntries = new ArrayDeque<LogEntry>(maxNrofEvents);
 		
 		layout = new GridLayout(maxNrofEvents,1);
 
@@ -149,19 +180,19 @@ public class EventLogPanel extends JPanel
 	
 	/**
 	 * Adds a new event to the event log panel
+	 * @param time Simulation time of the event
 	 * @param description Textual description of the event
 	 * @param host1 Host that caused the event or null if there was not any
 	 * @param host2 Another host that was involved in the event (or null)
 	 * @param message Message that was involved in the event (or null)
 	 * @param highlight If true, the log entry is highlighted
 	 */
-	private void addEvent(String description, DTNHost host1,
+	private void addEvent(double time, String description, DTNHost host1,
 			DTNHost host2, Message message, boolean highlight) {
 		JPanel eventPane = new JPanel();
 		eventPane.setLayout(new BoxLayout(eventPane,BoxLayout.LINE_AXIS));
 		
-		String text = String.format(ENTRY_FORMAT, 
-				SimClock.getTime(),description);
+		String text = String.format(ENTRY_FORMAT, time, description);
 		JLabel label = new JLabel(text);
 		label.setFont(font);
 		eventPane.add(label);
@@ -192,10 +223,34 @@ public class EventLogPanel extends JPanel
 	}
 	
 	/**
-	 * Updates the log view
+	 * Reads the new events from the buffer and updates the log view if 
+	 * there were any that should be shown. Only the newest events that fit
+	 * in the log are turned into log entries.
 	 */
 	private void updateLogView() {
-		//TODO Optimization: Check if update is really necessary
+		buffer.drain(new EventLogBuffer.Reader() {
+			public void read(int type, double time, DTNHost host1, 
+					DTNHost host2, Message message, boolean highlight) {
+				if (!matchesFilter(type, host1, host2, message)) {
+					return;
+				}
+				if (newEntries.size() == maxNrofEvents) {
+					newEntries.removeFirst();
+				}
+				newEntries.addLast(new LogEntry(type, time, host1, host2, 
+						message, highlight));
+			}
+		});
+		if (newEntries.isEmpty()) {
+			return; // nothing new to show
+		}
+		
+		for (LogEntry e : newEntries) {
+			addEvent(e.time, EVENT_NAMES[e.type], e.host1, e.host2, 
+					e.message, e.highlight);
+		}
+		newEntries.clear();
+		
 		this.removeAll();
 		for (int i=0; i< this.eventPanes.size(); i++) {
 			this.add(eventPanes.get(i));
@@ -223,84 +278,102 @@ public class EventLogPanel extends JPanel
 	}
 	
 	/**
-	 * Processes a log event
-	 * @param check EventLogControls used to check if this entry type should
-	 * be shown and/or paused upon
-	 * @param name Text description of the event
+	 * Checks if an event's description matches the regular expression 
+	 * filter
+	 * @param type Type of the event
 	 * @param host1 First host involved in the event (if any, can be null)
 	 * @param host2 Second host involved in the event (if any, can be null)
-	 * @param message The message involved in the event (if any, can be null) 
+	 * @param message The message involved in the event (if any, can be null)
+	 * @return true if there's no filter or the description matches it
 	 */
-	private void processEvent(EventLogControl check, final String name,
-			final DTNHost host1, final DTNHost host2, final Message message) {
-		String descString;	// String format description of the event
-		
-		if (!check.showEvent()) {
-			return; // if event's "show" is not checked, won't pause either 
+	private boolean matchesFilter(int type, DTNHost host1, DTNHost host2,
+			Message message) {
+		if (regExp == null) {
+			return true;
 		}
 		
-		descString = name + " " + 
+		String descString = EVENT_NAMES[type] + " " + 
 			(host1!=null ? host1 : "") + 
 			(host2!= null ? (HOST_DELIM + host2) : "") + 
 			(message!=null ? " " + message : "");
 		
-		if (regExp != null && !descString.matches(regExp)){
-			return;	// description doesn't match defined regular expression
+		return descString.matches(regExp);
+	}
+	
+	/**
+	 * Processes a log event. The event is buffered for the log view, 
+	 * which is updated in Swing's EDT.
+	 * @param check EventLogControls used to check if this entry type should
+	 * be shown and/or paused upon
+	 * @param type Type of the event
+	 * @param host1 First host involved in the event (if any, can be null)
+	 * @param host2 Second host involved in the event (if any, can be null)
+	 * @param message The message involved in the event (if any, can be null) 
+	 */
+	private void processEvent(EventLogControl check, int type,
+			DTNHost host1, DTNHost host2, Message message) {
+		if (!check.showEvent()) {
+			return; // if event's "show" is not checked, won't pause either 
 		}
 		
-		if (check.pauseOnEvent()) {
+		boolean pause = check.pauseOnEvent();
+		if (pause) {
+			/* pausing must happen right away, so these (rare) events are 
+			 * filtered here; others are filtered when the log is updated */
+			if (!matchesFilter(type, host1, host2, message)) {
+				return;
+			}
 			gui.setPaused(true);
 			if (host1 != null) {
 				gui.setFocus(host1);
 			}
 		}
 		
-      	addEvent(name, host1, host2, message, check.pauseOnEvent());	
+		buffer.add(type, SimClock.getTime(), host1, host2, message, pause);
 	}
 	
 	// Implementations of ConnectionListener and MessageListener interfaces
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
-		processEvent(conUpCheck, "Connection UP", host1, host2, null);
+		processEvent(conUpCheck, CON_UP, host1, host2, null);
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
-		processEvent(conDownCheck, "Connection DOWN", host1, host2, null);
+		processEvent(conDownCheck, CON_DOWN, host1, host2, null);
 	}
 
 	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
 		if (!dropped) {
-			processEvent(msgRemoveCheck, "Message removed", where, null, m);
+			processEvent(msgRemoveCheck, MSG_REMOVED, where, null, m);
 		}
 		else {
-			processEvent(msgDropCheck, "Message dropped", where, null, m);
+			processEvent(msgDropCheck, MSG_DROPPED, where, null, m);
 		}
 	}
 
 	public void messageTransferred(Message m, DTNHost from, DTNHost to,
 			boolean firstDelivery) {
 		if (firstDelivery) {
-			processEvent(msgDeliveredCheck, "Message delivered", from, to, m); 
+			processEvent(msgDeliveredCheck, MSG_DELIVERED, from, to, m);
 		}
 		else if (to == m.getTo()) {
-			processEvent(msgDeliveredCheck, "Message delivered again", 
+			processEvent(msgDeliveredCheck, MSG_DELIVERED_AGAIN, 
 					from, to, m);
 		}
 		else {
-			processEvent(msgRelayCheck, "Message relayed", from, to, m);
+			processEvent(msgRelayCheck, MSG_RELAYED, from, to, m);
 		}
 	}
 
 	public void newMessage(Message m) {
-		processEvent(msgCreateCheck, "Message created", m.getFrom(), null, m);
+		processEvent(msgCreateCheck, MSG_CREATED, m.getFrom(), null, m);
 	}
 	
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgAbortCheck, "Message relay aborted", from, to, m);
+		processEvent(msgAbortCheck, MSG_ABORTED, from, to, m);
 	}
 	
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
-		processEvent(msgTransferStartCheck,"Message relay started", from,
-				to,m);
+		processEvent(msgTransferStartCheck, MSG_STARTED, from, to, m);
 		
 	}
 	
@@ -329,4 +402,26 @@ public class EventLogPanel extends JPanel
 			this.eventPanes.size() + " events";
 	}
 	
+	/**
+	 * A buffered event that is waiting to be added to the log
+	 */
+	private static class LogEntry {
+		private int type;
+		private double time;
+		private DTNHost host1;
+		private DTNHost host2;
+		private Message message;
+		private boolean highlight;
+		
+		public LogEntry(int type, double time, DTNHost host1, DTNHost host2,
+				Message message, boolean highlight) {
+			this.type = type;
+			this.time = time;
+			this.host1 = host1;
+			this.host2 = host2;
+			this.message = message;
+			this.highlight = highlight;
+		}
+	}
+	
 }
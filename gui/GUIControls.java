@@ -382,7 +382,7 @@ public class GUIControls extends JPanel implements ActionListener, ChangeListene
 						this.pf.getHeight(), BufferedImage.TYPE_INT_RGB);
 				Graphics2D g2 = i.createGraphics();
 
-				this.pf.paint(g2);	// paint playfield to buffered image
+				this.pf.paintAllDetails(g2); // paint playfield to buffered image
 				ImageIO.write(i, SCREENSHOT_FILE_TYPE, file);
 			}
 		} 
@@ -8,6 +8,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Collections;
 import java.util.Vector;
+import java.util.concurrent.locks.Lock;
 
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -48,13 +49,20 @@ public class InfoPanel extends JPanel implements ActionListener{
 	 * @param host Host to show the information of
 	 */
 	public void showInfo(DTNHost host) {
-		Vector<Message> messages = 
-			new Vector<Message>(host.getMessageCollection());
+		Vector<Message> messages;
+		String text;
+		Lock lock = gui.getWorldLock();
+		lock.lock();
+		try {
+			messages = new Vector<Message>(host.getMessageCollection());
+			text = (host.isMovementActive() ? "" : "INACTIVE ") + host + 
+				" at " + host.getLocation();
+		} finally {
+			lock.unlock();
+		}
 		Collections.sort(messages);
 		reset();
 		this.selectedHost = host;
-		String text = (host.isMovementActive() ? "" : "INACTIVE ") + host + 
-			" at " + host.getLocation();
 		
 		msgChooser = new JComboBox(messages);
 		msgChooser.insertItemAt(messages.size() + " messages", 0);
@@ -75,10 +83,16 @@ public class InfoPanel extends JPanel implements ActionListener{
 	 * @param message Message to show the information of
 	 */
 	public void showInfo(Message message) {
-		reset();
-		this.add(new JLabel(message.toString()));
-		setMessageInfo(message);
-		this.revalidate();
+		Lock lock = gui.getWorldLock();
+		lock.lock();
+		try {
+			reset();
+			this.add(new JLabel(message.toString()));
+			setMessageInfo(message);
+			this.revalidate();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	private void setMessageInfo(Message m) {
@@ -111,6 +125,21 @@ public class InfoPanel extends JPanel implements ActionListener{
 	}
 
 	public void actionPerformed(ActionEvent e) {
+		Lock lock = gui.getWorldLock();
+		lock.lock();
+		try {
+			handleAction(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Handles an action of the panel's components. Must be called while 
+	 * holding the world lock.
+	 * @param e The action
+	 */
+	private void handleAction(ActionEvent e) {
 		if (e.getSource() == msgChooser) {
 			if (msgChooser.getSelectedIndex() == 0) { // title text selected
 				return; 
@@ -127,7 +156,7 @@ public class InfoPanel extends JPanel implements ActionListener{
 			this.gui.showPath(p);
 		}
 		else if (e.getSource() ==  this.routingInfoButton) {
-			new RoutingInfoWindow(this.selectedHost);
+			new RoutingInfoWindow(this.selectedHost, gui.getWorldLock());
 		}
 	}
 	
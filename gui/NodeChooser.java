@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.locks.Lock;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -112,13 +113,19 @@ public class NodeChooser extends JPanel implements ActionListener {
 		List<DTNHost> oldShownNodes = shownNodes;
 		List<DTNHost>nodes = new Vector<DTNHost>();
 		
-		for (DTNHost node : allNodes) {	
-			for (NodeFilter f : this.filters) {
-				if (f.filterNode(node)) {
-					nodes.add(node);
-					break;
+		Lock lock = gui.getWorldLock();
+		lock.lock();
+		try {
+			for (DTNHost node : allNodes) {	
+				for (NodeFilter f : this.filters) {
+					if (f.filterNode(node)) {
+						nodes.add(node);
+						break;
+					}
 				}
 			}
+		} finally {
+			lock.unlock();
 		}
 		
 		if (nodes.size() == oldShownNodes.size() &&
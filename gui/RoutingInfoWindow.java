@@ -9,6 +9,7 @@ import java.awt.Container;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Vector;
+import java.util.concurrent.locks.Lock;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
@@ -33,14 +34,17 @@ public class RoutingInfoWindow extends JFrame implements ActionListener {
 	private JScrollPane treePane;
 	private JTree tree;
 	private Timer refreshTimer;
+	/** lock that is held while reading the routing info */
+	private Lock worldLock;
 	/** how often auto refresh is performed */
 	private static final int AUTO_REFRESH_DELAY = 1000;
 	
-	public RoutingInfoWindow(DTNHost host) {
+	public RoutingInfoWindow(DTNHost host, Lock worldLock) {
 		Container cp = this.getContentPane();
 		JPanel refreshPanel = new JPanel();
 		this.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);		
 		this.host = host;
+		this.worldLock = worldLock;
 		this.setLayout(new BorderLayout());
 		refreshPanel.setLayout(new BorderLayout());
 		this.autoRefresh = new JCheckBox("Auto refresh");
@@ -64,7 +68,13 @@ public class RoutingInfoWindow extends JFrame implements ActionListener {
 	private void updateTree() {	
 		super.setTitle("Routing Info of " + host + " at " + 
 				SimClock.getFormattedTime(2));
-		RoutingInfo ri = host.getRoutingInfo();
+		RoutingInfo ri;
+		worldLock.lock();
+		try {
+			ri = host.getRoutingInfo();
+		} finally {
+			worldLock.unlock();
+		}
 		DefaultMutableTreeNode top = new DefaultMutableTreeNode(ri);
 		Vector<Integer> expanded = new Vector<Integer>();
 		
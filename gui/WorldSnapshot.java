@@ -0,0 +1,236 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui;
+
+import java.util.Arrays;
+import java.util.List;
+
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+
+/**
+ * Immutable snapshot of the state of the world the GUI shows: locations,
+ * names, buffer occupancies and radio ranges of the hosts and the
+ * connections between them at some simulation time. The simulation thread
+ * creates the snapshots and the GUI threads draw them, so the simulation
+ * doesn't have to wait for the GUI and the GUI never reads the hosts while
+ * they are updated.
+ */
+public class WorldSnapshot {
+	private final double time;
+	/** x and y coordinates of the hosts, indexed by host address */
+	private final double[] xs;
+	private final double[] ys;
+	/** names of the hosts */
+	private final String[] names;
+	/** number of messages in the hosts' buffers */
+	private final int[] nrofMessages;
+	/** is the host highlighted in the GUI */
+	private final boolean[] highlighted;
+	/** is the radio of the host active (null if radios were not checked) */
+	private final boolean[] radioActive;
+	/** transmit ranges of the i:th host's interfaces are at indexes
+	 * rangeStart[i]...rangeStart[i+1]-1 of the ranges array */
+	private final int[] rangeStart;
+	private final double[] ranges;
+	/** connected host pairs: addresses of the i:th pair are at 2i, 2i+1 */
+	private final int[] links;
+	private final int nrofLinks;
+
+	/**
+	 * Takes a snapshot of the hosts. Must be called from the thread that
+	 * runs the simulation. Checking the radios updates the activeness of 
+	 * the hosts' interfaces, so it should be done only if the radio ranges
+	 * are shown.
+	 * @param hosts The hosts of the world (indexed by address)
+	 * @param time The current simulation time
+	 * @param highlightedHosts The hosts that are highlighted (or null)
+	 * @param radios If true, the radio activeness and transmit ranges of 
+	 * the hosts are stored
+	 */
+	public WorldSnapshot(List<DTNHost> hosts, double time, 
+			List<DTNHost> highlightedHosts, boolean radios) {
+		int n = hosts.size();
+		int[] pairs = new int[n * 2];
+		int nrofPairs = 0;
+		double[] rs = new double[radios ? n : 0];
+		int nrofRanges = 0;
+
+		this.time = time;
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.names = new String[n];
+		this.nrofMessages = new int[n];
+		this.highlighted = new boolean[n];
+		this.radioActive = radios ? new boolean[n] : null;
+		this.rangeStart = radios ? new int[n + 1] : null;
+		for (int i=0; i<n; i++) {
+			DTNHost h = hosts.get(i);
+			Coord loc = h.getLocation();
+			xs[i] = loc.getX();
+			ys[i] = loc.getY();
+			names[i] = h.toString();
+			nrofMessages[i] = h.getNrofMessages();
+
+			if (radios) {
+				rangeStart[i] = nrofRanges;
+				radioActive[i] = h.isRadioActive();
+				for (NetworkInterface ni : h.getInterfaces()) {
+					if (nrofRanges == rs.length) {
+						rs = Arrays.copyOf(rs, rs.length * 2 + 1);
+					}
+					rs[nrofRanges++] = ni.getTransmitRange();
+				}
+			}
+
+			for (Connection c : h.getConnections()) {
+				DTNHost other = c.getOtherNode(h);
+				if (other == null || other.getAddress() < i) {
+					continue; /* disconnected or already added */
+				}
+				if (nrofPairs * 2 + 1 >= pairs.length) {
+					pairs = Arrays.copyOf(pairs, pairs.length * 2 + 2);
+				}
+				pairs[nrofPairs * 2] = i;
+				pairs[nrofPairs * 2 + 1] = other.getAddress();
+				nrofPairs++;
+			}
+		}
+		this.links = pairs;
+		this.nrofLinks = nrofPairs;
+		this.ranges = rs;
+		if (radios) {
+			rangeStart[n] = nrofRanges;
+		}
+
+		if (highlightedHosts != null) {
+			for (DTNHost h : highlightedHosts) {
+				highlighted[h.getAddress()] = true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the simulation time of the snapshot
+	 * @return the simulation time of the snapshot
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of hosts in the snapshot
+	 * @return the number of hosts in the snapshot
+	 */
+	public int getNrofHosts() {
+		return this.xs.length;
+	}
+
+	/**
+	 * Returns the x coordinate of a host
+	 * @param address Address of the host
+	 * @return the x coordinate
+	 */
+	public double getX(int address) {
+		return this.xs[address];
+	}
+
+	/**
+	 * Returns the y coordinate of a host
+	 * @param address Address of the host
+	 * @return the y coordinate
+	 */
+	public double getY(int address) {
+		return this.ys[address];
+	}
+
+	/**
+	 * Returns the name of a host
+	 * @param address Address of the host
+	 * @return the name
+	 */
+	public String getName(int address) {
+		return this.names[address];
+	}
+
+	/**
+	 * Returns the number of messages in a host's buffer
+	 * @param address Address of the host
+	 * @return the number of messages
+	 */
+	public int getNrofMessages(int address) {
+		return this.nrofMessages[address];
+	}
+
+	/**
+	 * Returns true if a host is highlighted
+	 * @param address Address of the host
+	 * @return true if the host is highlighted
+	 */
+	public boolean isHighlighted(int address) {
+		return this.highlighted[address];
+	}
+
+	/**
+	 * Returns true if the radio of a host was active. If the radios were
+	 * not checked for the snapshot, returns false.
+	 * @param address Address of the host
+	 * @return true if the radio was active
+	 */
+	public boolean isRadioActive(int address) {
+		return this.radioActive != null && this.radioActive[address];
+	}
+
+	/**
+	 * Returns the number of network interfaces a host has (or 0 if the
+	 * radios were not checked for the snapshot)
+	 * @param address Address of the host
+	 * @return the number of interfaces
+	 */
+	public int getNrofInterfaces(int address) {
+		if (this.rangeStart == null) {
+			return 0;
+		}
+		return this.rangeStart[address + 1] - this.rangeStart[address];
+	}
+
+	/**
+	 * Returns the transmit range of a host's network interface
+	 * @param address Address of the host
+	 * @param i Index of the interface
+	 * @return the transmit range
+	 */
+	public double getTransmitRange(int address, int i) {
+		return this.ranges[this.rangeStart[address] + i];
+	}
+
+	/**
+	 * Returns the number of connected host pairs
+	 * @return the number of connected host pairs
+	 */
+	public int getNrofLinks() {
+		return this.nrofLinks;
+	}
+
+	/**
+	 * Returns the address of the host with the smaller address of a link
+	 * @param i Index of the link
+	 * @return the address
+	 */
+	public int getLinkFrom(int i) {
+		return this.links[i * 2];
+	}
+
+	/**
+	 * Returns the address of the host with the larger address of a link
+	 * @param i Index of the link
+	 * @return the address
+	 */
+	public int getLinkTo(int i) {
+		return this.links[i * 2 + 1];
+	}
+}
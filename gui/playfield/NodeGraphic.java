@@ -4,27 +4,27 @@
  */
 package gui.playfield;
 
+import gui.WorldSnapshot;
+
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
-import java.util.ArrayList;
 import java.util.List;
 
-import core.Connection;
 import core.Coord;
 import core.DTNHost;
-import core.NetworkInterface;
 
 /**
- * Visualization of a DTN Node
- *
+ * Visualization of a DTN Node. The node is drawn from a snapshot of the
+ * world, so drawing never touches the live hosts. The connections between
+ * the nodes are drawn by the {@link NodeLayer}.
  */
 public class NodeGraphic extends PlayFieldGraphic {
-	private static boolean drawCoverage;
+	private static volatile boolean drawCoverage;
 	private static boolean drawNodeName;
 	private static boolean drawConnections;
 	private static boolean drawBuffer;
-	private static List<DTNHost> highlightedNodes;
+	private static volatile List<DTNHost> highlightedNodes;
 	
 	private static Color rangeColor = Color.GREEN;
 	private static Color conColor = Color.BLACK;
@@ -36,17 +36,26 @@ public class NodeGraphic extends PlayFieldGraphic {
 	
 	private static Color highlightedNodeColor = Color.MAGENTA;
 
-	private DTNHost node;
+	private WorldSnapshot snapshot;
+	private int address;
 
-	public NodeGraphic(DTNHost node) {	
-		this.node = node;
+	/**
+	 * Creates a graphic for a node of a snapshot
+	 * @param snapshot The snapshot
+	 * @param address Address of the node
+	 */
+	public NodeGraphic(WorldSnapshot snapshot, int address) {	
+		this.snapshot = snapshot;
+		this.address = address;
 	}
 
 	@Override
 	public void draw(Graphics2D g2) {
-		drawHost(g2);
+		Coord loc = new Coord(snapshot.getX(address), 
+				snapshot.getY(address));
+		drawHost(g2, loc);
 		if (drawBuffer) {
-			drawMessages(g2);
+			drawMessages(g2, loc);
 		}
 	}
 
@@ -54,26 +63,18 @@ public class NodeGraphic extends PlayFieldGraphic {
 	 * @return true if the node this graphic represents should be highlighted
 	 */
 	private boolean isHighlighted() {
-		if (highlightedNodes == null) {
-			return false;
-		} else {
-			return highlightedNodes.contains(node);
-		}
+		return snapshot.isHighlighted(address);
 	}
 	
 	/**
-	 * Visualize node's location, radio ranges and connections
+	 * Visualize node's location and radio ranges
 	 * @param g2 The graphic context to draw to
+	 * @param loc Location of the node
 	 */
-	private void drawHost(Graphics2D g2) {
-		Coord loc = node.getLocation();
-
-		if (drawCoverage && node.isRadioActive()) {
-			ArrayList<NetworkInterface> interfaces = 
-				new ArrayList<NetworkInterface>();
-			interfaces.addAll(node.getInterfaces());
-			for (NetworkInterface ni : interfaces) {
-				double range = ni.getTransmitRange();
+	private void drawHost(Graphics2D g2, Coord loc) {
+		if (drawCoverage && snapshot.isRadioActive(address)) {
+			for (int i=0, n=snapshot.getNrofInterfaces(address); i<n; i++) {
+				double range = snapshot.getTransmitRange(address, i);
 				Ellipse2D.Double coverage;
 
 				coverage = new Ellipse2D.Double(scale(loc.getX()-range),
@@ -85,26 +86,6 @@ public class NodeGraphic extends PlayFieldGraphic {
 				g2.draw(coverage);
 			}
 		}
-
-		if (drawConnections) {
-			g2.setColor(conColor);
-			Coord c1 = node.getLocation();
-			ArrayList<Connection> conList = new ArrayList<Connection>();
-			// create a copy to prevent concurrent modification exceptions
-			conList.addAll(node.getConnections());
-			for (Connection c : conList) {
-				DTNHost otherNode = c.getOtherNode(node);
-				Coord c2;
-				
-				if (otherNode == null) {
-					continue; /* disconnected before drawn */
-				}
-				c2 = otherNode.getLocation();				
-				g2.drawLine(scale(c1.getX()), scale(c1.getY()),
-						scale(c2.getX()), scale(c2.getY()));
-			}
-		}
-
 
 		/* draw node rectangle */
 		g2.setColor(hostColor);	
@@ -119,7 +100,7 @@ public class NodeGraphic extends PlayFieldGraphic {
 		if (drawNodeName) {
 			g2.setColor(hostNameColor);
 			// Draw node's address next to it
-			g2.drawString(node.toString(), scale(loc.getX()),
+			g2.drawString(snapshot.getName(address), scale(loc.getX()),
 					scale(loc.getY()));
 		}
 	}
@@ -159,14 +140,62 @@ public class NodeGraphic extends PlayFieldGraphic {
 	public static void setHighlightedNodes(List<DTNHost> nodes) {
 		highlightedNodes = nodes;
 	}
+	
+	/**
+	 * Returns the highlighted nodes
+	 * @return the highlighted nodes (or null if none)
+	 */
+	public static List<DTNHost> getHighlightedNodes() {
+		return highlightedNodes;
+	}
+	
+	/**
+	 * Returns true if radio coverage of nodes should be drawn
+	 * @return true if radio coverage of nodes should be drawn
+	 */
+	public static boolean getDrawCoverage() {
+		return drawCoverage;
+	}
+	
+	/**
+	 * Returns true if node's connections to other nodes should be drawn
+	 * @return true if node's connections to other nodes should be drawn
+	 */
+	static boolean getDrawConnections() {
+		return drawConnections;
+	}
+	
+	/**
+	 * Returns the color of the connection lines
+	 * @return the color of the connection lines
+	 */
+	static Color getConnectionColor() {
+		return conColor;
+	}
+	
+	/**
+	 * Returns the color of the node rectangles
+	 * @return the color of the node rectangles
+	 */
+	static Color getHostColor() {
+		return hostColor;
+	}
+	
+	/**
+	 * Returns the color of the highlighted nodes
+	 * @return the color of the highlighted nodes
+	 */
+	static Color getHighlightedNodeColor() {
+		return highlightedNodeColor;
+	}
 
 	/**
 	 * Visualize the messages this node is carrying
 	 * @param g2 The graphic context to draw to
+	 * @param loc Location of the node
 	 */
-	private void drawMessages(Graphics2D g2) {
-		int nrofMessages = node.getNrofMessages();
-		Coord loc = node.getLocation();
+	private void drawMessages(Graphics2D g2, Coord loc) {
+		int nrofMessages = snapshot.getNrofMessages(address);
 
 		drawBar(g2,loc, nrofMessages % 10, 1);
 		drawBar(g2,loc, nrofMessages / 10, 2);
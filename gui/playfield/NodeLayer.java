@@ -0,0 +1,397 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package gui.playfield;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import gui.WorldSnapshot;
+
+/**
+ * Level-of-detail renderer for the hosts of the play field. The hosts that
+ * are inside the visible area of the play field in a {@link WorldSnapshot}
+ * are drawn to an off-screen image by a background thread and the play
+ * field only copies the latest image to the screen. Depending on how many
+ * hosts are visible, the hosts are drawn
+ * <UL>
+ * <LI>with all the details ({@link NodeGraphic}),</LI>
+ * <LI>as small squares written directly to the image raster, or</LI>
+ * <LI>as a heat map of tiles whose color tells how many hosts are in the
+ * tile.</LI>
+ * </UL>
+ * The images are reused as long as the size of the visible area doesn't
+ * change. Everything is drawn from the snapshot; the renderer never reads
+ * the live hosts, which the simulation thread updates at the same time.
+ */
+public class NodeLayer implements Runnable {
+	/** Maximum number of visible hosts that are drawn with all the details
+	 * -setting id ({@value}). Default is {@link #DEF_DETAIL_LIMIT} */
+	public static final String DETAIL_LIMIT_S = "nodeDetailLimit";
+	/** Maximum number of visible hosts that are drawn as separate squares;
+	 * more hosts are drawn as a heat map -setting id ({@value}). Default is
+	 * {@link #DEF_HEAT_MAP_LIMIT} */
+	public static final String HEAT_MAP_LIMIT_S = "nodeHeatMapLimit";
+	/** Size of the heat map tiles (pixels) -setting id ({@value}). Default
+	 * is {@link #DEF_TILE_SIZE} */
+	public static final String TILE_SIZE_S = "heatMapTileSize";
+
+	/** Default value for the detail limit ({@value}) */
+	public static final int DEF_DETAIL_LIMIT = 2000;
+	/** Default value for the heat map limit ({@value}) */
+	public static final int DEF_HEAT_MAP_LIMIT = 20000;
+	/** Default value for the heat map tile size ({@value}) */
+	public static final int DEF_TILE_SIZE = 16;
+
+	/** How many pixels outside the visible area hosts are still drawn
+	 * (so that e.g. names and buffers of hosts at the edges are visible)*/
+	private static final int VIEW_MARGIN = 50;
+	/** Color of the most crowded heat map tiles */
+	private static final Color HEAT_COLOR = Color.RED;
+
+	private Component target;
+	private int detailLimit;
+	private int heatMapLimit;
+	private int tileSize;
+
+	/** indexes of the visible hosts of the latest render round */
+	private int[] visible;
+	/** host counts of the heat map tiles */
+	private int[] tileCounts;
+
+	/** the latest finished image (null if none) */
+	private BufferedImage frontImage;
+	/** area of the play field the front image covers */
+	private Rectangle frontView;
+	/** scale the front image was drawn with */
+	private double frontScale;
+	/** image the next round is drawn to */
+	private BufferedImage backImage;
+
+	/** area of the play field requested to be drawn next (null if none) */
+	private Rectangle requestedView;
+	/** snapshot requested to be drawn next */
+	private WorldSnapshot requestedSnapshot;
+	private Thread renderThread;
+
+	/**
+	 * Creates a new node layer. The rendering thread is started when the
+	 * first image is requested.
+	 * @param target The component that is repainted when a new image is
+	 * ready
+	 * @param detailLimit Max number of visible hosts drawn with all details
+	 * @param heatMapLimit Max number of visible hosts drawn as squares
+	 * @param tileSize Size of the heat map tiles (pixels)
+	 */
+	public NodeLayer(Component target, int detailLimit, int heatMapLimit,
+			int tileSize) {
+		this.target = target;
+		this.detailLimit = detailLimit;
+		this.heatMapLimit = heatMapLimit;
+		this.tileSize = Math.max(tileSize, 1);
+		this.visible = new int[0];
+	}
+
+	/**
+	 * Requests the hosts in the given area of the play field to be drawn.
+	 * The drawing is done in the background and the target component is
+	 * repainted when the new image is ready. If an earlier request is still
+	 * waiting, it is replaced with this one.
+	 * @param view The area (in the play field's coordinates)
+	 * @param snapshot The snapshot of the world to draw
+	 */
+	public synchronized void requestRender(Rectangle view,
+			WorldSnapshot snapshot) {
+		if (view.width <= 0 || view.height <= 0) {
+			return;
+		}
+		this.requestedView = new Rectangle(view);
+		this.requestedSnapshot = snapshot;
+		if (this.renderThread == null) {
+			this.renderThread = new Thread(this, "PlayField renderer");
+			this.renderThread.setDaemon(true);
+			this.renderThread.start();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Returns true if the latest image matches the given area and the
+	 * current scale
+	 * @param view The area
+	 * @return true if the latest image is up to date with the view
+	 */
+	public synchronized boolean isUpToDate(Rectangle view) {
+		return frontImage != null && view.equals(frontView) &&
+			frontScale == PlayFieldGraphic.getScale();
+	}
+
+	/**
+	 * Draws the latest image of the hosts to a graphics context
+	 * @param g2 The context (translated to the play field offset)
+	 * @param offset The play field offset
+	 */
+	public synchronized void drawImage(Graphics2D g2, int offset) {
+		if (frontImage != null) {
+			g2.drawImage(frontImage, frontView.x - offset,
+					frontView.y - offset, null);
+		}
+	}
+
+	/**
+	 * Draws all the hosts of a snapshot with all the details directly to a
+	 * graphics context
+	 * @param g2 The context
+	 * @param snap The snapshot to draw
+	 */
+	public void drawAll(Graphics2D g2, WorldSnapshot snap) {
+		if (NodeGraphic.getDrawConnections()) {
+			drawLinks(g2, snap);
+		}
+		for (int i=0, n=snap.getNrofHosts(); i<n; i++) {
+			new NodeGraphic(snap, i).draw(g2);
+		}
+	}
+
+	/**
+	 * Renders the requested images until the program exits
+	 */
+	public void run() {
+		while (true) {
+			Rectangle view;
+			WorldSnapshot snapshot;
+			synchronized (this) {
+				while (requestedView == null) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				view = requestedView;
+				snapshot = requestedSnapshot;
+				requestedView = null;
+			}
+
+			double scale = PlayFieldGraphic.getScale();
+			BufferedImage img = backImage;
+			if (img == null || img.getWidth() != view.width ||
+					img.getHeight() != view.height) {
+				img = new BufferedImage(view.width, view.height,
+						BufferedImage.TYPE_INT_ARGB);
+			}
+			render(img, view, snapshot);
+
+			synchronized (this) {
+				backImage = frontImage;
+				frontImage = img;
+				frontView = view;
+				frontScale = scale;
+			}
+			target.repaint();
+		}
+	}
+
+	/**
+	 * Draws the visible hosts to an image
+	 * @param img The image to draw to
+	 * @param view The area of the play field the image covers
+	 * @param snap The snapshot to draw
+	 */
+	private void render(BufferedImage img, Rectangle view,
+			WorldSnapshot snap) {
+		int[] pixels = ((DataBufferInt)img.getRaster().getDataBuffer())
+			.getData();
+		Arrays.fill(pixels, 0);
+
+		int nrofVisible = cull(view, snap);
+		if (nrofVisible <= heatMapLimit && 
+				NodeGraphic.getDrawConnections()) {
+			Graphics2D g2 = createGraphics(img, view);
+			drawLinks(g2, snap);
+			g2.dispose();
+		}
+		if (nrofVisible <= detailLimit) {
+			Graphics2D g2 = createGraphics(img, view);
+			for (int i=0; i<nrofVisible; i++) {
+				new NodeGraphic(snap, visible[i]).draw(g2);
+			}
+			g2.dispose();
+		}
+		else if (nrofVisible <= heatMapLimit) {
+			drawSquares(pixels, view, snap, nrofVisible);
+		}
+		else {
+			drawHeatMap(pixels, view, snap, nrofVisible);
+		}
+	}
+
+	/**
+	 * Collects the indexes of the hosts that are in the view (or near it) to
+	 * the visible array
+	 * @param view The view
+	 * @param snap The snapshot whose host locations are used
+	 * @return Number of visible hosts
+	 */
+	private int cull(Rectangle view, WorldSnapshot snap) {
+		int minX = view.x - VIEW_MARGIN - PlayField.PLAYFIELD_OFFSET;
+		int minY = view.y - VIEW_MARGIN - PlayField.PLAYFIELD_OFFSET;
+		int maxX = view.x + view.width + VIEW_MARGIN -
+			PlayField.PLAYFIELD_OFFSET;
+		int maxY = view.y + view.height + VIEW_MARGIN -
+			PlayField.PLAYFIELD_OFFSET;
+		int nrofVisible = 0;
+
+		if (visible.length < snap.getNrofHosts()) {
+			visible = new int[snap.getNrofHosts()];
+		}
+		for (int i=0, n=snap.getNrofHosts(); i<n; i++) {
+			int x = PlayFieldGraphic.scale(snap.getX(i));
+			int y = PlayFieldGraphic.scale(snap.getY(i));
+			if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+				visible[nrofVisible++] = i;
+			}
+		}
+		return nrofVisible;
+	}
+
+	/**
+	 * Creates a graphics context for drawing to an image in the play 
+	 * field's coordinates
+	 * @param img The image to draw to
+	 * @param view The area of the play field the image covers
+	 * @return The context
+	 */
+	private Graphics2D createGraphics(BufferedImage img, Rectangle view) {
+		Graphics2D g2 = img.createGraphics();
+		g2.translate(PlayField.PLAYFIELD_OFFSET - view.x,
+				PlayField.PLAYFIELD_OFFSET - view.y);
+		return g2;
+	}
+
+	/**
+	 * Draws the links between the hosts of a snapshot as lines
+	 * @param g2 The context to draw to
+	 * @param snap The snapshot
+	 */
+	private void drawLinks(Graphics2D g2, WorldSnapshot snap) {
+		g2.setColor(NodeGraphic.getConnectionColor());
+		for (int i=0, n=snap.getNrofLinks(); i<n; i++) {
+			int from = snap.getLinkFrom(i);
+			int to = snap.getLinkTo(i);
+			g2.drawLine(PlayFieldGraphic.scale(snap.getX(from)),
+					PlayFieldGraphic.scale(snap.getY(from)),
+					PlayFieldGraphic.scale(snap.getX(to)),
+					PlayFieldGraphic.scale(snap.getY(to)));
+		}
+	}
+
+	/**
+	 * Draws the visible hosts as 3x3 pixel squares (and highlighted hosts as
+	 * larger squares) to the raster of an image
+	 * @param pixels The pixels of the image
+	 * @param view The area of the play field the image covers
+	 * @param snap The snapshot whose host locations are used
+	 * @param nrofVisible Number of visible hosts
+	 */
+	private void drawSquares(int[] pixels, Rectangle view, WorldSnapshot snap,
+			int nrofVisible) {
+		int rgb = NodeGraphic.getHostColor().getRGB();
+		for (int i=0; i<nrofVisible; i++) {
+			fillSquare(pixels, view, snap, visible[i], 1, rgb);
+		}
+
+		rgb = NodeGraphic.getHighlightedNodeColor().getRGB();
+		for (int i=0; i<nrofVisible; i++) {
+			if (snap.isHighlighted(visible[i])) {
+				fillSquare(pixels, view, snap, visible[i], 3, rgb);
+			}
+		}
+	}
+
+	/**
+	 * Fills a square around a host's location
+	 * @param pixels The pixels of the image
+	 * @param view The area of the play field the image covers
+	 * @param snap The snapshot whose host locations are used
+	 * @param host Address of the host
+	 * @param r "Radius" of the square
+	 * @param rgb The color
+	 */
+	private void fillSquare(int[] pixels, Rectangle view, WorldSnapshot snap,
+			int host, int r, int rgb) {
+		int cx = PlayFieldGraphic.scale(snap.getX(host)) +
+			PlayField.PLAYFIELD_OFFSET - view.x;
+		int cy = PlayFieldGraphic.scale(snap.getY(host)) +
+			PlayField.PLAYFIELD_OFFSET - view.y;
+		int x0 = Math.max(cx - r, 0);
+		int x1 = Math.min(cx + r, view.width - 1);
+		int y0 = Math.max(cy - r, 0);
+		int y1 = Math.min(cy + r, view.height - 1);
+
+		for (int y=y0; y<=y1; y++) {
+			int row = y * view.width;
+			for (int x=x0; x<=x1; x++) {
+				pixels[row + x] = rgb;
+			}
+		}
+	}
+
+	/**
+	 * Draws the visible hosts as a heat map to the raster of an image.
+	 * Tiles with more hosts are drawn with more opaque color (in logarithmic
+	 * scale relative to the most crowded tile).
+	 * @param pixels The pixels of the image
+	 * @param view The area of the play field the image covers
+	 * @param snap The snapshot whose host locations are used
+	 * @param nrofVisible Number of visible hosts
+	 */
+	private void drawHeatMap(int[] pixels, Rectangle view, WorldSnapshot snap,
+			int nrofVisible) {
+		int tilesX = (view.width + tileSize - 1) / tileSize;
+		int tilesY = (view.height + tileSize - 1) / tileSize;
+		if (tileCounts == null || tileCounts.length < tilesX * tilesY) {
+			tileCounts = new int[tilesX * tilesY];
+		}
+		Arrays.fill(tileCounts, 0);
+
+		int maxCount = 0;
+		for (int i=0; i<nrofVisible; i++) {
+			int x = PlayFieldGraphic.scale(snap.getX(visible[i])) +
+				PlayField.PLAYFIELD_OFFSET - view.x;
+			int y = PlayFieldGraphic.scale(snap.getY(visible[i])) +
+				PlayField.PLAYFIELD_OFFSET - view.y;
+			if (x < 0 || y < 0 || x >= view.width || y >= view.height) {
+				continue; /* in the margin */
+			}
+			int t = (y / tileSize) * tilesX + x / tileSize;
+			maxCount = Math.max(maxCount, ++tileCounts[t]);
+		}
+
+		double logMax = Math.log(maxCount + 1);
+		int rgb = HEAT_COLOR.getRGB() & 0x00ffffff;
+		for (int ty=0; ty<tilesY; ty++) {
+			for (int tx=0; tx<tilesX; tx++) {
+				int count = tileCounts[ty * tilesX + tx];
+				if (count == 0) {
+					continue;
+				}
+				int alpha = 40 + (int)(215 * Math.log(count + 1) / logMax);
+				int argb = (alpha << 24) | rgb;
+				int y1 = Math.min((ty + 1) * tileSize, view.height);
+				int x0 = tx * tileSize;
+				int x1 = Math.min(x0 + tileSize, view.width);
+				for (int y=ty * tileSize; y<y1; y++) {
+					Arrays.fill(pixels, y * view.width + x0,
+							y * view.width + x1, argb);
+				}
+			}
+		}
+	}
+}
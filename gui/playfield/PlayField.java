@@ -5,11 +5,14 @@
 package gui.playfield;
 
 import gui.DTNSimGUI;
+import gui.MainWindow;
+import gui.WorldSnapshot;
 
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
@@ -24,6 +27,8 @@ import movement.Path;
 import movement.map.SimMap;
 import core.Coord;
 import core.DTNHost;
+import core.Settings;
+import core.SimClock;
 import core.World;
 
 /**
@@ -50,6 +55,10 @@ public class PlayField extends JPanel {
 	private AffineTransform curTransform;
 	private double underlayImgDx;
 	private double underlayImgDy;
+	/** renderer of the hosts */
+	private NodeLayer nodeLayer;
+	/** the latest snapshot of the world to show */
+	private WorldSnapshot snapshot;
 	
 	/**
 	 * Creates a playfield
@@ -69,6 +78,16 @@ public class PlayField extends JPanel {
         this.imageTransform = null;
         this.autoClearOverlay = true;
         
+        Settings s = new Settings(MainWindow.GUI_NS);
+        this.nodeLayer = new NodeLayer(this,
+        		s.getInt(NodeLayer.DETAIL_LIMIT_S, 
+        				NodeLayer.DEF_DETAIL_LIMIT),
+        		s.getInt(NodeLayer.HEAT_MAP_LIMIT_S, 
+        				NodeLayer.DEF_HEAT_MAP_LIMIT),
+        		s.getInt(NodeLayer.TILE_SIZE_S, NodeLayer.DEF_TILE_SIZE));
+        this.snapshot = new WorldSnapshot(w.getHosts(), SimClock.getTime(),
+        		null, false);
+        
         this.addMouseListener(new MouseAdapter() {        	
 			@Override
 			public void mouseClicked(MouseEvent e) {
@@ -80,12 +99,24 @@ public class PlayField extends JPanel {
 	}
 	
 	/**
-	 * Schedule the play field to be drawn
+	 * Schedule the play field to be drawn. The hosts are drawn in the
+	 * background and the field is repainted when they are ready.
 	 */
 	public void updateField() {
+		this.nodeLayer.requestRender(this.getVisibleRect(), this.snapshot);
 		this.repaint();
 	}
 	
+	/**
+	 * Sets the snapshot of the world that is shown the next time the field
+	 * is updated
+	 * @param snapshot The snapshot
+	 * @see #updateField()
+	 */
+	public void setSnapshot(WorldSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+	
 	/**
 	 * Sets an image to show under the host graphics
 	 * @param image The image to set or null to remove the image
@@ -167,12 +198,36 @@ public class PlayField extends JPanel {
 	}
 	
 	/**
-	 * Draws the play field. To be called by Swing framework or directly if
-	 * different context than screen is desired
+	 * Draws the play field. To be called by Swing framework. The hosts are
+	 * drawn from the latest image of the background renderer.
 	 * @param g The graphics context to draw the field to
+	 * @see #paintAllDetails(Graphics)
 	 */
 	public void paint(Graphics g) {
-		Graphics2D g2 = (Graphics2D)g;
+		Rectangle view = this.getVisibleRect();
+		if (!this.nodeLayer.isUpToDate(view)) {
+			// scrolled or zoomed since the latest image
+			this.nodeLayer.requestRender(view, this.snapshot);
+		}
+		paintField((Graphics2D)g, false);
+	}
+	
+	/**
+	 * Draws the whole play field with all the details of all the hosts
+	 * directly to the given context (e.g., for screenshots)
+	 * @param g The graphics context to draw the field to
+	 */
+	public void paintAllDetails(Graphics g) {
+		paintField((Graphics2D)g, true);
+	}
+	
+	/**
+	 * Draws the play field
+	 * @param g2 The graphics context to draw the field to
+	 * @param allDetails If true, all the hosts are drawn directly with all 
+	 * the details, otherwise the latest image of the hosts is used
+	 */
+	private void paintField(Graphics2D g2, boolean allDetails) {
 		g2.setBackground(bgColor);
 		
 		g2.translate(PLAYFIELD_OFFSET, PLAYFIELD_OFFSET);
@@ -191,8 +246,11 @@ public class PlayField extends JPanel {
 		}
 		
 		// draw hosts
-		for (DTNHost h : w.getHosts()) {
-			new NodeGraphic(h).draw(g2); 
+		if (allDetails) {
+			this.nodeLayer.drawAll(g2, this.snapshot);
+		}
+		else {
+			this.nodeLayer.drawImage(g2, PLAYFIELD_OFFSET);
 		}
 		
 		// draw overlay graphics
@@ -285,26 +343,28 @@ public class PlayField extends JPanel {
 	
 	/**
 	 * Sets the focus on the node that is closest to the given coordinates
-	 * (in the graphic view of the playfield)
+	 * (in the graphic view of the playfield). The node locations are taken
+	 * from the latest snapshot.
 	 * @param x The X coordinate
 	 * @param y The Y coordinate
 	 */
 	private void focusClosestNode(int x, int y) {
-		DTNHost closest = w.getHosts().get(0);
+		WorldSnapshot snap = this.snapshot;
+		int closest = 0;
 		double closestDist = Double.MAX_VALUE;
 		double dist;
 		
 		Coord clickLoc = getWorldPosition(new Coord(x,y));
 		
-		for (DTNHost h : w.getHosts()) {
-			dist = h.getLocation().distance(clickLoc);
+		for (int i=0, n=snap.getNrofHosts(); i<n; i++) {
+			dist = clickLoc.distance(new Coord(snap.getX(i), snap.getY(i)));
 			
 			if (dist < closestDist) {
-				closest = h;
+				closest = i;
 				closestDist = dist;
 			}
 		}
 		
-		gui.setFocus(closest);		
+		gui.setFocus(w.getHosts().get(closest));		
 	}
 }
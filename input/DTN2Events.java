@@ -14,11 +14,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Collections;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import core.DTN2Manager;
 import core.Debug;
@@ -39,15 +42,17 @@ public class DTN2Events implements EventQueue {
 	  Due to the routing implementation in dtnd it's likely
 	  that dtnd will immediately return a bundle that is
 	  forwarded to it from the ONE. */
-	private Map<String, Bundle>			bundle_list;
+	private Set<String>					bundle_list;
 	
 	/**
 	 * Creates a new events object.
 	 * @param s Settings
 	 */
 	public DTN2Events(Settings s) {
-		this.events = new LinkedList<ExternalEvent>();
-		this.bundle_list = new HashMap<String, Bundle>();
+		/* the parser threads add events and the bundles concurrently */
+		this.events = new ConcurrentLinkedQueue<ExternalEvent>();
+		this.bundle_list = Collections.newSetFromMap(
+				new ConcurrentHashMap<String, Boolean>());
 		DTN2Manager.setEvents(this);
 	}
 	
@@ -113,10 +118,7 @@ public class DTN2Events implements EventQueue {
 					new_f = new File(filepath);
 				}
 				FileOutputStream f_out = new FileOutputStream(new_f);
-				int i;
-				while ( (i=f_in.read()) != -1 ) {
-					f_out.write(i);
-				}
+				copy(f_in.getChannel(), f_out.getChannel());
 				f_in.close();
 				f_out.close();
 			} catch (Exception e) {
@@ -127,12 +129,10 @@ public class DTN2Events implements EventQueue {
 			Bundle bundle = new Bundle(new_f);
 			
 			// Check that we haven't forwarded this bundle before
-			if (isReg(bundle)) {
+			if (!regMsg(bundle)) {
 				r.reply = false;
 				r.bytes_sent = 0;
 				return r;
-			} else {
-				regMsg(bundle);
 			}
 						
 			// Lookup the receiving host
@@ -190,8 +190,9 @@ public class DTN2Events implements EventQueue {
 	//                              EventQueue Implementation                              //
 	//************************************************************************//
 	public ExternalEvent nextEvent() {
-		if (!this.events.isEmpty()) {
-			return this.events.remove();
+		ExternalEvent e = this.events.poll();
+		if (e != null) {
+			return e;
 		} else
 			return new ExternalEvent(Double.MAX_VALUE);
 	}
@@ -231,25 +232,32 @@ public class DTN2Events implements EventQueue {
 			"-"+bundle.creation_timestamp_seq_no;
 		MessageCreateEvent e = new MessageCreateEvent(from, to, id, 
 				(int)(bundle.file.length()), 0, SimClock.getTime());
-		synchronized (this.events) {
-			this.events.add(e);
-		}
+		// Add the bundle first so that it's there when the event is read
 		DTN2Manager.addBundle(id,bundle);
+		this.events.add(e);
 	}
 	
-	// Keep track of the bundles we've received
-	private void regMsg(Bundle bundle) {
+	// Keep track of the bundles we've received. Returns false if the
+	// bundle has been received before.
+	private boolean regMsg(Bundle bundle) {
 		String key = bundle.source_EID+":"+bundle.destination_EID+":"+
 			bundle.creation_timestamp_time+":"+bundle.creation_timestamp_seq_no;
-		if (!this.bundle_list.containsKey(key))
-			this.bundle_list.put(key,null);
+		return this.bundle_list.add(key);
 	}
 	
-	// Check if the bundle has been received before
-	private boolean isReg(Bundle bundle) {
-		String key = bundle.source_EID+":"+bundle.destination_EID+":"+
-			bundle.creation_timestamp_time+":"+bundle.creation_timestamp_seq_no;
-		return this.bundle_list.containsKey(key);
+	// Copies a whole file (without copying the data through the VM if the
+	// platform supports it)
+	private static void copy(FileChannel from, FileChannel to)
+			throws IOException {
+		long size = from.size();
+		long pos = 0;
+		while (pos < size) {
+			long n = from.transferTo(pos, size - pos, to);
+			if (n <= 0) {
+				break; /* the file was truncated */
+			}
+			pos += n;
+		}
 	}
 	//************************************************************************//
 	
@@ -34,6 +34,10 @@ import core.World;
  * connection. Then only that subset of interfaces is checked for possible
  * connectivity. 
  * </P>
+ * <P>The grid also keeps count of the transmitting interfaces in each cell
+ * (the cell's channel load, see {@link #setTransmitting}) so the number of
+ * transmitters near an interface can be read without going through the 
+ * interfaces.</P>
  * <P>
  * <strong>Note:</strong> this class does NOT support negative
  * coordinates. Also, it makes sense to normalize the coordinates to start
@@ -56,6 +60,8 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	
 	private GridCell[][] cells;
 	private HashMap<NetworkInterface, GridCell> ginterfaces;
+	/** transmitting interfaces and the cells where they are counted */
+	private HashMap<NetworkInterface, GridCell> transmitters;
 	private int cellSize;
 	private int rows;
 	private int cols;
@@ -110,6 +116,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 			}
 		}
 		ginterfaces = new HashMap<NetworkInterface,GridCell>();
+		transmitters = new HashMap<NetworkInterface,GridCell>();
 	}
 
 	/**
@@ -152,6 +159,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 			c.removeInterface(ni);
 		}
 		ginterfaces.remove(ni);
+		setTransmitting(ni, false);
 	}
 
 	/**
@@ -165,17 +173,70 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 	/**
-	 * Checks and updates (if necessary) interface's position in the grid
+	 * Checks and updates (if necessary) interface's position in the grid.
+	 * Interfaces that are not in the grid (e.g., inactive ones) are ignored.
 	 * @param ni The interface to update
 	 */
 	public void updateLocation(NetworkInterface ni) {
 		GridCell oldCell = (GridCell)ginterfaces.get(ni);
+		if (oldCell == null) {
+			return;
+		}
 		GridCell newCell = cellFromCoord(ni.getLocation());
 
 		if (newCell != oldCell) {
 			oldCell.moveInterface(ni, newCell);
 			ginterfaces.put(ni,newCell);
+			if (transmitters.containsKey(ni)) {
+				oldCell.nrofTransmitters--;
+				newCell.nrofTransmitters++;
+				transmitters.put(ni, newCell);
+			}
+		}
+	}
+
+	/**
+	 * Sets whether a network interface is transmitting and updates the 
+	 * transmitter count of its cell
+	 * @param ni The network interface (ignored if not in the grid)
+	 * @param transmitting True if the interface is transmitting
+	 */
+	public void setTransmitting(NetworkInterface ni, boolean transmitting) {
+		GridCell counted = transmitters.get(ni);
+		if (transmitting && counted == null) {
+			GridCell c = ginterfaces.get(ni);
+			if (c != null) {
+				c.nrofTransmitters++;
+				transmitters.put(ni, c);
+			}
+		} else if (!transmitting && counted != null) {
+			counted.nrofTransmitters--;
+			transmitters.remove(ni);
+		}
+	}
+
+	/**
+	 * Returns the number of transmitting interfaces in the interface's cell
+	 * and the neighboring cells
+	 * @param ni The network interface
+	 * @return The number of transmitting interfaces (0 if the interface is
+	 * not in the grid)
+	 */
+	public int getNrofNearTransmitters(NetworkInterface ni) {
+		if (!ginterfaces.containsKey(ni)) {
+			return 0;
 		}
+		Coord c = ni.getLocation();
+		// +1 due empty cells on both sides of the matrix
+		int row = (int)(c.getY()/cellSize) + 1;
+		int col = (int)(c.getX()/cellSize) + 1;
+		int n = 0;
+		for (int i=row-1; i<=row+1; i++) {
+			for (int j=col-1; j<=col+1; j++) {
+				n += cells[i][j].nrofTransmitters;
+			}
+		}
+		return n;
 	}
 
 	/**
@@ -221,6 +282,15 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		return this.cells[row][col];
 	}
 
+	/**
+	 * Returns the cell size: interfaces outside the neighboring cells are 
+	 * at least one cell away
+	 * @return The cell size
+	 */
+	public double getNearDistance() {
+		return this.cellSize;
+	}
+
 	/**
 	 * Returns all interfaces that use the same technology and channel
 	 */
@@ -268,6 +338,8 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		// how large array is initially chosen
 		private static final int EXPECTED_INTERFACE_COUNT = 5;
 		private ArrayList<NetworkInterface> interfaces;
+		/** number of transmitting interfaces in this cell */
+		private int nrofTransmitters;
 
 		private GridCell() {
 			this.interfaces = new ArrayList<NetworkInterface>(
@@ -316,7 +388,8 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		 */
 		public String toString() {
 			return getClass().getSimpleName() + " with " + 
-				this.interfaces.size() + " interfaces :" + this.interfaces;
+				this.interfaces.size() + " interfaces (" + 
+				this.nrofTransmitters + " transmitting) :" + this.interfaces;
 		}
 	}
 	
@@ -25,6 +25,11 @@ abstract public class ConnectivityOptimizer {
 	 */
 	abstract public void addInterfaces(Collection<NetworkInterface> interfaces);
 
+	/**
+	 * Removes a network interface from the optimizer (if it is present)
+	 */
+	abstract public void removeInterface(NetworkInterface ni);
+
 	/**
 	 * Updates a network interface's location
 	 */
@@ -40,6 +45,32 @@ abstract public class ConnectivityOptimizer {
 	abstract public Collection<NetworkInterface> getNearInterfaces(
 			NetworkInterface ni);
 
+	/**
+	 * Returns the distance within which all interfaces are considered near,
+	 * i.e., interfaces not returned by {@link #getNearInterfaces} are at 
+	 * least this far from the network interface
+	 * @return The near distance
+	 */
+	abstract public double getNearDistance();
+
+	/**
+	 * Sets whether a network interface is transmitting. The optimizer keeps 
+	 * count of the transmitting interfaces by location.
+	 * @param ni The network interface (ignored if not in the optimizer)
+	 * @param transmitting True if the interface is transmitting
+	 */
+	abstract public void setTransmitting(NetworkInterface ni, 
+			boolean transmitting);
+
+	/**
+	 * Returns the number of transmitting interfaces near a network interface
+	 * (within the area of {@link #getNearInterfaces}), including the 
+	 * interface itself if it is transmitting
+	 * @param ni The network interface
+	 * @return The number of transmitting interfaces
+	 */
+	abstract public int getNrofNearTransmitters(NetworkInterface ni);
+
 	/**
 	 * Finds all other interfaces that are registered to the
 	 * ConnectivityOptimizer
@@ -16,15 +16,35 @@ import core.VBRConnection;
  * the bit-rate depends on the number of other transmitting stations within
  * range The current transmit speed is updated only if there are ongoing
  * transmissions. The configured transmit speed is the maximum obtainable speed.
+ * <P>By default, the other transmitting stations are the transmitting peers
+ * of this interface's connections. If {@link #CELL_LOAD_S} is set, they are
+ * all the transmitting interfaces near this one as counted by the 
+ * connectivity grid's cells (the grid's channel load), whether connected to
+ * this interface or not.</P>
  */
 public class InterferenceLimitedInterface extends NetworkInterface {
+	/**
+	 * Should the interference be based on the channel load of the 
+	 * connectivity grid -setting id ({@value}). If true, the number of 
+	 * transmitting stations is the number of transmitting interfaces in this
+	 * interface's grid cell and its neighboring cells instead of the number
+	 * of transmitting peers. The size of the interference area can be tuned 
+	 * with the grid's cell size multiplier 
+	 * ({@link ConnectivityGrid#CELL_SIZE_MULT_S}). Boolean (true/false) 
+	 * variable. Default is false.
+	 */
+	public static final String CELL_LOAD_S = "cellLoad";
+
 	protected int currentTransmitSpeed;
 	protected int numberOfTransmissions;
+	/** is the number of transmitters read from the grid's cell load */
+	protected boolean cellLoad;
 
 	public InterferenceLimitedInterface(Settings s) {
 		super(s);
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		this.cellLoad = s.getBoolean(CELL_LOAD_S, false);
 	}
 
 	/**
@@ -37,6 +57,7 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		this.transmitSpeed = ni.transmitSpeed;
 		this.currentTransmitSpeed = 0;
 		this.numberOfTransmissions = 0;
+		this.cellLoad = ni.cellLoad;
 	}
 
 	
@@ -111,11 +132,17 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 			if (con.getMessage() != null) {
 				numberOfTransmissions++;
 			}
-			if (((InterferenceLimitedInterface)con.getOtherInterface(this)).
-					isTransferring() == true) {
+			if (!cellLoad && ((InterferenceLimitedInterface)con.
+					getOtherInterface(this)).isTransferring() == true) {
 				numberOfActive++;
 			}
 		}
+		if (cellLoad) {
+			// this interface and the other transmitters near it
+			optimizer.setTransmitting(this, isTransferring());
+			numberOfActive += optimizer.getNrofNearTransmitters(this) - 
+				(isTransferring() ? 1 : 0);
+		}
 
 		int ntrans = numberOfTransmissions;
 		if ( numberOfTransmissions < 1) ntrans = 1;
@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.IOException;
 import java.util.List;
 
 import movement.map.DijkstraPathFinder;
@@ -77,4 +78,18 @@ public class CarMovement extends MapBasedMovement implements
 	public boolean isReady() {
 		return true;
 	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeCoord(this.from);
+		out.writeCoord(this.to);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.from = in.readCoord();
+		this.to = in.readCoord();
+	}
 }
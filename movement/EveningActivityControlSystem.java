@@ -4,12 +4,16 @@
  */
 package movement;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 import core.Coord;
 import core.DTNSim;
+import core.SimError;
 
 /**
  * This class controls the group mobility of the people meeting their friends in
@@ -137,4 +141,71 @@ public class EveningActivityControlSystem {
 		}
 	}
 	
+	/**
+	 * Returns the evening activity node with the given ID
+	 * @param id ID of the node
+	 * @return The node
+	 * @throws SimError if there's no node with the ID in this system
+	 */
+	EveningActivityMovement getEveningActivityNode(int id) {
+		EveningActivityMovement node = eveningActivityNodes.get(id);
+		if (node == null) {
+			throw new SimError("No evening activity node with ID " + id);
+		}
+		return node;
+	}
+	
+	/**
+	 * Writes the state of all the control systems (the trips that are 
+	 * being formed) for warm-up snapshots
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	public static void writeSharedState(StateOutput out) throws IOException {
+		List<Integer> ids = new ArrayList<Integer>(controlSystems.keySet());
+		Collections.sort(ids);
+		
+		out.writeInt(ids.size());
+		for (Integer id : ids) {
+			EveningActivityControlSystem scs = controlSystems.get(id);
+			out.writeInt(id);
+			out.writeRandom(scs.rng);
+			out.writeInt(scs.nextTrips != null ? scs.nextTrips.length : -1);
+			for (int i=0; scs.nextTrips != null && i<scs.nextTrips.length; 
+					i++) {
+				EveningTrip.write(out, scs.nextTrips[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the state written by {@link #writeSharedState(StateOutput)}.
+	 * The same control systems must have been created with the same 
+	 * settings.
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 * @throws SimError if the control systems don't match
+	 */
+	public static void readSharedState(StateInput in) throws IOException {
+		int nrofSystems = in.readInt();
+		if (nrofSystems != controlSystems.size()) {
+			throw new SimError("Evening activity control system mismatch");
+		}
+		
+		for (int i=0; i<nrofSystems; i++) {
+			EveningActivityControlSystem scs = controlSystems.get(in.readInt());
+			if (scs == null) {
+				throw new SimError("Evening activity control system mismatch");
+			}
+			in.readRandom(scs.rng);
+			int nrofTrips = in.readInt();
+			int expected = (scs.nextTrips != null ? scs.nextTrips.length : -1);
+			if (nrofTrips != expected) {
+				throw new SimError("Evening activity control system mismatch");
+			}
+			for (int j=0; j<nrofTrips; j++) {
+				scs.nextTrips[j] = EveningTrip.read(in, scs);
+			}
+		}
+	}
 }
@@ -7,6 +7,7 @@ package movement;
 import input.WKTReader;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -226,6 +227,11 @@ public class EveningActivityMovement extends MapBasedMovement
 	public MapBasedMovement replicate() {
 		return new EveningActivityMovement(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return false; /* replicates register to the control system */
+	}
 
 	/**
 	 * @see SwitchableMovement
@@ -296,4 +302,29 @@ public class EveningActivityMovement extends MapBasedMovement
 		this.maxGroupSize = maxGroupSize;
 	}
 	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(this.mode);
+		out.writeBoolean(this.ready);
+		out.writeBoolean(this.readyToShop);
+		out.writeCoord(this.lastWaypoint);
+		out.writeCoord(this.startAtLocation);
+		EveningTrip.write(out, this.trip);
+		out.writeInt(this.minGroupSize);
+		out.writeInt(this.maxGroupSize);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.mode = in.readInt();
+		this.ready = in.readBoolean();
+		this.readyToShop = in.readBoolean();
+		this.lastWaypoint = in.readCoord();
+		this.startAtLocation = in.readCoord();
+		this.trip = EveningTrip.read(in, this.scs);
+		this.minGroupSize = in.readInt();
+		this.maxGroupSize = in.readInt();
+	}
 }
@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 
 /**
@@ -124,5 +126,59 @@ public class EveningTrip {
 	public void setWaitTimeAtEnd(double waitTimeAtEnd) {
 		this.waitTimeAtEnd = waitTimeAtEnd;
 	}
+	
+	/**
+	 * Writes a trip (for warm-up snapshots). Every trip is written only once
+	 * even if it is shared by many nodes.
+	 * @param out Where to write the trip
+	 * @param trip The trip (may be null)
+	 * @throws IOException if writing fails
+	 */
+	static void write(StateOutput out, EveningTrip trip) throws IOException {
+		if (!out.writeReference(trip)) {
+			return; /* null or already written */
+		}
+		
+		out.writeInt(trip.eveningActivityNodes.length);
+		out.writeInt(trip.eveningActivityNodesInBuffer);
+		for (int i=0; i<trip.eveningActivityNodesInBuffer; i++) {
+			out.writeInt(trip.eveningActivityNodes[i].getID());
+		}
+		out.writePath(trip.path);
+		out.writeCoord(trip.location);
+		out.writeCoord(trip.destination);
+		out.writeDouble(trip.waitTimeAtEnd);
+	}
+	
+	/**
+	 * Reads a trip written with {@link #write(StateOutput, EveningTrip)}
+	 * @param in Where to read the trip from
+	 * @param scs The control system of the nodes of the trip
+	 * @return The trip (or null)
+	 * @throws IOException if reading fails
+	 */
+	static EveningTrip read(StateInput in, EveningActivityControlSystem scs)
+			throws IOException {
+		int id = in.readReference();
+		if (id < 0) {
+			return null;
+		}
+		
+		EveningTrip trip = (EveningTrip)in.getReference(id);
+		if (trip != null) {
+			return trip; /* already read */
+		}
+		
+		trip = new EveningTrip(in.readInt(), null);
+		in.addReference(id, trip);
+		for (int i=0, n=in.readInt(); i<n; i++) {
+			trip.addNode(scs.getEveningActivityNode(in.readInt()));
+		}
+		trip.path = in.readPath();
+		trip.location = in.readCoord();
+		trip.destination = in.readCoord();
+		trip.waitTimeAtEnd = in.readDouble();
+		return trip;
+	}
 }
 
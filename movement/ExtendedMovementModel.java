@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 import core.Settings;
 
@@ -89,4 +91,30 @@ public abstract class ExtendedMovementModel extends MovementModel {
 	 */
 	public abstract boolean newOrders();
 	
+	/**
+	 * Sets the current movement model without moving the location of the
+	 * previous model to it (for restoring the state of the model)
+	 * @param mm The movement model that was in use
+	 */
+	protected void restoreCurrentMovementModel(SwitchableMovement mm) {
+		this.currentMovementModel = mm;
+	}
+	
+	/**
+	 * Writes the state of this model. Subclasses must write the state of
+	 * the movement models they switch between and restore the current 
+	 * movement model using 
+	 * {@link #restoreCurrentMovementModel(SwitchableMovement)}.
+	 */
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeBoolean(this.getPathCalledOnce);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.getPathCalledOnce = in.readBoolean();
+	}
 }
@@ -80,6 +80,23 @@ public class ExternalPathMovement extends MovementModel {
 		
 		return false;
 	}
+	
+	@Override
+	public double getNextActivenessChange() {
+		double t = SimClock.getTime();
+		double next = Double.MAX_VALUE;
+		
+		// The next start or end of an active period (the end is inclusive)
+		for (ExternalPathMovementReader.ActiveTime a : this.active) {
+			if (t < a.start) {
+				next = Math.min(next, a.start);
+			} else if (t <= a.end) {
+				next = Math.min(next, a.end);
+			}
+		}
+		
+		return next;
+	}
 
 	@Override
 	public Path getPath() {
@@ -7,6 +7,7 @@ package movement;
 import input.WKTReader;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -245,5 +246,24 @@ public class HomeActivityMovement extends MapBasedMovement
 	public Coord getHomeLocation() {
 		return homeLocation.clone();
 	}
-
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(this.mode);
+		out.writeCoord(this.lastWaypoint);
+		out.writeCoord(this.homeLocation);
+		out.writeInt(this.distance);
+		out.writeInt(this.timeDifference);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.mode = in.readInt();
+		this.lastWaypoint = in.readCoord();
+		this.homeLocation = in.readCoord();
+		this.distance = in.readInt();
+		this.timeDifference = in.readInt();
+	}
 }
@@ -23,6 +23,7 @@ import core.Coord;
 import core.Settings;
 import core.SettingsError;
 import core.SimError;
+import core.StartupTimes;
 
 /**
  * Map based movement model which gives out Paths that use the
@@ -71,7 +72,9 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	 */
 	public MapBasedMovement(Settings settings) {
 		super(settings);
+		long start = System.nanoTime();
 		map = readMap();
+		StartupTimes.add(StartupTimes.MAP_LOAD, System.nanoTime() - start);
 		readOkMapNodeTypes(settings);
 		maxPathLength = 100;
 		minPathLength = 10;
@@ -429,4 +432,31 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 		return true;
 	}
 	
+	@Override
+	public boolean isSnapshotSupported() {
+		return true;
+	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeMapNode(this.lastMapNode);
+		out.writeInt(this.minPathLength);
+		out.writeInt(this.maxPathLength);
+		out.writeBoolean(this.backAllowed);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.lastMapNode = in.readMapNode(this.map);
+		this.minPathLength = in.readInt();
+		this.maxPathLength = in.readInt();
+		this.backAllowed = in.readBoolean();
+	}
 }
@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.IOException;
 import java.util.List;
 
 import core.SettingsError;
@@ -147,6 +148,11 @@ public class MapRouteMovement extends MapBasedMovement implements
 	public MapRouteMovement replicate() {
 		return new MapRouteMovement(this);
 	}	
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return false; /* replicates get the routes of the prototype in turn */
+	}
 
 	/**
 	 * Returns the list of stops on the route
@@ -155,4 +161,16 @@ public class MapRouteMovement extends MapBasedMovement implements
 	public List<MapNode> getStops() {
 		return route.getStops();
 	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		route.writeState(out);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		route.readState(in);
+	}
 }
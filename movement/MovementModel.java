@@ -4,9 +4,12 @@
  */
 package movement;
 
+import java.io.IOException;
 import java.util.Random;
 
 import util.ActivenessHandler;
+import util.RandomStreams;
+import util.RestorableRandom;
 
 import core.Coord;
 import core.DTNHost;
@@ -46,7 +49,15 @@ public abstract class MovementModel {
 	public static final String RNG_SEED = "rngSeed";
 	
 	/** common rng for all movement models in the simulation */
-	protected static Random rng; 
+	private static Random sharedRng;
+	/** seed of the common rng */
+	private static int rngSeed;
+	/** number of movement models replicated so far */
+	private static int nrofCopies;
+	
+	/** rng of this movement model; the common rng unless per-host random
+	 * streams are used (see {@link RandomStreams}) */
+	protected Random rng;
 	
 	/** DTNHost to which this movement model is attached */
 	protected DTNHost host;
@@ -93,6 +104,7 @@ public abstract class MovementModel {
 	 */
 	public MovementModel() {
 		super();
+		this.rng = sharedRng;
 	}
 	
 	/**
@@ -103,6 +115,7 @@ public abstract class MovementModel {
 		double[] speeds;
 		double[] times;
 		
+		this.rng = sharedRng;
 		ah = new ActivenessHandler(settings);
 		
 		if (settings.contains(SPEED)) {
@@ -149,6 +162,19 @@ public abstract class MovementModel {
 		this.maxY = mm.maxY;
 		this.ah = mm.ah;
 		this.comBus = null;
+		
+		if (RandomStreams.isEnabled()) {
+			/* own stream; reseeded when the host is known */
+			long seed = RandomStreams.isReplicating() ?
+				RandomStreams.nextReplicationSeed(rngSeed, 
+						RandomStreams.MOVEMENT) :
+				RandomStreams.seed(rngSeed, nrofCopies++, 
+						RandomStreams.MOVEMENT);
+			this.rng = new RestorableRandom(seed);
+		}
+		else {
+			this.rng = sharedRng;
+		}
 	}
 		
 	/**
@@ -221,6 +247,14 @@ public abstract class MovementModel {
 	 */
 	public void setHost(DTNHost host) {
 		this.host = host;
+		
+		if (this.rng != sharedRng) {
+			/* stream depends only on the host and the movement model class
+			 * (so that the sub-models of a host have different streams) */
+			rng.setSeed(RandomStreams.seed(rngSeed, host.getAddress(), 
+					RandomStreams.MOVEMENT ^ 
+					(getClass().getName().hashCode() << 8)));
+		}
 	}
 
 	/**
@@ -231,6 +265,27 @@ public abstract class MovementModel {
 		/* TODO: add offset support */
 		return ah.isActive();
 	}
+	
+	/**
+	 * Returns the maximum speed of the model's paths
+	 * @return The maximum speed (m/s)
+	 */
+	public double getMaxSpeed() {
+		return this.maxSpeed;
+	}
+	
+	/**
+	 * Returns the next time when this node's activeness may change
+	 * @return The time of the next possible change or 
+	 * {@link Double#MAX_VALUE} if the activeness never changes
+	 * @see ActivenessHandler#getNextChange(double, int)
+	 */
+	public double getNextActivenessChange() {
+		if (ah == null) {
+			return Double.MAX_VALUE;
+		}
+		return ah.getNextChange(SimClock.getTime(), 0);
+	}
 		
 	/**
 	 * Returns a sim time when the next path is available. This implementation
@@ -271,18 +326,93 @@ public abstract class MovementModel {
 	 */
 	public abstract MovementModel replicate();
 	
+	/**
+	 * Returns true if this (prototype) model can be replicated by many 
+	 * threads at the same time. This requires that the replication doesn't
+	 * modify the prototype or other shared state and that the replicates
+	 * use only their own random number generator (see 
+	 * {@link util.RandomStreams}). Subclasses whose replication is not
+	 * thread safe must override this to return false.
+	 * @return true if the model can be replicated in parallel
+	 */
+	public boolean isParallelReplicationSupported() {
+		return false;
+	}
+	
+	/**
+	 * Returns true if the state of this movement model can be saved in 
+	 * a warm-up snapshot. Movement models that have state of their own must
+	 * override {@link #writeState(StateOutput)} and 
+	 * {@link #readState(StateInput)} and then this method to return true.
+	 * @return true if the state can be saved, false if not
+	 */
+	public boolean isSnapshotSupported() {
+		return false;
+	}
+	
+	/**
+	 * Writes the state of this movement model. Subclasses that override
+	 * this must call the super class' method first. The state should also
+	 * include the settings the model uses while moving, so that a snapshot
+	 * written with different settings is not used.
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	public void writeState(StateOutput out) throws IOException {
+		out.writeRandom(this.rng);
+		out.writeDouble(this.minSpeed);
+		out.writeDouble(this.maxSpeed);
+		out.writeDouble(this.minWaitTime);
+		out.writeDouble(this.maxWaitTime);
+	}
+	
+	/**
+	 * Reads the state written by {@link #writeState(StateOutput)}. The
+	 * movement model must have been created with the same settings as the
+	 * one whose state was written.
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 */
+	public void readState(StateInput in) throws IOException {
+		in.readRandom(this.rng);
+		this.minSpeed = in.readDouble();
+		this.maxSpeed = in.readDouble();
+		this.minWaitTime = in.readDouble();
+		this.maxWaitTime = in.readDouble();
+	}
+	
+	/**
+	 * Writes the state that is shared by all movement models (the common
+	 * random number generator)
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	public static void writeSharedState(StateOutput out) throws IOException {
+		out.writeRandom(sharedRng);
+	}
+	
+	/**
+	 * Reads the state written by {@link #writeSharedState(StateOutput)}
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 */
+	public static void readSharedState(StateInput in) throws IOException {
+		in.readRandom(sharedRng);
+	}
+	
 	/**
 	 * Resets all static fields to default values
 	 */
 	public static void reset() {
 		Settings s = new Settings(MOVEMENT_MODEL_NS);
 		if (s.contains(RNG_SEED)) {
-			int seed = s.getInt(RNG_SEED);
-			rng = new Random(seed);
+			rngSeed = s.getInt(RNG_SEED);
 		}
 		else {
-			rng = new Random(0);
+			rngSeed = 0;
 		}
+		sharedRng = new RestorableRandom(rngSeed);
+		nrofCopies = 0;
 	}
 	
 }
@@ -334,5 +334,40 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 	private void setHostLayer(int floor) {
 		this.getHost().setLayer(floor);
 	}
-
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(this.mode);
+		out.writeInt(this.startedWorkingTime);
+		out.writeBoolean(this.ready);
+		out.writeBoolean(this.sittingAtDesk);
+		out.writeCoord(this.lastWaypoint);
+		out.writeCoord(this.officeLocation);
+		out.writeCoord(this.deskLocation);
+		out.writeInt(this.officeFloor);
+		out.writeInt(this.workDayLength);
+		out.writeInt(this.distance);
+		out.writeDouble(this.officeWaitTimeParetoCoeff);
+		out.writeDouble(this.officeMinWaitTime);
+		out.writeDouble(this.officeMaxWaitTime);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.mode = in.readInt();
+		this.startedWorkingTime = in.readInt();
+		this.ready = in.readBoolean();
+		this.sittingAtDesk = in.readBoolean();
+		this.lastWaypoint = in.readCoord();
+		this.officeLocation = in.readCoord();
+		this.deskLocation = in.readCoord();
+		this.officeFloor = in.readInt();
+		this.workDayLength = in.readInt();
+		this.distance = in.readInt();
+		this.officeWaitTimeParetoCoeff = in.readDouble();
+		this.officeMinWaitTime = in.readDouble();
+		this.officeMaxWaitTime = in.readDouble();
+	}
 }
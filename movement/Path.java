@@ -4,39 +4,65 @@
  */
 package movement;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import core.Coord;
 
 /**
- * A Path between multiple Coordinates.
+ * A Path between multiple Coordinates. The coordinates and speeds are
+ * stored in primitive arrays and the path keeps a cursor to the next 
+ * waypoint. The waypoints can also be produced lazily by a 
+ * {@link WaypointGenerator} as the path is travelled.
  */
 public class Path  {
-	/** coordinates of the path */
-	private List<Coord> coords;
-	/** speeds in the path legs */
-	private List<Double> speeds;
+	/** initial capacity of the waypoint array */
+	private static final int DEF_CAPACITY = 8;
+	
+	/** coordinates of the path (x and y interleaved) */
+	private double[] coords;
+	/** number of waypoints in the coords array */
+	private int nrofWaypoints;
+	/** speeds in the path legs (only one value for constant speed) */
+	private double[] speeds;
+	private int nrofSpeeds;
 	private int nextWpIndex;
+	/** generator of the rest of the waypoints (or null if there are no 
+	 * more waypoints to generate) */
+	private WaypointGenerator generator;
+	/** coordinate object where generated waypoints are read to */
+	private Coord generated;
 	
 	/**
 	 * Creates a path with zero speed.
 	 */
 	public Path() {
 		this.nextWpIndex = 0;
-		this.coords = new ArrayList<Coord>();
-		this.speeds = new ArrayList<Double>(1);
+		this.coords = new double[DEF_CAPACITY * 2];
+		this.nrofWaypoints = 0;
+		this.speeds = new double[1];
+		this.nrofSpeeds = 0;
+		this.generator = null;
 	}
 
 	/**
-	 * Copy constructor. Creates a copy of this path with a shallow copy of
-	 * the coordinates and speeds.
+	 * Copy constructor. Creates a copy of this path with a copy of
+	 * the coordinates and speeds. If the path has a waypoint generator, all 
+	 * the remaining waypoints are generated first.
 	 * @param path The path to create the copy from
 	 */
 	public Path(Path path) {
+		path.generateAll();
 		this.nextWpIndex = path.nextWpIndex;
-		this.coords = new ArrayList<Coord>((ArrayList<Coord>)path.coords);
-		this.speeds = new ArrayList<Double>((ArrayList<Double>)path.speeds);
+		this.coords = Arrays.copyOf(path.coords, path.coords.length);
+		this.nrofWaypoints = path.nrofWaypoints;
+		this.speeds = Arrays.copyOf(path.speeds, path.speeds.length);
+		this.nrofSpeeds = path.nrofSpeeds;
+		this.generator = null;
 	}
 	
 	/**
@@ -48,21 +74,49 @@ public class Path  {
 		setSpeed(speed);
 	}
 	
+	/**
+	 * Creates a path with constant speed whose waypoints are asked from 
+	 * the given generator when they are needed (after the waypoints that
+	 * are added to the path using the addWaypoint methods)
+	 * @param speed The speed on the path
+	 * @param generator The generator of the waypoints
+	 */
+	public Path(double speed, WaypointGenerator generator) {
+		this(speed);
+		this.generator = generator;
+	}
+	
 	/**
 	 * Sets a constant speed for the whole path. Any previously set speed(s)
 	 * is discarded.
 	 */
 	public void setSpeed(double speed) {
-		this.speeds = new ArrayList<Double>(1);
-		speeds.add(speed);
+		this.speeds = new double[1];
+		this.speeds[0] = speed;
+		this.nrofSpeeds = 1;
 	}
 	
 	/**
-	 * Returns a reference to the coordinates of this path 
+	 * Returns the coordinates of this path in a new list. If the path
+	 * has a waypoint generator, all the remaining waypoints are generated
+	 * first.
 	 * @return coordinates of the path
 	 */
 	public List<Coord> getCoords() {
-		return this.coords;
+		generateAll();
+		List<Coord> list = new ArrayList<Coord>(nrofWaypoints);
+		for (int i=0; i<nrofWaypoints; i++) {
+			list.add(new Coord(coords[2*i], coords[2*i + 1]));
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns the number of waypoints in this path (generated so far)
+	 * @return the number of waypoints
+	 */
+	public int getNrofWaypoints() {
+		return this.nrofWaypoints;
 	}
 	
 	/**
@@ -70,9 +124,18 @@ public class Path  {
 	 * @param wp The waypoint to add
 	 */
 	public void addWaypoint(Coord wp) {
-		assert this.speeds.size() <= 1 : "This method should be used only for" +
+		addWaypoint(wp.getX(), wp.getY());
+	}
+	
+	/**
+	 * Adds a new waypoint to the end of the path.
+	 * @param x The x coordinate of the waypoint
+	 * @param y The y coordinate of the waypoint
+	 */
+	public void addWaypoint(double x, double y) {
+		assert this.nrofSpeeds <= 1 : "This method should be used only for" +
 			" paths with constant speed";
-		this.coords.add(wp);
+		addCoord(x, y);
 	}
 	
 	/**
@@ -81,8 +144,12 @@ public class Path  {
 	 * @param speed The speed towards that waypoint
 	 */
 	public void addWaypoint(Coord wp, double speed) {
-		this.coords.add(wp);
-		this.speeds.add(speed);
+		addCoord(wp.getX(), wp.getY());
+		if (nrofSpeeds == speeds.length) {
+			speeds = Arrays.copyOf(speeds, Math.max(coords.length / 2, 
+					nrofSpeeds + 1));
+		}
+		speeds[nrofSpeeds++] = speed;
 	}
 	
 	/**
@@ -90,8 +157,19 @@ public class Path  {
 	 * @return the next waypoint
 	 */
 	public Coord getNextWaypoint() {
+		Coord c = new Coord(0, 0);
+		getNextWaypoint(c);
+		return c;
+	}
+	
+	/**
+	 * Sets the given coordinate to the next waypoint on this path
+	 * @param c The coordinate to set
+	 */
+	public void getNextWaypoint(Coord c) {
 		assert hasNext() : "Path didn't have " + (nextWpIndex+1) + ". waypoint";
-		return coords.get(nextWpIndex++);
+		c.setLocation(coords[2*nextWpIndex], coords[2*nextWpIndex + 1]);
+		nextWpIndex++;
 	}
 	
 	/**
@@ -99,7 +177,10 @@ public class Path  {
 	 * @return true if the path has more waypoints, false if not
 	 */
 	public boolean hasNext() {
-		return nextWpIndex < this.coords.size();
+		if (nextWpIndex < this.nrofWaypoints) {
+			return true;
+		}
+		return generateNext();
 	}
 	
 	/**
@@ -108,15 +189,94 @@ public class Path  {
 	 * @return the speed towards the next waypoint
 	 */
 	public double getSpeed() {
-		assert speeds.size() != 0 : "No speed set"; 
+		assert nrofSpeeds != 0 : "No speed set"; 
 		assert nextWpIndex != 0 : "No waypoint asked";
 		
-		if (speeds.size() == 1) {
-			return speeds.get(0);
+		if (nrofSpeeds == 1) {
+			return speeds[0];
 		}
 		else {
-			return speeds.get(nextWpIndex-1);
+			return speeds[nextWpIndex-1];
+		}
+	}
+	
+	/**
+	 * Adds a coordinate to the end of the coordinate array
+	 */
+	private void addCoord(double x, double y) {
+		if (2 * nrofWaypoints == coords.length) {
+			coords = Arrays.copyOf(coords, Math.max(coords.length * 2, 2));
 		}
+		coords[2*nrofWaypoints] = x;
+		coords[2*nrofWaypoints + 1] = y;
+		nrofWaypoints++;
+	}
+	
+	/**
+	 * Asks the next waypoint from the generator (if there is one)
+	 * @return True if a new waypoint was added, false if not
+	 */
+	private boolean generateNext() {
+		if (generator == null) {
+			return false;
+		}
+		if (generated == null) {
+			generated = new Coord(0, 0);
+		}
+		if (!generator.nextWaypoint(generated)) {
+			generator = null; // no more waypoints
+			return false;
+		}
+		addCoord(generated.getX(), generated.getY());
+		return true;
+	}
+	
+	/**
+	 * Generates all the remaining waypoints (if the path has a generator)
+	 */
+	private void generateAll() {
+		while (generateNext()) {
+			// generate until done
+		}
+	}
+	
+	/**
+	 * Writes the waypoints, speeds and the position of this path. The
+	 * waypoints of a generator are generated first.
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	void writeState(DataOutput out) throws IOException {
+		generateAll();
+		out.writeInt(nrofWaypoints);
+		for (int i=0; i<2*nrofWaypoints; i++) {
+			out.writeDouble(coords[i]);
+		}
+		out.writeInt(nrofSpeeds);
+		for (int i=0; i<nrofSpeeds; i++) {
+			out.writeDouble(speeds[i]);
+		}
+		out.writeInt(nextWpIndex);
+	}
+	
+	/**
+	 * Reads the state written by {@link #writeState(DataOutput)}
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 */
+	void readState(DataInput in) throws IOException {
+		this.nrofWaypoints = in.readInt();
+		this.coords = new double[Math.max(2*nrofWaypoints, 2)];
+		for (int i=0; i<2*nrofWaypoints; i++) {
+			coords[i] = in.readDouble();
+		}
+		this.nrofSpeeds = in.readInt();
+		this.speeds = new double[Math.max(nrofSpeeds, 1)];
+		for (int i=0; i<nrofSpeeds; i++) {
+			speeds[i] = in.readDouble();
+		}
+		this.nextWpIndex = in.readInt();
+		this.generator = null;
 	}
 	
 	/**
@@ -125,17 +285,26 @@ public class Path  {
 	 */
 	public String toString() {
 		String s ="";
-		for (int i=0, n=coords.size(); i<n; i++) {
-			Coord c = coords.get(i);
+		for (int i=0, n=nrofWaypoints; i<n; i++) {
+			Coord c = new Coord(coords[2*i], coords[2*i + 1]);
 			s+= "->" + c;
-			if (speeds.size() > 1) {
-				s += String.format("@%.2f ",speeds.get(i));
+			if (nrofSpeeds > 1) {
+				s += String.format("@%.2f ",speeds[i]);
 			}
 		}
 		return s;
 	}
 	
+	/**
+	 * Returns the speeds of this path in a new list. A path with a 
+	 * constant speed has only one speed.
+	 * @return the speeds of the path
+	 */
 	public List<Double> getSpeeds() {
-		return this.speeds;
+		List<Double> list = new ArrayList<Double>(nrofSpeeds);
+		for (int i=0; i<nrofSpeeds; i++) {
+			list.add(speeds[i]);
+		}
+		return list;
 	}
 }
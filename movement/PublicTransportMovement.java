@@ -1,5 +1,6 @@
 package movement;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -79,4 +80,16 @@ public abstract class PublicTransportMovement extends MapRouteMovement {
 	}
 	
 	abstract public int getLayer();
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeBoolean(this.startMode);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.startMode = in.readBoolean();
+	}
 }
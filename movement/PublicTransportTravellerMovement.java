@@ -4,6 +4,7 @@
  */
 package movement;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 
@@ -191,6 +192,11 @@ public class PublicTransportTravellerMovement extends MapBasedMovement implement
 	public MapBasedMovement replicate() {
 		return new PublicTransportTravellerMovement(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return false; /* replicates register to the control system */
+	}
 
 	public int getState() {
 		return state;
@@ -393,4 +399,42 @@ public class PublicTransportTravellerMovement extends MapBasedMovement implement
 	public void setState(int state){
 		this.state = state;
 	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(this.state);
+		out.writePath(this.nextPath);
+		out.writeCoord(this.location);
+		out.writeCoord(this.latestBusStop);
+		out.writeCoord(this.startBusStop);
+		out.writeCoord(this.endBusStop);
+		out.writeBoolean(this.takeBus);
+		out.writeInt(this.cbtd.state);
+		out.writeDouble(this.probTakeOtherBus);
+		out.writeInt(probabilities != null ? probabilities.length : -1);
+		for (int i=0; probabilities != null && i<probabilities.length; i++) {
+			out.writeDouble(probabilities[i]);
+		}
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.state = in.readInt();
+		this.nextPath = in.readPath();
+		this.location = in.readCoord();
+		this.latestBusStop = in.readCoord();
+		this.startBusStop = in.readCoord();
+		this.endBusStop = in.readCoord();
+		this.takeBus = in.readBoolean();
+		this.cbtd.state = in.readInt();
+		this.probTakeOtherBus = in.readDouble();
+		/* the probabilities (shared with the decider) are the same as
+		 * the ones that were written (they are in the state only so that
+		 * a state written with other settings doesn't match) */
+		for (int i=0, n=in.readInt(); i<n; i++) {
+			probabilities[i] = in.readDouble();
+		}
+	}
 }
@@ -1,5 +1,7 @@
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 import core.Settings;
 
@@ -51,8 +53,8 @@ extends MovementModel {
     @Override
     public Coord getInitialLocation() {
         Coord c
-            = new Coord( MovementModel.rng.nextDouble() * super.getMaxX(),
-                         MovementModel.rng.nextDouble() * super.getMaxY() );
+            = new Coord( rng.nextDouble() * super.getMaxX(),
+                         rng.nextDouble() * super.getMaxY() );
         this.lastWaypoint = c;
 
         return c;
@@ -108,7 +110,7 @@ extends MovementModel {
         do {
             done = true;
 
-            angle = MovementModel.rng.nextDouble() * 2 * Math.PI - Math.PI;
+            angle = rng.nextDouble() * 2 * Math.PI - Math.PI;
 
             double[] bottomParams
                     = this.getBottomParams( x0, y0, angle );
@@ -216,4 +218,26 @@ extends MovementModel {
                ( t[ 1 ] > 0 );
     }
     //========================================================================//
+    
+    @Override
+    public boolean isSnapshotSupported() {
+        return true;
+    }
+    
+    @Override
+    public boolean isParallelReplicationSupported() {
+        return true;
+    }
+    
+    @Override
+    public void writeState(StateOutput out) throws IOException {
+        super.writeState(out);
+        out.writeCoord(this.lastWaypoint);
+    }
+    
+    @Override
+    public void readState(StateInput in) throws IOException {
+        super.readState(in);
+        this.lastWaypoint = in.readCoord();
+    }
 }
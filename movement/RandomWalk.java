@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 import core.Settings;
 
@@ -92,4 +94,26 @@ public class RandomWalk extends MovementModel implements SwitchableMovement {
 	public boolean isReady() {
 		return true;
 	}
+	
+	@Override
+	public boolean isSnapshotSupported() {
+		return true;
+	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeCoord(this.lastWaypoint);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.lastWaypoint = in.readCoord();
+	}
 }
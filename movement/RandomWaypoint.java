@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 import core.Settings;
 
@@ -41,7 +43,7 @@ public class RandomWaypoint extends MovementModel {
 	public Path getPath() {
 		Path p;
 		p = new Path(generateSpeed());
-		p.addWaypoint(lastWaypoint.clone());
+		p.addWaypoint(lastWaypoint);
 		Coord c = lastWaypoint;
 		
 		for (int i=0; i<PATH_LENGTH; i++) {
@@ -62,4 +64,26 @@ public class RandomWaypoint extends MovementModel {
 		return new Coord(rng.nextDouble() * getMaxX(),
 				rng.nextDouble() * getMaxY());
 	}
+	
+	@Override
+	public boolean isSnapshotSupported() {
+		return true;
+	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
+	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		out.writeCoord(this.lastWaypoint);
+	}
+	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		this.lastWaypoint = in.readCoord();
+	}
 }
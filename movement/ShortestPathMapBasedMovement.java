@@ -4,11 +4,13 @@
  */
 package movement;
 
+import java.util.Iterator;
 import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
 import movement.map.PointsOfInterest;
+import core.Coord;
 import core.Settings;
 
 /**
@@ -42,12 +44,12 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 	protected ShortestPathMapBasedMovement(ShortestPathMapBasedMovement mbm) {
 		super(mbm);
 		this.pathFinder = mbm.pathFinder;
-		this.pois = mbm.pois;
+		this.pois = new PointsOfInterest(mbm.pois, rng);
 	}
 	
 	@Override
 	public Path getPath() {
-		Path p = new Path(generateSpeed());
+		double speed = generateSpeed();
 		MapNode to = pois.selectDestination();
 		
 		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
@@ -55,10 +57,18 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 		// this assertion should never fire if the map is checked in read phase
 		assert nodePath.size() > 0 : "No path from " + lastMapNode + " to " +
 			to + ". The simulation map isn't fully connected";
-				
-		for (MapNode node : nodePath) { // create a Path from the shortest path
-			p.addWaypoint(node.getLocation());
-		}
+		
+		/* waypoints are read from the shortest path as the path is travelled */
+		final Iterator<MapNode> nodes = nodePath.iterator();
+		Path p = new Path(speed, new WaypointGenerator() {
+			public boolean nextWaypoint(Coord c) {
+				if (!nodes.hasNext()) {
+					return false;
+				}
+				c.setLocation(nodes.next().getLocation());
+				return true;
+			}
+		});
 		
 		lastMapNode = to;
 		
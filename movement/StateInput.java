@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import movement.map.MapNode;
+import movement.map.SimMap;
+import util.RestorableRandom;
+import core.Coord;
+import core.SimError;
+
+/**
+ * Input stream for reading movement state written with {@link StateOutput}.
+ * The state must be read into objects that were created the same way
+ * (i.e., with the same settings) as the objects whose state was written.
+ */
+public class StateInput extends DataInputStream {
+	/** the shared objects read so far, indexed by identifier */
+	private List<Object> references;
+
+	/**
+	 * Creates a new state input stream
+	 * @param in The stream to read the state from
+	 */
+	public StateInput(InputStream in) {
+		super(in);
+		this.references = new ArrayList<Object>();
+	}
+
+	/**
+	 * Reads a reference to a shared object
+	 * @return The identifier of the object or -1 for null
+	 * @throws IOException if reading fails
+	 */
+	public int readReference() throws IOException {
+		return readInt();
+	}
+
+	/**
+	 * Returns a shared object that has been read before
+	 * @param id The identifier of the object
+	 * @return The object or null if the object with the identifier has
+	 * not been read yet (i.e., its state must be read next)
+	 */
+	public Object getReference(int id) {
+		return (id >= 0 && id < references.size() ? references.get(id) : null);
+	}
+
+	/**
+	 * Adds a shared object whose state is read next
+	 * @param id The identifier of the object
+	 * @param o The object
+	 * @throws SimError if the identifiers are not read in order
+	 */
+	public void addReference(int id, Object o) {
+		if (id != references.size()) {
+			throw new SimError("Invalid state reference " + id);
+		}
+		references.add(o);
+	}
+
+	/**
+	 * Reads a coordinate
+	 * @return The coordinate or null
+	 * @throws IOException if reading fails
+	 */
+	public Coord readCoord() throws IOException {
+		if (!readBoolean()) {
+			return null;
+		}
+		double x = readDouble();
+		return new Coord(x, readDouble());
+	}
+
+	/**
+	 * Reads a map node
+	 * @param map The map the node is in
+	 * @return The map node or null
+	 * @throws IOException if reading fails
+	 * @throws SimError if there's no node in the read location
+	 */
+	public MapNode readMapNode(SimMap map) throws IOException {
+		Coord c = readCoord();
+		if (c == null) {
+			return null;
+		}
+		MapNode n = map.getNodeByCoord(c);
+		if (n == null) {
+			throw new SimError("No map node at " + c);
+		}
+		return n;
+	}
+
+	/**
+	 * Reads the state of a random number generator
+	 * @param rng The generator whose state is read
+	 * @throws IOException if reading fails
+	 * @throws SimError if the generator doesn't match the written one
+	 */
+	public void readRandom(Random rng) throws IOException {
+		int id = readReference();
+		if ((id < 0) != (rng == null)) {
+			throw new SimError("Random number generator mismatch");
+		}
+		if (id < 0) {
+			return;
+		}
+
+		Object known = getReference(id);
+		if (known == null) {
+			addReference(id, rng);
+			((RestorableRandom)rng).readState(this);
+		} else if (known != rng) {
+			throw new SimError("Random number generator mismatch");
+		}
+	}
+
+	/**
+	 * Reads a path
+	 * @return The path or null
+	 * @throws IOException if reading fails
+	 */
+	public Path readPath() throws IOException {
+		int id = readReference();
+		if (id < 0) {
+			return null;
+		}
+
+		Path path = (Path)getReference(id);
+		if (path == null) {
+			path = new Path();
+			addReference(id, path);
+			path.readState(this);
+		}
+		return path;
+	}
+}
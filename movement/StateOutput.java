@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import movement.map.MapNode;
+import util.RestorableRandom;
+import core.Coord;
+import core.SimError;
+
+/**
+ * Output stream for the movement state of hosts and movement models
+ * (see {@link MovementModel#writeState(StateOutput)}). In addition to the
+ * primitive values, the stream writes objects that may be shared between
+ * models (random number generators, paths, etc.) so that every object is
+ * written only once and the sharing is restored when the state is read
+ * with {@link StateInput}.
+ */
+public class StateOutput extends DataOutputStream {
+	/** identifiers of the shared objects written so far */
+	private Map<Object, Integer> references;
+
+	/**
+	 * Creates a new state output stream
+	 * @param out The stream to write the state to
+	 */
+	public StateOutput(OutputStream out) {
+		super(out);
+		this.references = new IdentityHashMap<Object, Integer>();
+	}
+
+	/**
+	 * Writes a reference to a shared object. If the object has not been
+	 * written before, the caller must write the state of the object right
+	 * after the reference.
+	 * @param o The object (may be null)
+	 * @return True if the object was not null and was written the first
+	 * time (i.e., its state must be written), false if not
+	 * @throws IOException if writing fails
+	 */
+	public boolean writeReference(Object o) throws IOException {
+		if (o == null) {
+			writeInt(-1);
+			return false;
+		}
+
+		Integer id = references.get(o);
+		if (id != null) {
+			writeInt(id);
+			return false;
+		}
+
+		id = references.size();
+		references.put(o, id);
+		writeInt(id);
+		return true;
+	}
+
+	/**
+	 * Writes a coordinate
+	 * @param c The coordinate (may be null)
+	 * @throws IOException if writing fails
+	 */
+	public void writeCoord(Coord c) throws IOException {
+		writeBoolean(c != null);
+		if (c != null) {
+			writeDouble(c.getX());
+			writeDouble(c.getY());
+		}
+	}
+
+	/**
+	 * Writes a map node (as the location of the node)
+	 * @param n The map node (may be null)
+	 * @throws IOException if writing fails
+	 */
+	public void writeMapNode(MapNode n) throws IOException {
+		writeCoord(n != null ? n.getLocation() : null);
+	}
+
+	/**
+	 * Writes the state of a random number generator
+	 * @param rng The generator (may be null)
+	 * @throws IOException if writing fails
+	 * @throws SimError if the generator's state can't be saved
+	 */
+	public void writeRandom(Random rng) throws IOException {
+		if (rng != null && !(rng instanceof RestorableRandom)) {
+			throw new SimError("Can't save the state of " + rng);
+		}
+		if (writeReference(rng)) {
+			((RestorableRandom)rng).writeState(this);
+		}
+	}
+
+	/**
+	 * Writes a path (including the position in the path)
+	 * @param path The path (may be null)
+	 * @throws IOException if writing fails
+	 */
+	public void writePath(Path path) throws IOException {
+		if (writeReference(path)) {
+			path.writeState(this);
+		}
+	}
+}
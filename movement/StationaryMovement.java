@@ -66,5 +66,14 @@ public class StationaryMovement extends MovementModel {
 	public StationaryMovement replicate() {
 		return new StationaryMovement(this);
 	}
-
+	
+	@Override
+	public boolean isSnapshotSupported() {
+		return true;
+	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 }
@@ -0,0 +1,22 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package movement;
+
+import core.Coord;
+
+/**
+ * Interface for classes that produce the waypoints of a {@link Path} one at
+ * a time, when the path is travelled, instead of adding all the waypoints
+ * to the path when it is created.
+ */
+public interface WaypointGenerator {
+	
+	/**
+	 * Sets the given coordinate to the next waypoint
+	 * @param c The coordinate to set
+	 * @return True if there was a next waypoint, false if the path ends
+	 */
+	public boolean nextWaypoint(Coord c);
+}
@@ -4,6 +4,8 @@
  */
 package movement;
 
+import java.io.IOException;
+
 import core.Coord;
 import core.DTNHost;
 import core.Settings;
@@ -188,6 +190,57 @@ public class WorkingDayMovement extends ExtendedMovementModel {
 		carMM.setHost(host);
 	}
 	
+	/**
+	 * Returns the movement models this model switches between
+	 * @return the movement models
+	 */
+	private MovementModel[] getSubModels() {
+		return new MovementModel[] {busTravellerMM, workerMM, homeMM,
+				eveningActivityMovement, carMM};
+	}
+	
+	@Override
+	public boolean isSnapshotSupported() {
+		return true;
+	}
 	
+	@Override
+	public void writeState(StateOutput out) throws IOException {
+		super.writeState(out);
+		MovementModel[] subModels = getSubModels();
+		int current = -1;
+		for (int i=0; i<subModels.length; i++) {
+			if (subModels[i] == getCurrentMovementModel()) {
+				current = i;
+			}
+		}
+		
+		out.writeInt(this.mode);
+		out.writeInt(current);
+		out.writeBoolean(this.movementUsedForTransfers == this.carMM);
+		out.writeDouble(this.ownCarProb);
+		out.writeDouble(this.doEveningActivityProb);
+		for (MovementModel mm : subModels) {
+			mm.writeState(out);
+		}
+	}
 	
+	@Override
+	public void readState(StateInput in) throws IOException {
+		super.readState(in);
+		MovementModel[] subModels = getSubModels();
+		
+		this.mode = in.readInt();
+		restoreCurrentMovementModel((SwitchableMovement)subModels[in.readInt()]);
+		if (in.readBoolean()) {
+			this.movementUsedForTransfers = this.carMM;
+		} else {
+			this.movementUsedForTransfers = this.busTravellerMM;
+		}
+		this.ownCarProb = in.readDouble();
+		this.doEveningActivityProb = in.readDouble();
+		for (MovementModel mm : subModels) {
+			mm.readState(in);
+		}
+	}
 }
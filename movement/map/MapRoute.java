@@ -6,6 +6,8 @@ package movement.map;
 
 import input.WKTReader;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -110,6 +112,26 @@ public class MapRoute {
 		return new MapRoute(type, stops);
 	}
 	
+	/**
+	 * Writes the position of this route (for warm-up snapshots)
+	 * @param out Where to write the state
+	 * @throws IOException if writing fails
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(this.index);
+		out.writeBoolean(this.comingBack);
+	}
+	
+	/**
+	 * Reads the position written by {@link #writeState(DataOutput)}
+	 * @param in Where to read the state from
+	 * @throws IOException if reading fails
+	 */
+	public void readState(DataInput in) throws IOException {
+		this.index = in.readInt();
+		this.comingBack = in.readBoolean();
+	}
+	
 	public String toString() {
 		return ((type == CIRCULAR) ? "Circular" : "Ping-pong") + " route with "+
 			getNrofStops() + " stops";
@@ -67,6 +67,20 @@ public class PointsOfInterest {
 		readPois(settings);
 	}
 	
+	/**
+	 * Copy constructor. The new object shares the POI lists of the 
+	 * prototype but draws its random numbers from the given generator.
+	 * @param poi The prototype
+	 * @param rng The random number generator to use
+	 */
+	public PointsOfInterest(PointsOfInterest poi, Random rng) {
+		this.poiLists = poi.poiLists;
+		this.poiProbs = poi.poiProbs;
+		this.map = poi.map;
+		this.okMapNodeTypes = poi.okMapNodeTypes;
+		this.rng = rng;
+	}
+	
 	/**
 	 * Selects a random destination from POIs or all MapNodes. Selecting among
 	 * POI groups is done by their probabilities. If sum of their probabilities
@@ -11,6 +11,8 @@ import core.DTNHost;
 import core.Settings;
 import core.SimError;
 import core.UpdateListener;
+import routing.ActiveRouter;
+import routing.MessageRouter;
 
 /**
  * Node energy level report. Reports the energy level of all (or only some) 
@@ -81,6 +83,12 @@ public class EnergyLevelReport extends Report implements UpdateListener {
 				!this.reportedNodes.contains(h.getAddress())) {
 				continue; /* node not in the list */
 			}
+			MessageRouter r = h.getRouter();
+			if (r instanceof ActiveRouter &&
+					((ActiveRouter)r).getEnergyModel() != null) {
+				/* bring lazily accounted energy level up to date */
+				((ActiveRouter)r).getEnergyModel().settle();
+			}
 			Double value = (Double)h.getComBus().
 				getProperty(routing.util.EnergyModel.ENERGY_VALUE_ID);
 			if (value == null) {
@@ -7,12 +7,15 @@ package routing;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 import routing.util.EnergyModel;
 import routing.util.MessageTransferAcceptPolicy;
 import routing.util.RoutingInfo;
+import routing.util.SummaryVector;
+import util.RandomStreams;
 import util.Tuple;
 
 import core.Connection;
@@ -36,6 +39,19 @@ public abstract class ActiveRouter extends MessageRouter {
 	/** should messages that final recipient marks as delivered be deleted
 	 * from message buffer */
 	protected boolean deleteDelivered;
+	
+	/** Summary vector exchange -setting id ({@value}). Boolean valued.
+	 * If set to true, routers exchange summary vectors of the messages they
+	 * have seen when a connection comes up and 
+	 * {@link #tryAllMessagesToAllConnections()} offers each peer only the 
+	 * messages that were missing from its vector (or that were received
+	 * after the exchange). Default=false. */
+	public static final String SUMMARY_VECTOR_S = "summaryVector";
+	/** should summary vectors be exchanged when connections come up */
+	protected boolean summaryVector;
+	/** messages the peer of each connection didn't have at the summary 
+	 * vector exchange (only used if summary vectors are enabled) */
+	private HashMap<Connection, List<Message>> missingMessages;
 		
 	/** prefix of all response message IDs */
 	public static final String RESPONSE_PREFIX = "R_";
@@ -61,6 +77,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		this.policy = new MessageTransferAcceptPolicy(s);
 		
 		this.deleteDelivered = s.getBoolean(DELETE_DELIVERED_S, false);
+		this.summaryVector = s.getBoolean(SUMMARY_VECTOR_S, false);
 		
 		if (s.contains(EnergyModel.INIT_ENERGY_S)) {
 			this.energy = new EnergyModel(s);
@@ -80,6 +97,7 @@ public abstract class ActiveRouter extends MessageRouter {
 	protected ActiveRouter(ActiveRouter r) {
 		super(r);
 		this.deleteDelivered = r.deleteDelivered;
+		this.summaryVector = r.summaryVector;
 		this.policy = r.policy;
 		this.energy = (r.energy != null ? r.energy.replicate() : null);
 	}
@@ -89,12 +107,17 @@ public abstract class ActiveRouter extends MessageRouter {
 		super.init(host, mListeners);
 		this.sendingConnections = new ArrayList<Connection>(1);
 		this.lastTtlCheck = 0;
+		if (this.summaryVector) {
+			this.missingMessages = new HashMap<Connection, List<Message>>();
+		}
 	}
 	
 	/**
 	 * Called when a connection's state changes. If energy modeling is enabled,
 	 * and a new connection is created to this node, reduces the energy for the
-	 * device discovery (scan response) amount
+	 * device discovery (scan response) amount. If summary vectors are
+	 * enabled, compares the messages of this router to the summary vector
+	 * of the other node when the connection comes up.
 	 * @param @con The connection whose state changed
 	 */
 	@Override
@@ -102,6 +125,47 @@ public abstract class ActiveRouter extends MessageRouter {
 		if (this.energy != null && con.isUp() && !con.isInitiator(getHost())) {
 			this.energy.reduceDiscoveryEnergy();
 		}
+		
+		if (this.summaryVector) {
+			if (con.isUp()) {
+				exchangeSummaryVectors(con);
+			}
+			else {
+				this.missingMessages.remove(con);
+			}
+		}
+	}
+	
+	/**
+	 * Called when the state of an interface of the host changes. If lazy 
+	 * energy accounting is used, updates the drain rate of the energy model.
+	 * @param ni The interface whose state changed
+	 */
+	@Override
+	public void changedInterfaceState(NetworkInterface ni) {
+		/* TODO: add support for other interfaces */
+		if (this.energy != null && ni == getHost().getInterface(1)) {
+			this.energy.updateDrainRate(ni);
+		}
+	}
+	
+	/**
+	 * Requests the summary vector of the other node of the connection and
+	 * stores the messages that the other node doesn't have as the messages
+	 * to offer through the connection.
+	 * @param con The connection that just came up
+	 */
+	private void exchangeSummaryVectors(Connection con) {
+		SummaryVector sv = 
+			con.getOtherNode(getHost()).getRouter().getSummaryVector();
+		List<Message> missing = new ArrayList<Message>();
+		
+		for (Message m : getMessageCollection()) {
+			if (!sv.contains(m.getId())) {
+				missing.add(m);
+			}
+		}
+		this.missingMessages.put(con, missing);
 	}
 	
 	@Override
@@ -163,6 +227,33 @@ public abstract class ActiveRouter extends MessageRouter {
 		return m;
 	}
 	
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		super.addToMessages(m, newMessage);
+		if (this.summaryVector) {
+			/* the message is not in any of the exchanged summary vectors */
+			for (List<Message> missing : this.missingMessages.values()) {
+				missing.add(m);
+			}
+		}
+	}
+	
+	/**
+	 * Removes a message from the buffer. If summary vectors are enabled, the
+	 * message is also removed from the messages to offer to the peers (a 
+	 * message with the same ID received later is a different object).
+	 */
+	@Override
+	protected Message removeFromMessages(String id) {
+		Message m = super.removeFromMessages(id);
+		if (m != null && this.summaryVector) {
+			for (List<Message> missing : this.missingMessages.values()) {
+				missing.remove(m);
+			}
+		}
+		return m;
+	}
+	
 	/**
 	 * Returns a list of connections this host currently has with other hosts.
 	 * @return a list of connections this host currently has with other hosts
@@ -449,6 +540,8 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * connections this node has. Messages are ordered using the 
 	 * {@link MessageRouter#sortByQueueMode(List)}. See 
 	 * {@link #tryMessagesToConnections(List, List)} for sending details.
+	 * If summary vectors are enabled, only the messages that the other
+	 * node was missing are tried (see {@link #SUMMARY_VECTOR_S}).
 	 * @return The connections that started a transfer or null if no connection
 	 * accepted a message.
 	 */
@@ -457,6 +550,10 @@ public abstract class ActiveRouter extends MessageRouter {
 		if (connections.size() == 0 || this.getNrofMessages() == 0) {
 			return null;
 		}
+		
+		if (this.summaryVector) {
+			return tryMissingMessagesToConnections(connections);
+		}
 
 		List<Message> messages = 
 			new ArrayList<Message>(this.getMessageCollection());
@@ -464,6 +561,58 @@ public abstract class ActiveRouter extends MessageRouter {
 
 		return tryMessagesToConnections(messages, connections);
 	}
+	
+	/**
+	 * Tries to send, for every connection, the messages that the other node
+	 * didn't have when summary vectors were exchanged. Messages that are no
+	 * longer in the buffer or that the other node rejects as old are removed
+	 * from the connection's list of missing messages.
+	 * @param connections The list of Connections to try
+	 * @return The connections that started a transfer or null if no connection
+	 * accepted a message.
+	 */
+	private Connection tryMissingMessagesToConnections(
+			List<Connection> connections) {
+		for (int i=0, n=connections.size(); i<n; i++) {
+			Connection con = connections.get(i);
+			List<Message> missing = this.missingMessages.get(con);
+			if (missing == null) {
+				/* vectors not exchanged (connection created before this 
+				 * router was initialized) -> do it now */
+				exchangeSummaryVectors(con);
+				missing = this.missingMessages.get(con);
+			}
+			
+			for (int j=0; j<missing.size(); ) {
+				Message m = missing.get(j);
+				if (getMessage(m.getId()) != m) {
+					missing.remove(j); // dropped or deleted since
+				} else {
+					j++;
+				}
+			}
+			if (missing.size() == 0) {
+				continue;
+			}
+			
+			List<Message> messages = new ArrayList<Message>(missing);
+			this.sortByQueueMode(messages);
+			for (Message m : messages) {
+				int retVal = startTransfer(m, con);
+				if (retVal == RCV_OK) {
+					return con;	// accepted a message, don't try others
+				}
+				else if (retVal == DENIED_OLD) {
+					missing.remove(m); // the other node got it from elsewhere
+				}
+				else if (retVal > 0) {
+					break; // should try later -> don't bother trying others
+				}
+			}
+		}
+		
+		return null;
+	}
 		
 	/**
 	 * Exchanges deliverable (to final recipient) messages between this host
@@ -509,7 +658,8 @@ public abstract class ActiveRouter extends MessageRouter {
 			return; // nothing to shuffle
 		}
 		
-		Random rng = new Random(SimClock.getIntTime());
+		Random rng = RandomStreams.newRandom(SimClock.getIntTime(),
+				getHost(), RandomStreams.ROUTING);
 		Collections.shuffle(messages, rng);	
 	}
 	
@@ -567,6 +717,33 @@ public abstract class ActiveRouter extends MessageRouter {
 		return false;
 	}
 	
+	/**
+	 * Returns true if the router is idle. An active router also needs its 
+	 * update calls for finalizing transfers and for the energy model, 
+	 * unless the model uses lazy accounting.
+	 * @return true if the router has no messages, applications, sending 
+	 * connections nor an energy model that reduces the energy on updates
+	 */
+	@Override
+	public boolean isIdle() {
+		return super.isIdle() && this.sendingConnections.isEmpty() &&
+			(this.energy == null || this.energy.isLazy());
+	}
+	
+	/**
+	 * Returns the time until which the router is idle. A router with a 
+	 * lazy energy model must be updated when the energy runs out.
+	 * @return The time until which the router is idle
+	 */
+	@Override
+	public double getIdleUntil() {
+		double until = super.getIdleUntil();
+		if (this.energy != null) {
+			until = Math.min(until, this.energy.getDepletionTime());
+		}
+		return until;
+	}
+	
 	/**
 	 * Returns true if the node has energy left (i.e., energy modeling is
 	 * enabled OR (is enabled and model has energy left))
@@ -576,6 +753,14 @@ public abstract class ActiveRouter extends MessageRouter {
 		return this.energy == null || this.energy.getEnergy() > 0;
 	}
 	
+	/**
+	 * Returns the energy model of the router
+	 * @return the energy model or null if energy is not modeled
+	 */
+	public EnergyModel getEnergyModel() {
+		return this.energy;
+	}
+	
 	/**
 	 * Checks out all sending connections to finalize the ready ones 
 	 * and abort those whose connection went down. Also drops messages
@@ -595,6 +780,12 @@ public abstract class ActiveRouter extends MessageRouter {
 			/* finalize ready transfers */
 			if (con.isMessageTransferred()) {
 				if (con.getMessage() != null) {
+					if (this.summaryVector &&
+							this.missingMessages.containsKey(con)) {
+						/* the other node has it now */
+						this.missingMessages.get(con).remove(
+								getMessage(con.getMessage().getId()));
+					}
 					transferDone(con);
 					con.finalizeTransfer();
 				} /* else: some other entity aborted transfer */
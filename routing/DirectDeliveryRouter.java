@@ -31,9 +31,19 @@ public class DirectDeliveryRouter extends ActiveRouter {
 			return; // started a transfer
 		}
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	@Override
 	public DirectDeliveryRouter replicate() {
 		return new DirectDeliveryRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 }
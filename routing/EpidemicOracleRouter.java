@@ -164,6 +164,11 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		   are created or new messages are created or received, and transfers
 		   are finalized immediately */
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	
 	@Override
@@ -171,6 +176,11 @@ public class EpidemicOracleRouter extends ActiveRouter {
 		return new EpidemicOracleRouter(this);
 	}
 	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return false; /* replicates are added to the list of all routers */
+	}
+	
 	/**
 	 * Resets the static router list
 	 */
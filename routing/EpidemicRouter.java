@@ -46,11 +46,21 @@ public class EpidemicRouter extends ActiveRouter {
 		// then try any/all message to any/all connection
 		this.tryAllMessagesToAllConnections();
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	
 	@Override
 	public EpidemicRouter replicate() {
 		return new EpidemicRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 
 }
\ No newline at end of file
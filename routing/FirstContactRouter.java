@@ -59,6 +59,11 @@ public class FirstContactRouter extends ActiveRouter {
 		
 		tryAllMessagesToAllConnections();
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	@Override
 	protected void transferDone(Connection con) {
@@ -70,5 +75,10 @@ public class FirstContactRouter extends ActiveRouter {
 	public FirstContactRouter replicate() {
 		return new FirstContactRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 
 }
\ No newline at end of file
@@ -590,6 +590,11 @@ public class FloatingContentRouter extends ActiveRouter {
 		return new FloatingContentRouter(this);
 	}
 
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return false; /* replicates share the location rng */
+	}
+
 	@Override	
 	public Message messageTransferred(String id, DTNHost from) {
 		Message m = super.messageTransferred (id, from);
@@ -105,11 +105,21 @@ public class LifeRouter extends ActiveRouter {
 		}
 		
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 
 	@Override
 	public LifeRouter replicate() {
 		return new LifeRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 
 }
\ No newline at end of file
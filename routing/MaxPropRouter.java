@@ -5,6 +5,7 @@
 package routing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -14,7 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MaxPropCostCache;
 import routing.maxprop.MeetingProbabilitySet;
 import routing.util.RoutingInfo;
 import util.Tuple;
@@ -51,16 +52,10 @@ public class MaxPropRouter extends ActiveRouter {
 	/** meeting probabilities of all hosts from this host's point of view 
 	 * mapped using host's network address */
 	private Map<Integer, MeetingProbabilitySet> allProbs;
-	/** the cost-to-node calculator */
-	private MaxPropDijkstra dijkstra;	
+	/** the cost-to-node calculator and cache */
+	private MaxPropCostCache costCache;
 	/** IDs of the messages that are known to have reached the final dst */
 	private Set<String> ackedMessageIds;
-	/** mapping of the current costs for all messages. This should be set to
-	 * null always when the costs should be updated (a host is met or a new
-	 * message is received) */
-	private Map<Integer, Double> costsForMessages;
-	/** From host of the last cost calculation */
-	private DTNHost lastCostFrom;
 	
 	/** Map of which messages have been sent to which hosts from this host */
 	private Map<DTNHost, Set<String>> sentMessages;
@@ -114,7 +109,7 @@ public class MaxPropRouter extends ActiveRouter {
 		this.alpha = r.alpha;
 		this.probs = new MeetingProbabilitySet(probSetMaxSize, this.alpha);
 		this.allProbs = new HashMap<Integer, MeetingProbabilitySet>();
-		this.dijkstra = new MaxPropDijkstra(this.allProbs);
+		this.costCache = new MaxPropCostCache(this.allProbs);
 		this.ackedMessageIds = new HashSet<String>();
 		this.avgSamples = new int[BYTES_TRANSFERRED_AVG_SAMPLES];
 		this.sentMessages = new HashMap<DTNHost, Set<String>>();
@@ -125,8 +120,6 @@ public class MaxPropRouter extends ActiveRouter {
 		super.changedConnection(con);
 		
 		if (con.isUp()) { // new connection
-			this.costsForMessages = null; // invalidate old cost estimates
-			
 			if (con.isInitiator(getHost())) {
 				/* initiator performs all the actions on behalf of the
 				 * other node too (so that the meeting probs are updated
@@ -151,10 +144,12 @@ public class MaxPropRouter extends ActiveRouter {
 				/* exchange the transitive probabilities */
 				this.updateTransitiveProbs(otherRouter.allProbs);
 				otherRouter.updateTransitiveProbs(this.allProbs);
-				this.allProbs.put(otherHost.getAddress(),
-						otherRouter.probs.replicate());
-				otherRouter.allProbs.put(getHost().getAddress(),
-						this.probs.replicate());
+				this.updateProbsOf(otherHost.getAddress(), otherRouter.probs);
+				otherRouter.updateProbsOf(getHost().getAddress(), this.probs);
+				
+				/* meeting probabilities changed -> invalidate old costs */
+				this.invalidateCosts();
+				otherRouter.invalidateCosts();
 			}
 		}
 		else {
@@ -172,13 +167,43 @@ public class MaxPropRouter extends ActiveRouter {
 	private void updateTransitiveProbs(Map<Integer, MeetingProbabilitySet> p) {
 		for (Map.Entry<Integer, MeetingProbabilitySet> e : p.entrySet()) {
 			MeetingProbabilitySet myMps = this.allProbs.get(e.getKey()); 
-			if (myMps == null || 
-				e.getValue().getLastUpdateTime() > myMps.getLastUpdateTime() ) {
+			if (myMps == null) {
 				this.allProbs.put(e.getKey(), e.getValue().replicate());
 			}
+			else if (e.getValue().getLastUpdateTime() > 
+					myMps.getLastUpdateTime()) {
+				myMps.updateFrom(e.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Updates this host's copy of another host's meeting probabilities. 
+	 * If there already is a copy, only the changes since the copy's version
+	 * are applied.
+	 * @param address Address of the other host
+	 * @param p The other host's meeting probabilities
+	 */
+	private void updateProbsOf(int address, MeetingProbabilitySet p) {
+		MeetingProbabilitySet myMps = this.allProbs.get(address);
+		if (myMps == null) {
+			this.allProbs.put(address, p.replicate());
+		}
+		else {
+			myMps.updateFrom(p);
 		}
 	}
 	
+	/**
+	 * Invalidates the cached message delivery costs. Must be called whenever 
+	 * the meeting probabilities known by this host change.
+	 */
+	private void invalidateCosts() {
+		/* make sure own probabilities are used (and not some older copy) */
+		this.allProbs.put(getHost().getAddress(), this.probs);
+		this.costCache.invalidate();
+	}
+	
 	/**
 	 * Deletes the messages from the message buffer that are known to be ACKed
 	 */
@@ -192,7 +217,6 @@ public class MaxPropRouter extends ActiveRouter {
 	
 	@Override
 	public Message messageTransferred(String id, DTNHost from) {
-		this.costsForMessages = null; // new message -> invalidate costs
 		Message m = super.messageTransferred(id, from);
 		/* was this node the final recipient of the message? */
 		if (isDeliveredMessage(m)) {
@@ -270,19 +294,21 @@ public class MaxPropRouter extends ActiveRouter {
     @Override
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
 		Collection<Message> messages = this.getMessageCollection();
-		List<Message> validMessages = new ArrayList<Message>();
+		MaxPropComparator comparator = 
+			new MaxPropComparator(this.calcThreshold());
+		Message last = null;
 
+		/* find the message that would be last in MaxProp's order */
 		for (Message m : messages) {	
 			if (excludeMsgBeingSent && isSending(m.getId())) {
 				continue; // skip the message(s) that router is sending
 			}
-			validMessages.add(m);
+			if (last == null || comparator.compare(m, last) >= 0) {
+				last = m;
+			}
 		}
 		
-		Collections.sort(validMessages, 
-				new MaxPropComparator(this.calcThreshold())); 
-		
-		return validMessages.get(validMessages.size()-1); // return last message
+		return last;
 	}
 	
 	@Override
@@ -299,42 +325,24 @@ public class MaxPropRouter extends ActiveRouter {
 		
 		tryOtherMessages();	
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	/**
 	 * Returns the message delivery cost between two hosts from this host's
 	 * point of view. If there is no path between "from" and "to" host, 
-	 * Double.MAX_VALUE is returned. Paths are calculated only to hosts
-	 * that this host has messages to.
+	 * Double.MAX_VALUE is returned. The costs are calculated once per
+	 * "from" host and cached until the meeting probabilities change.
 	 * @param from The host where a message is coming from
 	 * @param to The host where a message would be destined to
 	 * @return The cost of the cheapest path to the destination or 
 	 * Double.MAX_VALUE if such a path doesn't exist
 	 */
 	public double getCost(DTNHost from, DTNHost to) {
-		/* check if the cached values are OK */
-		if (this.costsForMessages == null || lastCostFrom != from) {
-			/* cached costs are invalid -> calculate new costs */
-			this.allProbs.put(getHost().getAddress(), this.probs);
-			int fromIndex = from.getAddress();
-			
-			/* calculate paths only to nodes we have messages to 
-			 * (optimization) */
-			Set<Integer> toSet = new HashSet<Integer>();
-			for (Message m : getMessageCollection()) {
-				toSet.add(m.getTo().getAddress());
-			}
-						
-			this.costsForMessages = dijkstra.getCosts(fromIndex, toSet);
-			this.lastCostFrom = from; // store source host for caching checks
-		}
-		
-		if (costsForMessages.containsKey(to.getAddress())) {
-			return costsForMessages.get(to.getAddress());
-		}
-		else {
-			/* there's no known path to the given host */
-			return Double.MAX_VALUE;
-		}
+		return this.costCache.getCost(from.getAddress(), to.getAddress());
 	}
 	
 	/**
@@ -415,35 +423,39 @@ public class MaxPropRouter extends ActiveRouter {
 			return 0; // no need for the threshold 
 		}
 		
-		/* creates a copy of the messages list, sorted by hop count */
-		ArrayList<Message> msgs = new ArrayList<Message>();
-		msgs.addAll(getMessageCollection());
-		if (msgs.size() == 0) {
+		/* sums up the sizes (and counts) of the messages per hop count */
+		long[] sizes = new long[8];
+		int[] counts = new int[8];
+		int maxHopCount = -1;
+		for (Message m : getMessageCollection()) {
+			int hops = m.getHopCount();
+			if (hops >= sizes.length) {
+				int newLength = Math.max(hops + 1, sizes.length * 2);
+				sizes = Arrays.copyOf(sizes, newLength);
+				counts = Arrays.copyOf(counts, newLength);
+			}
+			sizes[hops] += m.getSize();
+			counts[hops]++;
+			maxHopCount = Math.max(maxHopCount, hops);
+		}
+		if (maxHopCount < 0) {
 			return 0; // no messages -> no need for threshold
 		}
-		/* anonymous comparator class for hop count comparison */
-		Comparator<Message> hopCountComparator = new Comparator<Message>() {
-			public int compare(Message m1, Message m2) {
-				return m1.getHopCount() - m2.getHopCount();
+		
+		/* finds the hop count of the first message (in hop count order)
+		 * that is beyond the calculated portion */
+		int hops = 0;
+		long portion = p;
+		for (int i=0; i<=maxHopCount && portion>0; i++) {
+			if (counts[i] > 0) {
+				portion -= sizes[i];
+				hops = i;
 			}
-		};
-		Collections.sort(msgs, hopCountComparator);
-
-		/* finds the first message that is beyond the calculated portion */
-		int i=0;
-		for (int n=msgs.size(); i<n && p>0; i++) {
-			p -= msgs.get(i).getSize();
 		}
 		
-		i--; // the last round moved i one index too far 
-		if (i < 0) {
-			return 0;
-		}
-		
-		/* now i points to the first packet that exceeds portion p; 
-		 * the threshold is that packet's hop count + 1 (so that packet and
+		/* the threshold is that packet's hop count + 1 (so that packet and
 		 * perhaps some more are included in the priority part) */
-		return msgs.get(i).getHopCount() + 1;
+		return hops + 1;
 	}
 	
 	/**
@@ -574,13 +586,13 @@ public class MaxPropRouter extends ActiveRouter {
 	@Override
 	public RoutingInfo getRoutingInfo() {
 		RoutingInfo top = super.getRoutingInfo();
-		RoutingInfo ri = new RoutingInfo(probs.getAllProbs().size() + 
+		RoutingInfo ri = new RoutingInfo(probs.size() + 
 				" meeting probabilities");
 		
 		/* show meeting probabilities for this host */
-		for (Map.Entry<Integer, Double> e : probs.getAllProbs().entrySet()) {
-			Integer host = e.getKey();
-			Double value = e.getValue();			
+		for (int i=0; i<probs.size(); i++) {
+			int host = probs.getIndexAt(i);
+			double value = probs.getProbAt(i);
 			ri.addMoreInfo(new RoutingInfo(String.format("host %d : %.6f", 
 					host, value)));
 		}
@@ -597,4 +609,9 @@ public class MaxPropRouter extends ActiveRouter {
 		MaxPropRouter r = new MaxPropRouter(this);
 		return r;
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 }
\ No newline at end of file
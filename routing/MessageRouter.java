@@ -10,10 +10,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
 
 import routing.util.RoutingInfo;
+import routing.util.SummaryVector;
 
+import util.RandomStreams;
 import util.Tuple;
 
 import core.Application;
@@ -21,6 +22,7 @@ import core.Connection;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.NetworkInterface;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
@@ -175,6 +177,43 @@ public abstract class MessageRouter {
 				app.update(this.host);
 			}
 		}
+	}
+	
+	/**
+	 * Returns true if updating this router does nothing as long as the
+	 * host gets no new connections or messages. Used for parking idle
+	 * hosts (see {@link core.World#PARK_IDLE_HOSTS_S}). Parking is opt-in:
+	 * this implementation returns false unless the router is parkable (see
+	 * {@link #isParkable()}), and then true if the router has no messages 
+	 * (incoming or buffered) and no applications.
+	 * @return true if the router is idle
+	 */
+	public boolean isIdle() {
+		return isParkable() && this.messages.isEmpty() && 
+			this.incomingMessages.isEmpty() && this.applications.isEmpty();
+	}
+	
+	/**
+	 * Returns the time until which an idle router (see {@link #isIdle()})
+	 * needs no updates. Routers that have timed work to do while they are
+	 * otherwise idle override this.
+	 * @return {@link Double#MAX_VALUE}
+	 */
+	public double getIdleUntil() {
+		return Double.MAX_VALUE;
+	}
+	
+	/**
+	 * Returns true if the router's {@link #update()} does nothing but route
+	 * messages, so that the host can be parked when the router has no 
+	 * messages. Routers whose update does time driven work (e.g., samples 
+	 * the location or sends beacons) must not be parked. Routers known to 
+	 * be event driven override this; subclasses of them that add time 
+	 * driven work must override it again.
+	 * @return false
+	 */
+	protected boolean isParkable() {
+		return false;
 	}
 	
 	/**
@@ -183,6 +222,14 @@ public abstract class MessageRouter {
 	 */
 	public abstract void changedConnection(Connection con);	
 	
+	/**
+	 * Informs the router that the transfer state, activeness or scan 
+	 * interval of one of its host's interfaces may have changed. This
+	 * implementation does nothing.
+	 * @param ni The interface whose state changed
+	 */
+	public void changedInterfaceState(NetworkInterface ni) { }
+	
 	/**
 	 * Returns a message by ID.
 	 * @param id ID of the message
@@ -225,6 +272,22 @@ public abstract class MessageRouter {
 	protected boolean isBlacklistedMessage(String id) {
 		return this.blacklistedMessages.containsKey(id);
 	}
+	
+	/**
+	 * Returns a summary vector of the IDs of all the messages this router
+	 * would reject as already seen, i.e., the buffered, delivered and
+	 * blacklisted messages.
+	 * @return A new, sealed summary vector
+	 */
+	public SummaryVector getSummaryVector() {
+		SummaryVector sv = new SummaryVector(this.messages.size() +
+				this.deliveredMessages.size() +
+				this.blacklistedMessages.size());
+		sv.addAll(this.messages.keySet());
+		sv.addAll(this.deliveredMessages.keySet());
+		sv.addAll(this.blacklistedMessages.keySet());
+		return sv.seal();
+	}
 	
 	/**
 	 * Returns a reference to the messages of this router in collection.
@@ -505,7 +568,9 @@ public abstract class MessageRouter {
 	protected List sortByQueueMode(List list) {
 		switch (sendQueueMode) {
 		case Q_MODE_RANDOM:
-			Collections.shuffle(list, new Random(SimClock.getIntTime()));
+			Collections.shuffle(list, RandomStreams.newRandom(
+					SimClock.getIntTime(), getHost(),
+					RandomStreams.ROUTING));
 			break;
 		case Q_MODE_FIFO:
 			Collections.sort(list, 
@@ -646,6 +711,20 @@ public abstract class MessageRouter {
 	 */
 	public abstract MessageRouter replicate();
 	
+	/**
+	 * Returns true if this (prototype) router can be replicated by many 
+	 * threads at the same time. This requires that the replication doesn't
+	 * modify the prototype or other shared state. The applications of the
+	 * router are checked separately (see 
+	 * {@link Application#isParallelReplicationSupported()}). Routers whose
+	 * replication has been checked to be thread safe override this to 
+	 * return true.
+	 * @return true if the router can be replicated in parallel
+	 */
+	public boolean isParallelReplicationSupported() {
+		return false;
+	}
+	
 	/**
 	 * Returns a String presentation of this router
 	 * @return A String presentation of this router
@@ -31,6 +31,11 @@ public class PassiveRouter extends MessageRouter {
 		super.update();
 	}
 
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
+
 	@Override
 	public void changedConnection(Connection con) {
 		// -"-
@@ -40,4 +45,9 @@ public class PassiveRouter extends MessageRouter {
 	public MessageRouter replicate() {
 		return new PassiveRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 }
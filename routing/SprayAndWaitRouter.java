@@ -106,6 +106,11 @@ public class SprayAndWaitRouter extends ActiveRouter {
 			this.tryMessagesToConnections(copiesLeft, getConnections());
 		}
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	/**
 	 * Creates and returns a list of messages this router is currently
@@ -160,4 +165,9 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	public SprayAndWaitRouter replicate() {
 		return new SprayAndWaitRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 }
@@ -128,6 +128,11 @@ public class WaveRouter extends ActiveRouter {
 		}		
 		this.tryAllMessagesToAllConnections();
 	}
+
+	@Override
+	protected boolean isParkable() {
+		return true; // update only routes messages
+	}
 	
 	@Override
 	public Message messageTransferred(String id, DTNHost from) {
@@ -165,5 +170,10 @@ public class WaveRouter extends ActiveRouter {
 	public WaveRouter replicate() {
 		return new WaveRouter(this);
 	}
+	
+	@Override
+	public boolean isParallelReplicationSupported() {
+		return true;
+	}
 
 }
\ No newline at end of file
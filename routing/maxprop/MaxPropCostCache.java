@@ -0,0 +1,239 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.maxprop;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Shortest path cost calculator and cache for the MaxProp router module.
+ * Works like {@link MaxPropDijkstra} but stores the meeting probability
+ * graph in primitive arrays (indexed by host address) and caches the costs
+ * from every source node that has been asked for. The cached costs are
+ * valid until {@link #invalidate()} is called, i.e., until some of the
+ * meeting probability sets change; new messages or changes in the set of
+ * destinations don't require recalculation.
+ */
+public class MaxPropCostCache {
+	/** Value for infinite distance  */
+	private static final double INFINITY = Double.MAX_VALUE;
+
+	/** Mapping of to other nodes' (whom this node has met) probability sets */
+	private Map<Integer, MeetingProbabilitySet> probs;
+
+	/** is the graph (and the cached costs) up to date */
+	private boolean valid;
+	/** number of node indexes in the graph (largest address + 1) */
+	private int nrofNodes;
+	/** index of the first edge of each node in the edge arrays; the edges of
+	 * node n are at [edgeStart[n], edgeStart[n+1]) */
+	private int[] edgeStart;
+	/** destination node of each edge */
+	private int[] edgeTo;
+	/** cost of each edge (complement of the meeting probability) */
+	private double[] edgeCost;
+
+	/** cached costs from each source node (null if not calculated) */
+	private double[][] costs;
+
+	/** binary heap of unvisited nodes ordered by distance */
+	private int[] heap;
+	/** position of each node in the heap (-1 if not in the heap) */
+	private int[] heapPos;
+	private int heapSize;
+	private boolean[] visited;
+
+	/**
+	 * Constructor.
+	 * @param probs A reference to the mapping of the known hosts meeting
+	 * probability sets
+	 */
+	public MaxPropCostCache(Map<Integer, MeetingProbabilitySet> probs) {
+		this.probs = probs;
+		this.valid = false;
+	}
+
+	/**
+	 * Marks the cached costs invalid. Must be called whenever any of the
+	 * meeting probability sets of the mapping change or sets are added
+	 * to the mapping.
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Returns the cost of the cheapest path between two nodes. The cost is
+	 * the sum of complements of probabilities that all the links come up as
+	 * the next contact of the nodes.
+	 * @param from The index (address) of the start node
+	 * @param to The index (address) of the destination node
+	 * @return The cost or Double.MAX_VALUE if there's no known path
+	 */
+	public double getCost(int from, int to) {
+		if (!valid) {
+			buildGraph();
+		}
+
+		if (from >= nrofNodes || to >= nrofNodes) {
+			/* node is not in the graph; only the zero cost path to itself */
+			return (from == to ? 0 : INFINITY);
+		}
+
+		if (costs[from] == null) {
+			costs[from] = calcCosts(from);
+		}
+
+		return costs[from][to];
+	}
+
+	/**
+	 * Creates the primitive graph presentation of the meeting probability
+	 * sets and clears all the cached costs.
+	 */
+	private void buildGraph() {
+		int maxIndex = -1;
+		int nrofEdges = 0;
+
+		for (Map.Entry<Integer, MeetingProbabilitySet> e : probs.entrySet()) {
+			maxIndex = Math.max(maxIndex, e.getKey());
+			MeetingProbabilitySet mps = e.getValue();
+			for (int i=0, n=mps.size(); i<n; i++) {
+				maxIndex = Math.max(maxIndex, mps.getIndexAt(i));
+			}
+			nrofEdges += mps.size();
+		}
+
+		this.nrofNodes = maxIndex + 1;
+		this.edgeStart = new int[nrofNodes + 1];
+		this.edgeTo = new int[nrofEdges];
+		this.edgeCost = new double[nrofEdges];
+
+		/* count edges per node and turn the counts into start indexes */
+		for (Map.Entry<Integer, MeetingProbabilitySet> e : probs.entrySet()) {
+			edgeStart[e.getKey() + 1] += e.getValue().size();
+		}
+		for (int i=0; i<nrofNodes; i++) {
+			edgeStart[i + 1] += edgeStart[i];
+		}
+
+		int[] next = Arrays.copyOf(edgeStart, nrofNodes);
+		for (Map.Entry<Integer, MeetingProbabilitySet> e : probs.entrySet()) {
+			int from = e.getKey();
+			MeetingProbabilitySet mps = e.getValue();
+			for (int j=0, n=mps.size(); j<n; j++) {
+				int i = next[from]++;
+				edgeTo[i] = mps.getIndexAt(j);
+				edgeCost[i] = 1 - mps.getProbAt(j);
+			}
+		}
+
+		this.costs = new double[nrofNodes][];
+		this.heap = new int[nrofNodes];
+		this.heapPos = new int[nrofNodes];
+		this.visited = new boolean[nrofNodes];
+		this.valid = true;
+	}
+
+	/**
+	 * Calculates the costs from a source node to all other nodes
+	 * @param from The source node
+	 * @return Costs to all the nodes, indexed by node
+	 */
+	private double[] calcCosts(int from) {
+		double[] dist = new double[nrofNodes];
+		Arrays.fill(dist, INFINITY);
+		Arrays.fill(heapPos, -1);
+		Arrays.fill(visited, false);
+		heapSize = 0;
+
+		dist[from] = 0;
+		push(from, dist);
+
+		while (heapSize > 0) {
+			int node = pop(dist);
+			visited[node] = true;
+			double nodeDist = dist[node];
+
+			/* relax the neighbors */
+			for (int i=edgeStart[node], end=edgeStart[node+1]; i<end; i++) {
+				int n = edgeTo[i];
+				if (visited[n]) {
+					continue;
+				}
+				double nDist = nodeDist + edgeCost[i];
+				if (dist[n] > nDist) {
+					dist[n] = nDist;
+					if (heapPos[n] < 0) {
+						push(n, dist);
+					} else {
+						siftUp(heapPos[n], dist);
+					}
+				}
+			}
+		}
+
+		return dist;
+	}
+
+	/**
+	 * Adds a node to the heap
+	 */
+	private void push(int node, double[] dist) {
+		heap[heapSize] = node;
+		heapPos[node] = heapSize;
+		siftUp(heapSize++, dist);
+	}
+
+	/**
+	 * Removes and returns the node with the smallest distance from the heap
+	 */
+	private int pop(double[] dist) {
+		int top = heap[0];
+		heapPos[top] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPos[heap[0]] = 0;
+			siftDown(0, dist);
+		}
+		return top;
+	}
+
+	private void siftUp(int i, double[] dist) {
+		int node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (dist[heap[parent]] <= dist[node]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heapPos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		heapPos[node] = i;
+	}
+
+	private void siftDown(int i, double[] dist) {
+		int node = heap[i];
+		int half = heapSize >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize &&
+					dist[heap[child + 1]] < dist[heap[child]]) {
+				child++;
+			}
+			if (dist[node] <= dist[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapPos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = node;
+		heapPos[node] = i;
+	}
+}
@@ -0,0 +1,96 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package routing.maxprop;
+
+import java.util.Arrays;
+
+/**
+ * Changes of a {@link MeetingProbabilitySet} after some version. A delta
+ * is what two MaxProp nodes need to exchange to bring a copy of a meeting
+ * probability set up to date: the entries that were changed or removed after
+ * the copy's version, and the common scale factor of the values. Since the
+ * sets are bounded, a delta never has more than <CODE>probSetMaxSize</CODE>
+ * changed entries.
+ */
+public class MeetingProbabilityDelta {
+	/** does the delta contain the whole set (instead of only changes) */
+	final boolean full;
+	/** node indexes, unscaled values and versions of the changed entries */
+	final int[] ids;
+	final double[] raw;
+	final int[] versions;
+	/** node indexes and versions of the removed entries */
+	int[] removedIds;
+	int[] removedVersions;
+	int nrofRemoved;
+	
+	double scale;
+	int version;
+	int forgottenVersion;
+	double lastUpdateTime;
+	
+	/**
+	 * Creates a new delta with room for the given number of changed entries
+	 * @param full Does the delta contain the whole set
+	 * @param nrofChanged Number of changed entries
+	 */
+	MeetingProbabilityDelta(boolean full, int nrofChanged) {
+		this.full = full;
+		this.ids = new int[nrofChanged];
+		this.raw = new double[nrofChanged];
+		this.versions = new int[nrofChanged];
+		this.removedIds = new int[0];
+		this.removedVersions = new int[0];
+		this.nrofRemoved = 0;
+	}
+	
+	/**
+	 * Adds a removed entry to the delta
+	 * @param id Node index of the removed entry
+	 * @param v Version of the removal
+	 */
+	void addRemoval(int id, int v) {
+		if (nrofRemoved == removedIds.length) {
+			int newCapacity = Math.max(removedIds.length * 2, 4);
+			removedIds = Arrays.copyOf(removedIds, newCapacity);
+			removedVersions = Arrays.copyOf(removedVersions, newCapacity);
+		}
+		removedIds[nrofRemoved] = id;
+		removedVersions[nrofRemoved] = v;
+		nrofRemoved++;
+	}
+	
+	/**
+	 * Returns true if the delta contains the whole set instead of changes
+	 * @return true if the delta contains the whole set
+	 */
+	public boolean isFull() {
+		return this.full;
+	}
+	
+	/**
+	 * Returns the number of changed and removed entries in the delta
+	 * @return the number of changed and removed entries in the delta
+	 */
+	public int getNrofEntries() {
+		return this.ids.length + this.nrofRemoved;
+	}
+	
+	/**
+	 * Returns the (approximate) size of the delta in bytes when each changed
+	 * entry is sent as an index, value and version, and each removal as an
+	 * index and version
+	 * @return the size of the delta in bytes
+	 */
+	public int getSize() {
+		return 8 + 4 + 4 + 8 + 1 + ids.length * (4 + 8 + 4) + 
+			nrofRemoved * (4 + 4);
+	}
+	
+	public String toString() {
+		return (full ? "full " : "") + "delta of " + ids.length + 
+			" changed and " + nrofRemoved + " removed entries";
+	}
+}
@@ -4,6 +4,7 @@
  */
 package routing.maxprop;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,17 +13,49 @@ import core.SimClock;
 
 /**
  * Class for storing and manipulating the meeting probabilities for the MaxProp
- * router module.
+ * router module. The probabilities are stored in parallel primitive arrays
+ * sorted by node index and the normalization is done lazily: all values are
+ * stored unscaled and multiplied by a common scale factor when they are read.
+ * <P> Every change to the set gets a new version number so that copies of
+ * the set can be brought up to date with a {@link MeetingProbabilityDelta}
+ * containing only the entries that changed since the copy's version
+ * (see {@link #getDelta(int)} and {@link #applyDelta(MeetingProbabilityDelta)}).
+ * </P>
  */
 public class MeetingProbabilitySet {
 	public static final int INFINITE_SET_SIZE = Integer.MAX_VALUE;
-	/** meeting probabilities (probability that the next node one meets is X) */
-	private Map<Integer, Double> probs;
+	/** Scale factor below which the factor is folded into the values
+	 * (to keep the stored values from overflowing) */
+	private static final double MIN_SCALE = 1e-100;
+	/** How many removals are remembered for delta updates; copies that are 
+	 * older than the oldest remembered removal get full updates */
+	private static final int REMOVAL_LOG_SIZE = 32;
+	
+	/** node indexes of the entries in ascending order */
+	private int[] ids;
+	/** unscaled meeting probabilities (probability that the next node one 
+	 * meets is X); the real value is raw * scale */
+	private double[] raw;
+	/** version number of the last change of each entry */
+	private int[] versions;
+	/** number of entries */
+	private int size;
+	/** common scale factor of the values */
+	private double scale;
 	/** the time when this MPS was last updated */
 	private double lastUpdateTime;
 	/** the alpha parameter */
 	private double alpha;
-    private int maxSetSize;
+	private int maxSetSize;
+	
+	/** version number of the latest change */
+	private int version;
+	/** node indexes and versions of the latest removed entries (ring buffer)*/
+	private int[] removedIds;
+	private int[] removedVersions;
+	private int nrofRemoved;
+	/** version of the latest removal that is no longer in the removal log */
+	private int forgottenVersion;
 	
 	/**
 	 * Constructor. Creates a probability set with empty node-probability
@@ -32,14 +65,13 @@ public class MeetingProbabilitySet {
 	 */
 	public MeetingProbabilitySet(int maxSetSize, double alpha) {
 		this.alpha = alpha;
-		this.probs = new HashMap<Integer, Double>();
-        if (maxSetSize == INFINITE_SET_SIZE || maxSetSize < 1) {
-        	this.probs = new HashMap<Integer, Double>();
-        	this.maxSetSize = INFINITE_SET_SIZE;
-        } else {
-        	this.probs = new HashMap<Integer, Double>(maxSetSize);
-            this.maxSetSize = maxSetSize;
-        }
+		if (maxSetSize == INFINITE_SET_SIZE || maxSetSize < 1) {
+			this.maxSetSize = INFINITE_SET_SIZE;
+			init(8);
+		} else {
+			this.maxSetSize = maxSetSize;
+			init(maxSetSize);
+		}
 		this.lastUpdateTime = 0;
 	}
 	
@@ -60,10 +92,27 @@ public class MeetingProbabilitySet {
 		this(INFINITE_SET_SIZE, alpha);
 		double prob = 1.0/initiallyKnownNodes.size();
 		for (Integer i : initiallyKnownNodes) {
-			this.probs.put(i, prob);
+			setProb(i, prob);
 		}
 	}
 	
+	/**
+	 * Initializes the (empty) entry arrays and the removal log
+	 * @param capacity Initial capacity of the entry arrays
+	 */
+	private void init(int capacity) {
+		this.ids = new int[capacity];
+		this.raw = new double[capacity];
+		this.versions = new int[capacity];
+		this.size = 0;
+		this.scale = 1;
+		this.version = 0;
+		this.removedIds = new int[REMOVAL_LOG_SIZE];
+		this.removedVersions = new int[REMOVAL_LOG_SIZE];
+		this.nrofRemoved = 0;
+		this.forgottenVersion = 0;
+	}
+	
 	/**
 	 * Updates meeting probability for the given node index.
 	 * <PRE> P(b) = P(b)_old + alpha
@@ -73,38 +122,37 @@ public class MeetingProbabilitySet {
 	 * @param index The node index to update the probability for
 	 */
 	public void updateMeetingProbFor(Integer index) {
-        Map.Entry<Integer, Double> smallestEntry = null;
-        double smallestValue = Double.MAX_VALUE;
-
 		this.lastUpdateTime = SimClock.getTime();
 		
-		if (probs.size() == 0) { // first entry
-			probs.put(index, 1.0);
+		if (size == 0) { // first entry
+			setProb(index, 1.0);
 			return;
 		}
 		
-		double newValue = getProbFor(index) + alpha;
-		probs.put(index, newValue);
+		setProb(index, getProbFor(index) + alpha);
 
 		/* now the sum of all entries is 1+alpha;
 		 * normalize to one by dividing all the entries by 1+alpha */ 
-		for (Map.Entry<Integer, Double> entry : probs.entrySet()) {
-			entry.setValue(entry.getValue() / (1+alpha));
-            if (entry.getValue() < smallestValue) {
-                smallestEntry = entry;
-                smallestValue = entry.getValue();
-            }
-
+		this.scale /= (1+alpha);
+		if (this.scale < MIN_SCALE) {
+			foldScale();
 		}
 
-        if (probs.size() >= maxSetSize) {
-            core.Debug.p("Probsize: " + probs.size() + " dropping " + 
-                    probs.remove(smallestEntry.getKey()));
-        }
+		if (size >= maxSetSize) {
+			int smallest = 0;
+			for (int i=1; i<size; i++) {
+				if (raw[i] < raw[smallest]) {
+					smallest = i;
+				}
+			}
+			core.Debug.p("Probsize: " + size + " dropping " + 
+					raw[smallest] * scale);
+			remove(smallest);
+		}
 	}
 	
 	public void updateMeetingProbFor(Integer index, double iet)	{
-		probs.put(index, iet);
+		setProb(index, iet);
 	}
 	
 	/**
@@ -113,8 +161,9 @@ public class MeetingProbabilitySet {
 	 * @return the current delivery probability value
 	 */
 	public double getProbFor(Integer index) {
-		if (probs.containsKey(index)) {
-			return probs.get(index);
+		int i = Arrays.binarySearch(ids, 0, size, index);
+		if (i >= 0) {
+			return raw[i] * scale;
 		}
 		else {
 			/* the node with the given index has not been met */
@@ -123,11 +172,45 @@ public class MeetingProbabilitySet {
 	}
 	
 	/**
-	 * Returns a reference to the probability map of this probability set
-	 * @return a reference to the probability map of this probability set
+	 * Returns the number of entries in this probability set
+	 * @return the number of entries in this probability set
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Returns the node index of the entry at the given position. Entries are
+	 * ordered by node index.
+	 * @param i Position of the entry (0...size-1)
+	 * @return The node index
+	 */
+	public int getIndexAt(int i) {
+		return ids[i];
+	}
+	
+	/**
+	 * Returns the probability of the entry at the given position
+	 * @param i Position of the entry (0...size-1)
+	 * @return The probability
+	 */
+	public double getProbAt(int i) {
+		return raw[i] * scale;
+	}
+	
+	/**
+	 * Returns a new map of the node indexes and probabilities of this set.
+	 * Use {@link #size()}, {@link #getIndexAt(int)} and 
+	 * {@link #getProbAt(int)} to go through the values without creating 
+	 * objects.
+	 * @return a map of the probabilities of this probability set
 	 */
 	public Map<Integer, Double> getAllProbs() {
-		return this.probs;
+		Map<Integer, Double> map = new HashMap<Integer, Double>(size * 2);
+		for (int i=0; i<size; i++) {
+			map.put(ids[i], raw[i] * scale);
+		}
+		return map;
 	}
 	
 	/**
@@ -138,6 +221,16 @@ public class MeetingProbabilitySet {
 		return this.lastUpdateTime;
 	}
 	
+	/**
+	 * Returns the version number of this probability set. Every change
+	 * increases the version number and copies of the set have the version
+	 * of the original they are up to date with.
+	 * @return the version number of this probability set
+	 */
+	public int getVersion() {
+		return this.version;
+	}
+	
 	/**
 	 * Enables changing the alpha parameter dynamically
 	 */
@@ -145,6 +238,89 @@ public class MeetingProbabilitySet {
 		this.alpha = alpha;
 	}
 	
+	/**
+	 * Returns the changes made to this set after the given version. If
+	 * all the removals since the given version are not known anymore, the
+	 * delta contains the whole set.
+	 * @param sinceVersion Version of the copy that is to be updated
+	 * @return the changes after the given version
+	 */
+	public MeetingProbabilityDelta getDelta(int sinceVersion) {
+		boolean full = sinceVersion < forgottenVersion;
+		int nrofChanged = 0;
+		for (int i=0; i<size; i++) {
+			if (full || versions[i] > sinceVersion) {
+				nrofChanged++;
+			}
+		}
+		
+		MeetingProbabilityDelta d = new MeetingProbabilityDelta(full, 
+				nrofChanged);
+		for (int i=0, j=0; i<size; i++) {
+			if (full || versions[i] > sinceVersion) {
+				d.ids[j] = ids[i];
+				d.raw[j] = raw[i];
+				d.versions[j] = versions[i];
+				j++;
+			}
+		}
+		
+		int nrofLogged = Math.min(nrofRemoved, REMOVAL_LOG_SIZE);
+		for (int k=nrofRemoved - nrofLogged; k<nrofRemoved; k++) {
+			int v = removedVersions[k % REMOVAL_LOG_SIZE];
+			if (full || v > sinceVersion) {
+				d.addRemoval(removedIds[k % REMOVAL_LOG_SIZE], v);
+			}
+		}
+		
+		d.scale = this.scale;
+		d.version = this.version;
+		d.forgottenVersion = this.forgottenVersion;
+		d.lastUpdateTime = this.lastUpdateTime;
+		return d;
+	}
+	
+	/**
+	 * Brings this set up to date with the set the delta was created from.
+	 * The delta must have been created from a set that this set is a copy
+	 * of, using this set's version as the starting point.
+	 * @param d The delta to apply
+	 */
+	public void applyDelta(MeetingProbabilityDelta d) {
+		if (d.full) {
+			this.size = 0;
+			this.nrofRemoved = 0;
+			this.forgottenVersion = d.forgottenVersion;
+		}
+		
+		for (int k=0; k<d.nrofRemoved; k++) {
+			int i = Arrays.binarySearch(ids, 0, size, d.removedIds[k]);
+			if (i >= 0) {
+				removeAt(i);
+			}
+			logRemoval(d.removedIds[k], d.removedVersions[k]);
+		}
+		for (int k=0; k<d.ids.length; k++) {
+			int i = findOrInsert(d.ids[k]);
+			raw[i] = d.raw[k];
+			versions[i] = d.versions[k];
+		}
+		
+		this.scale = d.scale;
+		this.version = d.version;
+		this.lastUpdateTime = d.lastUpdateTime;
+	}
+	
+	/**
+	 * Updates this set to be equal to the given set using a delta from
+	 * this set's version. The given set must be the original of this set
+	 * or a more recent copy of the same original.
+	 * @param other The set to update from
+	 */
+	public void updateFrom(MeetingProbabilitySet other) {
+		applyDelta(other.getDelta(this.version));
+	}
+	
 	/**
 	 * Returns a deep copy of the probability set
 	 * @return a deep copy of the probability set
@@ -154,20 +330,117 @@ public class MeetingProbabilitySet {
 				this.maxSetSize, alpha);
 		
 		// do a deep copy
-		for (Map.Entry<Integer, Double> e : probs.entrySet()) {
-			replica.probs.put(e.getKey(), e.getValue().doubleValue());
-		}
+		replica.ids = Arrays.copyOf(ids, ids.length);
+		replica.raw = Arrays.copyOf(raw, raw.length);
+		replica.versions = Arrays.copyOf(versions, versions.length);
+		replica.size = this.size;
+		replica.scale = this.scale;
+		replica.version = this.version;
+		replica.removedIds = Arrays.copyOf(removedIds, REMOVAL_LOG_SIZE);
+		replica.removedVersions = Arrays.copyOf(removedVersions, 
+				REMOVAL_LOG_SIZE);
+		replica.nrofRemoved = this.nrofRemoved;
+		replica.forgottenVersion = this.forgottenVersion;
 		
 		replica.lastUpdateTime = this.lastUpdateTime;
 		return replica;
 	}
 	
+	/**
+	 * Sets the (scaled) probability of a node index
+	 * @param index The node index
+	 * @param value The new probability
+	 */
+	private void setProb(int index, double value) {
+		int i = findOrInsert(index);
+		raw[i] = value / scale;
+		versions[i] = ++version;
+	}
+	
+	/**
+	 * Removes the entry at the given position and records the removal
+	 * @param i Position of the entry
+	 */
+	private void remove(int i) {
+		int id = ids[i];
+		removeAt(i);
+		logRemoval(id, ++version);
+	}
+	
+	/**
+	 * Removes the entry at the given position without recording it
+	 * @param i Position of the entry
+	 */
+	private void removeAt(int i) {
+		size--;
+		System.arraycopy(ids, i + 1, ids, i, size - i);
+		System.arraycopy(raw, i + 1, raw, i, size - i);
+		System.arraycopy(versions, i + 1, versions, i, size - i);
+	}
+	
+	/**
+	 * Adds an entry to the removal log, forgetting the oldest entry if the
+	 * log is full
+	 * @param id Node index of the removed entry
+	 * @param v Version of the removal
+	 */
+	private void logRemoval(int id, int v) {
+		int k = nrofRemoved % REMOVAL_LOG_SIZE;
+		if (nrofRemoved >= REMOVAL_LOG_SIZE) {
+			forgottenVersion = Math.max(forgottenVersion, removedVersions[k]);
+		}
+		removedIds[k] = id;
+		removedVersions[k] = v;
+		nrofRemoved++;
+	}
+	
+	/**
+	 * Returns the position of the entry of a node index, inserting a new
+	 * (zero) entry to the correct position if there is no entry yet
+	 * @param index The node index
+	 * @return Position of the entry
+	 */
+	private int findOrInsert(int index) {
+		int i = Arrays.binarySearch(ids, 0, size, index);
+		if (i >= 0) {
+			return i;
+		}
+		
+		i = -(i + 1);
+		if (size == ids.length) {
+			int newCapacity = Math.max(ids.length * 2, 8);
+			ids = Arrays.copyOf(ids, newCapacity);
+			raw = Arrays.copyOf(raw, newCapacity);
+			versions = Arrays.copyOf(versions, newCapacity);
+		}
+		System.arraycopy(ids, i, ids, i + 1, size - i);
+		System.arraycopy(raw, i, raw, i + 1, size - i);
+		System.arraycopy(versions, i, versions, i + 1, size - i);
+		ids[i] = index;
+		raw[i] = 0;
+		size++;
+		return i;
+	}
+	
+	/**
+	 * Folds the scale factor into the stored values. Since all the stored
+	 * values change, all the entries get a new version.
+	 */
+	private void foldScale() {
+		version++;
+		for (int i=0; i<size; i++) {
+			raw[i] *= scale;
+			versions[i] = version;
+		}
+		scale = 1;
+	}
+	
 	/**
 	 * Returns a String presentation of the probabilities
 	 * @return a String presentation of the probabilities
 	 */
     @Override
 	public String toString() {
-		return "probs: " +	this.probs.toString();
+		return "probs: " +	getAllProbs().toString();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Earliest arrival search over the contact plan of a {@link ScheduleOracle}
+ * (like the route search of Contact Graph Routing). Finds the same fastest
+ * paths as {@link ScheduleDijkstra} but works on the oracle's primitive
+ * arrays: the arrival times are in an array indexed by node and the
+ * unsettled nodes are in a binary heap of node indexes. The contacts of a
+ * settled node are binary searched from its arrival time on, and contacts
+ * that start after the best known arrival time at the destination are
+ * skipped. The arrays are reused between searches.
+ */
+public class EarliestArrivalSearch {
+	/** Value for infinite arrival time */
+	private static final double INFINITY = Double.MAX_VALUE;
+
+	private ScheduleOracle oracle;
+	/** Contact plan the arrays are for */
+	private ScheduleOracle.ContactPlan plan;
+	/** Earliest known arrival times by node */
+	private double[] arrivals;
+	/** Contacts used to reach the nodes (-1 for none) */
+	private int[] prevContacts;
+	/** Search round when the node's values were last set */
+	private int[] rounds;
+	/** Heap positions of the nodes (-1 if not in the heap) */
+	private int[] heapPositions;
+	/** Binary heap of unsettled nodes, ordered by arrival time */
+	private int[] heap;
+	private int heapSize;
+	/** Current search round */
+	private int round;
+
+	/**
+	 * Constructor.
+	 * @param oracle The schedule oracle
+	 */
+	public EarliestArrivalSearch(ScheduleOracle oracle) {
+		this.oracle = oracle;
+	}
+
+	/**
+	 * Finds and returns the fastest path between two nodes
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @param time The time when the path starts
+	 * @return The schedule entries of the path or an empty list if no path
+	 * is available
+	 */
+	public List<ScheduleEntry> getShortestPath(int from, int to,
+			double time) {
+		List<ScheduleEntry> path = new ArrayList<ScheduleEntry>();
+		int target = search(from, to, time);
+
+		if (target < 0) {
+			return path;
+		}
+		for (int c = prevContacts[target]; c >= 0;
+				c = prevContacts[plan.sources[c]]) {
+			path.add(0, plan.entries[c]);
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the earliest time one can be at the destination
+	 * @param from The source
+	 * @param to The destination
+	 * @param time The time when the journey starts
+	 * @return The arrival time, the start time if the source and the
+	 * destination are the same, or {@link Double#MAX_VALUE} if the
+	 * destination can't be reached
+	 */
+	public double getArrivalTime(int from, int to, double time) {
+		if (from == to) {
+			return time;
+		}
+		int target = search(from, to, time);
+		return target < 0 ? INFINITY : arrivals[target];
+	}
+
+	/**
+	 * Runs the search
+	 * @return Index of the destination node or -1 if it can't be reached
+	 * (or is the same as the source)
+	 */
+	private int search(int from, int to, double time) {
+		assert time >= 0.0 : "Can't use negative start time";
+		if (from == to) {
+			return -1;
+		}
+
+		init();
+		int source = plan.getIndex(from);
+		int target = plan.getIndex(to);
+		if (source < 0 || target < 0) {
+			return -1;
+		}
+
+		setArrival(source, time, -1);
+		while (heapSize > 0) {
+			int node = poll();
+			if (node == target) {
+				return target;
+			}
+			relax(node, target);
+		}
+		return -1;
+	}
+
+	/**
+	 * Relaxes the contacts of a settled node
+	 * @param node The node
+	 * @param target The destination node
+	 */
+	private void relax(int node, int target) {
+		double[] starts = plan.starts;
+		double[] contactArrivals = plan.arrivals;
+		int[] destinations = plan.destinations;
+		int end = plan.offsets[node + 1];
+		double limit = getArrival(target);
+
+		for (int c = plan.getFirstContact(node, arrivals[node]); c < end;
+				c++) {
+			if (starts[c] >= limit) {
+				break; /* arrives after the destination is reached */
+			}
+			int next = destinations[c];
+			double arrival = contactArrivals[c];
+			if (rounds[next] == round && heapPositions[next] < 0) {
+				continue; /* already settled */
+			}
+			if (arrival < getArrival(next)) {
+				setArrival(next, arrival, c);
+				if (next == target) {
+					limit = arrival;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prepares the arrays for a new search
+	 */
+	private void init() {
+		ScheduleOracle.ContactPlan p = oracle.getPlan();
+		int n = p.addresses.length;
+
+		if (p != plan || round == Integer.MAX_VALUE) {
+			plan = p;
+			if (arrivals == null || arrivals.length < n) {
+				arrivals = new double[n];
+				prevContacts = new int[n];
+				rounds = new int[n];
+				heapPositions = new int[n];
+				heap = new int[n];
+			}
+			Arrays.fill(rounds, 0);
+			round = 0;
+		}
+		round++;
+		heapSize = 0;
+	}
+
+	/**
+	 * Returns the arrival time at a node in this search
+	 */
+	private double getArrival(int node) {
+		return rounds[node] == round ? arrivals[node] : INFINITY;
+	}
+
+	/**
+	 * Sets a better arrival time for an unsettled node
+	 */
+	private void setArrival(int node, double arrival, int contact) {
+		if (rounds[node] != round) {
+			rounds[node] = round;
+			heapPositions[node] = -1;
+		}
+		arrivals[node] = arrival;
+		prevContacts[node] = contact;
+
+		int pos = heapPositions[node];
+		if (pos < 0) {
+			pos = heapSize++;
+		}
+		siftUp(node, pos);
+	}
+
+	/**
+	 * Removes and returns the node with the earliest arrival time. The
+	 * node is settled.
+	 */
+	private int poll() {
+		int first = heap[0];
+		heapPositions[first] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			siftDown(heap[heapSize], 0);
+		}
+		return first;
+	}
+
+	private void siftUp(int node, int pos) {
+		double arrival = arrivals[node];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			int p = heap[parent];
+			if (arrivals[p] <= arrival) {
+				break;
+			}
+			heap[pos] = p;
+			heapPositions[p] = pos;
+			pos = parent;
+		}
+		heap[pos] = node;
+		heapPositions[node] = pos;
+	}
+
+	private void siftDown(int node, int pos) {
+		double arrival = arrivals[node];
+		int half = heapSize >>> 1;
+		while (pos < half) {
+			int child = 2 * pos + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < heapSize && arrivals[heap[right]] < arrivals[c]) {
+				child = right;
+				c = heap[child];
+			}
+			if (arrival <= arrivals[c]) {
+				break;
+			}
+			heap[pos] = c;
+			heapPositions[c] = pos;
+			pos = child;
+		}
+		heap[pos] = node;
+		heapPositions[node] = pos;
+	}
+}
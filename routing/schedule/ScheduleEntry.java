@@ -16,6 +16,8 @@ public class ScheduleEntry implements Serializable {
 	private double delta;
 	private double duration;
 	private int usageCount;
+	/** The oracle the entry belongs to (or null if none) */
+	private ScheduleOracle oracle;
 	
 	/**
 	 * Constructor of new schedule entry
@@ -27,6 +29,20 @@ public class ScheduleEntry implements Serializable {
 	 */
 	public ScheduleEntry(double time, int from, int via, int to,
 			double duration) {
+		this(time, from, via, to, duration, null);
+	}
+	
+	/**
+	 * Constructor of new schedule entry of an oracle
+	 * @param time When the journey from "from" starts
+	 * @param from The source
+	 * @param via The node that takes us there (or -1 if n/a)
+	 * @param to The destination
+	 * @param duration Time it takes from the source to destination
+	 * @param oracle The oracle that is informed when the time changes
+	 */
+	ScheduleEntry(double time, int from, int via, int to,
+			double duration, ScheduleOracle oracle) {
 		this.time = time;
 		this.from = from;
 		this.via = via;
@@ -34,6 +50,7 @@ public class ScheduleEntry implements Serializable {
 		this.duration = duration;
 		this.delta = 0;
 		this.usageCount = 0;
+		this.oracle = oracle;
 	}
 
 	/**
@@ -85,10 +102,15 @@ public class ScheduleEntry implements Serializable {
 	}
 
 	/**
+	 * Sets the delta. The oracle of the entry rebuilds its contact plan
+	 * when it's used next time.
 	 * @param delta the delta to set
 	 */
 	public void setDelta(double delta) {
 		this.delta = delta;
+		if (this.oracle != null) {
+			this.oracle.entryChanged();
+		}
 	}
 
 	/**
@@ -6,14 +6,30 @@ package routing.schedule;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Oracle that knows all schedule entries (the contact plan). The entries
+ * of every node are kept sorted by their start time, so the entries after
+ * a given time are found with a binary search. The sorted plan is built
+ * when it's needed after entries have been added, so adding many entries
+ * (e.g., with {@link #addRoute(int, int[], double[])}) costs one sort per
+ * node. The entries' times (including the deltas) are read when the plan
+ * is built, and changing the delta of an entry makes the plan to be built
+ * again.
+ */
 public class ScheduleOracle implements Serializable{
 	private static final long serialVersionUID = 42L;
 	
 	Map<Integer, List<ScheduleEntry>> schedules;
+	/** Sorted contact plan (null if entries have been added or changed
+	 * after the plan was built) */
+	private transient ContactPlan plan;
 	
 	public ScheduleOracle() {
 		this.schedules = new HashMap<Integer, List<ScheduleEntry>>();
@@ -36,7 +52,15 @@ public class ScheduleOracle implements Serializable{
 			schedules.put(from, list);
 		}
 
-		list.add(new ScheduleEntry(start, from, via, to, duration));
+		list.add(new ScheduleEntry(start, from, via, to, duration, this));
+		this.plan = null;
+	}
+	
+	/**
+	 * Called by the entries of this oracle when their time changes
+	 */
+	void entryChanged() {
+		this.plan = null;
 	}
 
 	/**
@@ -50,6 +74,23 @@ public class ScheduleOracle implements Serializable{
 		addEntry(start, from, -1, to, duration);
 	}
 	
+	/**
+	 * Adds the schedule entries of one trip of a vehicle (e.g. a bus or a
+	 * tram) along its route. An entry is added from every stop to the next
+	 * one.
+	 * @param via The vehicle
+	 * @param stops The stops of the trip in the visiting order
+	 * @param times Departure times from the stops (the arrival time at the
+	 * next stop is its departure time)
+	 */
+	public void addRoute(int via, int[] stops, double[] times) {
+		assert stops.length == times.length : "Stop and time count differ";
+		for (int i=0; i < stops.length - 1; i++) {
+			addEntry(times[i], stops[i], via, stops[i+1],
+					times[i+1] - times[i]);
+		}
+	}
+	
 	/**
 	 * Returns a list of schedule entries for nodes reachable after given time 
 	 * from the given node
@@ -58,20 +99,27 @@ public class ScheduleOracle implements Serializable{
 	 * @return List of reachable nodes 
 	 */
 	public List<ScheduleEntry> getConnected(int from, double time) {
-		List<ScheduleEntry> connected = new ArrayList<ScheduleEntry>();
-		List<ScheduleEntry> all = schedules.get(from);
+		ContactPlan p = getPlan();
+		int node = p.getIndex(from);
 
-		if (all == null) {
-			return connected;
+		if (node < 0) {
+			return new ArrayList<ScheduleEntry>();
 		}
 		
-		for (ScheduleEntry s : all) {
-			if (s.getTime() >= time) {
-				connected.add(s);
-			}
+		int first = p.getFirstContact(node, time);
+		return new ArrayList<ScheduleEntry>(Arrays.asList(p.entries).subList(
+				first, p.offsets[node + 1]));
+	}
+	
+	/**
+	 * Returns the sorted contact plan, building it if necessary
+	 * @return the contact plan
+	 */
+	ContactPlan getPlan() {
+		if (this.plan == null) {
+			this.plan = new ContactPlan(schedules);
 		}
-		
-		return connected;
+		return this.plan;
 	}
 	
 	/**
@@ -88,4 +136,120 @@ public class ScheduleOracle implements Serializable{
 		
 		return entries;
 	}
+	
+	/**
+	 * Contact plan in primitive arrays. The nodes are numbered from zero
+	 * and the contacts of node n are at indexes
+	 * <CODE>offsets[n]...offsets[n+1]-1</CODE>, sorted by start time.
+	 */
+	static class ContactPlan {
+		/** Node addresses by node index */
+		final int[] addresses;
+		/** First contact index of every node (and the number of contacts
+		 * as the last element) */
+		final int[] offsets;
+		/** Start times of the contacts */
+		final double[] starts;
+		/** Arrival times at the contacts' destinations */
+		final double[] arrivals;
+		/** Source node indexes of the contacts */
+		final int[] sources;
+		/** Destination node indexes of the contacts */
+		final int[] destinations;
+		/** Schedule entries of the contacts */
+		final ScheduleEntry[] entries;
+		/** Node indexes by address */
+		private final Map<Integer, Integer> indexes;
+		
+		private ContactPlan(Map<Integer, List<ScheduleEntry>> schedules) {
+			this.indexes = new HashMap<Integer, Integer>();
+			List<Integer> nodes = new ArrayList<Integer>();
+			int nrofContacts = 0;
+			
+			/* all sources and destinations get an index */
+			for (Map.Entry<Integer, List<ScheduleEntry>> e :
+					schedules.entrySet()) {
+				addNode(e.getKey(), nodes);
+				for (ScheduleEntry se : e.getValue()) {
+					addNode(se.getTo(), nodes);
+				}
+				nrofContacts += e.getValue().size();
+			}
+			
+			this.addresses = new int[nodes.size()];
+			this.offsets = new int[nodes.size() + 1];
+			this.starts = new double[nrofContacts];
+			this.arrivals = new double[nrofContacts];
+			this.sources = new int[nrofContacts];
+			this.destinations = new int[nrofContacts];
+			this.entries = new ScheduleEntry[nrofContacts];
+			
+			Comparator<ScheduleEntry> byTime = new Comparator<ScheduleEntry>() {
+				public int compare(ScheduleEntry e1, ScheduleEntry e2) {
+					return Double.compare(e1.getTime(), e2.getTime());
+				}
+			};
+			
+			int c = 0;
+			for (int n=0; n < addresses.length; n++) {
+				addresses[n] = nodes.get(n);
+				offsets[n] = c;
+				List<ScheduleEntry> list = schedules.get(addresses[n]);
+				if (list == null) {
+					continue;
+				}
+				/* stable sort: entries with the same time keep their order */
+				List<ScheduleEntry> sorted = new ArrayList<ScheduleEntry>(list);
+				Collections.sort(sorted, byTime);
+				for (ScheduleEntry se : sorted) {
+					starts[c] = se.getTime();
+					arrivals[c] = se.getDestinationTime();
+					sources[c] = n;
+					destinations[c] = indexes.get(se.getTo());
+					entries[c] = se;
+					c++;
+				}
+			}
+			offsets[addresses.length] = c;
+		}
+		
+		private void addNode(int address, List<Integer> nodes) {
+			if (!indexes.containsKey(address)) {
+				indexes.put(address, nodes.size());
+				nodes.add(address);
+			}
+		}
+		
+		/**
+		 * Returns the index of a node
+		 * @param address Address of the node
+		 * @return The index or -1 if the node has no contacts
+		 */
+		int getIndex(int address) {
+			Integer index = indexes.get(address);
+			return index == null ? -1 : index;
+		}
+		
+		/**
+		 * Returns the index of the node's first contact that starts at or
+		 * after the given time
+		 * @param node Index of the node
+		 * @param time The time
+		 * @return The contact index (<CODE>offsets[node+1]</CODE> if there
+		 * are no such contacts)
+		 */
+		int getFirstContact(int node, double time) {
+			int low = offsets[node];
+			int high = offsets[node + 1];
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (starts[mid] < time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
 }
\ No newline at end of file
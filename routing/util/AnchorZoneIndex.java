@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import core.Coord;
+import core.Message;
+
+/**
+ * Spatial index of the anchor zones of floating content messages. The zones
+ * are stored in a uniform grid of square cells (only the non-empty cells
+ * exist) so that the zones around a location can be found without going
+ * through all the zones. Zones are removed from the index when their TTL
+ * expires.
+ */
+public class AnchorZoneIndex {
+	/** side length of the cells */
+	private double cellSize;
+	/** zones overlapping each cell, in the order they were added */
+	private HashMap<Long, List<Zone>> cells;
+	/** all zones ordered by their expiry time */
+	private PriorityQueue<Zone> expiryQueue;
+	/** running number of the zones for keeping the adding order */
+	private long nextSeqNo;
+
+	/**
+	 * Creates a new, empty index
+	 * @param cellSize Side length of the grid cells. Zones with radius
+	 * close to the cell size are indexed most efficiently.
+	 */
+	public AnchorZoneIndex(double cellSize) {
+		this.cellSize = cellSize;
+		this.cells = new HashMap<Long, List<Zone>>();
+		this.expiryQueue = new PriorityQueue<Zone>();
+		this.nextSeqNo = 0;
+	}
+
+	/**
+	 * Adds an anchor zone to the index
+	 * @param m The message whose anchor zone this is
+	 * @param anchor The center of the zone
+	 * @param radius The radius of the zone
+	 * @param endTime The time when the zone expires
+	 */
+	public void add(Message m, Coord anchor, double radius, double endTime) {
+		Zone z = new Zone(m, anchor, radius, endTime, nextSeqNo++);
+		for (int x = cellIndex(anchor.getX() - radius),
+				maxX = cellIndex(anchor.getX() + radius); x <= maxX; x++) {
+			for (int y = cellIndex(anchor.getY() - radius),
+					maxY = cellIndex(anchor.getY() + radius); y <= maxY; y++) {
+				Long key = cellKey(x, y);
+				List<Zone> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Zone>();
+					cells.put(key, cell);
+				}
+				cell.add(z);
+			}
+		}
+		expiryQueue.add(z);
+	}
+
+	/**
+	 * Returns the messages whose (not expired) anchor zones contain the
+	 * given location, in the order the zones were added
+	 * @param loc The location
+	 * @param time Current time; zones that expire at or before this time
+	 * are not returned
+	 * @return The messages of the zones containing the location
+	 */
+	public List<Message> getZonesAt(Coord loc, double time) {
+		List<Message> result = new ArrayList<Message>();
+		List<Zone> cell = cells.get(cellKey(cellIndex(loc.getX()),
+				cellIndex(loc.getY())));
+		if (cell == null) {
+			return result;
+		}
+
+		for (Zone z : cell) {
+			if (z.endTime > time &&
+					loc.distance2(z.anchor) <= z.radius * z.radius) {
+				result.add(z.message);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the zones that expire at or before the given time
+	 * @param time The current time
+	 */
+	public void removeExpired(double time) {
+		while (!expiryQueue.isEmpty() && expiryQueue.peek().endTime <= time) {
+			Zone z = expiryQueue.poll();
+			for (int x = cellIndex(z.anchor.getX() - z.radius),
+					maxX = cellIndex(z.anchor.getX() + z.radius); x<=maxX; x++){
+				for (int y = cellIndex(z.anchor.getY() - z.radius),
+						maxY = cellIndex(z.anchor.getY() + z.radius); y<=maxY;
+						y++) {
+					Long key = cellKey(x, y);
+					List<Zone> cell = cells.get(key);
+					cell.remove(z);
+					if (cell.isEmpty()) {
+						cells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of zones in the index
+	 * @return the number of zones in the index
+	 */
+	public int size() {
+		return expiryQueue.size();
+	}
+
+	/**
+	 * Removes all the zones from the index
+	 */
+	public void clear() {
+		cells.clear();
+		expiryQueue.clear();
+	}
+
+	private int cellIndex(double coordinate) {
+		return (int)Math.floor(coordinate / cellSize);
+	}
+
+	private Long cellKey(int x, int y) {
+		return ((long)x << 32) | (y & 0xffffffffL);
+	}
+
+	/**
+	 * An anchor zone of a message
+	 */
+	private static class Zone implements Comparable<Zone> {
+		private final Message message;
+		private final Coord anchor;
+		private final double radius;
+		private final double endTime;
+		private final long seqNo;
+
+		private Zone(Message m, Coord anchor, double radius, double endTime,
+				long seqNo) {
+			this.message = m;
+			this.anchor = anchor;
+			this.radius = radius;
+			this.endTime = endTime;
+			this.seqNo = seqNo;
+		}
+
+		public int compareTo(Zone other) {
+			if (this.endTime != other.endTime) {
+				return this.endTime < other.endTime ? -1 : 1;
+			}
+			return this.seqNo < other.seqNo ? -1 :
+				(this.seqNo > other.seqNo ? 1 : 0);
+		}
+	}
+}
@@ -7,12 +7,25 @@ package routing.util;
 import java.util.Random;
 
 import core.*;
+import util.RandomStreams;
 
 /**
  * Energy model for routing modules. Handles power use from scanning (device
  * discovery), scan responses, and data transmission. If scanning is done more 
  * often than 1/s, constant scanning is assumed (and power consumption does not
  * increase from {@link #scanEnergy} value).
+ * <P>In the lazy accounting mode (see {@link #LAZY_S}), the energy level is
+ * not reduced on every update. The model stores the energy level at the 
+ * time the level was last settled and the current drain rate. The level is
+ * calculated from these when it is read, and the bus value is settled only
+ * when the rate changes, on discovery responses and when the energy runs 
+ * out. The time of the depletion is scheduled as an update of the world so
+ * the hosts notice the depletion on time. In this mode scanning uses 
+ * {@link #scanEnergy} per scan interval (or per second if the interval is 
+ * shorter than a second) as a constant drain. The drain rate is updated 
+ * by {@link #updateDrainRate(NetworkInterface)} when the interface's 
+ * transfer state, activeness or scan interval changes; the updates of the 
+ * router only check if the depletion time has come.</P>
  */
 public class EnergyModel implements ModuleCommunicationListener {
 	/** Initial units of energy -setting id ({@value}). Can be either a 
@@ -40,10 +53,18 @@ public class EnergyModel implements ModuleCommunicationListener {
 	 * {@link report.Report#WARMUP_S} from the namespace 
 	 * {@value report.Report#REPORT_NS}. */
 	public static final String WARMUP_S = "energyWarmup";
+	
+	/** Lazy energy accounting -setting id ({@value}). Boolean. If true, the
+	 * energy level is calculated from the drain rate only when needed
+	 * instead of reducing the energy on every update. Default = false. */
+	public static final String LAZY_S = "lazyEnergy";
 
 	/** {@link ModuleCommunicationBus} identifier for the "current amount of 
 	 * energy left" variable. Value type: double */
 	public static final String ENERGY_VALUE_ID = "Energy.value";
+	/** Bus key index of {@link #ENERGY_VALUE_ID} */
+	public static final int ENERGY_VALUE_KEY =
+		ModuleCommunicationBus.getKeyIndex(ENERGY_VALUE_ID);
 	
 	/** Initial energy levels from the settings */
 	private final double[] initEnergy;
@@ -58,6 +79,14 @@ public class EnergyModel implements ModuleCommunicationListener {
 	private double scanResponseEnergy;
 	/** sim time of the last energy updated */
 	private double lastUpdate;
+	/** is lazy accounting used */
+	private boolean lazy;
+	/** lazy accounting: sim time when currentEnergy was last settled */
+	private double settledTime;
+	/** lazy accounting: current energy usage per second */
+	private double drainRate;
+	/** lazy accounting: time of the latest scheduled depletion update */
+	private double scheduledDepletion;
 	private ModuleCommunicationBus comBus;
 	private static Random rng = null;
 
@@ -88,6 +117,8 @@ public class EnergyModel implements ModuleCommunicationListener {
 		else {
 			this.warmupTime = 0;
 		}
+		
+		this.lazy = s.getBoolean(LAZY_S, false);
 	}
 	
 	/**
@@ -103,6 +134,10 @@ public class EnergyModel implements ModuleCommunicationListener {
 		this.scanResponseEnergy = proto.scanResponseEnergy;
 		this.comBus = null;
 		this.lastUpdate = 0;
+		this.lazy = proto.lazy;
+		this.settledTime = 0;
+		this.drainRate = 0;
+		this.scheduledDepletion = -1;
 	}
 	
 	public EnergyModel replicate() {
@@ -120,20 +155,103 @@ public class EnergyModel implements ModuleCommunicationListener {
 			this.currentEnergy = range[0];
 		}
 		else {
-			if (rng == null) {
-				rng = new Random((int)(range[0] + range[1]));
+			int seed = (int)(range[0] + range[1]);
+			Random r;
+			if (RandomStreams.isEnabled() && RandomStreams.isReplicating()) {
+				r = new Random(RandomStreams.nextReplicationSeed(seed, 
+						RandomStreams.ENERGY));
+			}
+			else {
+				if (rng == null) {
+					rng = new Random(seed);
+				}
+				r = rng;
 			}
 			this.currentEnergy = range[0] + 
-				rng.nextDouble() * (range[1] - range[0]);
+				r.nextDouble() * (range[1] - range[0]);
 		}
 	}
 	
+	/**
+	 * Returns true if the lazy accounting mode is used
+	 * @return true if the lazy accounting mode is used
+	 */
+	public boolean isLazy() {
+		return this.lazy;
+	}
+	
 	/**
 	 * Returns the current energy level
 	 * @return the current energy level
 	 */
 	public double getEnergy() {
-		return this.currentEnergy;
+		if (!this.lazy) {
+			return this.currentEnergy;
+		}
+		
+		double used = this.drainRate * drainTime(SimClock.getTime());
+		return Math.max(this.currentEnergy - used, 0);
+	}
+	
+	/**
+	 * Lazy accounting: returns for how long energy has been drained since 
+	 * the energy level was last settled
+	 * @param simTime The current simulation time
+	 * @return The time
+	 */
+	private double drainTime(double simTime) {
+		return Math.max(simTime - Math.max(this.settledTime, this.warmupTime),
+				0);
+	}
+	
+	/**
+	 * Lazy accounting: updates the energy level of the communication bus to
+	 * match the current level. Does nothing in the normal accounting mode.
+	 */
+	public void settle() {
+		if (!this.lazy || comBus == null) {
+			return;
+		}
+		
+		double simTime = SimClock.getTime();
+		double energy = getEnergy();
+		if (energy != this.currentEnergy) {
+			comBus.setDouble(ENERGY_VALUE_KEY, energy);
+		}
+		this.settledTime = simTime;
+	}
+	
+	/**
+	 * Lazy accounting: returns the time when the energy runs out with the
+	 * current drain rate
+	 * @return The time or {@link Double#MAX_VALUE} if the energy doesn't 
+	 * run out (or the lazy accounting is not used)
+	 */
+	public double getDepletionTime() {
+		if (!this.lazy || this.drainRate <= 0 || this.currentEnergy <= 0) {
+			return Double.MAX_VALUE;
+		}
+		return Math.max(this.settledTime, this.warmupTime) +
+			this.currentEnergy / this.drainRate;
+	}
+	
+	/**
+	 * Lazy accounting: schedules an update of the world at the time the
+	 * energy runs out with the current drain rate, unless an update is 
+	 * already scheduled at that time or earlier
+	 */
+	private void scheduleDepletion() {
+		double depletion = getDepletionTime();
+		if (depletion == Double.MAX_VALUE) {
+			return;
+		}
+		
+		double simTime = SimClock.getTime();
+		if (this.scheduledDepletion < simTime || 
+				depletion < this.scheduledDepletion) {
+			SimScenario.getInstance().getWorld().scheduleUpdate(depletion);
+			this.scheduledDepletion = depletion;
+		}
 	}
 	
 	/**
@@ -151,10 +269,18 @@ public class EnergyModel implements ModuleCommunicationListener {
 			return; /* model not initialized (via update) yet */
 		}
 		
+		if (this.lazy) {
+			settle();
+			comBus.setDouble(ENERGY_VALUE_KEY, 
+					Math.max(this.currentEnergy - amount, 0));
+			scheduleDepletion();
+			return;
+		}
+		
 		if (amount >= this.currentEnergy) {
-			comBus.updateProperty(ENERGY_VALUE_ID, 0.0);
+			comBus.setDouble(ENERGY_VALUE_KEY, 0.0);
 		} else {
-			comBus.updateDouble(ENERGY_VALUE_ID, -amount);
+			comBus.updateDouble(ENERGY_VALUE_KEY, -amount);
 		}
 		
 	}
@@ -169,7 +295,8 @@ public class EnergyModel implements ModuleCommunicationListener {
 	
 	/**
 	 * Reduces the energy reserve for the amount that is used by sending data
-	 * and scanning for the other nodes. 
+	 * and scanning for the other nodes. In the lazy accounting mode, only
+	 * settles the energy level if the energy has run out.
 	 */
 	public void update(NetworkInterface iface, ModuleCommunicationBus comBus) {
 		double simTime = SimClock.getTime();
@@ -179,6 +306,15 @@ public class EnergyModel implements ModuleCommunicationListener {
 			this.comBus = comBus;
 			this.comBus.addProperty(ENERGY_VALUE_ID, this.currentEnergy);
 			this.comBus.subscribe(ENERGY_VALUE_ID, this);
+			this.settledTime = simTime;
+			updateDrainRate(iface);
+		}
+		
+		if (this.lazy) {
+			if (this.currentEnergy > 0 && simTime >= getDepletionTime()) {
+				settle(); /* ran out of energy */
+			}
+			return;
 		}
 		
 		if (simTime > this.lastUpdate && iface.isTransferring()) {
@@ -199,6 +335,36 @@ public class EnergyModel implements ModuleCommunicationListener {
 		}
 	}
 		
+	/**
+	 * Lazy accounting: checks if the drain rate has changed and settles the
+	 * energy level if it has. Called when the transfer state, activeness or
+	 * scan interval of the interface changes. Does nothing in the normal 
+	 * accounting mode or if the model is not initialized (via update) yet.
+	 * @param iface The network interface whose energy use is modeled
+	 */
+	public void updateDrainRate(NetworkInterface iface) {
+		if (!this.lazy || this.comBus == null) {
+			return;
+		}
+		
+		double rate = 0;
+		
+		if (iface.isTransferring()) {
+			rate += this.transmitEnergy;
+		}
+		if (iface.isActive() && iface.getTransmitRange() > 0) {
+			double interval = comBus.getDouble(
+					NetworkInterface.SCAN_INTERVAL_KEY, 0);
+			rate += this.scanEnergy / Math.max(interval, 1);
+		}
+		
+		if (rate != this.drainRate) {
+			settle();
+			this.drainRate = rate;
+			scheduleDepletion();
+		}
+	}
+	
 	/**
 	 * Called by the combus if the energy value is changed
 	 * @param key The energy ID
@@ -206,6 +372,10 @@ public class EnergyModel implements ModuleCommunicationListener {
 	 */
 	public void moduleValueChanged(String key, Object newValue) {
 		this.currentEnergy = (Double)newValue;
+		if (this.lazy) {
+			/* the new value is the level at this time */
+			this.settledTime = SimClock.getTime();
+		}
 	}
 	
 }
\ No newline at end of file
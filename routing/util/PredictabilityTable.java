@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Arrays;
+
+import core.DTNHost;
+
+/**
+ * Dense table of delivery predictabilities for the PRoPHET family of
+ * routers. The values are stored in a primitive array indexed by host
+ * address and scaled by a single global aging factor, so aging all the
+ * entries is one multiplication and the value of an entry is computed only
+ * when it is read.
+ */
+public class PredictabilityTable {
+	/** Aging factor below which the factor is folded into the entries
+	 * (to keep the stored values from overflowing) */
+	private static final double MIN_SCALE = 1e-100;
+
+	/** unscaled predictabilities; the real value is raw * scale */
+	private double[] raw;
+	/** hosts that have an entry in the table, indexed by address */
+	private DTNHost[] hosts;
+	/** global aging factor of the entries */
+	private double scale;
+	/** number of entries in the table */
+	private int size;
+	/** one past the highest address that has an entry */
+	private int end;
+
+	/**
+	 * Creates a new, empty table
+	 */
+	public PredictabilityTable() {
+		this.raw = new double[0];
+		this.hosts = new DTNHost[0];
+		this.scale = 1;
+		this.size = 0;
+		this.end = 0;
+	}
+
+	/**
+	 * Returns the predictability for a host or 0 if the table has no entry
+	 * for the host
+	 * @param host The host to look the predictability for
+	 * @return The predictability
+	 */
+	public double get(DTNHost host) {
+		int i = host.getAddress();
+		if (i >= raw.length) {
+			return 0;
+		}
+		return raw[i] * scale;
+	}
+
+	/**
+	 * Sets the predictability for a host
+	 * @param host The host whose predictability is set
+	 * @param value The new predictability
+	 */
+	public void set(DTNHost host, double value) {
+		int i = host.getAddress();
+		ensureCapacity(i + 1);
+		if (hosts[i] == null) {
+			hosts[i] = host;
+			size++;
+			end = Math.max(end, i + 1);
+		}
+		raw[i] = value / scale;
+	}
+
+	/**
+	 * Ages all the entries by the given multiplier
+	 * @param mult The multiplier (<CODE>GAMMA^k</CODE>)
+	 */
+	public void age(double mult) {
+		this.scale *= mult;
+		if (this.scale < MIN_SCALE) {
+			for (int i=0; i<end; i++) {
+				raw[i] *= scale;
+			}
+			this.scale = 1;
+		}
+	}
+
+	/**
+	 * Updates transitive (A->B->C) delivery predictabilities using the
+	 * original PRoPHET rule
+	 * <CODE>P(a,c) = P(a,c)_old + (1 - P(a,c)_old) * P(a,b) * P(b,c) * beta
+	 * </CODE>
+	 * @param other The table of the B host
+	 * @param self The A host (whose entry in the other table is skipped)
+	 * @param pForHost P(a,b)
+	 * @param beta The transitivity scaling constant
+	 */
+	public void updateTransitive(PredictabilityTable other, DTNHost self,
+			double pForHost, double beta) {
+		double mult = pForHost * beta * other.scale;
+		DTNHost[] oHosts = other.hosts;
+		double[] oRaw = other.raw;
+
+		ensureCapacity(other.end);
+		for (int i=0, n=other.end; i<n; i++) {
+			if (oHosts[i] == null || oHosts[i] == self) {
+				continue;
+			}
+			if (hosts[i] == null) {
+				hosts[i] = oHosts[i];
+				size++;
+				end = Math.max(end, i + 1);
+			}
+			double pOld = raw[i] * scale;
+			raw[i] = (pOld + (1 - pOld) * mult * oRaw[i]) / scale;
+		}
+	}
+
+	/**
+	 * Updates transitive (A->B->C) delivery predictabilities using the
+	 * PRoPHETv2 rule
+	 * <CODE>P(a,c) = max(P(a,c)_old, P(a,b) * P(b,c) * beta)</CODE>
+	 * @param other The table of the B host
+	 * @param self The A host (whose entry in the other table is skipped)
+	 * @param pForHost P(a,b)
+	 * @param beta The transitivity scaling constant
+	 */
+	public void updateTransitiveMax(PredictabilityTable other, DTNHost self,
+			double pForHost, double beta) {
+		double mult = pForHost * beta * other.scale;
+		DTNHost[] oHosts = other.hosts;
+		double[] oRaw = other.raw;
+
+		ensureCapacity(other.end);
+		for (int i=0, n=other.end; i<n; i++) {
+			if (oHosts[i] == null || oHosts[i] == self) {
+				continue;
+			}
+			double pOld = raw[i] * scale;
+			double pNew = mult * oRaw[i];
+			if (pNew > pOld) {
+				if (hosts[i] == null) {
+					hosts[i] = oHosts[i];
+					size++;
+					end = Math.max(end, i + 1);
+				}
+				raw[i] = pNew / scale;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the table
+	 * @return the number of entries in the table
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Adds the entries of the table as children of the given routing info
+	 * @param ri The routing info to add the entries to
+	 */
+	public void addRoutingInfo(RoutingInfo ri) {
+		for (int i=0; i<end; i++) {
+			if (hosts[i] != null) {
+				ri.addMoreInfo(new RoutingInfo(String.format("%s : %.6f",
+						hosts[i], raw[i] * scale)));
+			}
+		}
+	}
+
+	/**
+	 * Grows the arrays so that they can hold at least the given number
+	 * of addresses
+	 * @param capacity The required capacity
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity <= raw.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, raw.length * 2);
+		raw = Arrays.copyOf(raw, newCapacity);
+		hosts = Arrays.copyOf(hosts, newCapacity);
+	}
+}
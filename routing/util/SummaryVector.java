@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Summary vector of message IDs a router has seen. The vector is a sorted
+ * array of 64 bit hashes of the message IDs, so membership checks are binary
+ * searches and no String objects are kept. Routers exchange summary vectors
+ * when a connection comes up and offer only the messages that are not in the
+ * peer's vector (anti-entropy session as in the original Epidemic routing
+ * paper by Vahdat and Becker).
+ * <P> Two different IDs may have the same hash, in which case a message can
+ * be considered to be known by the peer when it actually is not. With 64 bit
+ * hashes this is extremely unlikely for any realistic number of messages.</P>
+ */
+public class SummaryVector {
+	/** FNV-1a 64 bit offset basis */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	/** FNV-1a 64 bit prime */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private long[] hashes;
+	private int size;
+
+	/**
+	 * Creates a summary vector with the given initial capacity
+	 * @param capacity How many IDs the vector can hold before it has to grow
+	 */
+	public SummaryVector(int capacity) {
+		this.hashes = new long[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds IDs to the vector. The vector must be {@link #seal() sealed}
+	 * before it is queried.
+	 * @param ids The IDs to add
+	 */
+	public void addAll(Collection<String> ids) {
+		if (size + ids.size() > hashes.length) {
+			hashes = Arrays.copyOf(hashes,
+					Math.max(size + ids.size(), hashes.length * 2));
+		}
+		for (String id : ids) {
+			hashes[size++] = hash(id);
+		}
+	}
+
+	/**
+	 * Sorts the hashes so that the vector can be queried
+	 * @return This vector
+	 */
+	public SummaryVector seal() {
+		Arrays.sort(hashes, 0, size);
+		return this;
+	}
+
+	/**
+	 * Returns true if the vector (probably) contains the given ID
+	 * @param id The ID to look for
+	 * @return True if the ID's hash is in the vector, false if the ID is
+	 * certainly not in the vector
+	 */
+	public boolean contains(String id) {
+		return Arrays.binarySearch(hashes, 0, size, hash(id)) >= 0;
+	}
+
+	/**
+	 * Returns the number of IDs in the vector
+	 * @return the number of IDs in the vector
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the 64 bit FNV-1a hash of a message ID
+	 * @param id The ID to hash
+	 * @return The hash value
+	 */
+	public static long hash(String id) {
+		long h = FNV_OFFSET;
+		for (int i=0, n=id.length(); i<n; i++) {
+			char c = id.charAt(i);
+			h = (h ^ (c & 0xff)) * FNV_PRIME;
+			h = (h ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	public String toString() {
+		return "SummaryVector of " + size + " message IDs";
+	}
+}
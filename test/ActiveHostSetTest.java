@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.MessageRouter;
+import core.ActiveHostSet;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SimClock;
+
+/**
+ * Tests for parking idle hosts
+ */
+public class ActiveHostSetTest extends TestCase {
+	private static final double MOVE_TIME = 100;
+
+	private SimClock clock;
+	private DTNHost stationary;
+	private DTNHost waiting;
+	private ActiveHostSet set;
+	private TestUtils utils;
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+
+		ts = new TestSettings();
+		utils = new TestUtils(null,
+				new ArrayList<MessageListener>(), ts);
+		stationary = utils.createHost(new Coord(0, 0));
+		waiting = utils.createHost(new WaitingMovement(new Coord(50, 0)),
+				null);
+
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		hosts.add(stationary);
+		hosts.add(waiting);
+		set = new ActiveHostSet(hosts);
+	}
+
+	public void testParkAndWakeUpDue() {
+		assertTrue(set.parkIfIdle(stationary));
+		assertTrue(set.parkIfIdle(waiting));
+		assertEquals(2, set.getNrofParked());
+
+		clock.setTime(MOVE_TIME - 0.1);
+		set.wakeUpDue(SimClock.getTime());
+		assertEquals(2, set.getNrofParked());
+
+		clock.setTime(MOVE_TIME);
+		set.wakeUpDue(SimClock.getTime());
+		assertEquals(1, set.getNrofParked());
+		assertFalse(set.parkIfIdle(waiting)); /* time to move */
+	}
+
+	public void testWakeUpByMessage() {
+		assertTrue(set.parkIfIdle(stationary));
+		stationary.createNewMessage(new Message(stationary, waiting, "M1",
+				10));
+		assertEquals(0, set.getNrofParked());
+		assertFalse(set.parkIfIdle(stationary)); /* has a message */
+	}
+
+	public void testWakeUpByConnection() {
+		assertTrue(set.parkIfIdle(stationary));
+		assertTrue(set.parkIfIdle(waiting));
+		stationary.forceConnection(waiting, null, true);
+		assertEquals(0, set.getNrofParked());
+		assertFalse(set.parkIfIdle(stationary)); /* has a connection */
+	}
+
+	public void testEarlyWakeUpIsNotRepeated() {
+		assertTrue(set.parkIfIdle(waiting));
+		waiting.setLocation(new Coord(60, 0));
+		assertEquals(0, set.getNrofParked());
+
+		clock.setTime(10);
+		assertTrue(set.parkIfIdle(waiting)); /* parked again until 100 */
+		clock.setTime(MOVE_TIME);
+		set.wakeUpDue(SimClock.getTime());
+		assertEquals(0, set.getNrofParked());
+	}
+
+	public void testRouterMustOptIn() {
+		utils.setMessageRouterProto(new UpdatingRouter(ts));
+		DTNHost host = utils.createHost(new Coord(100, 0));
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		hosts.add(host);
+		set = new ActiveHostSet(hosts);
+		assertFalse(set.parkIfIdle(host)); /* router isn't parkable */
+	}
+
+	/**
+	 * Router that doesn't declare itself parkable
+	 */
+	private static class UpdatingRouter extends MessageRouter {
+		public UpdatingRouter(Settings s) {
+			super(s);
+		}
+
+		protected UpdatingRouter(UpdatingRouter r) {
+			super(r);
+		}
+
+		@Override
+		public void changedConnection(Connection con) { }
+
+		@Override
+		public MessageRouter replicate() {
+			return new UpdatingRouter(this);
+		}
+	}
+
+	/**
+	 * Stationary movement whose path is available at {@link #MOVE_TIME}
+	 */
+	private static class WaitingMovement extends StationaryMovement {
+		private Coord loc;
+
+		public WaitingMovement(Coord loc) {
+			super(loc);
+			this.loc = loc;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return MOVE_TIME;
+		}
+
+		@Override
+		public WaitingMovement replicate() {
+			return new WaitingMovement(loc);
+		}
+	}
+}
@@ -69,6 +69,49 @@ public class ActivenessHandlerTest extends TestCase {
 		assertFalse(ah.isActive());
 
 	}
+
+	public void testNextChange() {
+		assertEquals(in, ah.getNextChange(0, 0));
+		assertEquals(out, ah.getNextChange(in, 0));
+		assertEquals(out, ah.getNextChange(out, 0)); /* end is inclusive */
+		assertEquals(100.0, ah.getNextChange(out + 0.1, 0));
+		assertEquals(95.0, ah.getNextChange(out + 0.1, 5));
+		assertEquals(400.0, ah.getNextChange(360, 0));
+		assertEquals(Double.MAX_VALUE, ah.getNextChange(400.1, 0));
+		
+		assertFalse(ah.isActive(99.9, 0));
+		assertTrue(ah.isActive(99.9, 1));
+		assertTrue(ah.isActive(220, 0));
+		assertFalse(ah.isActive(220, 1));
+	}
+	
+	public void testPeriods() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(ActivenessHandler.ACTIVE_PERIODS_S, "10,5");
+		ts.putSetting(ActivenessHandler.ACTIVE_PERIODS_OFFSET_S, "2");
+		ActivenessHandler periods = new ActivenessHandler(ts);
+		
+		/* active while (time + 2) % 15 <= 10 */
+		assertTrue(periods.isActive(0, 0));
+		assertEquals(9.0, periods.getNextChange(0.5, 0));
+		assertTrue(periods.isActive(8.9, 0));
+		assertFalse(periods.isActive(9, 0));
+		assertEquals(13.0, periods.getNextChange(9, 0));
+		assertTrue(periods.isActive(13, 0));
+		assertEquals(12.0, periods.getNextChange(9, 1));
+		
+		/* the cached state must agree with the direct checks */
+		for (double t = 0; t < 100; t += 0.25) {
+			for (int jitter = 0; jitter < 3; jitter++) {
+				double next = periods.getNextChange(t, jitter);
+				assertTrue(next > t);
+				boolean active = periods.isActive(t, jitter);
+				for (double t2 = t; t2 < next; t2 += 0.25) {
+					assertEquals(active, periods.isActive(t2, jitter));
+				}
+			}
+		}
+	}
 	
 }
 
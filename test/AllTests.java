@@ -46,6 +46,29 @@ public class AllTests {
 		suite.addTestSuite(ActivenessHandlerTest.class);
 		suite.addTestSuite(MaxPropDijkstraTest.class);
 		suite.addTestSuite(MaxPropRouterTest.class);
+		suite.addTestSuite(MaxPropCostCacheTest.class);
+		suite.addTestSuite(MeetingProbabilitySetTest.class);
+		suite.addTestSuite(AnchorZoneIndexTest.class);
+		suite.addTestSuite(PathTest.class);
+		suite.addTestSuite(RandomStreamsTest.class);
+		suite.addTestSuite(EventLogBufferTest.class);
+		suite.addTestSuite(RestorableRandomTest.class);
+		suite.addTestSuite(EIDIndexTest.class);
+		suite.addTestSuite(CLAMultiplexerTest.class);
+		suite.addTestSuite(RealTimePacerTest.class);
+		suite.addTestSuite(EarliestArrivalSearchTest.class);
+		suite.addTestSuite(ActiveHostSetTest.class);
+		suite.addTestSuite(UpdateStepControllerTest.class);
+		suite.addTestSuite(TransferQueueTest.class);
+		suite.addTestSuite(ConnectivityGridTest.class);
+		suite.addTestSuite(SummaryVectorTest.class);
+		suite.addTestSuite(SummaryVectorRouterTest.class);
+		suite.addTestSuite(PredictabilityTableTest.class);
+		suite.addTestSuite(MovementStoreTest.class);
+		suite.addTestSuite(WorldSnapshotTest.class);
+		suite.addTestSuite(EnergyModelTest.class);
+		suite.addTestSuite(WarmupSnapshotTest.class);
+		suite.addTestSuite(HostCreationTest.class);
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.util.AnchorZoneIndex;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the spatial index of floating content anchor zones.
+ */
+public class AnchorZoneIndexTest extends TestCase {
+	private AnchorZoneIndex index;
+	private DTNHost host;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils tu = new TestUtils(null, null, new TestSettings());
+		host = tu.createHost();
+		index = new AnchorZoneIndex(100);
+	}
+	
+	private Message msg(String id) {
+		return new Message(host, host, id, 1);
+	}
+	
+	public void testZonesAt() {
+		Message m1 = msg("m1");
+		Message m2 = msg("m2");
+		Message m3 = msg("m3");
+		index.add(m1, new Coord(100, 100), 50, 10);
+		index.add(m2, new Coord(-150, 300), 200, 10);
+		index.add(m3, new Coord(120, 100), 30, 10);
+		
+		List<Message> zones = index.getZonesAt(new Coord(110, 100), 0);
+		assertEquals(2, zones.size());
+		assertEquals(m1, zones.get(0));
+		assertEquals(m3, zones.get(1));
+		
+		zones = index.getZonesAt(new Coord(0, 300), 0);
+		assertEquals(1, zones.size());
+		assertEquals(m2, zones.get(0));
+		
+		assertEquals(0, index.getZonesAt(new Coord(500, 500), 0).size());
+		assertEquals(0, index.getZonesAt(new Coord(151, 100), 0).size());
+	}
+	
+	public void testExpiry() {
+		Message m1 = msg("m1");
+		Message m2 = msg("m2");
+		index.add(m1, new Coord(0, 0), 50, 10);
+		index.add(m2, new Coord(0, 0), 50, 20);
+		
+		assertEquals(2, index.getZonesAt(new Coord(0, 0), 5).size());
+		/* expired zones are not returned even before they're removed */
+		assertEquals(1, index.getZonesAt(new Coord(0, 0), 10).size());
+		
+		index.removeExpired(10);
+		assertEquals(1, index.size());
+		assertEquals(m2, index.getZonesAt(new Coord(0, 0), 10).get(0));
+		
+		index.removeExpired(20);
+		assertEquals(0, index.size());
+		assertEquals(0, index.getZonesAt(new Coord(0, 0), 0).size());
+	}
+	
+	/**
+	 * Compares the results to checking all the zones
+	 */
+	public void testSameAsLinearSearch() {
+		Random rng = new Random(1);
+		List<Message> msgs = new ArrayList<Message>();
+		List<Coord> anchors = new ArrayList<Coord>();
+		List<Double> radii = new ArrayList<Double>();
+		
+		for (int i=0; i<200; i++) {
+			Message m = msg("m" + i);
+			Coord c = new Coord(rng.nextDouble() * 1000, rng.nextDouble()*1000);
+			double r = 10 + rng.nextDouble() * 150;
+			msgs.add(m);
+			anchors.add(c);
+			radii.add(r);
+			index.add(m, c, r, 100);
+		}
+		
+		for (int i=0; i<200; i++) {
+			Coord loc = new Coord(rng.nextDouble()*1000, rng.nextDouble()*1000);
+			List<Message> expected = new ArrayList<Message>();
+			for (int j=0; j<msgs.size(); j++) {
+				if (loc.distance(anchors.get(j)) <= radii.get(j)) {
+					expected.add(msgs.get(j));
+				}
+			}
+			assertEquals(expected, index.getZonesAt(loc, 0));
+		}
+	}
+}
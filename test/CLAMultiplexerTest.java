@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.CLAMultiplexer;
+import fi.tkk.netlab.dtn.ecla.Bundle;
+import fi.tkk.netlab.dtn.ecla.CLAInterface;
+import fi.tkk.netlab.dtn.ecla.CLAParser;
+
+/**
+ * Tests the multiplexed dtnd connections against loopback dtnd stand-ins
+ */
+public class CLAMultiplexerTest extends TestCase {
+	private static final int NROF_DTNDS = 3;
+	private static final int NROF_BUNDLES = 5;
+	private static final long TIMEOUT = 10000;
+
+	private CLAMultiplexer multiplexer;
+	private LoopbackDtnd[] dtnds;
+	private CLAParser[] parsers;
+	private List<String> destinations;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.multiplexer = new CLAMultiplexer();
+		this.dtnds = new LoopbackDtnd[NROF_DTNDS];
+		this.parsers = new CLAParser[NROF_DTNDS];
+		this.destinations = new ArrayList<String>();
+
+		for (int i=0; i<NROF_DTNDS; i++) {
+			dtnds[i] = new LoopbackDtnd("dtn://loop-" + i + ".dtn");
+			parsers[i] = multiplexer.open("127.0.0.1", dtnds[i].getEclaPort(),
+					"ONE");
+			parsers[i].setListener(new Listener());
+			Thread t = new Thread(parsers[i]);
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		for (int i=0; i<NROF_DTNDS; i++) {
+			parsers[i].stop();
+			dtnds[i].close();
+		}
+		multiplexer.stop();
+		super.tearDown();
+	}
+
+	public void testBundlesFromDtnds() throws Exception {
+		for (LoopbackDtnd dtnd : dtnds) {
+			assertTrue(dtnd.waitForEcla(TIMEOUT));
+		}
+		for (int i=0; i<NROF_BUNDLES; i++) {
+			for (int j=0; j<NROF_DTNDS; j++) {
+				dtnds[j].sendBundle("dtn://loop-" + ((j + 1) % NROF_DTNDS) +
+						".dtn/app" + i, new byte[100 * i]);
+			}
+		}
+
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end && !allTransmitted()) {
+			Thread.sleep(10);
+		}
+		assertTrue(allTransmitted());
+		synchronized (destinations) {
+			assertEquals(NROF_BUNDLES * NROF_DTNDS, destinations.size());
+			assertTrue(destinations.contains("dtn://loop-1.dtn/app0"));
+			assertTrue(destinations.contains("dtn://loop-0.dtn/app4"));
+		}
+	}
+
+	public void testBundleToDtnd() throws Exception {
+		assertTrue(dtnds[1].waitForEcla(TIMEOUT));
+		File f = File.createTempFile("bundle", ".bundle");
+		f.deleteOnExit();
+		LoopbackDtnd.writeBundle(f, "dtn://one/src", "dtn://loop-1.dtn/app",
+				1, 1, new byte[10]);
+		parsers[1].sendBundle(f);
+
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end &&
+				dtnds[1].getNrofReceived() == 0) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, dtnds[1].getNrofReceived());
+		assertEquals(0, dtnds[0].getNrofReceived());
+	}
+
+	private boolean allTransmitted() {
+		for (LoopbackDtnd dtnd : dtnds) {
+			if (dtnd.getNrofTransmitted() < NROF_BUNDLES) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private class Listener implements CLAInterface {
+		public BundleTransferReceipt incomingBundle(String location,
+				CLAParser.BundleAttributes attributes) {
+			Bundle b = new Bundle(new File(location));
+			synchronized (destinations) {
+				destinations.add(b.destination_EID);
+			}
+			BundleTransferReceipt r = new BundleTransferReceipt();
+			r.reply = true;
+			r.bytes_sent = b.file.length();
+			return r;
+		}
+
+		public void connected() { }
+
+		public boolean error(String reason, Exception e, boolean fatal) {
+			return false;
+		}
+
+		public boolean parseError(String reason) {
+			return false;
+		}
+	}
+}
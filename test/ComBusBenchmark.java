@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import core.ModuleCommunicationBus;
+import core.ModuleCommunicationListener;
+
+/**
+ * Simple benchmark that compares the speed of the different ways of
+ * updating a double value of the ModuleCommunicationBus: reading the boxed
+ * value and storing a new one with updateProperty, updateDouble with a
+ * string key and updateDouble with an interned key index. Every host bus
+ * has one listener for the value, like the energy value of EnergyModel.
+ * Run with <CODE>java test.ComBusBenchmark [nrofHosts] [rounds]</CODE>
+ */
+public class ComBusBenchmark {
+	private static final String KEY = "Benchmark.value";
+	private static final String[] OTHER_KEYS = {"Benchmark.a",
+		"Benchmark.b", "Benchmark.c", "Benchmark.d"};
+	private static final int WARMUP_ROUNDS = 5;
+
+	/** Number of notifications the listeners have received */
+	private static long nrofNotifications = 0;
+
+	public static void main(String[] args) {
+		int nrofHosts = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		ModuleCommunicationBus[] buses = createBuses(nrofHosts);
+
+		for (int i=0; i<WARMUP_ROUNDS; i++) {
+			runUpdateProperty(buses, 100);
+			runUpdateDouble(buses, 100);
+			runIndexed(buses, 100);
+		}
+
+		long start = System.nanoTime();
+		double sum1 = runUpdateProperty(buses, rounds);
+		long propertyTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double sum2 = runUpdateDouble(buses, rounds);
+		long doubleTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double sum3 = runIndexed(buses, rounds);
+		long indexedTime = System.nanoTime() - start;
+
+		System.out.printf("%d hosts, %d rounds (%d notifications)%n",
+				nrofHosts, rounds, nrofNotifications);
+		System.out.printf("updateProperty:      %8.2f ms (checksum %.4f)%n",
+				propertyTime / 1e6, sum1);
+		System.out.printf("updateDouble(key):   %8.2f ms (checksum %.4f)%n",
+				doubleTime / 1e6, sum2);
+		System.out.printf("updateDouble(index): %8.2f ms (checksum %.4f)%n",
+				indexedTime / 1e6, sum3);
+	}
+
+	private static ModuleCommunicationBus[] createBuses(int n) {
+		ModuleCommunicationListener listener =
+			new ModuleCommunicationListener() {
+			public void moduleValueChanged(String key, Object newValue) {
+				nrofNotifications++;
+			}
+		};
+
+		ModuleCommunicationBus[] buses = new ModuleCommunicationBus[n];
+		for (int i=0; i<n; i++) {
+			buses[i] = new ModuleCommunicationBus();
+			for (String key : OTHER_KEYS) {
+				buses[i].addProperty(key, 1.0);
+			}
+			buses[i].addProperty(KEY, 0.0);
+			buses[i].subscribe(KEY, listener);
+		}
+		return buses;
+	}
+
+	private static double runUpdateProperty(ModuleCommunicationBus[] buses,
+			int rounds) {
+		double sum = 0;
+		for (int r=0; r<rounds; r++) {
+			for (ModuleCommunicationBus bus : buses) {
+				Double value = (Double)bus.getProperty(KEY);
+				bus.updateProperty(KEY, value + 1);
+			}
+			sum += (Double)buses[r % buses.length].getProperty(KEY);
+		}
+		return sum;
+	}
+
+	private static double runUpdateDouble(ModuleCommunicationBus[] buses,
+			int rounds) {
+		double sum = 0;
+		for (int r=0; r<rounds; r++) {
+			for (ModuleCommunicationBus bus : buses) {
+				bus.updateDouble(KEY, 1);
+			}
+			sum += buses[r % buses.length].getDouble(KEY, 0);
+		}
+		return sum;
+	}
+
+	private static double runIndexed(ModuleCommunicationBus[] buses,
+			int rounds) {
+		int index = ModuleCommunicationBus.getKeyIndex(KEY);
+		double sum = 0;
+		for (int r=0; r<rounds; r++) {
+			for (ModuleCommunicationBus bus : buses) {
+				bus.updateDouble(index, 1);
+			}
+			sum += buses[r % buses.length].getDouble(index, 0);
+		}
+		return sum;
+	}
+}
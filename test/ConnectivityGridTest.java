@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import core.Coord;
+import core.DTNHost;
+import core.MessageListener;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * Tests for the transmitter counts (channel load) of the connectivity grid
+ */
+public class ConnectivityGridTest extends TestCase {
+	private static final double RANGE = 10; /* cells of 50 x 50 */
+
+	private TestUtils utils;
+	private ConnectivityGrid grid;
+	private NetworkInterface a;
+	private NetworkInterface b;
+	private NetworkInterface far;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		TestSettings ts = new TestSettings();
+		ts.setNameSpace(TestUtils.IFACE_NS);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "" + RANGE);
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		ConnectivityGrid.reset();
+
+		utils = new TestUtils(null, new ArrayList<MessageListener>(), ts);
+		a = getInterface(utils.createHost(new Coord(10, 10)));
+		b = getInterface(utils.createHost(new Coord(60, 10)));
+		far = getInterface(utils.createHost(new Coord(500, 500)));
+		grid = ConnectivityGrid.ConnectivityGridFactory(
+				a.getInterfaceType().hashCode(), RANGE);
+	}
+
+	private NetworkInterface getInterface(DTNHost host) {
+		return host.getInterfaces().get(0);
+	}
+
+	public void testNearTransmitters() {
+		assertEquals(0, grid.getNrofNearTransmitters(a));
+
+		grid.setTransmitting(a, true);
+		grid.setTransmitting(a, true); /* counted only once */
+		grid.setTransmitting(b, true);
+		assertEquals(2, grid.getNrofNearTransmitters(a));
+		assertEquals(2, grid.getNrofNearTransmitters(b));
+		assertEquals(0, grid.getNrofNearTransmitters(far));
+
+		grid.setTransmitting(a, false);
+		assertEquals(1, grid.getNrofNearTransmitters(a));
+	}
+
+	public void testMovingTransmitter() {
+		grid.setTransmitting(b, true);
+		assertEquals(0, grid.getNrofNearTransmitters(far));
+
+		b.getHost().setLocation(new Coord(480, 480));
+		grid.updateLocation(b);
+		assertEquals(1, grid.getNrofNearTransmitters(far));
+		assertEquals(0, grid.getNrofNearTransmitters(a));
+	}
+
+	public void testRemovedTransmitter() {
+		grid.setTransmitting(a, true);
+		grid.setTransmitting(b, true);
+		grid.removeInterface(b);
+		assertEquals(1, grid.getNrofNearTransmitters(a));
+		assertEquals(0, grid.getNrofNearTransmitters(b));
+
+		grid.setTransmitting(b, true); /* not in the grid */
+		assertEquals(1, grid.getNrofNearTransmitters(a));
+	}
+}
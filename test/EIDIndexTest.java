@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTN2Manager;
+import core.EIDIndex;
+
+/**
+ * Tests for the EID regular expression index of the DTN2 connectivity
+ */
+public class EIDIndexTest extends TestCase {
+	private static final String[] REGEXPS = {
+		"dtn://local-1.dtn/(.*)",
+		"dtn://local-2.dtn/(.*)",
+		"dtn://local-[0-9].dtn/app",
+		"dtn://local-1.dtn/app",
+		"dtn://local-3.dtn",
+		"dtn://local-3.dtn/?.*",
+		"dtn://local-4.dtn/x|dtn://local-5.dtn/y",
+		"ipn:5.1"
+	};
+	private static final String[] EIDS = {
+		"dtn://local-1.dtn/app", "dtn://local-1.dtn/other",
+		"dtn://local-2.dtn/app", "dtn://local-7.dtn/app",
+		"dtn://local-3.dtn", "dtn://local-3.dtn/", "dtn://local-3.dtnx",
+		"dtn://local-5.dtn/y", "dtn://local-4.dtn/x", "dtn://local-4.dtn",
+		"ipn:5.1", "ipn:5.2", "dtn://unknown.dtn/app", "dtn:none"
+	};
+
+	private EIDIndex index;
+	private List<DTN2Manager.EIDHost> hosts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.index = new EIDIndex();
+		this.hosts = new ArrayList<DTN2Manager.EIDHost>();
+		for (int i=0; i<REGEXPS.length; i++) {
+			DTN2Manager.EIDHost h = new DTN2Manager.EIDHost(REGEXPS[i], i,
+					null);
+			hosts.add(h);
+			index.add(h);
+		}
+	}
+
+	public void testSameAsRegexScan() {
+		for (String eid : EIDS) {
+			List<DTN2Manager.EIDHost> expected =
+				new ArrayList<DTN2Manager.EIDHost>();
+			for (DTN2Manager.EIDHost h : hosts) {
+				if (eid.matches(h.EID)) {
+					expected.add(h);
+				}
+			}
+			assertEquals(eid, expected,
+					new ArrayList<DTN2Manager.EIDHost>(index.getHosts(eid)));
+		}
+	}
+
+	public void testOrder() {
+		Collection<DTN2Manager.EIDHost> c =
+			index.getHosts("dtn://local-1.dtn/app");
+		assertEquals(3, c.size());
+		int previous = -1;
+		for (DTN2Manager.EIDHost h : c) {
+			assertTrue(h.host_id > previous);
+			previous = h.host_id;
+		}
+	}
+
+	public void testNoMatches() {
+		assertTrue(index.getHosts("dtn://nothing.dtn/app").isEmpty());
+		assertTrue(new EIDIndex().getHosts("dtn://local-1.dtn/").isEmpty());
+		assertEquals(REGEXPS.length, index.size());
+	}
+}
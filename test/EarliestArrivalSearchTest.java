@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.schedule.EarliestArrivalSearch;
+import routing.schedule.ScheduleDijkstra;
+import routing.schedule.ScheduleEntry;
+import routing.schedule.ScheduleOracle;
+
+/**
+ * Tests for the earliest arrival search and the sorted contact plan of
+ * the schedule oracle
+ */
+public class EarliestArrivalSearchTest extends TestCase {
+	private ScheduleOracle oracle;
+	private EarliestArrivalSearch search;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		oracle = new ScheduleOracle();
+		search = new EarliestArrivalSearch(oracle);
+
+		oracle.addEntry(10, 1, 2, 10);
+		oracle.addEntry(20, 1, 3, 10);
+		oracle.addEntry(20, 1, 4, 10);
+		oracle.addEntry(30, 1, 5, 10);
+	}
+
+	private void comparePaths(int realPath[], List<ScheduleEntry> path) {
+		int i;
+		assertEquals(realPath.length, path.size() + 1);
+
+		for (i=0; i<realPath.length - 1; i++) {
+			assertEquals(realPath[i], path.get(i).getFrom());
+		}
+
+		assertEquals(realPath[i], path.get(i-1).getTo());
+	}
+
+	public void testPaths() {
+		assertEquals(0, search.getShortestPath(1, 10, 0).size());
+		assertEquals(Double.MAX_VALUE, search.getArrivalTime(1, 10, 0));
+		assertEquals(5.0, search.getArrivalTime(1, 1, 5));
+
+		oracle.addEntry(55, 2, 10, 5);
+		comparePaths(new int[]{1,2,10}, search.getShortestPath(1, 10, 0));
+		assertEquals(60.0, search.getArrivalTime(1, 10, 0));
+
+		oracle.addEntry(35, 3, 10, 5);
+		comparePaths(new int[]{1,3,10}, search.getShortestPath(1, 10, 0));
+
+		oracle.addEntry(40, 3, 11, 10);
+		oracle.addEntry(60, 11, 20, 3);
+		oracle.addEntry(45, 3, 12, 2);
+		oracle.addEntry(50, 12, 13, 2);
+		oracle.addEntry(55, 13, 20, 2);
+		oracle.addEntry(100, 1, 20, 5);
+		comparePaths(new int[]{1,3,12,13,20},
+				search.getShortestPath(1, 20, 0));
+		/* misses the first hop to 3, takes the direct one */
+		comparePaths(new int[]{1,20}, search.getShortestPath(1, 20, 30));
+		assertEquals(0, search.getShortestPath(20, 1, 0).size());
+	}
+
+	public void testConnectedSorted() {
+		oracle.addEntry(15, 1, 6, 1);
+		oracle.addEntry(5, 1, 7, 1);
+
+		List<ScheduleEntry> c = oracle.getConnected(1, 15);
+		assertEquals(4, c.size());
+		assertEquals(6, c.get(0).getTo());
+		assertEquals(3, c.get(1).getTo()); /* same time keep their order */
+		assertEquals(4, c.get(2).getTo());
+		assertEquals(5, c.get(3).getTo());
+		assertEquals(6, oracle.getConnected(1, 0).size());
+		assertEquals(7, oracle.getConnected(1, 0).get(0).getTo());
+		assertEquals(0, oracle.getConnected(1, 31).size());
+		assertEquals(0, oracle.getConnected(99, 0).size());
+	}
+
+	public void testDeltaChangesPlan() {
+		search.getShortestPath(1, 5, 0); /* builds the plan */
+		ScheduleEntry toFive = oracle.getConnected(1, 30).get(0);
+		assertEquals(5, toFive.getTo());
+		toFive.setDelta(-25);
+
+		assertEquals(5, oracle.getConnected(1, 0).get(0).getTo());
+		assertEquals(15.0, search.getArrivalTime(1, 5, 0));
+		assertEquals(0, oracle.getConnected(1, 21).size());
+	}
+
+	public void testAddRoute() {
+		oracle.addRoute(100, new int[] {30, 31, 32}, new double[] {0, 5, 8});
+		List<ScheduleEntry> path = search.getShortestPath(30, 32, 0);
+		assertEquals(2, path.size());
+		assertEquals(100, path.get(0).getVia());
+		assertEquals(8.0, path.get(1).getDestinationTime());
+	}
+
+	public void testSameAsDijkstra() {
+		Random rng = new Random(42);
+		ScheduleOracle o = new ScheduleOracle();
+		ScheduleDijkstra d = new ScheduleDijkstra(o);
+		EarliestArrivalSearch s = new EarliestArrivalSearch(o);
+
+		for (int i=0; i<2000; i++) {
+			o.addEntry(rng.nextInt(1000), rng.nextInt(50), rng.nextInt(50),
+					1 + rng.nextInt(100));
+		}
+		for (int i=0; i<200; i++) {
+			int from = rng.nextInt(50);
+			int to = rng.nextInt(50);
+			double time = rng.nextInt(500);
+			List<ScheduleEntry> p1 = d.getShortestPath(from, to, time);
+			List<ScheduleEntry> p2 = s.getShortestPath(from, to, time);
+			assertEquals(p1.size() == 0, p2.size() == 0);
+			if (p1.size() > 0) {
+				assertEquals(p1.get(p1.size() - 1).getDestinationTime(),
+						p2.get(p2.size() - 1).getDestinationTime());
+				assertEquals(from, p2.get(0).getFrom());
+				assertEquals(to, p2.get(p2.size() - 1).getTo());
+				for (int j=1; j<p2.size(); j++) {
+					assertEquals(p2.get(j-1).getTo(), p2.get(j).getFrom());
+					assertTrue(p2.get(j).getTime() >=
+						p2.get(j-1).getDestinationTime());
+				}
+			}
+		}
+	}
+}
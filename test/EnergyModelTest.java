@@ -0,0 +1,263 @@
+/*
+ * Copyright 2011 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.StationaryMovement;
+import routing.ActiveRouter;
+import routing.MessageRouter;
+import routing.util.EnergyModel;
+import util.ActivenessHandler;
+import util.RandomStreams;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.ModuleCommunicationListener;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Tests for the energy model. The lazy accounting mode is compared with the
+ * per update accounting and with the energy levels computed by hand.
+ */
+public class EnergyModelTest extends TestCase {
+	private static final double INIT_ENERGY = 100;
+	private static final double SCAN_ENERGY = 0.5;
+	private static final double TRANSMIT_ENERGY = 2;
+	private static final double SCAN_RSP_ENERGY = 1.5;
+
+	private TestSettings ts;
+	private World world;
+	private List<DTNHost> hosts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		/* two hosts that are out of range until a test moves them */
+		ts.putSetting("Scenario.nrofHostGroups", "2");
+		ts.putSetting("Group.groupID", "n");
+		ts.putSetting("Group.nrofHosts", "1");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "btInterface");
+		ts.putSetting("btInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("btInterface.transmitSpeed", "1k");
+		ts.putSetting("btInterface.transmitRange", "10");
+		ts.putSetting("Group.movementModel", "StationaryMovement");
+		ts.putSetting("Group1." + StationaryMovement.LOCATION_S, "10,10");
+		ts.putSetting("Group2." + StationaryMovement.LOCATION_S, "100,10");
+		ts.putSetting("Group.router", "EpidemicRouter");
+		ts.putSetting("Group." + MessageRouter.B_SIZE_S, "1M");
+		ts.putSetting("Group." + EnergyModel.INIT_ENERGY_S, "" + INIT_ENERGY);
+		ts.putSetting("Group." + EnergyModel.SCAN_ENERGY_S, "" + SCAN_ENERGY);
+		ts.putSetting("Group." + EnergyModel.TRANSMIT_ENERGY_S,
+				"" + TRANSMIT_ENERGY);
+		ts.putSetting("Group." + EnergyModel.SCAN_RSP_ENERGY_S,
+				"" + SCAN_RSP_ENERGY);
+	}
+
+	protected void tearDown() throws Exception {
+		SimScenario.reset();
+		SimClock.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates the world of a new scenario with the current settings
+	 * @param lazy Is lazy energy accounting used
+	 */
+	private void createWorld(boolean lazy) {
+		ts.putSetting("Group." + EnergyModel.LAZY_S, "" + lazy);
+		SimScenario.reset();
+		SimClock.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		ConnectivityGrid.reset();
+		MovementModel.reset();
+		RandomStreams.reset();
+		world = SimScenario.getInstance().getWorld();
+		hosts = world.getHosts();
+	}
+
+	/**
+	 * Moves the second host next to the first one
+	 */
+	private void connectHosts() {
+		hosts.get(1).setLocation(new Coord(15, 10));
+	}
+
+	private void runUntil(double time) {
+		while (SimClock.getTime() < time - 1e-9) {
+			world.update();
+		}
+	}
+
+	private static EnergyModel energy(DTNHost host) {
+		return ((ActiveRouter)host.getRouter()).getEnergyModel();
+	}
+
+	private static double busEnergy(DTNHost host) {
+		return host.getComBus().getDouble(EnergyModel.ENERGY_VALUE_KEY, -1);
+	}
+
+	/**
+	 * Runs a scenario with a message transfer and returns the energy levels
+	 * of the hosts at the given times
+	 */
+	private double[][] transferLevels(boolean lazy, double[] times) {
+		createWorld(lazy);
+		DTNHost h0 = hosts.get(0);
+		DTNHost h1 = hosts.get(1);
+		double[][] levels = new double[times.length][2];
+
+		runUntil(2);
+		connectHosts();
+		runUntil(5);
+		h0.createNewMessage(new Message(h0, h1, "M1", 10000)); // 10 s
+		for (int i=0; i<times.length; i++) {
+			runUntil(times[i]);
+			levels[i][0] = energy(h0).getEnergy();
+			levels[i][1] = energy(h1).getEnergy();
+		}
+		return levels;
+	}
+
+	public void testLazyTracksPerUpdateLevels() {
+		double[] times = {2, 8, 12, 20, 30};
+		double[][] perUpdate = transferLevels(false, times);
+		double[][] lazy = transferLevels(true, times);
+
+		/* per update accounting charges the first update's scanning and
+		 * transfers one update late */
+		double delta = (SCAN_ENERGY + TRANSMIT_ENERGY) * 0.1 + 1e-6;
+		for (int i=0; i<times.length; i++) {
+			for (int j=0; j<2; j++) {
+				assertEquals("Host " + j + " at " + times[i],
+						perUpdate[i][j], lazy[i][j], delta);
+			}
+		}
+		/* scanning, one discovery response and 10 s of transfer */
+		double expected = INIT_ENERGY - SCAN_ENERGY * 30 -
+			TRANSMIT_ENERGY * 10;
+		assertEquals(expected * 2 - SCAN_RSP_ENERGY, lazy[4][0] + lazy[4][1],
+				delta * 2);
+	}
+
+	/**
+	 * Checks that the energy of a lazy model runs out exactly at the
+	 * scheduled time even if it's between two updates of the interval
+	 * @param park Are idle hosts parked
+	 */
+	private void assertDepletionAtScheduledTime(boolean park) {
+		ts.putSetting("Group." + EnergyModel.INIT_ENERGY_S, "10");
+		ts.putSetting("Group." + EnergyModel.SCAN_ENERGY_S, "1"); // 1/s
+		ts.putSetting("Scenario.updateInterval", "3");
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.PARK_IDLE_HOSTS_S, "" + park);
+		createWorld(true);
+		DTNHost h = hosts.get(0);
+		final double[] emptyAt = {-1};
+
+		world.update(); // energy model is initialized at the first update
+		double depletion = SimClock.getTime() + 10;
+		/* lazy hosts are idle until their energy runs out */
+		assertTrue(h.getRouter().isIdle());
+		assertEquals(depletion, h.getRouter().getIdleUntil(), 1e-9);
+		h.getComBus().subscribe(EnergyModel.ENERGY_VALUE_ID,
+				new ModuleCommunicationListener() {
+			public void moduleValueChanged(String key, Object newValue) {
+				if ((Double)newValue <= 0 && emptyAt[0] < 0) {
+					emptyAt[0] = SimClock.getTime();
+				}
+			}
+		});
+		/* the depletion falls between two updates of the interval */
+		while (SimClock.getTime() < depletion) {
+			assertTrue(energy(h).getEnergy() > 0);
+			assertTrue(h.isRadioActive());
+			world.update();
+		}
+
+		assertEquals(depletion, emptyAt[0], 1e-9);
+		assertEquals(0.0, energy(h).getEnergy());
+		assertEquals(0.0, busEnergy(h));
+		assertFalse(h.isRadioActive());
+	}
+
+	public void testDepletionAtScheduledTime() {
+		assertDepletionAtScheduledTime(false);
+	}
+
+	public void testDepletionOfParkedHost() {
+		assertDepletionAtScheduledTime(true);
+	}
+
+	public void testDrainFollowsActiveness() {
+		ts.putSetting("Group." + NetworkInterface.NET_SUB_NS + "." +
+				ActivenessHandler.ACTIVE_TIMES_S, "0,10,20,100");
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.PARK_IDLE_HOSTS_S, "true");
+		createWorld(true);
+		DTNHost h = hosts.get(0);
+		world.update();
+		double start = SimClock.getTime();
+		/* the interface turns off at the first update after the end time */
+		double delta = SCAN_ENERGY * 0.1 + 1e-6;
+		runUntil(15);
+		assertFalse(h.isRadioActive());
+		assertEquals(INIT_ENERGY - SCAN_ENERGY * (10 - start),
+				energy(h).getEnergy(), delta);
+
+		/* no scanning while the interface is inactive */
+		runUntil(30);
+		assertTrue(h.isRadioActive());
+		assertEquals(INIT_ENERGY - SCAN_ENERGY * (20 - start),
+				energy(h).getEnergy(), delta);
+	}
+
+	public void testDiscoveryChargesAreSettled() {
+		ts.putSetting("Group." + EnergyModel.TRANSMIT_ENERGY_S, "0");
+		createWorld(true);
+		world.update();
+		double start = SimClock.getTime();
+		runUntil(2);
+		connectHosts();
+		runUntil(10);
+
+		double drained = SCAN_ENERGY * (SimClock.getTime() - start);
+		double e0 = energy(hosts.get(0)).getEnergy();
+		double e1 = energy(hosts.get(1)).getEnergy();
+		/* the host that didn't initiate the connection paid the response */
+		assertEquals(2 * (INIT_ENERGY - drained) - SCAN_RSP_ENERGY, e0 + e1,
+				1e-9);
+		assertEquals(SCAN_RSP_ENERGY, Math.abs(e0 - e1), 1e-9);
+
+		/* the charges are on the bus; the drain since then is not */
+		for (DTNHost h : hosts) {
+			double bus = busEnergy(h);
+			assertTrue(bus > energy(h).getEnergy());
+			energy(h).settle();
+			assertEquals(energy(h).getEnergy(), busEnergy(h), 1e-9);
+		}
+	}
+
+	public void testWarmup() {
+		ts.putSetting("Group." + EnergyModel.WARMUP_S, "5");
+		for (boolean lazy : new boolean[] {false, true}) {
+			createWorld(lazy);
+			DTNHost h = hosts.get(0);
+			runUntil(4);
+			assertEquals(INIT_ENERGY, energy(h).getEnergy(), 1e-9);
+			runUntil(15);
+			assertEquals("lazy: " + lazy, INIT_ENERGY - SCAN_ENERGY * 10,
+					energy(h).getEnergy(), SCAN_ENERGY * 0.1 + 1e-6);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import gui.EventLogBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTNHost;
+import core.Message;
+
+/**
+ * Tests for the event log ring buffer
+ */
+public class EventLogBufferTest extends TestCase {
+	private EventLogBuffer buffer;
+	private List<Double> times;
+	private EventLogBuffer.Reader reader;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		buffer = new EventLogBuffer(5);
+		times = new ArrayList<Double>();
+		reader = new EventLogBuffer.Reader() {
+			public void read(int type, double time, DTNHost host1, 
+					DTNHost host2, Message message, boolean highlight) {
+				assertEquals((int)time, type);
+				times.add(time);
+			}
+		};
+	}
+	
+	private void add(int n) {
+		buffer.add(n, n, null, null, null, false);
+	}
+	
+	public void testCapacity() {
+		assertEquals(7, buffer.getCapacity());
+		assertEquals(1, new EventLogBuffer(1).getCapacity());
+		assertEquals(15, new EventLogBuffer(15).getCapacity());
+		assertEquals(31, new EventLogBuffer(16).getCapacity());
+	}
+	
+	public void testDrain() {
+		add(0);
+		add(1);
+		add(2);
+		assertEquals(3, buffer.drain(reader));
+		assertEquals(3, times.size());
+		assertEquals(2.0, times.get(2));
+		
+		assertEquals(0, buffer.drain(reader));
+		add(3);
+		assertEquals(1, buffer.drain(reader));
+		assertEquals(3.0, times.get(3));
+		assertEquals(0, buffer.getNrofLost());
+	}
+	
+	public void testOverwrite() {
+		for (int i=0; i<20; i++) {
+			add(i);
+		}
+		/* only the newest records fit in the buffer */
+		assertEquals(7, buffer.drain(reader));
+		assertEquals(13.0, times.get(0));
+		assertEquals(19.0, times.get(6));
+		assertEquals(13, buffer.getNrofLost());
+	}
+	
+	public void testConcurrentProducer() throws Exception {
+		final int nrofRecords = 200000;
+		Thread producer = new Thread() {
+			public void run() {
+				for (int i=0; i<nrofRecords; i++) {
+					add(i);
+				}
+			}
+		};
+		producer.start();
+		while (producer.isAlive()) {
+			buffer.drain(reader);
+		}
+		buffer.drain(reader);
+		
+		/* records are read in order and none is read twice */
+		for (int i=1; i<times.size(); i++) {
+			assertTrue(times.get(i) > times.get(i-1));
+		}
+		assertEquals(nrofRecords - 1.0, times.get(times.size() - 1));
+		assertEquals(nrofRecords, times.size() + buffer.getNrofLost());
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.RandomWaypoint;
+import routing.ActiveRouter;
+import routing.EpidemicRouter;
+import util.RandomStreams;
+import applications.PingApplication;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Tests that the hosts created by many threads are the same as the hosts
+ * created by one thread.
+ */
+public class HostCreationTest extends TestCase {
+	private static final int NROF_HOSTS = 40;
+	private static final int NROF_UPDATES = 3000;
+
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		ts.putSetting("Scenario." + RandomStreams.PER_HOST_RNG_S, "true");
+		ts.putSetting("MovementModel.rngSeed", "7");
+		ts.putSetting("Group.groupID", "n");
+		ts.putSetting("Group.nrofHosts", "" + NROF_HOSTS);
+		ts.putSetting("Group.movementModel", "RandomWaypoint");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.waitTime", "0, 10");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "btInterface");
+		ts.putSetting("btInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("btInterface.transmitSpeed", "10k");
+		ts.putSetting("btInterface.transmitRange", "50");
+		ts.putSetting("btInterface.scanInterval", "5");
+		ts.putSetting("Group.router", "EpidemicRouter");
+		ts.putSetting("Group.bufferSize", "1M");
+		ts.putSetting("Group.initialEnergy", "1000, 2000");
+		ts.putSetting("Group.scanEnergy", "0.1");
+		ts.putSetting("Group.scanResponseEnergy", "0.1");
+		ts.putSetting("Group.transmitEnergy", "0.2");
+		ts.putSetting("Group.nrofApplications", "1");
+		ts.putSetting("Group.application1", "pingApp");
+		ts.putSetting("pingApp.type", "PingApplication");
+		ts.putSetting("pingApp.interval", "50");
+		ts.putSetting("pingApp.destinationRange", "0," + (NROF_HOSTS - 1));
+		ts.putSetting("pingApp.pingSize", "5k");
+		ts.putSetting("pingApp.pongSize", "5k");
+	}
+
+	protected void tearDown() throws Exception {
+		SimScenario.reset();
+		SimClock.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates the hosts using the given number of threads and runs the
+	 * world for a while
+	 * @param nrofThreads Number of host creation threads
+	 * @return The state of the hosts after creation and after the run
+	 */
+	private List<String> run(int nrofThreads) {
+		ts.putSetting("Scenario." + SimScenario.HOST_THREADS_S,
+				"" + nrofThreads);
+		SimScenario.reset();
+		SimClock.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		ConnectivityGrid.reset();
+		MovementModel.reset();
+		RandomStreams.reset();
+		World world = SimScenario.getInstance().getWorld();
+
+		List<String> states = new ArrayList<String>();
+		addStates(world, states);
+		for (int i=0; i<NROF_UPDATES; i++) {
+			world.update();
+		}
+		addStates(world, states);
+		return states;
+	}
+
+	/**
+	 * Adds the location, energy level and buffered messages of all the
+	 * hosts to the list
+	 */
+	private void addStates(World world, List<String> states) {
+		for (DTNHost h : world.getHosts()) {
+			Coord c = h.getLocation();
+			double energy =
+				((ActiveRouter)h.getRouter()).getEnergyModel().getEnergy();
+			states.add(h + " at " + SimClock.getTime() + ": " + c.getX() +
+					"," + c.getY() + " energy " + energy + " messages " +
+					h.getMessageCollection());
+		}
+	}
+
+	public void testPrototypesAreParallel() {
+		TestSettings group = new TestSettings("Group");
+		assertTrue(new RandomWaypoint(group).isParallelReplicationSupported());
+		assertTrue(new EpidemicRouter(group).isParallelReplicationSupported());
+		assertTrue(new PingApplication(new TestSettings("pingApp")).
+				isParallelReplicationSupported());
+	}
+
+	public void testParallelSameAsSerial() {
+		List<String> serial = run(1);
+		List<String> parallel = run(4);
+
+		assertEquals(2 * NROF_HOSTS, serial.size());
+		assertEquals(serial.size(), parallel.size());
+		for (int i=0; i<serial.size(); i++) {
+			assertEquals(serial.get(i), parallel.get(i));
+		}
+	}
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a dtnd router for testing the DTN2 connectivity
+ * without DTN2. Listens to an ECLA port and a console port on the loopback
+ * interface, configures the ECLA that connects to it (with a link called
+ * {@link #LINK_NAME}) and injects bundles to the ECLA. The bundles the
+ * ECLA passes back are counted. The console commands are ignored.
+ * <P>Run with <CODE>java test.LoopbackDtnd confFile nrofNodes
+ * [nrofBundles] [payloadSize]</CODE> to start dtnd stand-ins for load
+ * testing ONE: the DTN2 connectivity configuration file (for
+ * <CODE>DTN2.configFile</CODE>) is written to confFile and once ONE has
+ * connected to all the stand-ins, the bundles are sent to random nodes.
+ * </P>
+ */
+public class LoopbackDtnd {
+	/** Name of the link to the ECLA */
+	public static final String LINK_NAME = "one";
+	/** End tag of the ECLA protocol messages */
+	private static final String MSG_END = "</cl_message>";
+
+	private String eid;
+	private ServerSocket eclaServer;
+	private ServerSocket consoleServer;
+	private File incomingDir;
+	private File outgoingDir;
+	private OutputStream ecla;
+	private AtomicInteger nrofTransmitted = new AtomicInteger();
+	private AtomicInteger nrofReceived = new AtomicInteger();
+	private int nrofSent = 0;
+
+	/**
+	 * Creates a new dtnd stand-in listening to free ports
+	 * @param eid EID of the stand-in (e.g. "dtn://loop-1.dtn")
+	 * @throws IOException if the ports can't be opened
+	 */
+	public LoopbackDtnd(String eid) throws IOException {
+		InetAddress lo = InetAddress.getByName("127.0.0.1");
+		this.eid = eid;
+		this.eclaServer = new ServerSocket(0, 1, lo);
+		this.consoleServer = new ServerSocket(0, 1, lo);
+		this.incomingDir = createTempDir("dtnd-in");
+		this.outgoingDir = createTempDir("dtnd-out");
+
+		start(new Runnable() {
+			public void run() {
+				serveEcla();
+			}
+		});
+		start(new Runnable() {
+			public void run() {
+				serveConsole();
+			}
+		});
+	}
+
+	/**
+	 * Returns the ECLA port
+	 * @return the ECLA port
+	 */
+	public int getEclaPort() {
+		return eclaServer.getLocalPort();
+	}
+
+	/**
+	 * Returns the console port
+	 * @return the console port
+	 */
+	public int getConsolePort() {
+		return consoleServer.getLocalPort();
+	}
+
+	/**
+	 * Waits until an ECLA has connected and the link to it is created
+	 * @param timeout Maximum time to wait (milliseconds)
+	 * @return true if the ECLA is connected, false if the time ran out
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	public synchronized boolean waitForEcla(long timeout)
+		throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (ecla == null && System.currentTimeMillis() < end) {
+			wait(Math.max(1, end - System.currentTimeMillis()));
+		}
+		return ecla != null;
+	}
+
+	/**
+	 * Writes a bundle to the outgoing bundle directory and asks the ECLA
+	 * to send it over the link
+	 * @param destination EID of the bundle's destination
+	 * @param payload The payload of the bundle
+	 * @throws IOException if writing the bundle fails
+	 * @throws IllegalStateException if no ECLA is connected
+	 */
+	public synchronized void sendBundle(String destination, byte[] payload)
+		throws IOException {
+		if (ecla == null) {
+			throw new IllegalStateException("No ECLA connected");
+		}
+		int seq = nrofSent++;
+		String name = "bundle_" + seq;
+		writeBundle(new File(outgoingDir, name), eid + "/src", destination,
+				1, seq, payload);
+		send("<cl_message><bundle_send_request link_name='" + LINK_NAME +
+				"' location='" + name + "'><bundle_attributes source_eid='" +
+				eid + "/src' timestamp_seconds='1' timestamp_sequence='" + seq +
+				"' is_fragment='false' fragment_length='0' " +
+				"fragment_offset='0'/></bundle_send_request></cl_message>\n");
+	}
+
+	/**
+	 * Returns the number of bundles the ECLA has reported transmitted
+	 * @return the number of transmitted bundles
+	 */
+	public int getNrofTransmitted() {
+		return nrofTransmitted.get();
+	}
+
+	/**
+	 * Returns the number of bundles the ECLA has passed to this dtnd
+	 * @return the number of received bundles
+	 */
+	public int getNrofReceived() {
+		return nrofReceived.get();
+	}
+
+	/**
+	 * Closes the ports and deletes the bundle directories
+	 */
+	public void close() {
+		try {
+			eclaServer.close();
+			consoleServer.close();
+			synchronized (this) {
+				if (ecla != null) {
+					ecla.close();
+				}
+			}
+		} catch (IOException e) {
+			/* nothing to do */
+		}
+		delete(incomingDir);
+		delete(outgoingDir);
+	}
+
+	/**
+	 * Writes a bundle file with a bundle protocol version 5 primary block
+	 * and a payload block
+	 * @param file The file to write
+	 * @param source Source EID
+	 * @param destination Destination EID
+	 * @param time Creation timestamp
+	 * @param seq Creation timestamp sequence number
+	 * @param payload The payload
+	 * @throws IOException if writing fails
+	 */
+	public static void writeBundle(File file, String source,
+			String destination, long time, long seq, byte[] payload)
+		throws IOException {
+		Map<String, Integer> dict = new LinkedHashMap<String, Integer>();
+		ByteArrayOutputStream dictBytes = new ByteArrayOutputStream();
+		String none = "dtn:none";
+		long[] offsets = new long[8];
+		String[] eids = {destination, source, none, none};
+
+		for (int i = 0; i < eids.length; i++) {
+			int colon = eids[i].indexOf(':');
+			String[] parts = {eids[i].substring(0, colon),
+					eids[i].substring(colon + 1)};
+			for (int j = 0; j < 2; j++) {
+				Integer offset = dict.get(parts[j]);
+				if (offset == null) {
+					offset = dictBytes.size();
+					dict.put(parts[j], offset);
+					dictBytes.write(parts[j].getBytes("US-ASCII"));
+					dictBytes.write(0);
+				}
+				offsets[2 * i + j] = offset;
+			}
+		}
+
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		for (long offset : offsets) {
+			writeSDNV(block, offset);
+		}
+		writeSDNV(block, time);
+		writeSDNV(block, seq);
+		writeSDNV(block, 3600); /* lifetime */
+		writeSDNV(block, dictBytes.size());
+		dictBytes.writeTo(block);
+
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(5); /* version */
+			writeSDNV(out, 0); /* processing flags */
+			writeSDNV(out, block.size());
+			block.writeTo(out);
+			out.write(1); /* payload block */
+			writeSDNV(out, 0x08); /* last block */
+			writeSDNV(out, payload.length);
+			out.write(payload);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeSDNV(OutputStream out, long value)
+		throws IOException {
+		int nrofBytes = 1;
+		while (nrofBytes < 10 && (value >>> (7 * nrofBytes)) != 0) {
+			nrofBytes++;
+		}
+		for (int i = nrofBytes - 1; i >= 0; i--) {
+			int b = (int)((value >>> (7 * i)) & 0x7f);
+			out.write(i > 0 ? b | 0x80 : b);
+		}
+	}
+
+	/**
+	 * Accepts the ECLA connection and handles its messages
+	 */
+	private void serveEcla() {
+		try {
+			Socket s = eclaServer.accept();
+			InputStream in = s.getInputStream();
+			OutputStream out = s.getOutputStream();
+			StringBuilder buf = new StringBuilder();
+			byte[] b = new byte[4096];
+			int n;
+
+			while ((n = in.read(b)) > 0) {
+				buf.append(new String(b, 0, n, "UTF-8"));
+				int end;
+				while ((end = buf.indexOf(MSG_END)) >= 0) {
+					handleMessage(buf.substring(0, end), out);
+					buf.delete(0, end + MSG_END.length());
+				}
+			}
+		} catch (IOException e) {
+			/* closed */
+		}
+	}
+
+	/**
+	 * Handles a message from the ECLA
+	 * @param msg The message (without the end tag)
+	 * @param out Output stream to the ECLA
+	 * @throws IOException if replying fails
+	 */
+	private void handleMessage(String msg, OutputStream out)
+		throws IOException {
+		if (msg.contains("<cla_add_request")) {
+			out.write(("<cl_message><cla_set_params_request local_eid='" +
+					eid + "' create_discovered_links='false' " +
+					"bundle_pass_method='filesystem' " +
+					"reactive_fragment_enabled='false'>" +
+					"<key_value_pair name='incoming_bundle_dir' value='" +
+					incomingDir.getAbsolutePath() + "'/>" +
+					"<key_value_pair name='outgoing_bundle_dir' value='" +
+					outgoingDir.getAbsolutePath() + "'/>" +
+					"</cla_set_params_request></cl_message>\n" +
+					"<cl_message><link_create_request link_name='" +
+					LINK_NAME + "' type='alwayson' peer_eid='dtn://one'/>" +
+					"</cl_message>\n").getBytes("UTF-8"));
+		} else if (msg.contains("<link_created_event")) {
+			synchronized (this) {
+				ecla = out;
+				notifyAll();
+			}
+		} else if (msg.contains("<bundle_transmitted_event")) {
+			nrofTransmitted.incrementAndGet();
+		} else if (msg.contains("<bundle_received_event")) {
+			nrofReceived.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Accepts console connections and ignores the commands
+	 */
+	private void serveConsole() {
+		try {
+			while (true) {
+				final Socket s = consoleServer.accept();
+				start(new Runnable() {
+					public void run() {
+						try {
+							InputStream in = s.getInputStream();
+							while (in.read(new byte[1024]) > 0) { }
+						} catch (IOException e) {
+							/* closed */
+						}
+					}
+				});
+			}
+		} catch (IOException e) {
+			/* closed */
+		}
+	}
+
+	private synchronized void send(String msg) throws IOException {
+		ecla.write(msg.getBytes("UTF-8"));
+	}
+
+	private static void start(Runnable r) {
+		Thread t = new Thread(r);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	private static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Can't create directory " + dir);
+		}
+		return dir;
+	}
+
+	private static void delete(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: java test.LoopbackDtnd confFile " +
+					"nrofNodes [nrofBundles] [payloadSize]");
+			return;
+		}
+		int nrofNodes = Integer.parseInt(args[1]);
+		int nrofBundles = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int payloadSize = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+		LoopbackDtnd[] nodes = new LoopbackDtnd[nrofNodes];
+
+		PrintWriter conf = new PrintWriter(args[0]);
+		conf.println("# <nodeID> <EID regexp> <dtnd host> <ECL port> " +
+				"<console port>");
+		for (int i = 0; i < nrofNodes; i++) {
+			nodes[i] = new LoopbackDtnd("dtn://loop-" + i + ".dtn");
+			conf.println(i + " dtn://loop-" + i + ".dtn/(.*) 127.0.0.1 " +
+					nodes[i].getEclaPort() + " " +
+					nodes[i].getConsolePort());
+		}
+		conf.close();
+		System.out.println("Wrote " + args[0] + ", waiting for ONE...");
+
+		for (LoopbackDtnd node : nodes) {
+			while (!node.waitForEcla(1000)) { }
+		}
+
+		Random rng = new Random(0);
+		byte[] payload = new byte[payloadSize];
+		long start = System.nanoTime();
+		for (int i = 0; i < nrofBundles; i++) {
+			nodes[rng.nextInt(nrofNodes)].sendBundle("dtn://loop-" +
+					rng.nextInt(nrofNodes) + ".dtn/app", payload);
+		}
+
+		int transmitted = 0;
+		while (transmitted < nrofBundles) {
+			Thread.sleep(1000);
+			transmitted = 0;
+			int received = 0;
+			for (LoopbackDtnd node : nodes) {
+				transmitted += node.getNrofTransmitted();
+				received += node.getNrofReceived();
+			}
+			System.out.printf("%.1fs: %d/%d bundles passed to ONE, " +
+					"%d delivered back%n", (System.nanoTime() - start) / 1e9,
+					transmitted, nrofBundles, received);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import routing.maxprop.MaxPropCostCache;
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Simple benchmark that compares the cost calculation speed of 
+ * MaxPropDijkstra and MaxPropCostCache. Every round the costs from all
+ * nodes to a set of destinations are calculated once, as MaxPropRouter does
+ * when it sorts its messages, and some meeting probabilities are updated.
+ * Run with <CODE>java test.MaxPropCostBenchmark [nrofNodes] [rounds]</CODE>
+ */
+public class MaxPropCostBenchmark {
+	private static final int PROB_SET_MAX_SIZE = 50;
+	private static final int NROF_DESTINATIONS = 100;
+	private static final int WARMUP_ROUNDS = 5;
+	
+	public static void main(String[] args) {
+		int nrofNodes = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		
+		for (int i=0; i<WARMUP_ROUNDS; i++) {
+			runDijkstra(nrofNodes, 1);
+			runCache(nrofNodes, 1);
+		}
+		
+		long start = System.nanoTime();
+		double sum1 = runDijkstra(nrofNodes, rounds);
+		long dijkstraTime = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		double sum2 = runCache(nrofNodes, rounds);
+		long cacheTime = System.nanoTime() - start;
+		
+		System.out.printf("%d nodes, %d rounds%n", nrofNodes, rounds);
+		System.out.printf("MaxPropDijkstra:  %8.2f ms (checksum %.4f)%n", 
+				dijkstraTime / 1e6, sum1);
+		System.out.printf("MaxPropCostCache: %8.2f ms (checksum %.4f)%n", 
+				cacheTime / 1e6, sum2);
+	}
+	
+	private static Map<Integer, MeetingProbabilitySet> createGraph(int n) {
+		Map<Integer, MeetingProbabilitySet> probs = 
+			new HashMap<Integer, MeetingProbabilitySet>();
+		Random rng = new Random(n);
+		for (int i=0; i<n; i++) {
+			probs.put(i, new MeetingProbabilitySet(PROB_SET_MAX_SIZE, 1.0));
+		}
+		for (int i=0; i<n * PROB_SET_MAX_SIZE; i++) {
+			meet(probs, rng, n);
+		}
+		return probs;
+	}
+	
+	private static void meet(Map<Integer, MeetingProbabilitySet> probs,
+			Random rng, int n) {
+		int a = rng.nextInt(n);
+		int b = rng.nextInt(n);
+		if (a != b) {
+			probs.get(a).updateMeetingProbFor(b);
+			probs.get(b).updateMeetingProbFor(a);
+		}
+	}
+	
+	private static double runDijkstra(int n, int rounds) {
+		Map<Integer, MeetingProbabilitySet> probs = createGraph(n);
+		Random rng = new Random(rounds);
+		double sum = 0;
+		for (int r=0; r<rounds; r++) {
+			Set<Integer> targets = new HashSet<Integer>();
+			for (int i=0; i<NROF_DESTINATIONS; i++) {
+				targets.add(rng.nextInt(n));
+			}
+			MaxPropDijkstra dijkstra = new MaxPropDijkstra(probs);
+			for (int from=0; from<n; from++) {
+				Map<Integer, Double> costs = dijkstra.getCosts(from, targets);
+				for (Integer to : targets) {
+					Double c = costs.get(to);
+					if (c != null) {
+						sum += c;
+					}
+				}
+			}
+			meet(probs, rng, n);
+		}
+		return sum;
+	}
+	
+	private static double runCache(int n, int rounds) {
+		Map<Integer, MeetingProbabilitySet> probs = createGraph(n);
+		Random rng = new Random(rounds);
+		MaxPropCostCache cache = new MaxPropCostCache(probs);
+		double sum = 0;
+		for (int r=0; r<rounds; r++) {
+			Set<Integer> targets = new HashSet<Integer>();
+			for (int i=0; i<NROF_DESTINATIONS; i++) {
+				targets.add(rng.nextInt(n));
+			}
+			for (int from=0; from<n; from++) {
+				for (Integer to : targets) {
+					double c = cache.getCost(from, to);
+					if (c != Double.MAX_VALUE) {
+						sum += c;
+					}
+				}
+			}
+			meet(probs, rng, n);
+			cache.invalidate();
+		}
+		return sum;
+	}
+}
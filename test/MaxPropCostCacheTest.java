@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import routing.maxprop.MaxPropCostCache;
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Tests for MaxProp's cached shortest path cost calculation class.
+ */
+public class MaxPropCostCacheTest extends TestCase {
+	
+	private static final int NROF_HOSTS = 50;
+	private Map<Integer, MeetingProbabilitySet> mapping;
+	private MaxPropCostCache cache;
+	
+	public void setUp() throws Exception {
+		super.setUp();
+		mapping = new HashMap<Integer, MeetingProbabilitySet>();
+		for (int i=0; i<NROF_HOSTS; i++) {
+			mapping.put(i, new MeetingProbabilitySet(
+					MeetingProbabilitySet.INFINITE_SET_SIZE, 1.0));
+		}
+		cache = new MaxPropCostCache(mapping);
+	}
+	
+	public void testPath() {
+		MeetingProbabilitySet mps0 = mapping.get(0);
+		MeetingProbabilitySet mps1 = mapping.get(1);
+		
+		mps0.updateMeetingProbFor(1);
+		mps1.updateMeetingProbFor(2);
+		mps1.updateMeetingProbFor(3);
+		
+		assertEquals(0.0, cache.getCost(0, 0));
+		assertEquals(0.0, cache.getCost(0, 1));
+		assertEquals(0.5, cache.getCost(0, 2));
+		assertEquals(0.5, cache.getCost(0, 3));
+		assertEquals(Double.MAX_VALUE, cache.getCost(0, 4));
+		assertEquals(Double.MAX_VALUE, cache.getCost(2, 0));
+		
+		/* unknown nodes have only the path to themselves */
+		assertEquals(0.0, cache.getCost(NROF_HOSTS + 1, NROF_HOSTS + 1));
+		assertEquals(Double.MAX_VALUE, cache.getCost(0, NROF_HOSTS + 1));
+	}
+	
+	public void testInvalidate() {
+		mapping.get(0).updateMeetingProbFor(1);
+		assertEquals(0.0, cache.getCost(0, 1));
+		assertEquals(Double.MAX_VALUE, cache.getCost(0, 2));
+		
+		mapping.get(0).updateMeetingProbFor(2);
+		/* costs are cached until invalidated */
+		assertEquals(0.0, cache.getCost(0, 1));
+		assertEquals(Double.MAX_VALUE, cache.getCost(0, 2));
+		
+		cache.invalidate();
+		assertEquals(0.5, cache.getCost(0, 1));
+		assertEquals(0.5, cache.getCost(0, 2));
+	}
+	
+	/**
+	 * Compares the costs to the ones calculated by MaxPropDijkstra
+	 */
+	public void testSameCostsAsDijkstra() {
+		Random rng = new Random(1);
+		for (int i=0; i<NROF_HOSTS * 10; i++) {
+			int from = rng.nextInt(NROF_HOSTS);
+			int to = rng.nextInt(NROF_HOSTS);
+			if (from != to) {
+				mapping.get(from).updateMeetingProbFor(to);
+			}
+		}
+		
+		MaxPropDijkstra dijkstra = new MaxPropDijkstra(mapping);
+		Set<Integer> targets = new HashSet<Integer>();
+		for (int i=0; i<NROF_HOSTS; i++) {
+			targets.add(i);
+		}
+		
+		for (int from=0; from<NROF_HOSTS; from++) {
+			Map<Integer, Double> costs = dijkstra.getCosts(from, targets);
+			for (int to=0; to<NROF_HOSTS; to++) {
+				Double expected = costs.get(to);
+				assertEquals(expected == null ? Double.MAX_VALUE : expected,
+						cache.getCost(from, to));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.maxprop.MeetingProbabilityDelta;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Tests for MaxProp's meeting probability set and its delta updates.
+ */
+public class MeetingProbabilitySetTest extends TestCase {
+	/* amount of deviation from expected values that is OK */ 
+	private static final double DELTA = 0.0000001;
+	
+	public void testNormalization() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(
+				MeetingProbabilitySet.INFINITE_SET_SIZE, 1.0);
+		for (int i=0; i<2000; i++) {
+			mps.updateMeetingProbFor(i % 7);
+			assertEquals(1.0, sum(mps), DELTA);
+		}
+		assertEquals(7, mps.size());
+		assertEquals(0.0, mps.getProbFor(7));
+	}
+	
+	public void testInitiallyKnownNodes() {
+		List<Integer> nodes = new ArrayList<Integer>();
+		nodes.add(3);
+		nodes.add(1);
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(1.0, nodes);
+		assertEquals(0.5, mps.getProbFor(1));
+		assertEquals(0.5, mps.getProbFor(3));
+		assertEquals(1, mps.getIndexAt(0));
+		assertEquals(3, mps.getIndexAt(1));
+	}
+	
+	public void testMaxSize() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(3, 1.0);
+		mps.updateMeetingProbFor(0);
+		mps.updateMeetingProbFor(1);
+		mps.updateMeetingProbFor(0);
+		assertEquals(2, mps.size());
+		mps.updateMeetingProbFor(2); // set full -> smallest is dropped
+		assertEquals(2, mps.size());
+		assertEquals(0.375, mps.getProbFor(0));
+		assertEquals(0.0, mps.getProbFor(1));
+		assertEquals(0.5, mps.getProbFor(2));
+	}
+	
+	public void testDelta() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(10, 1.0);
+		for (int i=0; i<5; i++) {
+			mps.updateMeetingProbFor(i);
+		}
+		MeetingProbabilitySet copy = mps.replicate();
+		
+		MeetingProbabilityDelta d = mps.getDelta(copy.getVersion());
+		assertEquals(0, d.getNrofEntries());
+		
+		mps.updateMeetingProbFor(2);
+		d = mps.getDelta(copy.getVersion());
+		assertFalse(d.isFull());
+		assertEquals(1, d.getNrofEntries());
+		
+		copy.applyDelta(d);
+		assertSame(mps, copy);
+	}
+	
+	/**
+	 * Tests that copies that are updated with deltas stay equal to the 
+	 * original, also when copies are updated from other copies and when
+	 * copies are so old that the removals are not all known anymore.
+	 */
+	public void testRandomDeltas() {
+		Random rng = new Random(1);
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(20, 1.0);
+		MeetingProbabilitySet[] copies = new MeetingProbabilitySet[5];
+		for (int i=0; i<copies.length; i++) {
+			copies[i] = mps.replicate();
+		}
+		
+		for (int round=0; round<2000; round++) {
+			int nrofUpdates = rng.nextInt(round % 100 == 0 ? 200 : 5);
+			for (int i=0; i<nrofUpdates; i++) {
+				mps.updateMeetingProbFor(rng.nextInt(50));
+			}
+			
+			MeetingProbabilitySet c = copies[rng.nextInt(copies.length)];
+			MeetingProbabilitySet other = copies[rng.nextInt(copies.length)];
+			if (rng.nextBoolean()) {
+				c.updateFrom(mps);
+				assertSame(mps, c);
+			} else if (other.getVersion() > c.getVersion()) {
+				c.updateFrom(other);
+				assertSame(other, c);
+			}
+		}
+	}
+	
+	private void assertSame(MeetingProbabilitySet expected, 
+			MeetingProbabilitySet actual) {
+		assertEquals(expected.getVersion(), actual.getVersion());
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			assertEquals(expected.getIndexAt(i), actual.getIndexAt(i));
+			assertEquals(expected.getProbAt(i), actual.getProbAt(i));
+		}
+	}
+	
+	private double sum(MeetingProbabilitySet mps) {
+		double total = 0;
+		for (int i=0; i<mps.size(); i++) {
+			total += mps.getProbAt(i);
+		}
+		return total;
+	}
+}
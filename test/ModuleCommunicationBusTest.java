@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import core.ModuleCommunicationBus;
 import core.ModuleCommunicationListener;
+import core.SimError;
 
 public class ModuleCommunicationBusTest extends TestCase {
 
@@ -103,4 +104,82 @@ public class ModuleCommunicationBusTest extends TestCase {
 		assertEquals(-16.7, b.getDouble(key, -1.0));
 	}	
 
+	@Test
+	public void testIndexedDouble() {
+		String key = "indexedtst";
+		int index = ModuleCommunicationBus.getKeyIndex(key);
+		assertEquals(index, ModuleCommunicationBus.getKeyIndex(key));
+		assertEquals(key, ModuleCommunicationBus.getKeyName(index));
+		
+		assertFalse(b.containsProperty(index));
+		assertEquals(-1.0, b.getDouble(index, -1.0));
+		b.subscribe(key, mcl);
+		
+		b.setDouble(index, 2.5);
+		assertTrue(b.containsProperty(key));
+		assertEquals(2.5, b.getProperty(key));
+		assertEquals(2.5, b.getDouble(key, -1.0));
+		assertEquals(key, notifyKey);
+		assertEquals(2.5, notifyValue);
+		
+		assertEquals(3.0, b.updateDouble(index, 0.5));
+		assertEquals(3.0, notifyValue);
+		b.updateProperty(key, 4.0);
+		assertEquals(4.0, b.getDouble(index, -1.0));
+		
+		try {
+			b.addProperty(key, 1.0);
+			fail("Duplicate key should have been detected");
+		} catch (SimError e) {
+			// ok
+		}
+	}
+	
+	@Test
+	public void testWrongType() {
+		String key = "wrongtypetst";
+		int index = ModuleCommunicationBus.getKeyIndex(key);
+		b.addProperty(key, 5);
+		assertEquals(5, b.getInt(key, -1));
+		
+		try {
+			b.getDouble(index, -1.0);
+			fail("Integer value should not be returned as double");
+		} catch (SimError e) {
+			// ok
+		}
+		try {
+			b.updateDouble(key, 1.0);
+			fail("Integer value should not be updated as double");
+		} catch (SimError e) {
+			// ok
+		}
+		
+		b.updateProperty(key, null);
+		assertTrue(b.containsProperty(key));
+		assertEquals(-1.0, b.getDouble(key, -1.0));
+	}
+	
+	@Test
+	public void testUnsubscribeInNotification() {
+		final String key = "unsubnotifytst";
+		final int[] calls = new int[1];
+		ModuleCommunicationListener once = new ModuleCommunicationListener() {
+			public void moduleValueChanged(String k, Object newValue) {
+				calls[0]++;
+				b.unsubscribe(key, this);
+			}
+		};
+		b.subscribe(key, once);
+		b.subscribe(key, mcl);
+		
+		b.updateProperty(key, "first");
+		assertEquals(1, calls[0]);
+		assertEquals("first", notifyValue);
+		
+		b.updateProperty(key, "second");
+		assertEquals(1, calls[0]);
+		assertEquals("second", notifyValue);
+	}
+
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.Path;
+import core.Coord;
+import core.DTNHost;
+import core.MessageListener;
+import core.MovementStore;
+import core.SimClock;
+
+/**
+ * Tests that hosts moved by a {@link MovementStore} travel exactly the same
+ * trajectories as hosts that move themselves, and that the location of a
+ * host in the store is a view of the store.
+ */
+public class MovementStoreTest extends TestCase {
+	private static final int NROF_HOSTS = 10;
+	private static final double STEP = 0.7;
+	private static final double END_TIME = 3000;
+	/** the hosts move only this long of every activeness period */
+	private static final double ACTIVE_TIME = 200;
+	private static final double PERIOD = 300;
+
+	private List<DTNHost> storeHosts;
+	private List<DTNHost> plainHosts;
+	private MovementStore store;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		DTNHost.reset();
+		TestUtils utils = new TestUtils(null,
+				new ArrayList<MessageListener>(), new TestSettings());
+
+		/* the store needs the hosts indexed by their address */
+		storeHosts = new ArrayList<DTNHost>();
+		HopMovement proto = new HopMovement(1);
+		for (int i=0; i<NROF_HOSTS; i++) {
+			storeHosts.add(utils.createHost(proto, null));
+		}
+		store = new MovementStore(storeHosts);
+
+		plainHosts = new ArrayList<DTNHost>();
+		proto = new HopMovement(1);
+		for (int i=0; i<NROF_HOSTS; i++) {
+			plainHosts.add(utils.createHost(proto, null));
+		}
+	}
+
+	public void testSameTrajectories() {
+		SimClock clock = SimClock.getInstance();
+		assertSameLocations();
+		while (SimClock.getTime() < END_TIME) {
+			store.move(STEP);
+			for (DTNHost h : plainHosts) {
+				h.move(STEP);
+			}
+			assertSameLocations();
+			clock.advance(STEP);
+		}
+	}
+
+	public void testSetLocationWritesStore() {
+		SimClock clock = SimClock.getInstance();
+		DTNHost host = storeHosts.get(0);
+		Coord loc = host.getLocation();
+		while (SimClock.getTime() < ACTIVE_TIME / 2) {
+			store.move(STEP);
+			for (DTNHost h : plainHosts) {
+				h.move(STEP);
+			}
+			clock.advance(STEP);
+		}
+
+		host.setLocation(new Coord(10, 20));
+		plainHosts.get(0).setLocation(new Coord(10, 20));
+		assertSame(loc, host.getLocation());
+		assertEquals(new Coord(10, 20), loc);
+		testSameTrajectories();
+	}
+
+	public void testCloneIsNotView() {
+		DTNHost host = storeHosts.get(0);
+		Coord copy = host.getLocation().clone();
+		for (int i=0; i<1000 && copy.equals(host.getLocation()); i++) {
+			store.move(STEP);
+			SimClock.getInstance().advance(STEP);
+		}
+
+		assertFalse(copy.equals(host.getLocation()));
+		assertEquals(Coord.class, copy.getClass());
+		Coord moved = host.getLocation().clone();
+		store.move(STEP);
+		assertEquals(moved, moved.clone());
+		assertEquals(host.getLocation().distance(moved),
+				moved.distance(host.getLocation()));
+	}
+
+	public void testLocationReadDoesNotMove() {
+		DTNHost host = storeHosts.get(0);
+		Coord loc = host.getLocation();
+		Coord copy = loc.clone();
+		for (int i=0; i<1000 && copy.equals(host.getLocation()); i++) {
+			store.move(STEP);
+			SimClock.getInstance().advance(STEP);
+		}
+
+		assertSame(loc, host.getLocation());
+		assertFalse(copy.equals(host.getLocation()));
+		Coord moved = host.getLocation().clone();
+		host.getLocation();
+		assertEquals(moved, host.getLocation());
+	}
+
+	private void assertSameLocations() {
+		for (int i=0; i<NROF_HOSTS; i++) {
+			assertEquals("Host " + i + " at " + SimClock.getTime(),
+					plainHosts.get(i).getLocation(),
+					storeHosts.get(i).getLocation());
+		}
+	}
+
+	/**
+	 * Movement model that hops between random points with random speeds
+	 * and pauses, and is active only for {@link #ACTIVE_TIME} of every
+	 * {@link #PERIOD}. Every replica has its own, seeded random number
+	 * generator.
+	 */
+	private static class HopMovement extends MovementModel {
+		private int nextSeed;
+		private Random rand;
+		private Coord last;
+
+		public HopMovement(int seed) {
+			this.nextSeed = seed;
+			this.rand = new Random(seed);
+		}
+
+		@Override
+		public Coord getInitialLocation() {
+			this.last = randomCoord();
+			return this.last;
+		}
+
+		@Override
+		public boolean isActive() {
+			return SimClock.getTime() % PERIOD < ACTIVE_TIME;
+		}
+
+		@Override
+		public double getNextActivenessChange() {
+			double time = SimClock.getTime();
+			double start = time - time % PERIOD;
+			return isActive() ? start + ACTIVE_TIME : start + PERIOD;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = new Path(0.5 + rand.nextDouble() * 5);
+			p.addWaypoint(last.clone());
+			int n = 1 + rand.nextInt(3);
+			for (int i=0; i<n; i++) {
+				this.last = randomCoord();
+				p.addWaypoint(last.clone());
+			}
+			return p;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return SimClock.getTime() + rand.nextInt(3) * 10 * STEP;
+		}
+
+		@Override
+		public HopMovement replicate() {
+			return new HopMovement(nextSeed++);
+		}
+
+		private Coord randomCoord() {
+			return new Coord(rand.nextDouble() * 500, rand.nextDouble() * 500);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.Path;
+import movement.WaypointGenerator;
+import core.Coord;
+
+/**
+ * Tests for the Path class.
+ */
+public class PathTest extends TestCase {
+	
+	public void testConstantSpeed() {
+		Path p = new Path(2.5);
+		p.addWaypoint(new Coord(1, 2));
+		p.addWaypoint(3, 4);
+		assertEquals(2, p.getNrofWaypoints());
+		
+		assertTrue(p.hasNext());
+		assertEquals(new Coord(1, 2), p.getNextWaypoint());
+		assertEquals(2.5, p.getSpeed());
+		Coord c = new Coord(0, 0);
+		p.getNextWaypoint(c);
+		assertEquals(new Coord(3, 4), c);
+		assertEquals(2.5, p.getSpeed());
+		assertFalse(p.hasNext());
+	}
+	
+	public void testWaypointSpeeds() {
+		Path p = new Path();
+		for (int i=0; i<20; i++) {
+			p.addWaypoint(new Coord(i, -i), i * 0.5);
+		}
+		
+		for (int i=0; i<20; i++) {
+			assertEquals(new Coord(i, -i), p.getNextWaypoint());
+			assertEquals(i * 0.5, p.getSpeed());
+		}
+		assertFalse(p.hasNext());
+		assertEquals(20, p.getSpeeds().size());
+	}
+	
+	public void testCopy() {
+		Path p = new Path(1);
+		p.addWaypoint(new Coord(1, 1));
+		p.addWaypoint(new Coord(2, 2));
+		p.getNextWaypoint();
+		
+		Path copy = new Path(p);
+		p.addWaypoint(new Coord(3, 3));
+		
+		assertEquals(new Coord(2, 2), copy.getNextWaypoint());
+		assertFalse(copy.hasNext());
+		assertEquals(new Coord(2, 2), p.getNextWaypoint());
+		assertEquals(new Coord(3, 3), p.getNextWaypoint());
+	}
+	
+	public void testGenerator() {
+		Path p = new Path(1, new CountingGenerator(3));
+		p.addWaypoint(new Coord(-1, -1));
+		
+		assertEquals(new Coord(-1, -1), p.getNextWaypoint());
+		assertEquals(1, p.getNrofWaypoints());
+		for (int i=0; i<3; i++) {
+			assertTrue(p.hasNext());
+			assertEquals(new Coord(i, i), p.getNextWaypoint());
+		}
+		assertFalse(p.hasNext());
+	}
+	
+	public void testGeneratorCoords() {
+		Path p = new Path(1, new CountingGenerator(5));
+		List<Coord> coords = p.getCoords(); // generates all
+		assertEquals(5, coords.size());
+		assertEquals(new Coord(4, 4), coords.get(4));
+		
+		Path copy = new Path(p);
+		for (int i=0; i<5; i++) {
+			assertEquals(new Coord(i, i), p.getNextWaypoint());
+			assertEquals(new Coord(i, i), copy.getNextWaypoint());
+		}
+		assertFalse(p.hasNext());
+		assertFalse(copy.hasNext());
+	}
+	
+	private static class CountingGenerator implements WaypointGenerator {
+		private int count;
+		private int max;
+		
+		public CountingGenerator(int max) {
+			this.max = max;
+		}
+		
+		public boolean nextWaypoint(Coord c) {
+			if (count >= max) {
+				return false;
+			}
+			c.setLocation(count, count);
+			count++;
+			return true;
+		}
+	}
+}
@@ -195,6 +195,19 @@ public class PointsOfInterestTest extends TestCase {
 		
 	}
 
+	public void testCopyUsesOwnRng() throws Exception {
+		setUpWith(new double[] {0.3, 0.3, 0.1}, 0, null);
+		PointsOfInterest copy = new PointsOfInterest(pois, new Random(7));
+		PointsOfInterest reference = new PointsOfInterest(pois, 
+				new Random(7));
+		
+		for (int i=0; i<100; i++) {
+			pois.selectDestination(); // must not affect the copies
+			assertSame(reference.selectDestination(), 
+					copy.selectDestination());
+		}
+	}
+
 	public void testOkNodes() throws Exception {
 		int nrof = 100;
 		setUpWith(new double[] {0.1, 0.1, 0.1}, 1, new int [] {1});
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.util.PredictabilityTable;
+import core.Coord;
+import core.DTNHost;
+import core.MessageListener;
+
+/**
+ * Tests for the dense predictability table. The table is compared against
+ * the map based computations the PRoPHET routers used before.
+ */
+public class PredictabilityTableTest extends TestCase {
+	private static final int NROF_HOSTS = 20;
+	private static final double BETA = 0.25;
+
+	private List<DTNHost> hosts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null,
+				new ArrayList<MessageListener>(), new TestSettings());
+		hosts = new ArrayList<DTNHost>();
+		for (int i=0; i<NROF_HOSTS; i++) {
+			hosts.add(utils.createHost(new Coord(0, 0)));
+		}
+	}
+
+	public void testSetGetAndSize() {
+		PredictabilityTable t = new PredictabilityTable();
+		assertEquals(0.0, t.get(hosts.get(5)));
+		t.set(hosts.get(5), 0.5);
+		t.set(hosts.get(5), 0.75);
+		t.set(hosts.get(2), 0.1);
+		assertEquals(0.75, t.get(hosts.get(5)));
+		assertEquals(0.1, t.get(hosts.get(2)));
+		assertEquals(0.0, t.get(hosts.get(19)));
+		assertEquals(2, t.size());
+	}
+
+	public void testScaleFolding() {
+		PredictabilityTable t = new PredictabilityTable();
+		t.set(hosts.get(1), 0.5);
+		t.age(1e-60);
+		t.set(hosts.get(2), 0.5);
+		t.age(1e-60); /* scale below the minimum -> folded */
+		assertEquals(0.5e-120, t.get(hosts.get(1)), 1e-132);
+		assertEquals(0.5e-60, t.get(hosts.get(2)), 1e-72);
+
+		t.set(hosts.get(3), 0.5);
+		t.age(0.5);
+		assertEquals(0.25, t.get(hosts.get(3)), 1e-12);
+		assertEquals(0.25e-60, t.get(hosts.get(2)), 1e-72);
+	}
+
+	public void testTransitiveSkipsSelf() {
+		DTNHost a = hosts.get(0);
+		DTNHost b = hosts.get(1);
+		PredictabilityTable ta = new PredictabilityTable();
+		PredictabilityTable tb = new PredictabilityTable();
+		ta.set(b, 0.8);
+		tb.set(a, 0.9);
+		tb.set(hosts.get(2), 0.5);
+
+		ta.updateTransitive(tb, a, ta.get(b), BETA);
+		assertEquals(0.0, ta.get(a));
+		assertEquals(0.8 * 0.5 * BETA, ta.get(hosts.get(2)), 1e-12);
+		assertEquals(2, ta.size());
+	}
+
+	public void testSameAsMaps() {
+		Random rng = new Random(42);
+		PredictabilityTable[] tables = new PredictabilityTable[NROF_HOSTS];
+		List<Map<DTNHost, Double>> maps = new ArrayList<Map<DTNHost,Double>>();
+		for (int i=0; i<NROF_HOSTS; i++) {
+			tables[i] = new PredictabilityTable();
+			maps.add(new HashMap<DTNHost, Double>());
+		}
+
+		for (int round=0; round<2000; round++) {
+			int a = rng.nextInt(NROF_HOSTS);
+			int b = rng.nextInt(NROF_HOSTS);
+			if (a == b) {
+				continue;
+			}
+			DTNHost hostA = hosts.get(a);
+			DTNHost hostB = hosts.get(b);
+			switch (rng.nextInt(4)) {
+			case 0: /* encounter */
+				double old = tables[a].get(hostB);
+				double p = old + (1 - old) * 0.75;
+				tables[a].set(hostB, p);
+				maps.get(a).put(hostB, p);
+				break;
+			case 1: /* aging, sometimes enough to fold the scale */
+				double mult = rng.nextInt(50) == 0 ? 1e-40 : 
+					Math.pow(0.98, rng.nextInt(100));
+				tables[a].age(mult);
+				for (Map.Entry<DTNHost, Double> e : maps.get(a).entrySet()) {
+					e.setValue(e.getValue() * mult);
+				}
+				break;
+			case 2: /* original transitive rule */
+				double pForHost = tables[a].get(hostB);
+				tables[a].updateTransitive(tables[b], hostA, pForHost, BETA);
+				for (Map.Entry<DTNHost, Double> e : 
+						maps.get(b).entrySet()) {
+					if (e.getKey() == hostA) {
+						continue;
+					}
+					double pOld = get(maps.get(a), e.getKey());
+					maps.get(a).put(e.getKey(), pOld + (1 - pOld) * 
+							pForHost * e.getValue() * BETA);
+				}
+				break;
+			default: /* PRoPHETv2 max rule */
+				pForHost = tables[a].get(hostB);
+				tables[a].updateTransitiveMax(tables[b], hostA, pForHost,
+						BETA);
+				for (Map.Entry<DTNHost, Double> e : 
+						maps.get(b).entrySet()) {
+					if (e.getKey() == hostA) {
+						continue;
+					}
+					double pNew = pForHost * e.getValue() * BETA;
+					if (pNew > get(maps.get(a), e.getKey())) {
+						maps.get(a).put(e.getKey(), pNew);
+					}
+				}
+			}
+			assertSame(tables[a], maps.get(a));
+		}
+		for (int i=0; i<NROF_HOSTS; i++) {
+			assertSame(tables[i], maps.get(i));
+		}
+	}
+
+	private static double get(Map<DTNHost, Double> map, DTNHost host) {
+		Double p = map.get(host);
+		return p == null ? 0 : p;
+	}
+
+	private void assertSame(PredictabilityTable t, Map<DTNHost, Double> m) {
+		assertEquals(m.size(), t.size());
+		for (DTNHost h : hosts) {
+			double expected = get(m, h);
+			assertEquals(expected, t.get(h), Math.abs(expected) * 1e-9);
+		}
+	}
+}
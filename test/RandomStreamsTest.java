@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.RandomWaypoint;
+import util.RandomStreams;
+import core.Coord;
+import core.DTNHost;
+import core.SimScenario;
+
+/**
+ * Tests for the per-host random number streams.
+ */
+public class RandomStreamsTest extends TestCase {
+	private MovementModel proto;
+	private DTNHost h0;
+	private DTNHost h1;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestSettings ts = new TestSettings();
+		ts.putSetting(SimScenario.SCENARIO_NS + "." + 
+				RandomStreams.PER_HOST_RNG_S, "true");
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." + 
+				MovementModel.RNG_SEED, "3");
+		ts.putSetting(MovementModel.SPEED, "1,2");
+		ts.putSetting(MovementModel.WAIT_TIME, "0,10");
+		RandomStreams.reset();
+		MovementModel.reset();
+		DTNHost.reset();
+		
+		proto = new RandomWaypoint(ts);
+		TestUtils tu = new TestUtils(null, null, ts);
+		h0 = tu.createHost();
+		h1 = tu.createHost();
+	}
+	
+	protected void tearDown() throws Exception {
+		new TestSettings();
+		RandomStreams.reset();
+		MovementModel.reset();
+		super.tearDown();
+	}
+	
+	public void testSeed() {
+		long s = RandomStreams.seed(1, 0, RandomStreams.MOVEMENT);
+		assertEquals(s, RandomStreams.seed(1, 0, RandomStreams.MOVEMENT));
+		assertTrue(s != RandomStreams.seed(2, 0, RandomStreams.MOVEMENT));
+		assertTrue(s != RandomStreams.seed(1, 1, RandomStreams.MOVEMENT));
+		assertTrue(s != RandomStreams.seed(1, 0, RandomStreams.ROUTING));
+		
+		/* the seeds of the SplittableRandom based mixing */
+		assertEquals(7806873273932414515L, s);
+		assertEquals(8028857058583304085L, RandomStreams.seed(0, 5, 
+				RandomStreams.ROUTING));
+		assertEquals(1132194705463443032L, RandomStreams.seed(42, 7, 
+				RandomStreams.ENERGY));
+	}
+	
+	public void testHostStreamsAreIndependent() {
+		MovementModel a = proto.replicate();
+		a.setHost(h0);
+		Coord loc = a.getInitialLocation();
+		String path = a.getPath().getCoords().toString();
+		
+		/* other host's movement model draws numbers in between */
+		MovementModel b = proto.replicate();
+		MovementModel a2 = proto.replicate();
+		b.setHost(h1);
+		Coord otherLoc = b.getInitialLocation();
+		b.getPath();
+		a2.setHost(h0);
+		
+		assertEquals(loc, a2.getInitialLocation());
+		assertEquals(path, a2.getPath().getCoords().toString());
+		assertFalse(loc.equals(otherLoc));
+	}
+	
+	public void testSharedStreamWhenDisabled() {
+		new TestSettings();
+		RandomStreams.reset();
+		MovementModel.reset();
+		assertFalse(RandomStreams.isEnabled());
+		
+		MovementModel a = proto.replicate();
+		a.setHost(h0);
+		Coord loc = a.getInitialLocation();
+		
+		MovementModel.reset();
+		MovementModel b = proto.replicate();
+		b.setHost(h1);
+		/* same shared stream from the start, regardless of the host */
+		assertEquals(loc, b.getInitialLocation());
+	}
+	
+	public void testReplicationSeeds() {
+		RandomStreams.startReplication(5);
+		long first = RandomStreams.nextReplicationSeed(1, 
+				RandomStreams.INTERFACE);
+		long second = RandomStreams.nextReplicationSeed(1, 
+				RandomStreams.INTERFACE);
+		RandomStreams.endReplication();
+		assertFalse(RandomStreams.isReplicating());
+		assertTrue(first != second);
+		
+		/* another host in between doesn't change the seeds */
+		RandomStreams.startReplication(6);
+		long other = RandomStreams.nextReplicationSeed(1, 
+				RandomStreams.INTERFACE);
+		RandomStreams.endReplication();
+		RandomStreams.startReplication(5);
+		assertEquals(first, RandomStreams.nextReplicationSeed(1, 
+				RandomStreams.INTERFACE));
+		assertEquals(second, RandomStreams.nextReplicationSeed(1, 
+				RandomStreams.INTERFACE));
+		RandomStreams.endReplication();
+		assertTrue(first != other);
+	}
+}
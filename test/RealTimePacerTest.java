@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import ui.RealTimePacer;
+
+/**
+ * Tests for the wall clock pacing of the simulation
+ */
+public class RealTimePacerTest extends TestCase {
+	private static final double FACTOR = 100; /* 1 s takes 10 ms */
+	private static final int NROF_TICKS = 20;
+
+	public void testPacing() {
+		RealTimePacer pacer = new RealTimePacer(FACTOR);
+		long start = System.nanoTime();
+		pacer.start(0);
+		for (int i=0; i<NROF_TICKS; i++) {
+			pacer.beginTick(i);
+			pacer.endTick(i + 1);
+		}
+		pacer.beginTick(NROF_TICKS);
+		long elapsed = System.nanoTime() - start;
+
+		assertTrue(elapsed >= NROF_TICKS / FACTOR * 1e9);
+		assertEquals(NROF_TICKS + 1, pacer.getNrofTicks());
+		assertEquals(0, pacer.getNrofOverruns());
+	}
+
+	public void testOverrun() throws InterruptedException {
+		RealTimePacer pacer = new RealTimePacer(FACTOR);
+		pacer.start(0);
+		pacer.beginTick(0);
+		Thread.sleep(50); /* budget 10 ms */
+		assertTrue(pacer.endTick(1));
+		assertEquals(1, pacer.getNrofOverruns());
+
+		/* the next tick starts late and the following catch up */
+		pacer.beginTick(1);
+		assertTrue(pacer.getMaxLag() >= 30 * 1000000L);
+		assertTrue(pacer.getLag(10) < 0);
+		assertTrue(pacer.getSummary().contains("1 over budget"));
+	}
+
+	public void testInvalidFactor() {
+		try {
+			new RealTimePacer(0);
+			fail("Zero factor accepted");
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+}
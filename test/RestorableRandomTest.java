@@ -0,0 +1,68 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import util.RestorableRandom;
+
+/**
+ * Tests for the random number generator with restorable state
+ */
+public class RestorableRandomTest extends TestCase {
+	private static final int NROF_VALUES = 1000;
+	private static final long SEED = 12345;
+
+	public void testSameSequenceAsRandom() {
+		Random r1 = new Random(SEED);
+		Random r2 = new RestorableRandom(SEED);
+
+		for (int i=0; i<NROF_VALUES; i++) {
+			assertEquals(r1.nextInt(), r2.nextInt());
+			assertEquals(r1.nextInt(i + 1), r2.nextInt(i + 1));
+			assertEquals(r1.nextLong(), r2.nextLong());
+			assertEquals(r1.nextDouble(), r2.nextDouble());
+			assertEquals(r1.nextBoolean(), r2.nextBoolean());
+			assertEquals(r1.nextGaussian(), r2.nextGaussian());
+		}
+	}
+
+	public void testSetSeed() {
+		Random r1 = new Random(SEED);
+		Random r2 = new RestorableRandom(SEED);
+
+		r1.nextGaussian();
+		r2.nextGaussian();
+		r1.setSeed(SEED + 1);
+		r2.setSeed(SEED + 1);
+		for (int i=0; i<NROF_VALUES; i++) {
+			assertEquals(r1.nextGaussian(), r2.nextGaussian());
+		}
+	}
+
+	public void testRestoreState() throws IOException {
+		RestorableRandom r1 = new RestorableRandom(SEED);
+		r1.nextDouble();
+		r1.nextGaussian(); /* leaves the next gaussian pending */
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		r1.writeState(new DataOutputStream(bytes));
+
+		RestorableRandom r2 = new RestorableRandom(SEED + 1);
+		r2.readState(new DataInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())));
+
+		for (int i=0; i<NROF_VALUES; i++) {
+			assertEquals(r1.nextGaussian(), r2.nextGaussian());
+			assertEquals(r1.nextDouble(), r2.nextDouble());
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import core.Coord;
+import input.WKTReader;
+import routing.schedule.EarliestArrivalSearch;
+import routing.schedule.ScheduleDijkstra;
+import routing.schedule.ScheduleEntry;
+import routing.schedule.ScheduleOracle;
+
+/**
+ * Benchmark that compares the fastest path searches of ScheduleDijkstra
+ * and EarliestArrivalSearch on bus and tram timetables made of the route
+ * files in the <CODE>data/</CODE> directory. Every point of a route is a
+ * stop and vehicles run both ways along every route for a day. Both
+ * searches get the same random queries and their arrival times must be the
+ * same. Run with
+ * <CODE>java test.ScheduleBenchmark [queries] [headway] [routeFiles...]</CODE>
+ */
+public class ScheduleBenchmark {
+	private static final String[] ROUTE_FILES = {
+		"data/HelsinkiMedium/A_bus.wkt", "data/HelsinkiMedium/B_bus.wkt",
+		"data/HelsinkiMedium/C_bus.wkt", "data/HelsinkiMedium/D_bus.wkt",
+		"data/HelsinkiMedium/E_bus.wkt", "data/HelsinkiMedium/F_bus.wkt",
+		"data/HelsinkiMedium/G_bus.wkt", "data/HelsinkiMedium/H_bus.wkt",
+		"data/tram3.wkt", "data/tram4.wkt", "data/tram10.wkt",
+		"data/Manhattan/bus.wkt"};
+	/** Speed of the vehicles (m/s) */
+	private static final double SPEED = 10;
+	/** Dwell time at the stops (s) */
+	private static final double DWELL = 20;
+	/** Length of the timetable (s) */
+	private static final double DAY = 24 * 3600;
+	private static final int WARMUP_QUERIES = 200;
+
+	public static void main(String[] args) throws IOException {
+		int queries = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		double headway = args.length > 1 ? Double.parseDouble(args[1]) : 600;
+		String[] files = ROUTE_FILES;
+		if (args.length > 2) {
+			files = new String[args.length - 2];
+			System.arraycopy(args, 2, files, 0, files.length);
+		}
+
+		ScheduleOracle oracle = new ScheduleOracle();
+		long start = System.nanoTime();
+		int nrofStops = load(oracle, files, headway);
+		long loadTime = System.nanoTime() - start;
+
+		ScheduleDijkstra dijkstra = new ScheduleDijkstra(oracle);
+		EarliestArrivalSearch search = new EarliestArrivalSearch(oracle);
+		run(dijkstra, search, nrofStops, WARMUP_QUERIES, 1);
+
+		start = System.nanoTime();
+		double sum1 = run(dijkstra, null, nrofStops, queries, 2);
+		long dijkstraTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		double sum2 = run(null, search, nrofStops, queries, 2);
+		long searchTime = System.nanoTime() - start;
+
+		System.out.printf("%d stops, %d contacts, loaded in %.2f ms%n",
+				nrofStops, oracle.getEntries().size(), loadTime / 1e6);
+		System.out.printf("ScheduleDijkstra:      %8.2f ms (checksum %.1f)%n",
+				dijkstraTime / 1e6, sum1);
+		System.out.printf("EarliestArrivalSearch: %8.2f ms (checksum %.1f)%n",
+				searchTime / 1e6, sum2);
+		if (sum1 != sum2) {
+			System.out.println("Checksums differ!");
+		}
+	}
+
+	/**
+	 * Loads the routes to the oracle
+	 * @return The number of stops
+	 */
+	private static int load(ScheduleOracle oracle, String[] files,
+			double headway) throws IOException {
+		Map<Coord, Integer> stops = new HashMap<Coord, Integer>();
+		WKTReader reader = new WKTReader();
+		int via = 0;
+
+		for (String file : files) {
+			for (List<Coord> route : reader.readLines(new File(file))) {
+				int n = route.size();
+				int[] ids = new int[n];
+				int[] back = new int[n];
+				double[] offsets = new double[n];
+				for (int i=0; i<n; i++) {
+					Integer id = stops.get(route.get(i));
+					if (id == null) {
+						id = stops.size();
+						stops.put(route.get(i), id);
+					}
+					ids[i] = id;
+					back[n - 1 - i] = id;
+					if (i > 0) {
+						offsets[i] = offsets[i-1] + DWELL +
+							route.get(i).distance(route.get(i-1)) / SPEED;
+					}
+				}
+
+				double[] times = new double[n];
+				double[] backTimes = new double[n];
+				for (double t = 0; t < DAY; t += headway) {
+					for (int i=0; i<n; i++) {
+						times[i] = t + offsets[i];
+						backTimes[i] = t + offsets[n-1] - offsets[n-1-i];
+					}
+					oracle.addRoute(via++, ids, times);
+					oracle.addRoute(via++, back, backTimes);
+				}
+			}
+		}
+		return stops.size();
+	}
+
+	/**
+	 * Runs random queries with the given search(es)
+	 * @return Sum of the arrival times of the reachable destinations
+	 */
+	private static double run(ScheduleDijkstra dijkstra,
+			EarliestArrivalSearch search, int nrofStops, int queries,
+			long seed) {
+		Random rng = new Random(seed);
+		double sum = 0;
+
+		for (int i=0; i<queries; i++) {
+			int from = rng.nextInt(nrofStops);
+			int to = rng.nextInt(nrofStops);
+			double time = rng.nextDouble() * DAY / 2;
+			double t1 = -1, t2 = -1;
+
+			if (dijkstra != null) {
+				t1 = getArrival(dijkstra.getShortestPath(from, to, time));
+				sum += t1;
+			}
+			if (search != null) {
+				t2 = getArrival(search.getShortestPath(from, to, time));
+				sum += t2;
+			}
+			if (dijkstra != null && search != null && t1 != t2) {
+				throw new AssertionError("Arrival times differ from " +
+						from + " to " + to + " at " + time + ": " + t1 +
+						" vs " + t2);
+			}
+		}
+		return sum;
+	}
+
+	private static double getArrival(List<ScheduleEntry> path) {
+		return path.isEmpty() ? 0 : path.get(path.size() - 1).
+				getDestinationTime();
+	}
+}
@@ -64,6 +64,7 @@ public class SettingsTest extends TestCase {
 	@Override
 	protected void tearDown() throws Exception {
 		super.tearDown();
+		Settings.unfreeze();
 		Settings.setRunIndex(0);
 	}
 
@@ -215,5 +216,41 @@ public class SettingsTest extends TestCase {
 		Settings.setRunIndex(-1);
 		assertEquals("[val1 ; val2;val3; val4 ]", s.getSetting(RS_S));
 	}
-
+	
+	public void testFrozen() {
+		Settings.freeze();
+		assertTrue(Settings.isFrozen());
+		
+		assertTrue(s.contains("Ns.setting1"));
+		assertFalse(s.contains("Ns.noSuchSetting"));
+		assertEquals(1, s.getInt("int"));
+		assertEquals(1.1, s.getDouble("double"));
+		assertEquals(5.0, s.getDouble("noSuchDouble", 5));
+		assertTrue(s.getBoolean("booleanTrue"));
+		
+		double[] csv = s.getCsvDoubles("csvDoubles", 3);
+		assertEquals(2.2, csv[1]);
+		s.getCsvSetting("csvDoubles")[0] = "changed";
+		assertEquals("1.1", s.getCsvSetting("csvDoubles")[0]);
+		
+		try {
+			s.getSetting("Ns.noSuchSetting");
+			fail("Missing setting should throw an error");
+		} catch (core.SettingsError e) {
+			// should happen
+		}
+	}
+	
+	public void testFrozenRunIndex() {
+		Settings.freeze();
+		Settings ns = new Settings("Ns");
+		ns.setSecondaryNamespace("DefNs");
+		
+		assertEquals("val1", s.getSetting(RS_S));
+		assertEquals(1, ns.getInt(RS_S));
+		Settings.setRunIndex(2);
+		assertEquals("val3", s.getSetting(RS_S));
+		assertEquals(2, ns.getInt(RS_S));
+		assertEquals(CSV_RS_V[0], s.getCsvInts(CSV_RS_S, 2)[0]);
+	}
 }
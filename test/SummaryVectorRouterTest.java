@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import routing.ActiveRouter;
+import routing.EpidemicRouter;
+import routing.MessageRouter;
+import core.Message;
+
+/**
+ * Tests for offering only the messages missing from the peer's summary
+ * vector (see {@link ActiveRouter#SUMMARY_VECTOR_S})
+ */
+public class SummaryVectorRouterTest extends AbstractRouterTest {
+
+	@Override
+	public void setUp() throws Exception {
+		ts.setNameSpace(TestUtils.IFACE_NS);
+		ts.putSetting(MessageRouter.B_SIZE_S, ""+BUFFER_SIZE);
+		ts.putSetting(ActiveRouter.SUMMARY_VECTOR_S, "true");
+		setRouterProto(new EpidemicRouter(ts));
+		super.setUp();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ts.setNameSpace(TestUtils.IFACE_NS);
+		ts.putSetting(ActiveRouter.SUMMARY_VECTOR_S, "false");
+		super.tearDown();
+	}
+
+	public void testOnlyMissingMessagesAreOffered() {
+		h1.createNewMessage(new Message(h1, h3, msgId1, 1));
+		h2.createNewMessage(new Message(h2, h3, msgId2, 1));
+		checkCreates(2);
+
+		h1.connect(h2);
+		updateAllNodes();
+		/* both are missing from the other */
+		assertTrue(mc.next());
+		assertEquals(mc.TYPE_START, mc.getLastType());
+
+		clock.advance(1);
+		updateAllNodes();
+		clock.advance(1);
+		updateAllNodes();
+		assertTrue(h1.getRouter().hasMessage(msgId2));
+		assertTrue(h2.getRouter().hasMessage(msgId1));
+
+		/* nothing left to offer */
+		mc.reset();
+		clock.advance(1);
+		updateAllNodes();
+		assertFalse(mc.next());
+	}
+
+	public void testReceivedAfterExchangeIsOffered() {
+		h1.connect(h2);
+		updateAllNodes();
+
+		h1.createNewMessage(new Message(h1, h3, msgId1, 1));
+		checkCreates(1);
+		updateAllNodes();
+		checkTransferStart(h1, h2, msgId1);
+	}
+
+	public void testDeletedMessageIsNotOffered() {
+		h1.createNewMessage(new Message(h1, h3, msgId1, 10));
+		h1.connect(h2);
+		h1.deleteMessage(msgId1, false);
+
+		/* same ID again, but a different message */
+		h1.createNewMessage(new Message(h1, h3, msgId1, 20));
+		mc.reset();
+		updateAllNodes();
+		checkTransferStart(h1, h2, msgId1);
+		assertEquals(20, mc.getLastMsg().getSize());
+	}
+}
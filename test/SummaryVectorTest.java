@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.util.SummaryVector;
+
+/**
+ * Tests for the summary vectors of message IDs
+ */
+public class SummaryVectorTest extends TestCase {
+
+	public void testContains() {
+		SummaryVector sv = new SummaryVector(0);
+		sv.addAll(Arrays.asList("M3", "M1"));
+		sv.addAll(Arrays.asList("M2"));
+		sv.seal();
+
+		assertEquals(3, sv.size());
+		assertTrue(sv.contains("M1"));
+		assertTrue(sv.contains("M2"));
+		assertTrue(sv.contains("M3"));
+		assertFalse(sv.contains("M4"));
+		assertFalse(sv.contains(""));
+	}
+
+	public void testGrowing() {
+		List<String> ids = new ArrayList<String>();
+		for (int i=0; i<1000; i++) {
+			ids.add("M" + i);
+		}
+		SummaryVector sv = new SummaryVector(2);
+		sv.addAll(ids.subList(0, 500));
+		sv.addAll(ids.subList(500, 1000));
+		sv.seal();
+
+		assertEquals(1000, sv.size());
+		for (String id : ids) {
+			assertTrue(id, sv.contains(id));
+		}
+		assertFalse(sv.contains("M1000"));
+	}
+
+	public void testHash() {
+		assertEquals(SummaryVector.hash("M1"), SummaryVector.hash("M1"));
+		assertFalse(SummaryVector.hash("M1") == SummaryVector.hash("M2"));
+		/* both bytes of the characters matter */
+		assertFalse(SummaryVector.hash("\u0101") == 
+			SummaryVector.hash("\u0201"));
+	}
+}
@@ -31,6 +31,8 @@ public class TestDTNHost extends DTNHost {
 	
 	public String transferredId;
 	public DTNHost transferredFrom;
+	/** if not null, the host adds itself to the list on every update */
+	public List<DTNHost> updateLog;
 
 	
 	public TestDTNHost(List<NetworkInterface> li, 
@@ -51,6 +53,9 @@ public class TestDTNHost extends DTNHost {
 	public void update(boolean up) {
 		this.nrofUpdate++;
 		this.lastUpdate = SimClock.getTime();
+		if (this.updateLog != null) {
+			this.updateLog.add(this);
+		}
 	}
 	
 	@Override
@@ -111,6 +111,7 @@ public class TestUtils {
 		
 		NetworkInterface ni = new TestInterface(settings);
 		ni.setClisteners(conListeners);
+		ni.setGroupSettings(settings); // activeness handler (always active)
 		List<NetworkInterface> li = new ArrayList<NetworkInterface>();
 		li.add(ni);
 		DTNHost host = new DTNHost(msgListeners, null, groupId,
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import routing.EpidemicRouter;
+import routing.MessageRouter;
+import core.Message;
+import core.SimClock;
+import core.TransferQueue;
+
+/**
+ * Tests for finishing transfers at their exact done times
+ */
+public class TransferQueueTest extends AbstractRouterTest {
+	private TransferQueue queue;
+
+	@Override
+	public void setUp() throws Exception {
+		ts.putSetting(MessageRouter.B_SIZE_S, ""+BUFFER_SIZE);
+		setRouterProto(new EpidemicRouter(ts));
+		super.setUp();
+		queue = new TransferQueue(utils.getAllHosts());
+	}
+
+	public void testFinishAtDoneTime() {
+		h1.createNewMessage(new Message(h1, h2, msgId1, 25));
+		checkCreates(1);
+		h1.connect(h2);
+		updateAllNodes();
+		checkTransferStart(h1, h2, msgId1);
+		assertEquals(2.5, queue.nextTime());
+
+		queue.finishDue(2.4);
+		assertFalse(mc.next());
+		assertEquals(0.0, SimClock.getTime());
+
+		queue.finishDue(3.0);
+		assertTrue(mc.next());
+		assertEquals(mc.TYPE_RELAY, mc.getLastType());
+		assertEquals(msgId1, mc.getLastMsg().getId());
+		assertEquals(2.5, SimClock.getTime());
+		assertEquals(Double.MAX_VALUE, queue.nextTime());
+	}
+
+	public void testBackToBack() {
+		h1.createNewMessage(new Message(h1, h2, msgId1, 25));
+		h1.createNewMessage(new Message(h1, h2, msgId2, 15));
+		checkCreates(2);
+		h1.connect(h2);
+		updateAllNodes();
+
+		/* the second transfer starts when the first is done */
+		queue.finishDue(10);
+		assertEquals(2, queue.getNrofTransfers());
+		assertEquals(4.0, SimClock.getTime(), 1e-9);
+		int relays = 0;
+		while (mc.next()) {
+			if (mc.getLastType().equals(mc.TYPE_RELAY)) {
+				relays++;
+			}
+		}
+		assertEquals(2, relays);
+	}
+
+	public void testAbortedTransferIsSkipped() {
+		h1.createNewMessage(new Message(h1, h2, msgId1, 25));
+		h1.connect(h2);
+		updateAllNodes();
+		assertEquals(1, queue.getNrofTransfers());
+
+		disconnect(h1);
+		queue.finishDue(10);
+		assertEquals(0.0, SimClock.getTime());
+	}
+}
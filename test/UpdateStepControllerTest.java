@@ -0,0 +1,161 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import movement.Path;
+import core.Coord;
+import core.DTNHost;
+import core.MessageListener;
+import core.NetworkInterface;
+import core.SimClock;
+import core.UpdateStepController;
+
+/**
+ * Tests for the adaptive update step controller
+ */
+public class UpdateStepControllerTest extends TestCase {
+	private static final double MIN_STEP = 0.1;
+	private static final double MAX_STEP = 30;
+	private static final double RANGE = 10;
+	private static final double HOST_SPEED = 2;
+
+	private TestUtils utils;
+	private List<DTNHost> hosts;
+	private UpdateStepController controller;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		TestSettings ts = new TestSettings();
+		ts.setNameSpace(TestUtils.IFACE_NS);
+		ts.putSetting(NetworkInterface.TRANSMIT_RANGE_S, "" + RANGE);
+		ts.putSetting(NetworkInterface.TRANSMIT_SPEED_S, "1");
+		ConnectivityGrid.reset(); /* no interfaces of other tests */
+
+		utils = new TestUtils(null, new ArrayList<MessageListener>(), ts);
+		hosts = utils.getAllHosts();
+		controller = new UpdateStepController(MIN_STEP, MAX_STEP, 1000);
+	}
+
+	public void testStationaryHosts() {
+		utils.createHost(new Coord(0, 0));
+		utils.createHost(new Coord(30, 0));
+		assertEquals(MAX_STEP, controller.nextStep(hosts, Double.MAX_VALUE));
+		assertEquals(7.0, controller.nextStep(hosts, 7.05), 1e-9);
+
+		SimClock.getInstance().setTime(995);
+		assertEquals(5.0, controller.nextStep(hosts, Double.MAX_VALUE),
+				1e-9);
+	}
+
+	public void testApproachingHost() {
+		utils.createHost(new Coord(0, 0));
+		DTNHost mover = utils.createHost(new LineMovement(new Coord(30, 0),
+				new Coord(0, 0)), null);
+		mover.move(0); /* starts the path */
+
+		/* 20 m to the range at 2 * HOST_SPEED */
+		double step = controller.nextStep(hosts, Double.MAX_VALUE);
+		assertEquals(5.0, step, 1e-9);
+		mover.move(step);
+		assertEquals(20.0, mover.getLocation().getX(), 1e-9);
+
+		assertEquals(2.5, controller.nextStep(hosts, Double.MAX_VALUE), 
+				1e-9);
+		mover.move(5.0); /* at 10 m, i.e., just in range */
+		assertEquals(MIN_STEP, controller.nextStep(hosts, Double.MAX_VALUE),
+				1e-9);
+	}
+
+	public void testWaitingHost() {
+		utils.createHost(new Coord(0, 0));
+		utils.createHost(new LineMovement(new Coord(900, 900), 
+				new Coord(0, 0), 3.0), null);
+		assertEquals(3.0, controller.nextStep(hosts, Double.MAX_VALUE),
+				1e-9);
+	}
+
+	public void testInactiveHost() {
+		utils.createHost(new Coord(0, 0));
+		LineMovement lm = new LineMovement(new Coord(30, 0), new Coord(0, 0));
+		lm.activeFrom = 4.0;
+		DTNHost mover = utils.createHost(lm, null);
+
+		/* doesn't move, but must be checked when it becomes active */
+		assertEquals(4.0, controller.nextStep(hosts, Double.MAX_VALUE),
+				1e-9);
+		SimClock.getInstance().setTime(4.0);
+		mover.move(0); /* starts the path */
+		assertEquals(5.0, controller.nextStep(hosts, Double.MAX_VALUE),
+				1e-9);
+	}
+
+	public void testSummary() {
+		utils.createHost(new Coord(0, 0));
+		controller.nextStep(hosts, Double.MAX_VALUE);
+		controller.nextStep(hosts, 0.05);
+		assertEquals(2, controller.getNrofSteps());
+		assertTrue(controller.getSummary().contains("<=1:1"));
+		assertTrue(controller.getSummary().contains(">50:1"));
+	}
+
+	/**
+	 * Movement from one point to another at {@link #HOST_SPEED}
+	 */
+	private static class LineMovement extends StationaryMovement {
+		private Coord from;
+		private Coord to;
+		private double startTime;
+		/** Time when the movement becomes active */
+		private double activeFrom = 0;
+
+		public LineMovement(Coord from, Coord to) {
+			this(from, to, 0);
+		}
+
+		public LineMovement(Coord from, Coord to, double startTime) {
+			super(from);
+			this.from = from;
+			this.to = to;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = new Path(HOST_SPEED);
+			p.addWaypoint(from);
+			p.addWaypoint(to);
+			return p;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return startTime;
+		}
+
+		@Override
+		public boolean isActive() {
+			return SimClock.getTime() >= activeFrom;
+		}
+
+		@Override
+		public double getNextActivenessChange() {
+			return SimClock.getTime() < activeFrom ? activeFrom :
+				Double.MAX_VALUE;
+		}
+
+		@Override
+		public LineMovement replicate() {
+			LineMovement lm = new LineMovement(from, to, startTime);
+			lm.activeFrom = activeFrom;
+			return lm;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import interfaces.ConnectivityGrid;
+import junit.framework.TestCase;
+import movement.EveningActivityControlSystem;
+import movement.EveningActivityMovement;
+import movement.MovementModel;
+import movement.PublicTransportControlSystem;
+import movement.PublicTransportTravellerMovement;
+import movement.StateOutput;
+import util.RandomStreams;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.WarmupSnapshot;
+import core.World;
+
+/**
+ * Tests that the movement state restored from a warm-up snapshot is the
+ * same as the state after an uninterrupted warm-up, and that the movement
+ * continues the same way after it.
+ */
+public class WarmupSnapshotTest extends TestCase {
+	private static final double WARMUP = 20000;
+	private static final int NROF_STEPS = 2000;
+
+	private TestSettings ts;
+	private File dir;
+	private File file;
+	private World world;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ts = new TestSettings();
+		ts.putSetting("Scenario.nrofHostGroups", "3");
+		ts.putSetting("Scenario.updateInterval", "1");
+		ts.putSetting("MovementModel.worldSize", "10000, 8000");
+		ts.putSetting("MovementModel.rngSeed", "2");
+		ts.putSetting("MapBasedMovement.nrofMapFiles", "2");
+		ts.putSetting("MapBasedMovement.mapFile1", "data/roads.wkt");
+		ts.putSetting("MapBasedMovement.mapFile2", "data/main_roads.wkt");
+
+		ts.putSetting("Group.router", "PassiveRouter");
+		ts.putSetting("Group.bufferSize", "1M");
+		ts.putSetting("Group.nrofInterfaces", "1");
+		ts.putSetting("Group.interface1", "btInterface");
+		ts.putSetting("btInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("btInterface.transmitSpeed", "250k");
+		ts.putSetting("btInterface.transmitRange", "10");
+		ts.putSetting("Group.waitTime", "0, 0");
+		ts.putSetting("Group.speed", "0.5, 1.5");
+		ts.putSetting("Group.nrOfOffices", "5");
+		ts.putSetting("Group.workDayLength", "28800");
+		ts.putSetting("Group.probGoShoppingAfterWork", "0.5");
+		ts.putSetting("Group.nrOfMeetingSpots", "2");
+		ts.putSetting("Group.officeWaitTimeParetoCoeff", "0.5");
+		ts.putSetting("Group.officeMinWaitTime", "10");
+		ts.putSetting("Group.officeMaxWaitTime", "100000");
+		ts.putSetting("Group.officeSize", "100");
+		ts.putSetting("Group.timeDiffSTD", "7200");
+		ts.putSetting("Group.minGroupSize", "1");
+		ts.putSetting("Group.maxGroupSize", "3");
+		ts.putSetting("Group.minAfterShoppingStopTime", "3600");
+		ts.putSetting("Group.maxAfterShoppingStopTime", "7200");
+
+		ts.putSetting("Group1.groupID", "b");
+		ts.putSetting("Group1.nrofHosts", "2");
+		ts.putSetting("Group1.movementModel", "BusMovement");
+		ts.putSetting("Group1.routeFile", "data/demo_bus.wkt");
+		ts.putSetting("Group1.routeType", "2");
+		ts.putSetting("Group1.busControlSystemNr", "1");
+		ts.putSetting("Group1.speed", "7, 10");
+		ts.putSetting("Group1.waitTime", "10, 30");
+
+		ts.putSetting("Group2.groupID", "w");
+		ts.putSetting("Group2.nrofHosts", "20");
+		ts.putSetting("Group2.movementModel", "WorkingDayMovement");
+		ts.putSetting("Group2.busControlSystemNr", "1");
+		ts.putSetting("Group2.shoppingControlSystemNr", "1");
+		ts.putSetting("Group2.ownCarProb", "0.2");
+
+		ts.putSetting("Group3.groupID", "p");
+		ts.putSetting("Group3.nrofHosts", "3");
+		ts.putSetting("Group3.movementModel",
+				"ShortestPathMapBasedMovement");
+		ts.putSetting("Group3.waitTime", "100, 300");
+
+		dir = File.createTempFile("snapshot", "");
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+		file = new File(dir, "warmup.snap");
+	}
+
+	protected void tearDown() throws Exception {
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+		SimScenario.reset();
+		SimClock.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates the world of a new scenario and sets the clock to the start
+	 * of the warm-up
+	 */
+	private void createWorld() {
+		SimScenario.reset();
+		SimClock.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		ConnectivityGrid.reset();
+		MovementModel.reset();
+		RandomStreams.reset();
+		EveningActivityControlSystem.reset();
+		EveningActivityMovement.reset();
+		PublicTransportControlSystem.reset();
+		PublicTransportTravellerMovement.reset();
+		SimClock.getInstance().setTime(-WARMUP);
+		world = SimScenario.getInstance().getWorld();
+	}
+
+	/**
+	 * Runs a scenario with the warm-up done either by the snapshot handler
+	 * or by the world
+	 * @param snapshot If true, the snapshot handler is used
+	 * @param restored The expected return value of the snapshot handler
+	 * @return The state of the world after the warm-up and the locations of
+	 * the hosts during the simulation that follows it
+	 */
+	private RunResult run(boolean snapshot, boolean restored)
+			throws IOException {
+		createWorld();
+		if (snapshot) {
+			assertEquals(restored,
+					new WarmupSnapshot(world, file.getPath()).warmup(WARMUP));
+		}
+		else {
+			world.warmupMovementModel(WARMUP);
+		}
+		assertEquals(0.0, SimClock.getTime());
+
+		RunResult result = new RunResult();
+		for (DTNHost host : world.getHosts()) {
+			result.locations.add(host.getLocation().clone());
+			result.hostStates.add(hostState(host));
+		}
+		result.sharedState = sharedState();
+
+		for (int i=0; i<NROF_STEPS; i++) {
+			world.update();
+			for (DTNHost host : world.getHosts()) {
+				result.trajectories.add(host.getLocation().clone());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the movement state (location, path and movement model state)
+	 * of a host
+	 */
+	private static byte[] hostState(DTNHost host) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StateOutput out = new StateOutput(bytes);
+		host.writeMovementState(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Returns the state of the shared movement random number generator and
+	 * the control systems
+	 */
+	private static byte[] sharedState() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StateOutput out = new StateOutput(bytes);
+		MovementModel.writeSharedState(out);
+		EveningActivityControlSystem.writeSharedState(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private void assertSameRun(RunResult expected, RunResult actual) {
+		int nrofHosts = expected.locations.size();
+		assertEquals(nrofHosts, actual.locations.size());
+		for (int i=0; i<nrofHosts; i++) {
+			assertEquals("Location of host " + i,
+					expected.locations.get(i), actual.locations.get(i));
+			assertTrue("Movement state of host " + i, Arrays.equals(
+					expected.hostStates.get(i), actual.hostStates.get(i)));
+		}
+		assertTrue("Shared movement state", Arrays.equals(
+				expected.sharedState, actual.sharedState));
+
+		/* the same random numbers are drawn after the warm-up */
+		assertEquals(expected.trajectories.size(), actual.trajectories.size());
+		for (int i=0; i<expected.trajectories.size(); i++) {
+			assertEquals("Location of host " + (i % nrofHosts) + " at step " +
+					(i / nrofHosts), expected.trajectories.get(i),
+					actual.trajectories.get(i));
+		}
+	}
+
+	public void testRestoredSameAsWarmup() throws IOException {
+		RunResult uninterrupted = run(false, false);
+		RunResult saved = run(true, false);
+		assertTrue(file.exists());
+		RunResult restored = run(true, true);
+
+		assertSameRun(uninterrupted, saved);
+		assertSameRun(uninterrupted, restored);
+	}
+
+	public void testOnlySnapshotFileIsLeft() throws IOException {
+		run(true, false);
+		assertEquals(Arrays.asList(file), Arrays.asList(dir.listFiles()));
+		run(true, true);
+		assertEquals(Arrays.asList(file), Arrays.asList(dir.listFiles()));
+	}
+
+	public void testOtherSeedReplacesSnapshot() throws IOException {
+		run(true, false);
+		ts.putSetting("MovementModel.rngSeed", "3");
+		RunResult saved = run(true, false);
+		RunResult restored = run(true, true);
+		assertSameRun(saved, restored);
+	}
+
+	/**
+	 * The state of the world after the warm-up and the trajectories of the
+	 * hosts after it
+	 */
+	private static class RunResult {
+		private List<Coord> locations = new ArrayList<Coord>();
+		private List<byte[]> hostStates = new ArrayList<byte[]>();
+		private byte[] sharedState;
+		private List<Coord> trajectories = new ArrayList<Coord>();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import gui.WorldSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.ConnectionListener;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+/**
+ * Tests for the snapshots of the world the GUI draws
+ */
+public class WorldSnapshotTest extends TestCase {
+	private List<DTNHost> hosts;
+	private DTNHost h0, h1, h2, h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		DTNHost.reset();
+		TestUtils utils = new TestUtils(new ArrayList<ConnectionListener>(),
+				new ArrayList<MessageListener>(), new TestSettings());
+		h0 = utils.createHost(new Coord(0, 0), "h0");
+		h1 = utils.createHost(new Coord(0.5, 0), "h1");
+		h2 = utils.createHost(new Coord(10, 0), "h2");
+		h3 = utils.createHost(new Coord(10.5, 0), "h3");
+		hosts = new ArrayList<DTNHost>();
+		hosts.add(h0);
+		hosts.add(h1);
+		hosts.add(h2);
+		hosts.add(h3);
+
+		h0.connect(h1);
+		h3.connect(h2);
+		h1.createNewMessage(new Message(h1, h2, "M1", 10));
+		h1.createNewMessage(new Message(h1, h3, "M2", 10));
+	}
+
+	public void testHosts() {
+		List<DTNHost> highlighted = new ArrayList<DTNHost>();
+		highlighted.add(h3);
+		WorldSnapshot s = new WorldSnapshot(hosts, 12.5, highlighted, true);
+
+		assertEquals(12.5, s.getTime());
+		assertEquals(4, s.getNrofHosts());
+		assertEquals(0.5, s.getX(1));
+		assertEquals(0.0, s.getY(1));
+		assertEquals(10.5, s.getX(3));
+		assertEquals("h2", s.getName(2));
+		assertEquals(0, s.getNrofMessages(0));
+		assertEquals(2, s.getNrofMessages(1));
+		assertFalse(s.isHighlighted(2));
+		assertTrue(s.isHighlighted(3));
+
+		for (int i=0; i<4; i++) {
+			assertTrue(s.isRadioActive(i));
+			assertEquals(1, s.getNrofInterfaces(i));
+			assertEquals(1.0, s.getTransmitRange(i, 0));
+		}
+	}
+
+	public void testLinks() {
+		WorldSnapshot s = new WorldSnapshot(hosts, 0, null, false);
+		assertEquals(2, s.getNrofLinks());
+		assertEquals(0, s.getLinkFrom(0));
+		assertEquals(1, s.getLinkTo(0));
+		assertEquals(2, s.getLinkFrom(1));
+		assertEquals(3, s.getLinkTo(1));
+	}
+
+	public void testWithoutRadios() {
+		WorldSnapshot s = new WorldSnapshot(hosts, 0, null, false);
+		for (int i=0; i<4; i++) {
+			assertFalse(s.isRadioActive(i));
+			assertEquals(0, s.getNrofInterfaces(i));
+			assertFalse(s.isHighlighted(i));
+		}
+	}
+
+	public void testSnapshotDoesNotChange() {
+		List<DTNHost> highlighted = new ArrayList<DTNHost>();
+		highlighted.add(h0);
+		WorldSnapshot s = new WorldSnapshot(hosts, 0, highlighted, true);
+
+		h1.setLocation(new Coord(100, 100));
+		h1.setName("moved");
+		h1.deleteMessage("M1", false);
+		h0.connect(h2);
+		highlighted.add(h1);
+
+		assertEquals(0.5, s.getX(1));
+		assertEquals(0.0, s.getY(1));
+		assertEquals("h1", s.getName(1));
+		assertEquals(2, s.getNrofMessages(1));
+		assertEquals(2, s.getNrofLinks());
+		assertFalse(s.isHighlighted(1));
+	}
+}
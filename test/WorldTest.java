@@ -7,6 +7,7 @@ package test;
 import input.EventQueue;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -101,6 +102,38 @@ public class WorldTest extends TestCase {
 
 	}
 	
+	public void testStrideUpdateOrder() {
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." + 
+				World.STRIDE_UPDATE_ORDER_S, "true");
+		TestScenario scen = new TestScenario();
+		world = new World(scen.getHosts(), worldSizeX, worldSizeY, 
+				upInterval, scen.getUpdateListeners(), simulateConnections, 
+				eQueues);
+		
+		List<DTNHost> log = new ArrayList<DTNHost>();
+		for (TestDTNHost h : testHosts) {
+			h.updateLog = log;
+		}
+		
+		int nrofRounds = 100;
+		int nrofFirst[] = new int[testHosts.size()];
+		for (int i=0; i<nrofRounds; i++) {
+			log.clear();
+			world.update();
+			/* every host is updated exactly once per round */
+			assertEquals(testHosts.size(), new HashSet<DTNHost>(log).size());
+			assertEquals(testHosts.size(), log.size());
+			nrofFirst[testHosts.indexOf(log.get(0))]++;
+		}
+		assertNrofUpdates(nrofRounds);
+		
+		/* every host gets to be the first one every now and then */
+		for (int n : nrofFirst) {
+			assertTrue(n > 0);
+		}
+	}
+	
 
 	/** Dummy scenario for providing test values for the World */ 
 	private class TestScenario extends core.SimScenario {
@@ -4,7 +4,12 @@
  */
 package ui;
 
+import core.DTN2Manager;
+import core.Settings;
+import core.SettingsError;
 import core.SimClock;
+import core.SimScenario;
+import core.StartupTimes;
 
 /**
  * Simple text-based user interface.
@@ -14,18 +19,52 @@ public class DTNSimTextUI extends DTNSimUI {
 	private long startTime; // simulation start time
 	/** How often the UI view is updated (milliseconds) */
 	public static final long UI_UP_INTERVAL = 60000;
+	/** Real-time speed-up factor -setting id ({@value}). Double. If
+	 * positive, the simulation time is paced to the wall clock so that
+	 * this many simulated seconds pass in a real second (e.g., for DTN2
+	 * emulation). Default = 0 (run as fast as possible) */
+	public static final String REALTIME_FACTOR_S =
+		SimScenario.SCENARIO_NS + ".realTimeFactor";
+
+	/** paces the simulation to the wall clock (null if not paced) */
+	private RealTimePacer pacer;
+	/** number of ticks over budget at the last UI update */
+	private long lastOverruns;
 
 	protected void runSim() {
 		double simTime = SimClock.getTime();
 		double endTime = scen.getEndTime();
 	
+		String startup = StartupTimes.getSummary();
+		if (startup.length() > 0) {
+			print("Start-up: " + startup);
+		}
+		StartupTimes.clear(); // next run's times are its own
+
+		// Startup DTN2Manager (does nothing if DTN2 isn't configured)
+		DTN2Manager.setup(world);
+
 		print("Running simulation '" + scen.getName()+"'");
 
+		double factor = new Settings().getDouble(REALTIME_FACTOR_S, 0);
+		if (factor < 0) {
+			throw new SettingsError("Invalid " + REALTIME_FACTOR_S + " " +
+					factor);
+		}
+		pacer = (factor > 0 ? new RealTimePacer(factor) : null);
+		lastOverruns = 0;
+
 		startTime = System.currentTimeMillis();
 		lastUpdateRt = startTime;
+		if (pacer != null) {
+			pacer.start(simTime);
+		}
 		
 		while (simTime < endTime && !simCancelled){
 			try {
+				if (pacer != null) {
+					pacer.beginTick(simTime);
+				}
 				world.update();
 			} catch (AssertionError e) {
 				e.printStackTrace();
@@ -33,6 +72,12 @@ public class DTNSimTextUI extends DTNSimUI {
 				return;
 			}
 			simTime = SimClock.getTime();
+			if (pacer != null && pacer.endTick(simTime) &&
+					lastOverruns == 0) {
+				print("Real-time budget exceeded at " + 
+						SimClock.getFormattedTime(1) + "s");
+				lastOverruns = pacer.getNrofOverruns();
+			}
 			this.update(false);
 		}
 		
@@ -43,6 +88,12 @@ public class DTNSimTextUI extends DTNSimUI {
 		this.update(true); // force final UI update
 		
 		print("Simulation done in " + String.format("%.2f", duration) + "s");
+		if (pacer != null) {
+			print("Real-time pacing: " + pacer.getSummary());
+		}
+		if (world.getStepController() != null) {
+			print("Update steps: " + world.getStepController().getSummary());
+		}
 	
 	}
 	
@@ -61,6 +112,13 @@ public class DTNSimTextUI extends DTNSimUI {
 			double ssps = ((SimClock.getTime() - lastUpdate)*1000) / diff;
 			print(String.format("%.1f %d: %.2f 1/s", dur, 
 					SimClock.getIntTime(),ssps));
+			if (pacer != null && pacer.getNrofOverruns() > lastOverruns) {
+				print(String.format("  %d/%d ticks over real-time budget, " +
+						"lag %.2f ms", pacer.getNrofOverruns(), 
+						pacer.getNrofTicks(),
+						pacer.getLag(SimClock.getTime()) / 1e6));
+				lastOverruns = pacer.getNrofOverruns();
+			}
 			
 			this.lastUpdateRt = System.currentTimeMillis();
 			this.lastUpdate = SimClock.getTime();
@@ -16,7 +16,9 @@ import core.SettingsError;
 import core.SimClock;
 import core.SimError;
 import core.SimScenario;
+import core.StartupTimes;
 import core.UpdateListener;
+import core.WarmupSnapshot;
 import core.World;
 
 /**
@@ -42,6 +44,15 @@ public abstract class DTNSimUI {
 	 */
 	public static final String MM_WARMUP_S = 
 		movement.MovementModel.MOVEMENT_MODEL_NS + ".warmup";
+	/**
+	 * Movement model warm-up snapshot file -setting id ({@value}). If set,
+	 * the state of the movement models after the warm-up is stored in this
+	 * file and read from it in later runs with the same movement settings
+	 * instead of running the warm-up again. Supports value filling.
+	 * @see core.WarmupSnapshot
+	 */
+	public static final String MM_WARMUP_SNAPSHOT_S =
+		movement.MovementModel.MOVEMENT_MODEL_NS + ".warmupSnapshot";
 	
 	/** report class' package name */
 	private static final String REPORT_PAC = "report.";
@@ -109,7 +120,16 @@ public abstract class DTNSimUI {
 			}
 
 			this.world = this.scen.getWorld();
-			world.warmupMovementModel(warmupTime);
+			long start = System.nanoTime();
+			if (warmupTime > 0 && settings.contains(MM_WARMUP_SNAPSHOT_S)) {
+				String file = settings.valueFillString(
+						settings.getSetting(MM_WARMUP_SNAPSHOT_S));
+				new WarmupSnapshot(world, file).warmup(warmupTime);
+			}
+			else {
+				world.warmupMovementModel(warmupTime);
+			}
+			StartupTimes.add(StartupTimes.WARMUP, System.nanoTime() - start);
 		}
 		catch (SettingsError se) {
 			System.err.println("Can't start: error in configuration file(s)");
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package ui;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the simulation to the wall clock, e.g., for emulation with real
+ * DTN routers. The simulation time advances at a constant speed-up factor
+ * relative to the real time (1 = real time). Every update tick starts at
+ * its absolute wall clock deadline, so oversleeping or a slow tick doesn't
+ * accumulate: the following ticks just wait less (or don't wait at all
+ * until the simulation has caught up).
+ * <P>The pacer records how late the ticks start (the lag behind the wall
+ * clock) and how much the work of a tick exceeds its budget (the wall
+ * clock time of the tick's simulated time). Ticks that start late mean
+ * that the emulation isn't real-time anymore.</P>
+ */
+public class RealTimePacer {
+	/** Time before a deadline when waiting switches from sleeping to
+	 * spinning (nanoseconds). Sleeps can oversleep by tens of
+	 * microseconds. */
+	private static final long SPIN_NANOS = 100000;
+
+	private double factor;
+	private double startSimTime;
+	private long startNanos;
+
+	private long tickStart;
+	private double tickSimTime;
+	private long nrofTicks;
+	private long nrofOverruns;
+	private long maxLag;
+	private Histogram lags;
+	private Histogram overruns;
+
+	/**
+	 * Creates a new pacer
+	 * @param factor Speed-up factor (simulated seconds per real second)
+	 */
+	public RealTimePacer(double factor) {
+		if (factor <= 0) {
+			throw new IllegalArgumentException("Invalid speed-up factor " +
+					factor);
+		}
+		this.factor = factor;
+		this.lags = new Histogram();
+		this.overruns = new Histogram();
+	}
+
+	/**
+	 * Starts pacing: the given simulation time is now
+	 * @param simTime The current simulation time
+	 */
+	public void start(double simTime) {
+		this.startSimTime = simTime;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Waits until the wall clock time of the simulation time and starts a
+	 * tick. Does not wait if the simulation is behind the wall clock.
+	 * @param simTime The simulation time of the tick's start
+	 */
+	public void beginTick(double simTime) {
+		long deadline = getDeadline(simTime);
+		long now = System.nanoTime();
+
+		while (deadline - now > SPIN_NANOS) {
+			LockSupport.parkNanos(deadline - now - SPIN_NANOS);
+			now = System.nanoTime();
+		}
+		while (deadline - now > 0) {
+			Thread.yield();
+			now = System.nanoTime();
+		}
+
+		long lag = now - deadline;
+		lags.add(lag);
+		maxLag = Math.max(maxLag, lag);
+		tickStart = now;
+		tickSimTime = simTime;
+		nrofTicks++;
+	}
+
+	/**
+	 * Ends a tick started with {@link #beginTick(double)}
+	 * @param simTime The simulation time after the tick
+	 * @return True if the tick's work took longer than its budget
+	 */
+	public boolean endTick(double simTime) {
+		long work = System.nanoTime() - tickStart;
+		long budget = (long)((simTime - tickSimTime) / factor * 1e9);
+
+		if (work <= budget) {
+			return false;
+		}
+		overruns.add(work - budget);
+		nrofOverruns++;
+		return true;
+	}
+
+	/**
+	 * Returns the current lag behind the wall clock
+	 * @param simTime The current simulation time
+	 * @return The lag (nanoseconds, negative if ahead of the wall clock)
+	 */
+	public long getLag(double simTime) {
+		return System.nanoTime() - getDeadline(simTime);
+	}
+
+	/**
+	 * Returns the number of ticks
+	 * @return the number of ticks
+	 */
+	public long getNrofTicks() {
+		return nrofTicks;
+	}
+
+	/**
+	 * Returns the number of ticks whose work took longer than the budget
+	 * @return the number of ticks over budget
+	 */
+	public long getNrofOverruns() {
+		return nrofOverruns;
+	}
+
+	/**
+	 * Returns the largest lag of a tick's start
+	 * @return the largest lag (nanoseconds)
+	 */
+	public long getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Returns a summary of the ticks with the lag and overrun histograms
+	 * @return the summary
+	 */
+	public String getSummary() {
+		return String.format("%d ticks at %sx real time, %d over budget, " +
+				"max lag %.2f ms%n  lag:     %s%n  overrun: %s", nrofTicks,
+				factor, nrofOverruns, maxLag / 1e6, lags, overruns);
+	}
+
+	/**
+	 * Returns the wall clock time of a simulation time
+	 * @param simTime The simulation time
+	 * @return The wall clock time (System.nanoTime)
+	 */
+	private long getDeadline(double simTime) {
+		return startNanos + (long)((simTime - startSimTime) / factor * 1e9);
+	}
+
+	/**
+	 * Histogram of durations with decade buckets from 10 microseconds to
+	 * one second
+	 */
+	private static class Histogram {
+		/** Upper limits of the buckets (nanoseconds) */
+		private static final long[] LIMITS = {10000, 100000, 1000000,
+			10000000, 100000000, 1000000000};
+		private static final String[] LABELS = {"<10us", "<100us", "<1ms",
+			"<10ms", "<100ms", "<1s", ">=1s"};
+		private long[] counts = new long[LIMITS.length + 1];
+
+		private void add(long nanos) {
+			int i = 0;
+			while (i < LIMITS.length && nanos >= LIMITS[i]) {
+				i++;
+			}
+			counts[i]++;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < counts.length; i++) {
+				if (i > 0) {
+					sb.append(' ');
+				}
+				sb.append(LABELS[i] + ":" + counts[i]);
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -4,8 +4,8 @@
  */
 package util;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 import core.Settings;
 import core.SettingsError;
@@ -13,7 +13,11 @@ import core.SimClock;
 
 /**
  * Object of this class tell the models when a node belonging
- * to a certain group is active and when not.
+ * to a certain group is active and when not. The activeness is a
+ * function of the time (and the node's jitter offset) only, so one handler
+ * can be shared by the whole group. {@link #getNextChange(double, int)}
+ * tells when the activeness changes next, so users can cache the current
+ * state and schedule updates for the transitions.
  */
 public class ActivenessHandler {
 	
@@ -48,17 +52,16 @@ public class ActivenessHandler {
 	 */
 	public static final String ACTIVE_PERIODS_OFFSET_S = "activePeriodsOffset";
 	
-	private Queue<TimeRange> activeTimes;
+	/** Active time ranges in order (or null if not in use) */
+	private TimeRange[] activeTimes;
 	private int [] activePeriods;
 	private int activePeriodsOffset;
 	
-	private TimeRange curRange = null;
-	
 	public ActivenessHandler(Settings s) {
 		this.activeTimes = parseActiveTimes(s);
 
 		if (activeTimes != null) {
-			this.curRange = activeTimes.poll();
+			this.activePeriods = null;
 		} else if (s.contains(ACTIVE_PERIODS_S)){
 			this.activePeriods = s.getCsvInts(ACTIVE_PERIODS_S, 2);
 			this.activePeriodsOffset = s.getInt(ACTIVE_PERIODS_OFFSET_S, 0);
@@ -67,7 +70,7 @@ public class ActivenessHandler {
 		}
 	}
 	
-	private Queue<TimeRange> parseActiveTimes(Settings s) {
+	private TimeRange[] parseActiveTimes(Settings s) {
 		double [] times;
 		String sName = s.getFullPropertyName(ACTIVE_TIMES_S);
 		
@@ -83,7 +86,7 @@ public class ActivenessHandler {
 			return null; // no setting -> always active
 		}
 
-		Queue<TimeRange> timesList = new LinkedList<TimeRange>(); 
+		List<TimeRange> timesList = new ArrayList<TimeRange>(); 
 		
 		for (int i=0; i<times.length; i+= 2) {
 			double start = times[i];
@@ -98,7 +101,7 @@ public class ActivenessHandler {
 			timesList.add(new TimeRange(start, end));
 		}
 		
-		return timesList;
+		return timesList.toArray(new TimeRange[timesList.size()]);
 	}
 	
 	/**
@@ -116,36 +119,96 @@ public class ActivenessHandler {
 	 * @return true if node should be active, false if not
 	 */
 	public boolean isActive(int offset) {
+		return isActive(SimClock.getTime(), offset);
+	}
+	
+	/**
+	 * Returns true if node should be active at the given time
+	 * @param time The simulation time
+	 * @param offset The node's offset (jitter) 
+	 * @return true if node should be active, false if not
+	 */
+	public boolean isActive(double time, int offset) {
 		if (this.activeTimes == null) {
 			if (this.activePeriods == null) {
 				return true; // no inactive times nor periods -> always active		
 			} else {
 				/* using active periods mode */
-				int timeIndex = 
-					(SimClock.getIntTime() + this.activePeriodsOffset + offset)% 
-					(this.activePeriods[0] + this.activePeriods[1]);
-				if (timeIndex <= this.activePeriods[0]) {
-					return true;
-				} else {
-					return false;
-				}
+				return getPeriodIndex(time, offset) <= this.activePeriods[0];
 			}
 		}
 		
-		if (curRange == null) {
+		int i = getRangeIndex(time + offset);
+		if (i == activeTimes.length) {
 			return false; // out of active times
 		}
-		
-		double time = SimClock.getTime() + offset;
-		
-		if (this.curRange.isOut(time)) { // time for the next time range
-			this.curRange = activeTimes.poll();
-			if (curRange == null) {
-				return false; // out of active times
+		return activeTimes[i].isInRange(time + offset);
+	}
+	
+	/**
+	 * Returns the next time when the activeness may change, i.e., the time
+	 * until which the activeness at the given time stays valid. The
+	 * activeness is valid for all times before the returned time; at the
+	 * returned time it must be checked again. The end times of the active
+	 * time ranges are inclusive, so at a range's end the node is still
+	 * active and the next change is the same time.
+	 * @param time The simulation time
+	 * @param offset The node's offset (jitter)
+	 * @return The time of the next possible change or 
+	 * {@link Double#MAX_VALUE} if the activeness never changes 
+	 */
+	public double getNextChange(double time, int offset) {
+		if (this.activeTimes == null) {
+			if (this.activePeriods == null) {
+				return Double.MAX_VALUE;
+			}
+			int index = getPeriodIndex(time, offset);
+			int intTime = (int)time;
+			if (index <= this.activePeriods[0]) {
+				return intTime + this.activePeriods[0] + 1 - index;
+			} else {
+				return intTime + this.activePeriods[0] + 
+					this.activePeriods[1] - index;
 			}
 		}
 		
-		return curRange.isInRange(time);
+		int i = getRangeIndex(time + offset);
+		if (i == activeTimes.length) {
+			return Double.MAX_VALUE; // out of active times
+		}
+		if (time + offset < activeTimes[i].start) {
+			return activeTimes[i].start - offset;
+		}
+		return activeTimes[i].end - offset;
+	}
+	
+	/**
+	 * Returns the position of the time in the active periods cycle
+	 */
+	private int getPeriodIndex(double time, int offset) {
+		return ((int)time + this.activePeriodsOffset + offset) % 
+			(this.activePeriods[0] + this.activePeriods[1]);
+	}
+	
+	/**
+	 * Returns the index of the first active time range that doesn't end
+	 * before the given time
+	 * @param time The time (including the offset)
+	 * @return The index of the range or the number of ranges if all the
+	 * ranges end before the time
+	 */
+	private int getRangeIndex(double time) {
+		int low = 0;
+		int high = activeTimes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (activeTimes[mid].isOut(time)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
 	}
 
 	/**
@@ -0,0 +1,160 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package util;
+
+import java.util.Random;
+
+import core.DTNHost;
+import core.DTNSim;
+import core.Settings;
+import core.SimError;
+import core.SimScenario;
+
+/**
+ * Independent random number streams for hosts and simulation components. 
+ * When per-host streams are enabled, the seed of each stream is derived 
+ * from a base seed, the host's address and the component using the 
+ * SplitMix64 mixing function. The random numbers of a host then
+ * do not depend on how many other hosts there are or in which order the 
+ * hosts are updated. When the streams are disabled, all the hosts share 
+ * the streams like before. Message event generators are not per host; 
+ * every generator already has a stream of its own (seeded by its message 
+ * id prefix), so they need no streams from here.
+ */
+public class RandomStreams {
+	/**
+	 * Should every host have its own random number streams -setting id 
+	 * ({@value}) in the Scenario name space. Boolean. Default is false.
+	 */
+	public static final String PER_HOST_RNG_S = "perHostRng";
+	
+	/** component id for movement models' streams */
+	public static final int MOVEMENT = 1;
+	/** component id for routers' streams */
+	public static final int ROUTING = 2;
+	/** component id for network interfaces' streams */
+	public static final int INTERFACE = 3;
+	/** component id for energy models' streams */
+	public static final int ENERGY = 4;
+	
+	/** increment of the SplitMix64 generator */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	private static boolean enabled;
+	/** address of the host whose components the thread is replicating and
+	 * the number of replication streams given for the host so far */
+	private static final ThreadLocal<int[]> replication = 
+		new ThreadLocal<int[]>();
+	
+	static {
+		DTNSim.registerForReset(RandomStreams.class.getCanonicalName());
+		reset();
+	}
+	
+	/**
+	 * Returns true if per-host random streams are in use
+	 * @return true if per-host random streams are in use
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Returns the seed of a random stream
+	 * @param baseSeed The seed all the streams of the component are 
+	 * derived from
+	 * @param stream Identifier of the stream (e.g., host address)
+	 * @param component Identifier of the component
+	 * @return The seed
+	 */
+	public static long seed(long baseSeed, long stream, int component) {
+		long seed = mix(baseSeed);
+		seed = mix(seed ^ stream);
+		return mix(seed ^ component);
+	}
+	
+	/**
+	 * Returns the first number SplitMix64 generates from the given seed
+	 * @param seed The seed
+	 * @return The mixed seed
+	 */
+	private static long mix(long seed) {
+		long z = seed + GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Returns a new random number generator for a host's component. If 
+	 * per-host streams are not enabled, the generator is seeded with the 
+	 * base seed (and is the same for all hosts).
+	 * @param baseSeed The base seed of the component
+	 * @param host The host
+	 * @param component Identifier of the component
+	 * @return A new random number generator
+	 */
+	public static Random newRandom(long baseSeed, DTNHost host, 
+			int component) {
+		if (!enabled) {
+			return new Random(baseSeed);
+		}
+		return new Random(seed(baseSeed, host.getAddress(), component));
+	}
+	
+	/**
+	 * Marks the start of the replication of a host's components (movement
+	 * model, interfaces, router etc.) by the calling thread. Until 
+	 * {@link #endReplication()} is called, the streams the components get 
+	 * with {@link #nextReplicationSeed(long, int)} depend only on the 
+	 * host's address and the order of the requests, not on the order (or 
+	 * the threads) in which the hosts are created.
+	 * @param address Address of the host
+	 */
+	public static void startReplication(int address) {
+		replication.set(new int[] {address, 0});
+	}
+	
+	/**
+	 * Marks the end of the replication started with 
+	 * {@link #startReplication(int)}
+	 */
+	public static void endReplication() {
+		replication.remove();
+	}
+	
+	/**
+	 * Returns true if the calling thread is replicating a host's components
+	 * @return true if the calling thread is replicating a host's components
+	 */
+	public static boolean isReplicating() {
+		return replication.get() != null;
+	}
+	
+	/**
+	 * Returns the seed of the next stream of the host whose components the
+	 * calling thread is replicating
+	 * @param baseSeed The seed all the streams of the component are 
+	 * derived from
+	 * @param component Identifier of the component
+	 * @return The seed
+	 * @throws SimError if the thread isn't replicating a host's components
+	 */
+	public static long nextReplicationSeed(long baseSeed, int component) {
+		int[] r = replication.get();
+		if (r == null) {
+			throw new SimError("No host replication in progress");
+		}
+		return seed(baseSeed, r[0], component ^ (r[1]++ << 8));
+	}
+	
+	/**
+	 * Reads the settings again
+	 */
+	public static void reset() {
+		Settings s = new Settings(SimScenario.SCENARIO_NS);
+		enabled = s.getBoolean(PER_HOST_RNG_S, false);
+	}
+}